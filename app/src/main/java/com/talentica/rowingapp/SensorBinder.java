@@ -2,8 +2,8 @@ package com.talentica.rowingapp;
 
 import com.talentica.rowingapp.common.BusEventListener;
 import com.talentica.rowingapp.common.data.DataRecord;
-import com.talentica.rowingapp.common.data.SensorDataSink;
 import com.talentica.rowingapp.common.data.SensorDataSource;
+import com.talentica.rowingapp.common.data.SensorSampleSink;
 import com.talentica.rowingapp.common.data.stroke.AppStroke;
 
 import java.util.LinkedList;
@@ -13,7 +13,7 @@ public abstract class SensorBinder implements BusEventListener {
 	protected final AppStroke appStroke;
 	private final LinkedList<SensorDataSourceBinder> sourceBinderList = new LinkedList<SensorDataSourceBinder>();
 
-	private class SensorDataSourceBinder implements SensorDataSink {
+	private class SensorDataSourceBinder implements SensorSampleSink {
 		private final SensorDataSource src;
 		private final DataRecord.Type type;
 		
@@ -33,6 +33,11 @@ public abstract class SensorBinder implements BusEventListener {
 			
 			SensorBinder.this.onSensorData(DataRecord.create(type, timestamp, data));
 		}
+
+		@Override
+		public void onSample(long timestamp, float[] values) {
+			SensorBinder.this.onSensorData(DataRecord.create(type, timestamp, values.clone())); // values are borrowed
+		}
 		
 		void unbind() {
 			src.removeSensorDataSink(this);
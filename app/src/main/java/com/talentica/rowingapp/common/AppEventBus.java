@@ -21,58 +21,274 @@ package com.talentica.rowingapp.common;
 import android.util.Log;
 
 import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.metrics.Histogram;
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
 
-import java.util.LinkedList;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Simple communication bus enabling communication between various components 
+ * Simple communication bus enabling communication between various components.
+ * By default events are dispatched from a dedicated bus thread. In synchronous mode
+ * there is no bus thread - events are dispatched in the firing thread, in firing order.
+ * Listeners subscribe to all event types or to a set of types. Dispatch looks up a per type
+ * copy-on-write listener array, without locking or allocating.
+ * The bus thread queue is bounded - when it is full, events are handled according to
+ * the {@link OverflowPolicy} of their type (see {@link DataRecord.Type#getBusOverflowPolicy()}).
+ * The bus takes over the reference of fired pooled records (see {@link com.talentica.rowingapp.common.data.DataRecordPool#obtain(DataRecord.Type, long)})
+ * and releases them once dispatched, dropped or conflated.
+ * With enabled {@link PipelineMetrics}, queue depth and dispatch time per listener class are measured.
  */
 public class AppEventBus extends Thread {
 
-	private static final int DEBUG_QUEUE_OVERFLOW_SIZE = 50;
-	private static final int DEBUG_QUEUE_WARN_SIZE = 20;
-	
-	private final LinkedBlockingQueue<DataRecord> eventQueue =
-		new LinkedBlockingQueue<DataRecord>();
-	
-	private final LinkedList<BusEventListener> listeners = new LinkedList<BusEventListener>();
+	/**
+	 * handling of events fired while the bus queue is full
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * never drop - the firing thread waits for queue space. Events fired from the bus thread itself
+		 * (i.e. by listeners) are queued beyond capacity instead, as waiting would dead lock
+		 */
+		BLOCK,
+		/**
+		 * keep only the latest value - an event replaces a queued, not yet dispatched event of the same type.
+		 * Dropped if the queue is full and no event of the same type is queued
+		 */
+		CONFLATE,
+		/**
+		 * drop the event
+		 */
+		DROP
+	}
+
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private static final DataRecord.Type[] TYPES = DataRecord.Type.values();
+
+	private static final OverflowPolicy[] POLICIES = new OverflowPolicy[TYPES.length];
+
+	/**
+	 * queue place holders of CONFLATE type events, by type ordinal
+	 */
+	private static final DataRecord[] PLACE_HOLDERS = new DataRecord[TYPES.length];
+
+	static {
+		for (DataRecord.Type type: TYPES) {
+			POLICIES[type.ordinal()] = type.getBusOverflowPolicy();
+			PLACE_HOLDERS[type.ordinal()] = new DataRecord(type, 0, null);
+		}
+	}
+
+	private final int capacity;
+
+	/**
+	 * bus thread queue. Guarded by itself
+	 */
+	private final ArrayDeque<DataRecord> eventQueue = new ArrayDeque<DataRecord>();
+
+	/**
+	 * latest value of each CONFLATE type event in eventQueue, by type ordinal - the queued event is a place holder.
+	 * Guarded by eventQueue
+	 */
+	private final DataRecord[] conflatedEvents = new DataRecord[TYPES.length];
 
-	private boolean shutdown;
+	private volatile long droppedCount;
+	private volatile long conflatedCount;
+	private volatile long blockedCount;
+
+	private static final BusEventListener[] NO_LISTENERS = {};
+
+	/**
+	 * registered listeners and their event types (null for all types), in registration order. Guarded by listeners
+	 */
+	private final ArrayList<BusEventListener> listeners = new ArrayList<BusEventListener>();
+	private final ArrayList<Set<DataRecord.Type>> listenerTypes = new ArrayList<Set<DataRecord.Type>>();
+
+	/**
+	 * listeners by event type ordinal - replaced as a whole on (un)registration
+	 */
+	private volatile BusEventListener[][] dispatchTable;
+
+	private volatile boolean shutdown;
+
+	private final boolean synchronous;
+
+	/**
+	 * events waiting for dispatch in synchronous mode
+	 */
+	private final ArrayDeque<DataRecord> pendingEvents = new ArrayDeque<DataRecord>();
+
+	/**
+	 * true while a thread dispatches pendingEvents. Guarded by pendingEvents
+	 */
+	private boolean dispatching;
+
+	private volatile PipelineMetrics metrics;
+
+	/**
+	 * dispatch time histograms by listener class
+	 */
+	private final ConcurrentHashMap<Class<?>, Histogram> dispatchTimes = new ConcurrentHashMap<Class<?>, Histogram>();
+
+	private Histogram queueDepth;
 
 	public AppEventBus() {
+		this(false);
+	}
+
+	/**
+	 * @param synchronous true to dispatch events in the firing thread.
+	 * Events fired by listeners during dispatch are queued and dispatched once the current event
+	 * reached all listeners, so listeners still see events one at a time and in firing order
+	 */
+	public AppEventBus(boolean synchronous) {
+		this(synchronous, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param synchronous true to dispatch events in the firing thread - see {@link #AppEventBus(boolean)}
+	 * @param capacity bus thread queue capacity, unused in synchronous mode
+	 */
+	public AppEventBus(boolean synchronous, int capacity) {
 		super("RoboStrokeEventBus thread");
+		this.synchronous = synchronous;
+		this.capacity = capacity;
+
+		BusEventListener[][] table = new BusEventListener[TYPES.length][];
+		Arrays.fill(table, NO_LISTENERS);
+		dispatchTable = table;
 		setDaemon(true);
-		start();
+
+		if (!synchronous) {
+			start();
+		}
+	}
+
+	public boolean isSynchronous() {
+		return synchronous;
 	}
 	
 	public void shutdown() {
 		shutdown = true;
 		interrupt();
+
+		synchronized (eventQueue) {
+			eventQueue.notifyAll(); // release blocked firing threads
+		}
+	}
+
+	/**
+	 * @return number of events dropped because the queue was full
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @return number of events replaced by a later event of the same type before being dispatched
+	 */
+	public long getConflatedCount() {
+		return conflatedCount;
+	}
+
+	/**
+	 * @return number of times a firing thread had to wait for queue space
+	 */
+	public long getBlockedCount() {
+		return blockedCount;
+	}
+
+	/**
+	 * measure queue depth and listener dispatch times while metrics are enabled
+	 * @param metrics metrics, or null
+	 */
+	public void setMetrics(PipelineMetrics metrics) {
+		dispatchTimes.clear();
+		queueDepth = metrics == null ? null : metrics.getHistogram("bus.queue.depth");
+		this.metrics = metrics;
+	}
+
+	/**
+	 * register bus queue gauges with metrics
+	 * @param metrics metrics
+	 */
+	public void registerMetrics(PipelineMetrics metrics) {
+		metrics.registerGauge("bus.queue.size", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return getQueueSize();
+			}
+		});
+		metrics.registerGauge("bus.dropped", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return droppedCount;
+			}
+		});
+		metrics.registerGauge("bus.conflated", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return conflatedCount;
+			}
+		});
+		metrics.registerGauge("bus.blocked", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return blockedCount;
+			}
+		});
+	}
+
+	/**
+	 * @return number of events waiting for dispatch
+	 */
+	public int getQueueSize() {
+		synchronized (eventQueue) {
+			return eventQueue.size();
+		}
 	}
 	
 	@Override
 	public void run() {
 		while (!shutdown) {
 			try {
-				DataRecord event = eventQueue.take();
+				DataRecord event;
 
-				if (shutdown) {
-					break;
-				}
-				
-				synchronized (listeners) {
-					
-					BusEventListener[] list = listeners.toArray(new BusEventListener[listeners.size()]);
-					
-					for (BusEventListener listener: list) {
-						if (shutdown) {
-							break;
-						}
-						listener.onBusEvent(event);
+				synchronized (eventQueue) {
+					while (eventQueue.isEmpty() && !shutdown) {
+						eventQueue.wait();
+					}
+
+					if (shutdown) {
+						break;
+					}
+
+					PipelineMetrics metrics = this.metrics;
+
+					if (metrics != null && metrics.isEnabled()) {
+						queueDepth.record(eventQueue.size());
+					}
+
+					event = eventQueue.poll();
+
+					int idx = event.getType().ordinal();
+
+					if (POLICIES[idx] == OverflowPolicy.CONFLATE) {
+						event = conflatedEvents[idx];
+						conflatedEvents[idx] = null;
+					}
+
+					if (eventQueue.size() == capacity - 1) {
+						eventQueue.notifyAll(); // queue no longer full
 					}
 				}
+				
+				dispatch(event);
 			} catch (InterruptedException e) {
 				if (!shutdown) {
 					e.printStackTrace();
@@ -80,43 +296,217 @@ public class AppEventBus extends Thread {
 			}			
 		}
 	}
+
+	private void dispatch(DataRecord event) {
+		BusEventListener[] list = dispatchTable[event.getType().ordinal()];
+		PipelineMetrics metrics = this.metrics;
+		boolean timed = metrics != null && metrics.isEnabled();
+
+		try {
+			for (int i = 0; i < list.length; ++i) {
+				if (shutdown) {
+					break;
+				}
+
+				if (timed) {
+					long start = System.nanoTime();
+					list[i].onBusEvent(event);
+					getDispatchTime(metrics, list[i].getClass()).record(System.nanoTime() - start);
+				} else {
+					list[i].onBusEvent(event);
+				}
+			}
+		} finally {
+			event.release();
+		}
+	}
+
+	private Histogram getDispatchTime(PipelineMetrics metrics, Class<?> listenerClass) {
+		Histogram h = dispatchTimes.get(listenerClass);
+
+		if (h == null) {
+			String name = listenerClass.getName();
+			h = metrics.getHistogram("bus.dispatch." + name.substring(name.lastIndexOf('.') + 1) + ".ns");
+			dispatchTimes.put(listenerClass, h);
+		}
+
+		return h;
+	}
+
+	private void dispatchSynchronously(DataRecord event) {
+		synchronized (pendingEvents) {
+			pendingEvents.add(event);
+
+			if (dispatching) {
+				return; // picked up by the dispatching (possibly this) thread
+			}
+
+			dispatching = true;
+		}
+
+		try {
+			while (true) {
+				DataRecord next;
+
+				synchronized (pendingEvents) {
+					next = pendingEvents.poll();
+
+					if (next == null) {
+						dispatching = false;
+						return;
+					}
+				}
+
+				dispatch(next);
+			}
+		} catch (RuntimeException e) {
+			synchronized (pendingEvents) {
+				pendingEvents.clear();
+				dispatching = false;
+			}
+
+			throw e;
+		}
+	}
 	
 	/**
-	 * add stroke rate listener
+	 * add listener of all event types
 	 * @param listener listener object
 	 */
 	public void addBusListener(BusEventListener listener) {
 		synchronized (listeners) {
 			listeners.add(listener);
+			listenerTypes.add(null);
+			updateDispatchTable();
 		}
 	}
 
 	/**
-	 * remove stroke rate listener
+	 * add listener of some event types
+	 * @param listener listener object
+	 * @param types event types to pass to listener
+	 */
+	public void addBusListener(BusEventListener listener, Set<DataRecord.Type> types) {
+		synchronized (listeners) {
+			listeners.add(listener);
+			listenerTypes.add(types.isEmpty() ? EnumSet.noneOf(DataRecord.Type.class) : EnumSet.copyOf(types));
+			updateDispatchTable();
+		}
+	}
+
+	/**
+	 * remove listener
 	 * @param listener listener object
 	 */
 	public void removeBusListener(BusEventListener listener) {
 		synchronized (listeners) {
-			listeners.remove(listener);
+			int idx = listeners.indexOf(listener);
+
+			if (idx != -1) {
+				listeners.remove(idx);
+				listenerTypes.remove(idx);
+				updateDispatchTable();
+			}
 		}
 	}
 
+	/**
+	 * rebuild and publish the dispatch table from the registered listeners
+	 */
+	private void updateDispatchTable() {
+		BusEventListener[][] table = new BusEventListener[TYPES.length][];
+		ArrayList<BusEventListener> list = new ArrayList<BusEventListener>(listeners.size());
+
+		for (DataRecord.Type type: TYPES) {
+			list.clear();
+
+			for (int i = 0; i < listeners.size(); ++i) {
+				Set<DataRecord.Type> types = listenerTypes.get(i);
+
+				if (types == null || types.contains(type)) {
+					list.add(listeners.get(i));
+				}
+			}
+
+			table[type.ordinal()] = list.isEmpty() ? NO_LISTENERS : list.toArray(new BusEventListener[list.size()]);
+		}
+
+		dispatchTable = table;
+	}
+
+	/**
+	 * fire an event. Pooled events are released by the bus once dispatched, or dropped
+	 * @param event event
+	 */
 	public void fireEvent(DataRecord event) {
 		if (shutdown) {
+			event.release();
 			return;
 		}
 
-		if (eventQueue.size() > DEBUG_QUEUE_OVERFLOW_SIZE) {
-			Log.e("fireEvent()", "event bus overflow: event queue exceeds {} items "+ DEBUG_QUEUE_OVERFLOW_SIZE);
-		} else if (eventQueue.size() > DEBUG_QUEUE_WARN_SIZE) {
-			Log.w("fireEvent()", "event bus size warning: event queue exceeds {} items"+ DEBUG_QUEUE_WARN_SIZE);
+		if (synchronous) {
+			dispatchSynchronously(event);
+			return;
 		}
 
-		try {
+		if (Log.isLoggable("AppEventBus", Log.DEBUG)) { // toString() boxes the payload of pooled records
 			Log.d("fireEvent()", "event="+ event);
-			eventQueue.put(event);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		}
+
+		int idx = event.getType().ordinal();
+
+		synchronized (eventQueue) {
+			switch (POLICIES[idx]) {
+			case CONFLATE:
+				if (conflatedEvents[idx] != null) {
+					conflatedEvents[idx].release();
+					conflatedEvents[idx] = event;
+					conflatedCount++;
+					return;
+				}
+
+				if (eventQueue.size() >= capacity) {
+					droppedCount++;
+					event.release();
+					return;
+				}
+
+				conflatedEvents[idx] = event;
+				event = PLACE_HOLDERS[idx];
+				break;
+			case DROP:
+				if (eventQueue.size() >= capacity) {
+					droppedCount++;
+					event.release();
+					return;
+				}
+				break;
+			default:
+				if (eventQueue.size() >= capacity && Thread.currentThread() != this) {
+					blockedCount++;
+
+					try {
+						while (eventQueue.size() >= capacity && !shutdown) {
+							eventQueue.wait();
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						Log.w("fireEvent()", "interrupted while waiting for event bus queue space - queueing " + event.getType() + " beyond capacity");
+					}
+
+					if (shutdown) {
+						event.release();
+						return;
+					}
+				}
+				break;
+			}
+
+			eventQueue.add(event);
+
+			if (eventQueue.size() == 1) {
+				eventQueue.notifyAll();
+			}
 		}
 	}
 
@@ -0,0 +1,170 @@
+package com.talentica.rowingapp.common;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronous event channel between the stages of a sensor pipeline, e.g. from the stroke rate scanner to the
+ * stroke power scanner. An event fired on the channel reaches the channel listeners in the firing (sensor) thread
+ * before fireEvent() returns, so stage to stage coupling does not depend on bus thread scheduling and a replay
+ * of the same input always produces the same events. Each event is then passed on to the {@link AppEventBus},
+ * which only fans events out to the UI, recording and broadcasting.
+ * Events fired by channel listeners during dispatch are dispatched once the current event reached all channel
+ * listeners and the bus, in firing order - per firing thread, as each thread dispatches its own events.
+ * Events originating outside the pipeline (UI, replayed records) are still received from the bus.
+ */
+public class PipelineChannel {
+
+	private static final DataRecord.Type[] TYPES = DataRecord.Type.values();
+
+	private static final BusEventListener[] NO_LISTENERS = {};
+
+	/**
+	 * per thread dispatch state
+	 */
+	private static class Dispatch {
+		final ArrayDeque<DataRecord> pendingEvents = new ArrayDeque<DataRecord>();
+		boolean dispatching;
+	}
+
+	private final AppEventBus bus;
+
+	/**
+	 * registered listeners and their event types, in registration order. Guarded by listeners
+	 */
+	private final ArrayList<BusEventListener> listeners = new ArrayList<BusEventListener>();
+	private final ArrayList<Set<DataRecord.Type>> listenerTypes = new ArrayList<Set<DataRecord.Type>>();
+
+	/**
+	 * listeners by event type ordinal - replaced as a whole on (un)registration
+	 */
+	private volatile BusEventListener[][] dispatchTable;
+
+	private final ThreadLocal<Dispatch> dispatch = new ThreadLocal<Dispatch>() {
+		@Override
+		protected Dispatch initialValue() {
+			return new Dispatch();
+		}
+	};
+
+	/**
+	 * @param bus event bus all channel events are passed on to
+	 */
+	public PipelineChannel(AppEventBus bus) {
+		this.bus = bus;
+
+		BusEventListener[][] table = new BusEventListener[TYPES.length][];
+		Arrays.fill(table, NO_LISTENERS);
+		dispatchTable = table;
+	}
+
+	public AppEventBus getBus() {
+		return bus;
+	}
+
+	/**
+	 * add listener of some event types fired on this channel
+	 * @param listener listener object
+	 * @param types event types to pass to listener
+	 */
+	public void addBusListener(BusEventListener listener, Set<DataRecord.Type> types) {
+		synchronized (listeners) {
+			listeners.add(listener);
+			listenerTypes.add(types.isEmpty() ? EnumSet.noneOf(DataRecord.Type.class) : EnumSet.copyOf(types));
+			updateDispatchTable();
+		}
+	}
+
+	/**
+	 * remove listener
+	 * @param listener listener object
+	 */
+	public void removeBusListener(BusEventListener listener) {
+		synchronized (listeners) {
+			int idx = listeners.indexOf(listener);
+
+			if (idx != -1) {
+				listeners.remove(idx);
+				listenerTypes.remove(idx);
+				updateDispatchTable();
+			}
+		}
+	}
+
+	private void updateDispatchTable() {
+		BusEventListener[][] table = new BusEventListener[TYPES.length][];
+		ArrayList<BusEventListener> list = new ArrayList<BusEventListener>(listeners.size());
+
+		for (DataRecord.Type type: TYPES) {
+			list.clear();
+
+			for (int i = 0; i < listeners.size(); ++i) {
+				if (listenerTypes.get(i).contains(type)) {
+					list.add(listeners.get(i));
+				}
+			}
+
+			table[type.ordinal()] = list.isEmpty() ? NO_LISTENERS : list.toArray(new BusEventListener[list.size()]);
+		}
+
+		dispatchTable = table;
+	}
+
+	/**
+	 * fire an event to the channel listeners, then to the bus. Takes over the reference of pooled events
+	 * @param event event
+	 */
+	public void fireEvent(DataRecord event) {
+		Dispatch d = dispatch.get();
+
+		d.pendingEvents.add(event);
+
+		if (d.dispatching) {
+			return; // picked up by the dispatch loop below, further up this thread's stack
+		}
+
+		d.dispatching = true;
+
+		try {
+			DataRecord next;
+
+			while ((next = d.pendingEvents.poll()) != null) {
+				try {
+					BusEventListener[] list = dispatchTable[next.getType().ordinal()];
+
+					for (int i = 0; i < list.length; ++i) {
+						list[i].onBusEvent(next);
+					}
+				} finally {
+					bus.fireEvent(next);
+				}
+			}
+		} catch (RuntimeException e) {
+			while ((event = d.pendingEvents.poll()) != null) {
+				event.release();
+			}
+
+			throw e;
+		} finally {
+			d.dispatching = false;
+		}
+	}
+
+	public void fireEvent(DataRecord.Type type, Object data) {
+		fireEvent(new DataRecord(type, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()), data));
+	}
+
+	public void fireEvent(DataRecord.Type type, long timestamp, Object ... data) {
+		fireEvent(new DataRecord(type, timestamp, data));
+	}
+
+	public void fireEvent(DataRecord.Type type, long timestamp, Object data) {
+		fireEvent(new DataRecord(type, timestamp, data));
+	}
+}
@@ -2,31 +2,53 @@ package com.talentica.rowingapp.common;
 
 import android.util.Log;
 
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 //import org.slf4j.Logger;
 //import org.slf4j.LoggerFactory;
 
+/**
+ * Bounded queue with a dedicated consumer thread. The consumer blocks until items arrive,
+ * then drains everything queued so far and hands it to {@link #handleBatch(List)} at once, which passes the
+ * items on to {@link #handleItem(Object)} one by one unless overridden.
+ * When the queue is full the oldest item is dropped.
+ */
 public abstract class ThreadedQueue<T> {
 	
 //	private static final Logger logger = LoggerFactory.getLogger(ThreadedQueue.class);
+
+	/**
+	 * overflow is logged once per this many dropped items
+	 */
+	private static final int OVERFLOW_LOG_INTERVAL = 256;
 	
 	private final ArrayBlockingQueue<T> recordQueue;
 
-	private boolean enabled;
+	private final int capacity;
+
+	private volatile boolean enabled;
 		
 	private final Thread thread;
 
 	private final String name;
 	
-	private boolean stop;
+	private volatile boolean stop;
+
+	private volatile long overflowCount;
+	private volatile long batchCount;
+	private volatile long itemCount;
+	private volatile int maxBatchSize;
 	
 	protected ThreadedQueue(String name, int capacity) {
 		
 		recordQueue  = new ArrayBlockingQueue<T>(capacity);	
 				
 		this.name = name;
+		this.capacity = capacity;
 		
 		synchronized (this) {
 			thread = new Thread("Queue " + name) {
@@ -52,7 +74,7 @@ public abstract class ThreadedQueue<T> {
 
 	public synchronized void setEnabled(boolean enable) {
 		
-		enabled = enable && !stop;
+		enable = enable && !stop;
 		
 		if (this.enabled != enable) {
 			this.enabled = enable;
@@ -61,7 +83,7 @@ public abstract class ThreadedQueue<T> {
 		}
 	}
 	
-	public synchronized boolean isEnabled() {
+	public boolean isEnabled() {
 		return enabled;
 	}
 	
@@ -73,11 +95,28 @@ public abstract class ThreadedQueue<T> {
 				throw new IllegalArgumentException("null queue object not allowed");
 			}
 
-			while (!recordQueue.offer(o)) {
+			if (!recordQueue.offer(o)) {
+				long dropped = 0;
+
+				if (recordQueue.poll() != null) { // drop oldest
+					dropped++;
+				}
+
+				if (!recordQueue.offer(o)) { // other producers refilled the queue meanwhile - drop this one as well
+					dropped++;
+				}
 
-				Log.w("queue {} overflow", name);
+				if (dropped != 0) {
+					long count;
+
+					synchronized (recordQueue) {
+						count = overflowCount += dropped;
+					}
 
-				recordQueue.poll();			
+					if ((count - dropped) / OVERFLOW_LOG_INTERVAL != count / OVERFLOW_LOG_INTERVAL || count == dropped) {
+						Log.w("put()", "queue " + name + " overflow, " + count + " items dropped so far");
+					}
+				}
 			}
 		}	
 	}
@@ -89,29 +128,118 @@ public abstract class ThreadedQueue<T> {
 			notifyAll();
 		}
 
+		ArrayList<T> batch = new ArrayList<T>(capacity);
+
 		while (!stop) {
 			try {
+				batch.add(recordQueue.take());
+				recordQueue.drainTo(batch);
+
 				if (enabled) {
-					T o = recordQueue.poll(10, TimeUnit.MILLISECONDS);
+					int size = batch.size();
+
+					batchCount++;
+					itemCount += size;
 
-					if (o != null) {
-						handleItem(o);
+					if (size > maxBatchSize) {
+						maxBatchSize = size;
 					}
-				} else {
-					Thread.sleep(10);
+
+					handleBatch(batch);
 				}
 			} catch (InterruptedException e) {
+			} finally {
+				batch.clear();
 			}
 		}
 	}
 
+	/**
+	 * handle the items drained from the queue at once - calls {@link #handleItem(Object)} for each item by default
+	 * @param items items in queueing order - the list is reused after return
+	 */
+	protected void handleBatch(List<T> items) {
+		for (int i = 0, size = items.size(); i < size; ++i) {
+			handleItem(items.get(i));
+		}
+	}
+
+	/**
+	 * handle a single item, in the consumer thread
+	 * @param o item
+	 */
 	protected abstract void handleItem(T o);
 
+	/**
+	 * @return number of items waiting for the consumer thread
+	 */
+	public int getQueueSize() {
+		return recordQueue.size();
+	}
+
+	/**
+	 * @return number of items dropped because the queue was full
+	 */
+	public long getOverflowCount() {
+		return overflowCount;
+	}
+
+	/**
+	 * @return number of batches handled
+	 */
+	public long getBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * @return number of items handled
+	 */
+	public long getItemCount() {
+		return itemCount;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public double getAverageBatchSize() {
+		long batches = batchCount;
+		return batches == 0 ? 0 : itemCount / (double) batches;
+	}
+
+	/**
+	 * register queue size, overflow and batch gauges with metrics
+	 * @param metrics metrics
+	 * @param prefix gauge name prefix
+	 */
+	public void registerMetrics(PipelineMetrics metrics, String prefix) {
+		metrics.registerGauge(prefix + ".size", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return getQueueSize();
+			}
+		});
+		metrics.registerGauge(prefix + ".overflow", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return overflowCount;
+			}
+		});
+		metrics.registerGauge(prefix + ".batches", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return batchCount;
+			}
+		});
+	}
+
 	public synchronized void stop() {
 		
 		stop = true;
 		
 		setEnabled(false);
+
+		thread.interrupt();
 		
 		try {
 			thread.join();
@@ -16,6 +16,7 @@ import android.os.Looper;
 import android.os.SystemClock;
 import android.util.Log;
 
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
 import com.talentica.rowingapp.ui.DashBoardActivity;
 
 import java.util.concurrent.TimeUnit;
@@ -32,9 +33,13 @@ public class AndroidSensorDataInput extends SensorDataInputBase {
 	private final GPSDataThread gpsThread;	
 	
 	private final int sensorDelay;
+
+	private final PipelineMetrics metrics;
 	
 	public AndroidSensorDataInput(DashBoardActivity owner) {
 		
+		metrics = owner.getRoboStroke().getMetrics();
+		
 		sensorThread = new SensorDataThread(owner);
 		gpsThread = new GPSDataThread(owner);		
 		
@@ -155,6 +160,7 @@ public class AndroidSensorDataInput extends SensorDataInputBase {
 					firstAccelEvent = false;
 				}
 				dataSource = accelerometerDataSource;
+				metrics.markSample(timestamp);
 				break;
 			case Sensor.TYPE_ORIENTATION:
 				if (firstOrientEvent) {
@@ -167,7 +173,7 @@ public class AndroidSensorDataInput extends SensorDataInputBase {
 					throw new RuntimeException("HDIGH!");
 			}
 			
-			dataSource.pushData(timestamp, values);
+			dataSource.pushSample(timestamp, values);
 		}
 	}
 	
@@ -0,0 +1,341 @@
+package com.talentica.rowingapp.common.data;
+
+import android.util.Log;
+
+import com.talentica.rowingapp.common.AppEventBus;
+import com.talentica.rowingapp.common.BusEventListener;
+import com.talentica.rowingapp.common.data.session.SessionFileFormat;
+import com.talentica.rowingapp.common.data.session.SessionReader;
+import com.talentica.rowingapp.common.data.stroke.AppStroke;
+import com.talentica.rowingapp.common.data.way.DistanceResolver;
+import com.talentica.rowingapp.common.data.way.DistanceResolverDefault;
+import com.talentica.rowingapp.common.filter.acceleration.AccelerationFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless replay of a session file through a full {@link AppStroke} pipeline, as fast as the CPU allows.
+ * Records are read, pushed through the pipeline and the resulting bus events dispatched, all in the calling thread:
+ * there is no pacing and no queue that could drop data, so a replay is lossless and its events are deterministic.
+ * Each replay creates its own AppStroke, event bus and parameters, so replays of different files may run in parallel.
+ * Optionally events are dispatched by a bus thread, as in live use - pipeline stages are coupled synchronously
+ * regardless (see {@link com.talentica.rowingapp.common.PipelineChannel}), so the events are the same.
+ */
+public class BatchReplay {
+
+	/**
+	 * pipeline output events collected by default
+	 */
+	public static final Set<DataRecord.Type> DEFAULT_EVENT_TYPES = Collections.unmodifiableSet(EnumSet.of(
+			DataRecord.Type.STROKE_RATE,
+			DataRecord.Type.STROKE_RISE_ABOVE_ZERO,
+			DataRecord.Type.STROKE_POWER_END,
+			DataRecord.Type.STROKE_ROLL,
+			DataRecord.Type.RECOVERY_ROLL,
+			DataRecord.Type.WAY,
+			DataRecord.Type.ROWING_START,
+			DataRecord.Type.ROWING_STOP,
+			DataRecord.Type.ROWING_COUNT,
+			DataRecord.Type.ROWING_START_DISTANCE));
+
+	/**
+	 * events and throughput of a replay
+	 */
+	public static class Result {
+		private final List<DataRecord> events;
+		private final long recordCount;
+		private final long sessionDuration;
+		private final long elapsedNanos;
+
+		private Result(List<DataRecord> events, long recordCount, long sessionDuration, long elapsedNanos) {
+			this.events = Collections.unmodifiableList(events);
+			this.recordCount = recordCount;
+			this.sessionDuration = sessionDuration;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/**
+		 * @return collected pipeline events, in emission order
+		 */
+		public List<DataRecord> getEvents() {
+			return events;
+		}
+
+		/**
+		 * @return number of session file records replayed
+		 */
+		public long getRecordCount() {
+			return recordCount;
+		}
+
+		/**
+		 * @return replayed session duration in ms
+		 */
+		public long getSessionDuration() {
+			return sessionDuration;
+		}
+
+		/**
+		 * @return replay wall time in ns
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public double getRecordsPerSecond() {
+			return elapsedNanos == 0 ? 0 : recordCount * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * @return session time replayed per unit of wall time
+		 */
+		public double getSpeedup() {
+			return elapsedNanos == 0 ? 0 : sessionDuration * 1e6 / elapsedNanos;
+		}
+	}
+
+	/**
+	 * record input driven directly by {@link BatchReplay#run()}. Consecutive accelerometer records are collected
+	 * into blocks, passed to the acceleration filter a block at a time (see
+	 * {@link AccelerationFilter#onSampleBlock(long[], float[], int, int)}) - the pipeline gets the same samples in the same order
+	 */
+	private static class BatchDataInput extends RecordDataInput {
+
+		/**
+		 * max accelerometer samples per block - about a second at the highest sensor rate
+		 */
+		private static final int BLOCK_SIZE = 64;
+
+		private final boolean sampleBlocks;
+
+		private final long[] blockTimestamps = new long[BLOCK_SIZE];
+		private final float[] blockValues = new float[BLOCK_SIZE * DataIdx.ACCEL_ITEM_COUNT];
+		private final float[] sample = new float[DataIdx.ACCEL_ITEM_COUNT];
+		private int blockCount;
+
+		BatchDataInput(AppStroke appStroke, boolean sampleBlocks) {
+			super(appStroke, true);
+			this.sampleBlocks = sampleBlocks;
+		}
+
+		@Override
+		public void playRecord(DataRecord record) {
+			if (sampleBlocks && record.getType() == DataRecord.Type.ACCEL) {
+				float[] values = (float[]) record.getData();
+
+				if (values.length == DataIdx.ACCEL_ITEM_COUNT) {
+					appStroke.getMetrics().markSample(record.getTimestamp());
+
+					System.arraycopy(values, 0, blockValues, blockCount * DataIdx.ACCEL_ITEM_COUNT, DataIdx.ACCEL_ITEM_COUNT);
+					blockTimestamps[blockCount++] = record.getTimestamp();
+
+					if (blockCount == BLOCK_SIZE) {
+						flushBlock();
+					}
+
+					return;
+				}
+			}
+
+			flushBlock();
+			super.playRecord(record);
+		}
+
+		/**
+		 * push the collected accelerometer samples to the pipeline - a block at a time if they only go to the
+		 * acceleration filter, one by one otherwise
+		 */
+		void flushBlock() {
+			if (blockCount == 0) {
+				return;
+			}
+
+			int count = blockCount;
+			blockCount = 0;
+
+			SensorDataSink[] sinks = accelerometerDataSource.getSensorDataSinks();
+
+			if (sinks.length == 1 && sinks[0] instanceof AccelerationFilter) {
+				((AccelerationFilter) sinks[0]).onSampleBlock(blockTimestamps, blockValues, 0, count);
+			} else {
+				for (int i = 0; i < count; ++i) {
+					System.arraycopy(blockValues, i * DataIdx.ACCEL_ITEM_COUNT, sample, 0, DataIdx.ACCEL_ITEM_COUNT);
+					accelerometerDataSource.pushSample(blockTimestamps[i], sample);
+				}
+			}
+		}
+
+		@Override
+		protected void onSetPosFinish(double pos) {
+		}
+
+		@Override
+		public void skipReplayTime(float velocityX) {
+		}
+
+		@Override
+		public void setPaused(boolean pause) {
+		}
+	}
+
+	private final File file;
+
+	private DistanceResolver distanceResolver = new DistanceResolverDefault();
+
+	private Set<DataRecord.Type> eventTypes = DEFAULT_EVENT_TYPES;
+
+	private boolean busThread;
+
+	private boolean sampleBlocks = true;
+
+	private File metricsFile;
+
+	private final Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+
+	/**
+	 * max time to wait for the bus thread to dispatch the remaining events after the replay
+	 */
+	private static final long BUS_DRAIN_TIMEOUT = 60;
+
+	/**
+	 * @param file session file, of any supported format
+	 */
+	public BatchReplay(File file) {
+		this.file = file;
+	}
+
+	public void setDistanceResolver(DistanceResolver distanceResolver) {
+		this.distanceResolver = distanceResolver;
+	}
+
+	/**
+	 * set the bus event types to collect
+	 * @param eventTypes event types
+	 */
+	public void setEventTypes(Set<DataRecord.Type> eventTypes) {
+		this.eventTypes = eventTypes.isEmpty() ? EnumSet.noneOf(DataRecord.Type.class) : EnumSet.copyOf(eventTypes);
+	}
+
+	/**
+	 * dispatch bus events from a bus thread, with an unbounded queue, rather than in the replaying thread
+	 * @param busThread true for a bus thread
+	 */
+	public void setBusThread(boolean busThread) {
+		this.busThread = busThread;
+	}
+
+	/**
+	 * pass accelerometer samples to the acceleration filter a block at a time, the default, rather than one by one.
+	 * The events are the same either way
+	 * @param sampleBlocks true for blocks
+	 */
+	public void setSampleBlocks(boolean sampleBlocks) {
+		this.sampleBlocks = sampleBlocks;
+	}
+
+	/**
+	 * measure pipeline metrics during the replay and write a report once done
+	 * @param metricsFile report file, or null for no metrics
+	 */
+	public void setMetricsFile(File metricsFile) {
+		this.metricsFile = metricsFile;
+	}
+
+	/**
+	 * set a parameter of the replay pipeline, e.g. to compare replays with different settings
+	 * @param id parameter id
+	 * @param value parameter value, or its string form
+	 */
+	public void setParameter(String id, Object value) {
+		parameters.put(id, value);
+	}
+
+	/**
+	 * replay the whole session file
+	 * @return collected events and throughput
+	 * @throws IOException
+	 */
+	public Result run() throws IOException {
+		final ArrayList<DataRecord> events = new ArrayList<DataRecord>();
+
+		final CountDownLatch inputStopped = new CountDownLatch(1);
+
+		AppStroke appStroke = new AppStroke(distanceResolver, null, busThread ? new AppEventBus(false, Integer.MAX_VALUE) : new AppEventBus(true));
+
+		appStroke.getBus().addBusListener(new BusEventListener() {
+			@Override
+			public void onBusEvent(DataRecord event) {
+				events.add(event.detach());
+			}
+		}, eventTypes);
+
+		appStroke.getBus().addBusListener(new BusEventListener() {
+			@Override
+			public void onBusEvent(DataRecord event) {
+				inputStopped.countDown();
+			}
+		}, EnumSet.of(DataRecord.Type.INPUT_STOP));
+
+		appStroke.getMetrics().setEnabled(metricsFile != null);
+
+		for (Map.Entry<String, Object> e: parameters.entrySet()) {
+			appStroke.getParameters().setParam(e.getKey(), e.getValue());
+		}
+
+		SessionReader reader = SessionFileFormat.openReader(file);
+		long recordCount = 0;
+		long lastLogTimestamp = reader.getFirstTimestamp();
+		long start = System.nanoTime();
+
+		try {
+			BatchDataInput input = new BatchDataInput(appStroke, sampleBlocks);
+
+			appStroke.setInput(input);
+
+			while (true) {
+				try {
+					if (!reader.next()) {
+						break;
+					}
+
+					recordCount++;
+					lastLogTimestamp = Math.max(lastLogTimestamp, reader.getLogTimestamp());
+
+					input.playRecord(reader.getRecord());
+				} catch (RuntimeException e) { // probably corrupt record, try to continue anyway
+					Log.e("run()", String.format("error while replaying record from %s near position %d", file, reader.getPosition()), e);
+				}
+			}
+
+			input.flushBlock();
+			appStroke.stop();
+
+			// INPUT_STOP is the last event fired - once dispatched, all replay events have been collected
+			if (!inputStopped.await(BUS_DRAIN_TIMEOUT, TimeUnit.SECONDS)) {
+				throw new IOException("timeout waiting for bus events of " + file);
+			}
+
+			if (metricsFile != null) {
+				appStroke.getMetrics().dump(metricsFile);
+			}
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("interrupted while waiting for bus events of " + file);
+		} finally {
+			reader.close();
+			appStroke.destroy();
+		}
+
+		return new Result(events, recordCount, lastLogTimestamp - reader.getFirstTimestamp(), System.nanoTime() - start);
+	}
+}
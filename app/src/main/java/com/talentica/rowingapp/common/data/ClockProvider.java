@@ -5,4 +5,33 @@ public interface ClockProvider {
     public void run();
     public void stop();
     public void reset(long initialTime);
-}
\ No newline at end of file
+
+    /**
+     * @return current time in ns, on the same time base as {@link #getTime()}
+     */
+    public long getTimeNanos();
+
+    /**
+     * set the clock rate relative to real time, e.g. 2.0 to run twice as fast
+     * @param speed positive speed multiplier
+     */
+    public void setSpeed(double speed);
+
+    public double getSpeed();
+
+    /**
+     * block until the clock reaches a time. Returns early when the clock is reset,
+     * changes speed or {@link #wakeUp()} is called, so callers must check the returned time.
+     * A stopped clock is waited on until it runs again or is woken up
+     * @param time time to wait for (ms)
+     * @return current time (ms)
+     * @throws InterruptedException
+     */
+    public long awaitTime(long time) throws InterruptedException;
+
+    /**
+     * make a thread blocked in {@link #awaitTime(long)} return. When no thread is waiting,
+     * the next call returns immediately, so a wake up is never lost
+     */
+    public void wakeUp();
+}
@@ -9,6 +9,7 @@ public final class DataIdx {
 	public static final int ACCEL_X = 0;
 	public static final int ACCEL_Y = 1;
 	public static final int ACCEL_Z = 2;
+	public static final int ACCEL_ITEM_COUNT = 3;
 	public static final int ORIENT_PITCH = 1;
 	public static final int ORIENT_ROLL = 2;
 	public static final int GPS_LAT = 0;
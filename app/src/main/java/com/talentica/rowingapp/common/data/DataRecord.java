@@ -19,6 +19,10 @@
 
 package com.talentica.rowingapp.common.data;
 
+import com.talentica.rowingapp.common.AppEventBus;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 
 
 
@@ -167,6 +171,7 @@ public class DataRecord {
         BOOKMARKED_DISTANCE(false, new DistanceEventSerializer()), 				
         ROWING_START_DISTANCE(false, new DistanceEventSerializer()), 
         CRASH_STACK,
+        METRICS,
         INPUT_START,
         INPUT_STOP,
         REPLAY_PROGRESS,
@@ -221,32 +226,244 @@ public class DataRecord {
 
         public DataExporter getDataExporter() {
             return dataExporter;
-        }		
+        }
+
+        /**
+         * get the data serializer of this type
+         * @return data serializer or null when this type is not parsable
+         */
+        public DataRecordSerializer getDataSerializer() {
+            return dataParser;
+        }
+
+        /**
+         * get the layout used for storing data of this type in binary session files
+         * @return binary layout
+         */
+        public DataRecordSerializer.BinaryLayout getBinaryLayout() {
+            return dataParser == null ? DataRecordSerializer.BinaryLayout.TEXT : dataParser.getBinaryLayout();
+        }
+
+        /**
+         * get the handling of events of this type when the event bus queue is full.
+         * Latest-value informational events are conflated, display only events dropped, all others are never dropped
+         * @return overflow policy
+         */
+        public AppEventBus.OverflowPolicy getBusOverflowPolicy() {
+            switch (this) {
+            case REPLAY_PROGRESS:
+            case GPS:
+            case ACCUM_DISTANCE:
+            case HEART_BPM:
+                return AppEventBus.OverflowPolicy.CONFLATE;
+            case STROKE_ROLL:
+            case RECOVERY_ROLL:
+                return AppEventBus.OverflowPolicy.DROP;
+            default:
+                return AppEventBus.OverflowPolicy.BLOCK;
+            }
+        }
     }
 
-    public final Type type;
-    public final long timestamp;
-    public final Object data;
+    private static final AtomicIntegerFieldUpdater<DataRecord> REF_COUNT = AtomicIntegerFieldUpdater.newUpdater(DataRecord.class, "refCount");
+
+    /*
+     * only (re)assigned by the pool of a pooled record, when handing it out
+     */
+    private Type type;
+    private long timestamp;
+    private Object data;
+
+    /**
+     * primitive payload of pooled records, see {@link #getData()} for the layout of each type
+     */
+    public long l0, l1, l2;
+    public float f0;
+    public double d0;
+    public int i0;
+
+    /**
+     * pool a pooled record is recycled to - null for plain records
+     */
+    private final DataRecordPool pool;
+
+    private volatile int refCount;
 
     public DataRecord(Type type, long timestamp, Object data) {
         this.type = type;
         this.timestamp = timestamp;
         this.data = data;
+        this.pool = null;
+    }
+
+    DataRecord(DataRecordPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * set up a pooled record handed out by its pool, with a reference count of 1
+     */
+    void init(Type type, long timestamp, Object data) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.data = data;
+        this.refCount = 1;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return true if this record came from a {@link DataRecordPool} and is recycled once released
+     */
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    /**
+     * add a reference to a pooled record - no-op for plain records
+     * @return this record
+     */
+    public DataRecord retain() {
+        if (pool != null && REF_COUNT.getAndIncrement(this) <= 0) {
+            throw new IllegalStateException("retain of released " + type + " record");
+        }
+
+        return this;
+    }
+
+    /**
+     * drop a reference to a pooled record, recycling it when no references are left - no-op for plain records.
+     * The record must not be accessed through the released reference afterwards
+     */
+    public void release() {
+        if (pool == null) {
+            return;
+        }
+
+        int count = REF_COUNT.decrementAndGet(this);
+
+        if (count > 0) {
+            return;
+        }
+
+        if (count < 0) {
+            throw new IllegalStateException("release of released " + type + " record");
+        }
+
+        type = null;
+        data = null;
+        timestamp = l0 = l1 = l2 = 0;
+        f0 = 0;
+        d0 = 0;
+        i0 = 0;
+
+        pool.recycle(this);
+    }
+
+    /**
+     * @return unpooled copy of this record, with data materialized from the payload
+     */
+    public DataRecord copy() {
+        DataRecord record = new DataRecord(type, timestamp, getData());
+
+        record.l0 = l0;
+        record.l1 = l1;
+        record.l2 = l2;
+        record.f0 = f0;
+        record.d0 = d0;
+        record.i0 = i0;
+
+        return record;
+    }
+
+    /**
+     * get a record that may be kept past the current dispatch without retaining it
+     * @return this record if not pooled, otherwise an unpooled copy
+     */
+    public DataRecord detach() {
+        return pool != null ? copy() : this;
+    }
+
+    /**
+     * get the record data. Pooled records carry their data in the primitive payload fields, boxed here on first access:
+     * <ul>
+     * <li>STROKE_*_TRESHOLD, STROKE_DROP_BELOW_ZERO: Float f0</li>
+     * <li>BOOKMARKED_DISTANCE: {Long l0 travel time, Float f0 distance}</li>
+     * <li>ROWING_STOP: {Long l0 stop timestamp, Float f0 distance, Long l1 split time, Long l2 travel time, Integer i0 stroke count}</li>
+     * <li>ACCUM_DISTANCE: Double d0</li>
+     * </ul>
+     * @return data
+     */
+    public Object getData() {
+        Object d = data;
+
+        if (d == null && pool != null && type != null) {
+            switch (type) {
+            case STROKE_DECELERATION_TRESHOLD:
+            case STROKE_ACCELERATION_TRESHOLD:
+            case STROKE_DROP_BELOW_ZERO:
+                d = f0;
+                break;
+            case BOOKMARKED_DISTANCE:
+                d = new Object[]{l0, f0};
+                break;
+            case ROWING_STOP:
+                d = new Object[]{l0, f0, l1, l2, i0};
+                break;
+            case ACCUM_DISTANCE:
+                d = d0;
+                break;
+            default:
+                break;
+            }
+
+            data = d;
+        }
+
+        return d;
     }
 
     @Override
     public String toString() {
-        String sdata = dataToString();
-        return "" + type + " " + timestamp + " " + sdata;
+        StringBuilder out = new StringBuilder();
+        appendTo(out);
+        return out.toString();
+    }
+
+    /**
+     * append the "type timestamp data" text form of this record to a string builder
+     * @param out string builder
+     */
+    public void appendTo(StringBuilder out) {
+        out.append(type.name()).append(' ').append(timestamp).append(' ');
+        appendData(out);
+    }
+
+    /**
+     * append the serialized data of this record to a string builder - same text as {@link #dataToString()}
+     * @param out string builder
+     */
+    public void appendData(StringBuilder out) {
+        if (type.dataParser != null) {
+            type.dataParser.serialize(getData(), out);
+        } else {
+            out.append(getData());
+        }
     }
 
     public String dataToString() {
         String sdata;
 
         if (type.dataParser != null) {
-            sdata = type.dataParser.serialize(data);
+            sdata = type.dataParser.serialize(getData());
         } else {
-            sdata = String.valueOf(data);
+            sdata = String.valueOf(getData());
         }
         return sdata;
     }
@@ -263,8 +480,21 @@ public class DataRecord {
     }
 
     public static DataRecord create(Type type, long timestamp, String str) {
+        return create(type, timestamp, str, 0, str.length());
+    }
+
+    /**
+     * create a record from serialized data held in a char sequence range
+     * @param type record type
+     * @param timestamp event timestamp
+     * @param s char sequence holding serialized data
+     * @param start start index of serialized data
+     * @param end end index (exclusive) of serialized data
+     * @return record
+     */
+    public static DataRecord create(Type type, long timestamp, CharSequence s, int start, int end) {
         if (type.dataParser != null) {
-            Object data = type.dataParser.parse(str);
+            Object data = type.dataParser.parse(s, start, end);
             return create(type, timestamp, data);
         } else {
             throw new UnsupportedOperationException(
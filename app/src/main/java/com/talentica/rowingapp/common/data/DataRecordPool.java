@@ -0,0 +1,79 @@
+package com.talentica.rowingapp.common.data;
+
+/**
+ * Bounded pool of reusable data records, owned by one pipeline - e.g. each batch replay gets its own,
+ * so that replays running on worker threads do not contend for records.
+ * Records are obtained with a reference count of 1 and recycled here once {@link DataRecord#release()}d
+ */
+public class DataRecordPool {
+
+	/**
+	 * default max number of released records kept for reuse
+	 */
+	public static final int DEFAULT_CAPACITY = 64;
+
+	private final DataRecord[] records;
+
+	private int size;
+
+	public DataRecordPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity max number of released records kept for reuse
+	 */
+	public DataRecordPool(int capacity) {
+		records = new DataRecord[capacity];
+	}
+
+	/**
+	 * get a record with a cleared payload, for the caller to set the payload fields and pass the reference on,
+	 * typically to {@link AppEventBus#fireEvent(DataRecord)}, which releases it after dispatch. Listeners that keep
+	 * the record past {@link com.talentica.rowingapp.common.BusEventListener#onBusEvent(DataRecord)} must
+	 * {@link DataRecord#retain()} it, or keep a {@link DataRecord#detach()}ed copy instead
+	 * @param type record type
+	 * @param timestamp event timestamp
+	 * @return record
+	 */
+	public DataRecord obtain(DataRecord.Type type, long timestamp) {
+		return obtain(type, timestamp, null);
+	}
+
+	/**
+	 * get a record with a cleared payload and the given data
+	 * @param type record type
+	 * @param timestamp event timestamp
+	 * @param data record data
+	 * @return record
+	 */
+	public DataRecord obtain(DataRecord.Type type, long timestamp, Object data) {
+		DataRecord record = null;
+
+		synchronized (records) {
+			if (size > 0) {
+				record = records[--size];
+				records[size] = null;
+			}
+		}
+
+		if (record == null) {
+			record = new DataRecord(this);
+		}
+
+		record.init(type, timestamp, data);
+
+		return record;
+	}
+
+	/**
+	 * take back a released record, if there is room for it
+	 */
+	void recycle(DataRecord record) {
+		synchronized (records) {
+			if (size < records.length) {
+				records[size++] = record;
+			}
+		}
+	}
+}
@@ -22,7 +22,28 @@ package com.talentica.rowingapp.common.data;
 
 import com.talentica.rowingapp.common.param.ParameterBusEventData;
 
+import java.math.BigInteger;
+
 public abstract class DataRecordSerializer {
+
+	/**
+	 * fixed layout of serialized data inside binary (block structured) session files
+	 */
+	public enum BinaryLayout {
+		/**
+		 * data is stored as its length prefixed UTF-8 string serialized form
+		 */
+		TEXT,
+		/**
+		 * data is stored as length prefixed array of 4 byte floats
+		 */
+		FLOAT_ARR,
+		/**
+		 * data is stored as length prefixed array of 8 byte doubles
+		 */
+		DOUBLE_ARR
+	}
+
 	public static class BOOLEAN extends DataRecordSerializer {
 	
 		@Override
@@ -77,29 +98,73 @@ public abstract class DataRecordSerializer {
 		
 		@Override
 		public Object doParse(String s) {
-			String[] sarr = s.split(sep);
-			float[] res = new float[sarr.length];
-	
-			for (int i = 0; i < sarr.length; ++i) {
-				res[i] = new Float(sarr[i]);
-			}
-			return res;
+			return doParse(s, 0, s.length());
 		}
-	
+
 		@Override
-		protected String doSerialize(Object data) {
-	
-			String sdata = "";
-	
-			int i = 0;
-			for (float f : ((float[]) data)) {
-				if (i++ != 0) {
-					sdata += sep;
+		protected Object doParse(CharSequence s, int start, int end) {
+			float[] res = new float[countValues(s, start, end, sep)];
+			parse(s, start, end, res);
+			return res;
+		}
+
+		/**
+		 * parse serialized data into a caller supplied array, without allocating
+		 * @param s char sequence holding serialized data
+		 * @param start start index of serialized data
+		 * @param end end index (exclusive) of serialized data
+		 * @param res result array, which must be large enough for all values
+		 * @return number of values parsed, or -1 for null data
+		 */
+		public int parse(CharSequence s, int start, int end, float[] res) {
+			if (isNull(s, start, end)) {
+				return -1;
+			}
+
+			int n = 0;
+
+			while (start < end) {
+				int valEnd = indexOf(s, sep, start, end);
+				res[n++] = (float) parseDecimal(s, start, valEnd, true);
+				start = valEnd + sep.length();
+			}
+
+			return n;
+		}
+
+		/**
+		 * append serialized data to a string builder, without allocating
+		 * @param data data
+		 * @param out string builder
+		 */
+		public void serialize(float[] data, StringBuilder out) {
+			if (data == null) {
+				out.append(NULL);
+			} else {
+				for (int i = 0; i < data.length; ++i) {
+					if (i != 0) {
+						out.append(sep);
+					}
+					out.append(data[i]);
 				}
-				sdata += f;
 			}
-	
-			return sdata;
+		}
+
+		@Override
+		protected String doSerialize(Object data) {
+			StringBuilder out = new StringBuilder();
+			serialize((float[]) data, out);
+			return out.toString();
+		}
+
+		@Override
+		protected void doSerialize(Object data, StringBuilder out) {
+			serialize((float[]) data, out);
+		}
+
+		@Override
+		public BinaryLayout getBinaryLayout() {
+			return BinaryLayout.FLOAT_ARR;
 		}
 	}
 
@@ -117,29 +182,74 @@ public abstract class DataRecordSerializer {
 		
 		@Override
 		public Object doParse(String s) {
-			String[] sarr = s.split(sep);
-			double[] res = new double[sarr.length];
-	
-			for (int i = 0; i < sarr.length; ++i) {
-				res[i] = new Double(sarr[i]);
-			}
-			return res;
+			return doParse(s, 0, s.length());
 		}
-	
+
 		@Override
-		protected String doSerialize(Object data) {
-	
-			String sdata = "";
-	
-			int i = 0;
-			for (double f : ((double[]) data)) {
-				if (i++ != 0) {
-					sdata += sep;
+		protected Object doParse(CharSequence s, int start, int end) {
+			double[] res = new double[countValues(s, start, end, sep)];
+			parse(s, start, end, res);
+			return res;
+		}
+
+		/**
+		 * parse serialized data into a caller supplied array, without allocating
+		 * (except for values with more significant digits than fit exactly in a double, which take the slow path)
+		 * @param s char sequence holding serialized data
+		 * @param start start index of serialized data
+		 * @param end end index (exclusive) of serialized data
+		 * @param res result array, which must be large enough for all values
+		 * @return number of values parsed, or -1 for null data
+		 */
+		public int parse(CharSequence s, int start, int end, double[] res) {
+			if (isNull(s, start, end)) {
+				return -1;
+			}
+
+			int n = 0;
+
+			while (start < end) {
+				int valEnd = indexOf(s, sep, start, end);
+				res[n++] = parseDecimal(s, start, valEnd, false);
+				start = valEnd + sep.length();
+			}
+
+			return n;
+		}
+
+		/**
+		 * append serialized data to a string builder, without allocating
+		 * @param data data
+		 * @param out string builder
+		 */
+		public void serialize(double[] data, StringBuilder out) {
+			if (data == null) {
+				out.append(NULL);
+			} else {
+				for (int i = 0; i < data.length; ++i) {
+					if (i != 0) {
+						out.append(sep);
+					}
+					out.append(data[i]);
 				}
-				sdata += f;
 			}
-	
-			return sdata;
+		}
+
+		@Override
+		protected String doSerialize(Object data) {
+			StringBuilder out = new StringBuilder();
+			serialize((double[]) data, out);
+			return out.toString();
+		}
+
+		@Override
+		protected void doSerialize(Object data, StringBuilder out) {
+			serialize((double[]) data, out);
+		}
+
+		@Override
+		public BinaryLayout getBinaryLayout() {
+			return BinaryLayout.DOUBLE_ARR;
 		}
 	}
 
@@ -151,24 +261,431 @@ public abstract class DataRecordSerializer {
 	}
 
 	public Object parse(String s) {
-		if (s.equals("null")) {
+		if (s.equals(NULL)) {
 			return null;
 		} else {
 			return doParse(s);
 		}
 	}
 
+	/**
+	 * parse serialized data from a range of a char sequence
+	 * @param s char sequence holding serialized data
+	 * @param start start index of serialized data
+	 * @param end end index (exclusive) of serialized data
+	 * @return data
+	 */
+	public Object parse(CharSequence s, int start, int end) {
+		if (isNull(s, start, end)) {
+			return null;
+		} else {
+			return doParse(s, start, end);
+		}
+	}
+
 	public String serialize(Object data) {
 		if (data == null) {
-			return "null";
+			return NULL;
 		} else {
 			return doSerialize(data);
 		}
 	}
 
+	/**
+	 * append serialized data to a string builder - same text as {@link #serialize(Object)}
+	 * @param data data
+	 * @param out string builder
+	 */
+	public void serialize(Object data, StringBuilder out) {
+		if (data == null) {
+			out.append(NULL);
+		} else {
+			doSerialize(data, out);
+		}
+	}
+
 	protected String doSerialize(Object data) {
 		return data.toString();
 	}
 
+	protected void doSerialize(Object data, StringBuilder out) {
+		out.append(doSerialize(data));
+	}
+
+	protected Object doParse(CharSequence s, int start, int end) {
+		return doParse(s.subSequence(start, end).toString());
+	}
+
+	/**
+	 * get the layout used for storing data of this serializer in binary session files
+	 * @return binary layout
+	 */
+	public BinaryLayout getBinaryLayout() {
+		return BinaryLayout.TEXT;
+	}
+
 	protected abstract Object doParse(String s);
+
+	private static final String NULL = "null";
+
+	/**
+	 * powers of ten exactly representable as double
+	 */
+	private static final double[] POW10 = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * largest integer up to which all integers are exactly representable as double
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/**
+	 * powers of ten exactly representable as float
+	 */
+	private static final float[] POW10_FLOAT = {
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+
+	/**
+	 * largest integer up to which all integers are exactly representable as float
+	 */
+	private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+
+	/**
+	 * most significant decimal digits kept in the (unsigned) 64 bit mantissa
+	 */
+	private static final int MAX_MANTISSA_DIGITS = 19;
+
+	/**
+	 * exponent range of POW10_HI/POW10_LO - any 19 digit mantissa times a power of ten below
+	 * the range is zero, and above the range infinity, as double as well as float
+	 */
+	private static final int MIN_POW10_EXP = -348;
+	private static final int MAX_POW10_EXP = 347;
+
+	/**
+	 * high and low 64 bits of 10^e scaled to 128 significant bits and truncated, for e from MIN_POW10_EXP
+	 */
+	private static final long[] POW10_HI = new long[MAX_POW10_EXP - MIN_POW10_EXP + 1];
+	private static final long[] POW10_LO = new long[POW10_HI.length];
+
+	static {
+		for (int e = MIN_POW10_EXP; e <= MAX_POW10_EXP; ++e) {
+			BigInteger pow = BigInteger.TEN.pow(Math.abs(e));
+			int bits = pow.bitLength();
+			BigInteger scaled;
+
+			if (e < 0) {
+				scaled = BigInteger.ONE.shiftLeft(bits + 127).divide(pow);
+			} else if (bits > 128) {
+				scaled = pow.shiftRight(bits - 128);
+			} else {
+				scaled = pow.shiftLeft(128 - bits);
+			}
+
+			POW10_HI[e - MIN_POW10_EXP] = scaled.shiftRight(64).longValue();
+			POW10_LO[e - MIN_POW10_EXP] = scaled.longValue();
+		}
+	}
+
+	/**
+	 * returned by eiselLemire() when it can not round a number unambiguously
+	 */
+	private static final long NOT_ROUNDED = -1;
+
+	private static final String NAN = "NaN";
+
+	private static final String INFINITY = "Infinity";
+
+	private static boolean isNull(CharSequence s, int start, int end) {
+		if (end - start != NULL.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < NULL.length(); ++i) {
+			if (s.charAt(start + i) != NULL.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * find a separator string in a char sequence range
+	 * @return index of separator or end if not found
+	 */
+	private static int indexOf(CharSequence s, String sep, int start, int end) {
+		char first = sep.charAt(0);
+		int last = end - sep.length();
+
+		for (int i = start; i <= last; ++i) {
+			if (s.charAt(i) == first) {
+				int j = 1;
+
+				while (j < sep.length() && s.charAt(i + j) == sep.charAt(j)) {
+					j++;
+				}
+
+				if (j == sep.length()) {
+					return i;
+				}
+			}
+		}
+
+		return end;
+	}
+
+	private static int countValues(CharSequence s, int start, int end, String sep) {
+		int count = 0;
+
+		while (start < end) {
+			count++;
+			start = indexOf(s, sep, start, end) + sep.length();
+		}
+
+		return count;
+	}
+
+	/**
+	 * parse a decimal number without allocating. The significant digits are accumulated into an unsigned 64 bit
+	 * mantissa. Numbers whose mantissa and power of ten are exactly representable as double - or as float, for
+	 * floats - are computed with a single correctly rounded operation, others with the Eisel-Lemire algorithm,
+	 * which rounds correctly from a 128 bit approximation of the power of ten, and gives up when that
+	 * approximation is too close to a halfway point. Mantissas of more than 19 digits are truncated, and accepted
+	 * if the truncated and the next mantissa round the same. Only malformed input, subnormal results and numbers
+	 * Eisel-Lemire gives up on are handed to Float.parseFloat/Double.parseDouble. Floats are not parsed as
+	 * double and then rounded to float, as rounding twice may be off by one ulp
+	 * @param s char sequence
+	 * @param start start index of number
+	 * @param end end index (exclusive) of number
+	 * @param isFloat true if number is to be parsed as float
+	 * @return parsed value
+	 * @throws NumberFormatException on malformed input
+	 */
+	private static double parseDecimal(CharSequence s, int start, int end, boolean isFloat) {
+
+		int i = start;
+		boolean negative = false;
+
+		if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+			negative = s.charAt(i++) == '-';
+		}
+
+		int signEnd = i;
+		long mantissa = 0;
+		int digits = 0;
+		int exp10 = 0;
+		boolean seenDigit = false;
+		boolean seenPoint = false;
+		boolean truncated = false;
+		boolean valid = true;
+
+		for (; i < end; ++i) {
+			char c = s.charAt(i);
+
+			if (c >= '0' && c <= '9') {
+				seenDigit = true;
+
+				if (mantissa == 0 && c == '0') {
+					if (seenPoint) {
+						exp10--;
+					}
+				} else if (digits < MAX_MANTISSA_DIGITS) {
+					mantissa = mantissa * 10 + (c - '0');
+					digits++;
+
+					if (seenPoint) {
+						exp10--;
+					}
+				} else {
+					truncated |= c != '0';
+
+					if (!seenPoint) {
+						exp10++;
+					}
+				}
+			} else if (c == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				break;
+			}
+		}
+
+		if (seenDigit && i < end && (s.charAt(i) == 'E' || s.charAt(i) == 'e')) {
+			i++;
+
+			boolean negativeExp = false;
+
+			if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+				negativeExp = s.charAt(i++) == '-';
+			}
+
+			int exp = 0;
+			int expStart = i;
+
+			for (; i < end && exp < 1000; ++i) {
+				char c = s.charAt(i);
+
+				if (c < '0' || c > '9') {
+					break;
+				}
+
+				exp = exp * 10 + (c - '0');
+			}
+
+			valid = i != expStart;
+			exp10 += negativeExp ? -exp : exp;
+		}
+
+		if (!seenDigit) {
+			if (matches(s, signEnd, end, NAN)) {
+				return Double.NaN;
+			}
+
+			if (matches(s, signEnd, end, INFINITY)) {
+				return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+			}
+		}
+
+		if (!valid || !seenDigit || i != end) {
+			return parseString(s, start, end, isFloat);
+		}
+
+		double value;
+
+		if (mantissa == 0) {
+			value = 0;
+		} else if (exp10 < MIN_POW10_EXP) {
+			value = 0;
+		} else if (exp10 > MAX_POW10_EXP) {
+			value = Double.POSITIVE_INFINITY;
+		} else if (isFloat && !truncated && mantissa <= MAX_EXACT_FLOAT_MANTISSA && mantissa > 0 && exp10 >= -10 && exp10 <= 10) {
+			value = exp10 < 0 ? mantissa / POW10_FLOAT[-exp10] : mantissa * POW10_FLOAT[exp10];
+		} else if (!isFloat && !truncated && mantissa <= MAX_EXACT_MANTISSA && mantissa > 0 && exp10 >= -22 && exp10 <= 22) {
+			value = exp10 < 0 ? mantissa / POW10[-exp10] : mantissa * POW10[exp10];
+		} else {
+			long bits = eiselLemire(mantissa, exp10, isFloat);
+
+			if (truncated && bits != NOT_ROUNDED && eiselLemire(mantissa + 1, exp10, isFloat) != bits) {
+				bits = NOT_ROUNDED;
+			}
+
+			if (bits == NOT_ROUNDED) {
+				return parseString(s, start, end, isFloat);
+			}
+
+			value = isFloat ? Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits);
+		}
+
+		return negative ? -value : value;
+	}
+
+	private static double parseString(CharSequence s, int start, int end, boolean isFloat) {
+		String str = s.subSequence(start, end).toString();
+
+		return isFloat ? Float.parseFloat(str) : Double.parseDouble(str);
+	}
+
+	private static boolean matches(CharSequence s, int start, int end, String str) {
+		if (end - start != str.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < str.length(); ++i) {
+			if (s.charAt(start + i) != str.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Eisel-Lemire conversion of mantissa * 10^exp10 to the nearest float or double
+	 * @param mantissa unsigned non zero mantissa
+	 * @param exp10 power of ten, within MIN_POW10_EXP and MAX_POW10_EXP
+	 * @param isFloat true to round to float
+	 * @return bits of the positive float or double, or NOT_ROUNDED if the result is subnormal or can not be
+	 * rounded unambiguously
+	 */
+	private static long eiselLemire(long mantissa, int exp10, boolean isFloat) {
+		int mantissaBits = isFloat ? 23 : 52;
+		int maxExp2 = isFloat ? 0xff : 0x7ff;
+		long lowMask = isFloat ? 0x3fffffffffL : 0x1ff; // product bits below the mantissa plus a rounding bit
+		int lowBits = isFloat ? 38 : 9;
+		int idx = exp10 - MIN_POW10_EXP;
+
+		int clz = Long.numberOfLeadingZeros(mantissa);
+		long man = mantissa << clz;
+		long exp2 = ((217706 * exp10) >> 16) + 64 + (maxExp2 >> 1) - clz;
+
+		long hi = multiplyHigh(man, POW10_HI[idx]);
+		long lo = man * POW10_HI[idx];
+
+		if ((hi & lowMask) == lowMask && unsignedLess(lo + man, man)) {
+			// truncated product may be off by a carry into the mantissa - use the lower 64 bits of the power too
+			long loHi = multiplyHigh(man, POW10_LO[idx]);
+			long loLo = man * POW10_LO[idx];
+			long mergedHi = hi;
+			long mergedLo = lo + loHi;
+
+			if (unsignedLess(mergedLo, lo)) {
+				mergedHi++;
+			}
+
+			if ((mergedHi & lowMask) == lowMask && mergedLo + 1 == 0 && unsignedLess(loLo + man, man)) {
+				return NOT_ROUNDED;
+			}
+
+			hi = mergedHi;
+			lo = mergedLo;
+		}
+
+		int msb = (int) (hi >>> 63);
+		long result = hi >>> (msb + lowBits);
+		exp2 -= 1 ^ msb;
+
+		if (lo == 0 && (hi & lowMask) == 0 && (result & 3) == 1) {
+			return NOT_ROUNDED; // exactly halfway, or slightly above
+		}
+
+		result += result & 1;
+		result >>>= 1;
+
+		if ((result >>> (mantissaBits + 1)) != 0) {
+			result >>>= 1;
+			exp2++;
+		}
+
+		if (exp2 <= 0) {
+			return NOT_ROUNDED;
+		}
+
+		if (exp2 >= maxExp2) {
+			return (long) maxExp2 << mantissaBits; // infinity
+		}
+
+		return exp2 << mantissaBits | result & ((1L << mantissaBits) - 1);
+	}
+
+	/**
+	 * @return high 64 bits of the unsigned 128 bit product of x and y
+	 */
+	private static long multiplyHigh(long x, long y) {
+		long x0 = x & 0xffffffffL;
+		long x1 = x >>> 32;
+		long y0 = y & 0xffffffffL;
+		long y1 = y >>> 32;
+		long p01 = x0 * y1;
+		long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xffffffffL);
+
+		return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+	}
+
+	private static boolean unsignedLess(long x, long y) {
+		return (x ^ Long.MIN_VALUE) < (y ^ Long.MIN_VALUE);
+	}
 }
\ No newline at end of file
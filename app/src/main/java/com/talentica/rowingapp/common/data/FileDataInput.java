@@ -3,34 +3,44 @@ package com.talentica.rowingapp.common.data;
 import android.util.Log;
 
 import com.talentica.rowingapp.common.Pair;
-import com.talentica.rowingapp.common.data.session.SessionFileVersionError;
-import com.talentica.rowingapp.common.data.session.SessionRecorderConstants;
+import com.talentica.rowingapp.common.data.session.SessionFileFormat;
+import com.talentica.rowingapp.common.data.session.SessionIndex;
+import com.talentica.rowingapp.common.data.session.SessionReader;
+import com.talentica.rowingapp.common.data.session.TextSessionReader;
 import com.talentica.rowingapp.common.data.stroke.AppStroke;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
 /**
- * SensorDataInput implementation for replaying data from a file 
- *
+ * SensorDataInput implementation for replaying data from a file.
+ * Both text (version 3) and binary block structured (version 4) session files are supported.
+ * Seeking is time addressed, through a {@link SessionIndex} built on the first seek.
+ * Records are paced by a {@link ReplayScheduler}, so replay speed and pausing follow the {@link ClockProvider}.
  */
 public class FileDataInput extends RecordDataInput implements Runnable {
 
-    private static final int MAX_VALIDATION_LINE_COUNT = 100;
     private final boolean batchMode = Boolean.getBoolean(FileDataInput.class.getName() + ".batchMode");
-    private static final int SKIP_BYTES = 300;
-    protected final RandomAccessFile reader;
-    private float skipRequested = 0;
-    private double setPosRequested = -1;
+    /**
+     * replay time skipped per unit of fling velocity
+     */
+    private static final int SKIP_MILLIS = 60;
+    protected final SessionReader reader;
+    private SessionIndex index;
+    /**
+     * seek requests - set by UI threads, picked up by the replay thread
+     */
+    private volatile float skipRequested = 0;
+    private volatile double setPosRequested = -1;
+    private volatile long seekTimeRequested = -1;
     private boolean paused;
     private Thread runThread;
-    private boolean requestStop;
+    private volatile boolean requestStop;
     protected final long fileLength;
     private long lastProgressNotifyTime;
     private final File dataFile;
     private ClockProvider clockProvider = new SystemClockProvider();
-    private boolean resetClockRequired;
+    private ReplayScheduler scheduler;
     private long startTimeOffset;
     private final long firstTimestamp;
     private final String uuid;
@@ -38,12 +48,18 @@ public class FileDataInput extends RecordDataInput implements Runnable {
     public FileDataInput(AppStroke appStroke, File dataFile) throws IOException {
         super(appStroke);
         this.dataFile = dataFile;
-        this.reader = new RandomAccessFile(dataFile, "r");
-        fileLength = dataFile.length();
+        this.reader = SessionFileFormat.openReader(dataFile);
+        fileLength = reader.length();
         setSeakable(true);
-        Pair<String, Long> p = checkVersion();
-        uuid = p.first;
-        firstTimestamp = p.second;
+        uuid = reader.getUuid();
+        firstTimestamp = reader.getFirstTimestamp();
+        scheduler = createScheduler();
+    }
+
+    private ReplayScheduler createScheduler() {
+        ReplayScheduler scheduler = new ReplayScheduler(reader, clockProvider, ReplayScheduler.DEFAULT_LOOKAHEAD);
+        scheduler.setTimeBase(firstTimestamp - startTimeOffset);
+        return scheduler;
     }
 
     public long getFirstTimestamp() {
@@ -54,13 +70,37 @@ public class FileDataInput extends RecordDataInput implements Runnable {
         return uuid;
     }
     
+    /**
+     * set the replay clock - before {@link #start()}
+     * @param clockProvider clock
+     */
     public void setClock(ClockProvider clockProvider) {
         this.clockProvider = clockProvider;
+        scheduler = createScheduler();
     }
     
     public ClockProvider getClock() {
         return clockProvider;
     }
+
+    /**
+     * @return record scheduler, for its timing statistics
+     */
+    public ReplayScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * set the replay speed
+     * @param speed multiple of real time, e.g. 0.5 or 2.0
+     */
+    public void setSpeed(double speed) {
+        clockProvider.setSpeed(speed);
+    }
+
+    public double getSpeed() {
+        return clockProvider.getSpeed();
+    }
     
     public File getDataFile() {
         return dataFile;
@@ -68,97 +108,68 @@ public class FileDataInput extends RecordDataInput implements Runnable {
 
     protected void setStartTimeOffset(long startTimeOffset) {
         this.startTimeOffset = startTimeOffset;
+        scheduler.setTimeBase(firstTimestamp - startTimeOffset);
     }
 
-    private Pair<String /* UUID */, Long /* firstTimestamp */> checkVersion() throws IOException, SessionFileVersionError {
-        int version = -1;
-        long firstTimestamp = 0;
-        String uuid = null;
-        boolean validVersion = false;
-        int lineNum = 0;
-        
-        do {
-            String line = reader.readLine();
-            
-            lineNum++;
-            
-            if (line == null) {
-                break;
-            }
-            
-            String[] vals = readRecordLine(line);
-
-            if (vals != null) {
-                final DataRecord.Type type;
+    /**
+     * get the session time index, building it on first call
+     * @return index
+     * @throws IOException
+     */
+    public synchronized SessionIndex getIndex() throws IOException {
+        if (index == null) {
+            index = SessionIndex.load(dataFile);
+        }
 
-                try {
-                    type = DataRecord.Type.valueOf(vals[1]);
-                } catch (IllegalArgumentException e) {
-                    continue; // SessionFileVersionError() is thrown later
-                }
+        return index;
+    }
 
-                switch (type) {
-                    case LOGFILE_VERSION:
-
-                        if (lineNum != 1) {
-                            throw new IllegalArgumentException("LOGFILE_VERSION must appear in the first line of the data file");
-                        }
-                        
-                        version = new Integer(vals[3]);
-                        firstTimestamp = new Long(vals[0]);
-                        if (version == SessionRecorderConstants.LOGFILE_VERSION) {
-                            validVersion = true;
-                        }
-
-                        break;
-                    case UUID:
-                        uuid = vals[0];
-                        break;
-                    default:
-                        break;
-                }
-            }
-        } while (uuid == null && lineNum < MAX_VALIDATION_LINE_COUNT);
+    /**
+     * @return session duration in ms
+     * @throws IOException
+     */
+    public long getDuration() throws IOException {
+        return getIndex().getDuration();
+    }
 
-        if (!validVersion) {
-            throw new SessionFileVersionError(version);
-        }		
-        
-        if (uuid == null) {
-            throw new SessionFileVersionError("UUID was not found within the first " + MAX_VALIDATION_LINE_COUNT + " lines of data log file");
+    /**
+     * jump to a time in session
+     * @param sessionTime time since session start (ms)
+     */
+    public void seekTime(long sessionTime) {
+        if (sessionTime < 0) {
+            throw new IllegalArgumentException("sessionTime must not be negative");
         }
-        
-        return Pair.create(uuid, firstTimestamp);
+
+        seekTimeRequested = sessionTime;
+        scheduler.wakeUp();
     }
 
     @Override
     public void run() {
-        String l = "";
-
 
         while (!requestStop) {
             try {
-                Thread.yield();
-
-                long pos = reader.getFilePointer();
+                if (seekTimeRequested != -1 || setPosRequested != -1 || skipRequested != 0) {
 
-                if (setPosRequested != -1 || skipRequested != 0) {
+                    SessionIndex index = getIndex();
+                    long target;
 
-                    if (setPosRequested != -1) {
-                        pos = (long)(fileLength * setPosRequested);
+                    if (seekTimeRequested != -1) {
+                        target = firstTimestamp + seekTimeRequested;
+                    } else if (setPosRequested != -1) {
+                        target = firstTimestamp + (long)(index.getDuration() * setPosRequested);
                     } else {
-                        assert skipRequested != 0;
-
-                        pos += -skipRequested * SKIP_BYTES;
+                        target = scheduler.getNextLogTimestamp() + (long)(-skipRequested * SKIP_MILLIS);
                     }
 
-                    pos = Math.max(Math.min(reader.length() - 1,pos), 0);
-                    reader.seek(pos);
-                    reader.readLine();
                     skipRequested = 0;
                     setPosRequested = -1;
+                    seekTimeRequested = -1;
+
+                    target = Math.max(Math.min(index.getLastTimestamp(), target), firstTimestamp);
 
-                    resetClockRequired = true;
+                    scheduler.seek(index.findPosition(target), target);
 
                     if (bus != null) bus.fireEvent(DataRecord.Type.REPLAY_SKIPPED, null);
 
@@ -177,14 +188,12 @@ public class FileDataInput extends RecordDataInput implements Runnable {
 
                 }
 
-                long lastFilePos = reader.getFilePointer();
+                DataRecord record = scheduler.take(!batchMode);
 
-                if ((l = reader.readLine()) == null) { 
-                    continue;
+                if (record != null) {
+                    playRecord(record);
                 }
 
-                handleRecord(l, lastFilePos);
-
             } catch (IOException e) {
                 errorListener.onError(new Exception("can not read data", e));
                 break;
@@ -193,99 +202,42 @@ public class FileDataInput extends RecordDataInput implements Runnable {
             } catch (Exception e) { // probably corrupt record, try to continue anyway
                 long pos;
                 try {
-                    pos = reader.getFilePointer();
+                    pos = reader.getPosition();
                 } catch (IOException e1) {
                     pos = -1;
                 }
-                Log.e("run()", String.format("error while reading record from %s near byte offset %d [%s]", getDataFile(), pos, l), e);
+                Log.e("run()", String.format("error while reading record from %s near position %d", getDataFile(), pos), e);
                 continue;
             }
         }
     }
 
+    /**
+     * @return replay progress, from the reader's position in file - not from the session index, which may
+     * have to be built by scanning the whole file
+     * @throws IOException
+     */
     protected double calcProgress() throws IOException {
-        return reader.getFilePointer() / (double)fileLength;
-    }
-
-    public static Pair<Long /* record timestamp */, DataRecord> parseRecord(String line) {
-        return parseRecord(line, false);
-    }
-
-    public static Pair<Long /* record timestamp */, DataRecord> parseRecord(String line, boolean force) {
-
-        String[] vals = readRecordLine(line);
-
-        if (vals != null) {
-
-            Long logTimestamp = new Long(vals[0]);
-
-            DataRecord.Type type = DataRecord.Type.valueOf(vals[1]);
-
-            if ((type.isReplayableEvent || force) && type.isParsableEvent) {
-                return Pair.create(logTimestamp, DataRecord.create(type, Long.parseLong(vals[2]), vals[3]));
-            }			
-        }
-
-        return null;
-    }
-
-    private void handleRecord(String line, long lastReaderPos) throws Exception {
-
-        Pair<Long /* record timestamp */, DataRecord> p = parseRecord(line);
-
-        if (p != null) {
-
-            handleRecord(p.first, p.second, lastReaderPos);
-        }
-    }
-
-    private void handleRecord(long logTimestamp, DataRecord record, long lastReaderPos) throws Exception {
-
-        long normalizedLogfileTime = logTimestamp - firstTimestamp + startTimeOffset;
-
-        if (resetClockRequired) {
-            clockProvider.reset(normalizedLogfileTime);
-            resetClockRequired = false;
-        }
-        
-        final long currentTime = getCurrentTime();
-
-        long timeDiff = batchMode ? 0 : normalizedLogfileTime - currentTime;
-        
-        if (timeDiff > 20) {					
-            Log.d("handleRecord()","data time {"+normalizedLogfileTime+"} later than current time {"+currentTime+"} - too soon to play, putting data back in reader");
-            reader.seek(lastReaderPos);
-            Thread.sleep(30);
-            return;
-        } else if (!batchMode) {
-            Thread.yield();
+        if (fileLength <= 0) {
+            return 0;
         }
 
-        playRecord(record);
+        return Math.max(Math.min(1.0, reader.getFileOffset() / (double)fileLength), 0);
     }
 
-    private long getCurrentTime() {
-        return clockProvider.getTime();
+    public static Pair<Long /* record timestamp */, DataRecord> parseRecord(String line) {
+        return TextSessionReader.parseRecord(line);
     }
 
-    private static String[] readRecordLine(String line) {
-        int eorIdx;
-        if ((eorIdx = line.lastIndexOf(SessionRecorderConstants.END_OF_RECORD)) == -1) {
-            return null;
-        }
-
-        String s = line.substring(0, eorIdx);
-
-        String[] vals = s.split(" +");
-
-        return vals;
+    public static Pair<Long /* record timestamp */, DataRecord> parseRecord(String line, boolean force) {
+        return TextSessionReader.parseRecord(line, force);
     }
 
-
     @Override
     public void skipReplayTime(float velocityX) {
         if (!paused) {
             skipRequested = velocityX;
+            scheduler.wakeUp();
         }
 
     }
@@ -297,7 +249,8 @@ public class FileDataInput extends RecordDataInput implements Runnable {
             throw new IllegalArgumentException("pos must be a float between 0 and 1.0");
         }
 
-        setPosRequested = pos;		
+        setPosRequested = pos;
+        scheduler.wakeUp();
     }
 
     @Override
@@ -345,6 +298,7 @@ public class FileDataInput extends RecordDataInput implements Runnable {
         if (runThread != null) {
             requestStop = true;
             runThread.interrupt();
+            scheduler.wakeUp();
             try {
                 runThread.join();
             } catch (InterruptedException e) {
@@ -5,78 +5,17 @@ import android.util.Log;
 
 import com.talentica.rowingapp.common.AppEventBus;
 import com.talentica.rowingapp.common.data.stroke.AppStroke;
-
-import java.util.concurrent.LinkedBlockingQueue;
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
 
 public abstract class RecordDataInput extends SensorDataInputBase {
 	
-    // TODO extend ThreadedQueue instead of Thread
-	private static class SensorQueueProcessor extends Thread {
-		
-		private final String name;
-		
-		private final SensorDataSource sensorDataSource;
-		
-		private final LinkedBlockingQueue<DataRecord> queue = new LinkedBlockingQueue<DataRecord>();
+	/**
+	 * sensor sample ring capacity - at 50Hz about 0.6s of samples
+	 */
+	public static final int SENSOR_RING_CAPACITY = 32;
+
+	private static final int SENSOR_LANE_COUNT = 3;
 
-		private final int queueSize;
-		
-		private boolean acceptData = true;
-		
-		private boolean stop;
-		
-		public SensorQueueProcessor(String name, SensorDataSource sensorDataSource, int queueSize) {
-			super(name + " Queue Processor");
-			
-			this.name = name;
-			this.sensorDataSource = sensorDataSource;
-			this.queueSize = queueSize;
-		}
-		
-		@Override
-		public void run() {
-			
-			while (!stop) {
-				try {
-					DataRecord record = queue.take();
-					sensorDataSource.pushData(record.timestamp, record.data);
-				} catch (InterruptedException e) {
-				}
-			}
-		}
-		
-		void setAcceptData(boolean acceptData) {
-			
-			synchronized (queue) {
-				this.acceptData = acceptData;
-				if (!acceptData) {
-					queue.clear();
-				}
-			}
-		}
-		
-		void add(DataRecord rec) {
-			
-			synchronized (queue) {
-				
-				if (acceptData) {
-					if (queue.size() > queueSize) {
-						Log.w("{} size overflow: {}", name + " queue processor:"+ queueSize);
-						queue.poll();
-					}
-					queue.offer(rec);
-				}
-			}
-		}
-		
-		void abort() {
-			
-			setAcceptData(false);
-			
-			stop = true;
-		}
-	}
-	
 //	private static final Logger logger = LoggerFactory.getLogger(RecordDataInput.class);
 	
 	
@@ -86,13 +25,40 @@ public abstract class RecordDataInput extends SensorDataInputBase {
 	protected final AppStroke appStroke;
 	protected final AppEventBus bus;
 
-	private final SensorQueueProcessor orientQueueProcessor = new SensorQueueProcessor("Orientation", orientationDataSource, 20);
-	
-	private final SensorQueueProcessor accelQueueProcessor = new SensorQueueProcessor("Accelleration", accelerometerDataSource, 20);
+	private final PipelineMetrics metrics;
+
+	/**
+	 * orientation samples, drained into orientationDataSource - produced by the thread calling playRecord
+	 */
+	private final SensorSampleRing orientRing = new SensorSampleRing("Orientation", orientationDataSource,
+			SENSOR_RING_CAPACITY, SENSOR_LANE_COUNT, SensorSampleRing.WaitStrategy.BLOCKING, SensorSampleRing.OverflowPolicy.DROP_OLDEST);
+
+	/**
+	 * accelerometer samples, drained into accelerometerDataSource - produced by the thread calling playRecord
+	 */
+	private final SensorSampleRing accelRing = new SensorSampleRing("Accelleration", accelerometerDataSource,
+			SENSOR_RING_CAPACITY, SENSOR_LANE_COUNT, SensorSampleRing.WaitStrategy.BLOCKING, SensorSampleRing.OverflowPolicy.DROP_OLDEST);
+
+	private final RecordTokenizer lineTokenizer = new RecordTokenizer();
+
+	/**
+	 * true if sensor records are pushed to their data sources in the playing thread, instead of via sensor sample ring threads
+	 */
+	private final boolean synchronous;
 	
 	public RecordDataInput(AppStroke appStroke) {
+		this(appStroke, false);
+	}
+
+	/**
+	 * @param synchronous true to push sensor records to the pipeline in the thread calling playRecord,
+	 * instead of via sensor sample rings - lossless and deterministic, but the caller is held up by pipeline processing
+	 */
+	public RecordDataInput(AppStroke appStroke, boolean synchronous) {
 		this.appStroke = appStroke;
 		this.bus = appStroke.getBus();
+		this.metrics = appStroke.getMetrics();
+		this.synchronous = synchronous;
 	}
 
 	public void setSeakable(boolean seakable) {
@@ -102,10 +68,24 @@ public abstract class RecordDataInput extends SensorDataInputBase {
 	public boolean isSeakable() {
 		return seakable;
 	}
+
+	/**
+	 * @return accelerometer sample ring, for depth/drop/latency metrics
+	 */
+	public SensorSampleRing getAccelRing() {
+		return accelRing;
+	}
+
+	/**
+	 * @return orientation sample ring, for depth/drop/latency metrics
+	 */
+	public SensorSampleRing getOrientRing() {
+		return orientRing;
+	}
 	
 	/**
 	 * set play pos
-	 * @param pos
+	 * @param pos fraction of session duration, between 0 and 1.0
 	 */	
 	public final void setPos(final double pos) {
 
@@ -115,8 +95,8 @@ public abstract class RecordDataInput extends SensorDataInputBase {
 		
 		if (seakable) {
 			
-			orientQueueProcessor.setAcceptData(false);
-			accelQueueProcessor.setAcceptData(false);
+			orientRing.setEnabled(false);
+			accelRing.setEnabled(false);
 			
 			onSetPosPending(pos);
 
@@ -133,8 +113,8 @@ public abstract class RecordDataInput extends SensorDataInputBase {
 						if (seekId == currenSeekId) {
 							bus.fireEvent(DataRecord.Type.REPLAY_SKIPPED, null);
 							onSetPosFinish(pos);
-							orientQueueProcessor.setAcceptData(true);
-							accelQueueProcessor.setAcceptData(true);
+							orientRing.setEnabled(true);
+							accelRing.setEnabled(true);
 						}
 					} catch (InterruptedException e) {
 						// TODO Auto-generated catch block
@@ -149,19 +129,29 @@ public abstract class RecordDataInput extends SensorDataInputBase {
 	protected abstract void onSetPosFinish(double pos);	
 	
 	public void playRecord(DataRecord record) {
-			switch (record.type) {
+			switch (record.getType()) {
 			case GPS:
-				gpsDataSource.pushData(record.timestamp, record.data);		
+				gpsDataSource.pushData(record.getTimestamp(), record.getData());		
 				break;
 			case ACCEL:
-				accelQueueProcessor.add(record);
+				metrics.markSample(record.getTimestamp());
+
+				if (synchronous) {
+					accelerometerDataSource.pushSample(record.getTimestamp(), (float[]) record.getData());
+				} else {
+					accelRing.offer(record.getTimestamp(), (float[]) record.getData());
+				}
 				break;
 			case ORIENT:
-				orientQueueProcessor.add(record);
+				if (synchronous) {
+					orientationDataSource.pushSample(record.getTimestamp(), (float[]) record.getData());
+				} else {
+					orientRing.offer(record.getTimestamp(), (float[]) record.getData());
+				}
 				break;
 			default:				
-				if (record.type.isReplayableEvent) {
-					if (record.type.isBusEvent && bus != null) {
+				if (record.getType().isReplayableEvent) {
+					if (record.getType().isBusEvent && bus != null) {
 						bus.fireEvent(record);
 					}					
 				}
@@ -172,14 +162,19 @@ public abstract class RecordDataInput extends SensorDataInputBase {
 
 	@Override
 	public void start() {
-		orientQueueProcessor.start();
-		accelQueueProcessor.start();
+		if (!synchronous) {
+			orientRing.registerMetrics(metrics, "ring.orientation");
+			accelRing.registerMetrics(metrics, "ring.accel");
+			orientRing.start();
+			accelRing.start();
+		}
 	}
 	
 	@Override
 	public void stop() {
-		orientQueueProcessor.abort();
-		accelQueueProcessor.abort();
+		metrics.unregisterGauges("ring.");
+		orientRing.stop();
+		accelRing.stop();
 	}
 	
 	public void playRecord(String line) {
@@ -188,33 +183,35 @@ public abstract class RecordDataInput extends SensorDataInputBase {
 	
 	public void playRecord(String line, String endOfRecMark) {
 		
-		if (endOfRecMark != null) {
-			line = line.substring(0, line.length() - endOfRecMark.length());
-		}
+		int end = line.length();
 		
-		String[] vals = line.split(" +");
-
-		if (vals.length < 3) {
-			Log.w("playRecord", "corrupt record line [" + line + "]");
-			return;			
+		if (endOfRecMark != null) {
+			end -= endOfRecMark.length();
 		}
 		
-		DataRecord.Type type;
+		DataRecord record;
 		
-		try {
-			type = DataRecord.Type.valueOf(vals[0]);
-		} catch (IllegalArgumentException e) {
-			Log.e("playRecord", "unknown record type [" + vals[0] + "]", e);
-//			logger.warn("unknown record type [" + vals[0] + "]", e);
-			return;
-		}
-
-		if (type.isParsableEvent) {		  
-
-			DataRecord record = DataRecord.create(type, Long.parseLong(vals[1]), vals[2]);
+		synchronized (lineTokenizer) {
+			if (!lineTokenizer.tokenize(line, 0, end)) {
+				Log.w("playRecord", "corrupt record line [" + line + "]");
+				return;			
+			}
+			
+			DataRecord.Type type = lineTokenizer.getType();
+			
+			if (type == null) {
+				Log.e("playRecord", "unknown record type in [" + line + "]");
+				return;
+			}
+			
+			if (!type.isParsableEvent) {
+				return;
+			}
 			
-			playRecord(record);
+			record = lineTokenizer.createRecord(line);
 		}
+		
+		playRecord(record);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,273 @@
+package com.talentica.rowingapp.common.data;
+
+import com.talentica.rowingapp.common.data.session.SessionRecorderConstants;
+
+import java.util.Arrays;
+
+/**
+ * Single pass, regex free tokenizer of text record lines, as found in text session files
+ * ("logTimestamp TYPE timestamp data@@") and received from remote ("TYPE timestamp data").
+ * Tokens are exposed as values and spans of the line, without creating intermediate Strings.
+ * Instances are reusable but not thread safe.
+ */
+public class RecordTokenizer {
+
+	private static final DataRecord.Type[] TYPES = DataRecord.Type.values();
+
+	/**
+	 * perfect hash table of type names: slot = (nameHash * typeHashMultiplier) >>> typeHashShift
+	 */
+	private static final DataRecord.Type[] TYPE_TABLE;
+	private static final int TYPE_HASH_MULTIPLIER;
+	private static final int TYPE_HASH_SHIFT;
+
+	static {
+		DataRecord.Type[] table = null;
+		int multiplier = 0;
+		int bits = 32 - Integer.numberOfLeadingZeros(TYPES.length * 2 - 1);
+
+		search:
+		for (;; bits++) {
+			table = new DataRecord.Type[1 << bits];
+
+			for (multiplier = 0x9e3779b1; multiplier != 0x9e3779b1 + 2 * 4096; multiplier += 2) {
+				Arrays.fill(table, null);
+
+				boolean collision = false;
+
+				for (DataRecord.Type type: TYPES) {
+					int slot = (hash(type.name(), 0, type.name().length()) * multiplier) >>> (32 - bits);
+
+					if (table[slot] != null) {
+						collision = true;
+						break;
+					}
+
+					table[slot] = type;
+				}
+
+				if (!collision) {
+					break search;
+				}
+			}
+		}
+
+		TYPE_TABLE = table;
+		TYPE_HASH_MULTIPLIER = multiplier;
+		TYPE_HASH_SHIFT = 32 - bits;
+	}
+
+	private long logTimestamp;
+	private DataRecord.Type type;
+	private long timestamp;
+	private int dataStart;
+	private int dataEnd;
+
+	private static int hash(CharSequence s, int start, int end) {
+		int h = 0;
+
+		for (int i = start; i < end; ++i) {
+			h = 31 * h + s.charAt(i);
+		}
+
+		return h;
+	}
+
+	/**
+	 * look up a record type by name, without allocating or throwing
+	 * @param s char sequence holding type name
+	 * @param start start index of type name
+	 * @param end end index (exclusive) of type name
+	 * @return type or null if no type has that name
+	 */
+	public static DataRecord.Type lookupType(CharSequence s, int start, int end) {
+		DataRecord.Type type = TYPE_TABLE[(hash(s, start, end) * TYPE_HASH_MULTIPLIER) >>> TYPE_HASH_SHIFT];
+
+		if (type == null) {
+			return null;
+		}
+
+		String name = type.name();
+
+		if (name.length() != end - start) {
+			return null;
+		}
+
+		for (int i = 0; i < name.length(); ++i) {
+			if (name.charAt(i) != s.charAt(start + i)) {
+				return null;
+			}
+		}
+
+		return type;
+	}
+
+	/**
+	 * find the END_OF_RECORD mark of a session file record line
+	 * @param line line
+	 * @return index of the last END_OF_RECORD mark, or -1 if not found
+	 */
+	public static int findEndOfRecord(CharSequence line) {
+		String mark = SessionRecorderConstants.END_OF_RECORD;
+
+		for (int i = line.length() - mark.length(); i >= 0; --i) {
+			int j = 0;
+
+			while (j < mark.length() && line.charAt(i + j) == mark.charAt(j)) {
+				j++;
+			}
+
+			if (j == mark.length()) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * tokenize a session file record line - "logTimestamp TYPE timestamp data@@"
+	 * @param line line
+	 * @return false if line is not a complete record line
+	 * @throws NumberFormatException on malformed timestamps
+	 */
+	public boolean tokenizeSessionLine(CharSequence line) {
+		int end = findEndOfRecord(line);
+
+		if (end == -1) {
+			return false;
+		}
+
+		int start = skipSpaces(line, 0, end);
+		int tokenEnd = findSpace(line, start, end);
+
+		if (tokenEnd == end) {
+			return false;
+		}
+
+		logTimestamp = parseLong(line, start, tokenEnd);
+
+		return tokenize(line, tokenEnd, end);
+	}
+
+	/**
+	 * tokenize a record line without log timestamp - "TYPE timestamp data"
+	 * @param line line
+	 * @param start start index of record
+	 * @param end end index (exclusive) of record
+	 * @return false if line is not a complete record line
+	 * @throws NumberFormatException on malformed timestamp
+	 */
+	public boolean tokenize(CharSequence line, int start, int end) {
+		start = skipSpaces(line, start, end);
+		int tokenEnd = findSpace(line, start, end);
+
+		if (tokenEnd == end) {
+			return false;
+		}
+
+		type = lookupType(line, start, tokenEnd);
+
+		start = skipSpaces(line, tokenEnd, end);
+		tokenEnd = findSpace(line, start, end);
+
+		if (tokenEnd == end) {
+			return false;
+		}
+
+		timestamp = parseLong(line, start, tokenEnd);
+
+		dataStart = skipSpaces(line, tokenEnd, end);
+		dataEnd = findSpace(line, dataStart, end);
+
+		return true;
+	}
+
+	/**
+	 * @return log timestamp of a session file record line
+	 */
+	public long getLogTimestamp() {
+		return logTimestamp;
+	}
+
+	/**
+	 * @return record type or null if type name is unknown
+	 */
+	public DataRecord.Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return event timestamp
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return start index of serialized data in line
+	 */
+	public int getDataStart() {
+		return dataStart;
+	}
+
+	/**
+	 * @return end index (exclusive) of serialized data in line
+	 */
+	public int getDataEnd() {
+		return dataEnd;
+	}
+
+	/**
+	 * create record from the last tokenized line
+	 * @param line the tokenized line
+	 * @return record
+	 */
+	public DataRecord createRecord(CharSequence line) {
+		return DataRecord.create(type, timestamp, line, dataStart, dataEnd);
+	}
+
+	private static int skipSpaces(CharSequence s, int i, int end) {
+		while (i < end && s.charAt(i) == ' ') {
+			i++;
+		}
+
+		return i;
+	}
+
+	private static int findSpace(CharSequence s, int i, int end) {
+		while (i < end && s.charAt(i) != ' ') {
+			i++;
+		}
+
+		return i;
+	}
+
+	private static long parseLong(CharSequence s, int start, int end) {
+		int i = start;
+		boolean negative = false;
+
+		if (i < end && s.charAt(i) == '-') {
+			negative = true;
+			i++;
+		}
+
+		if (i == end || end - i > 18) {
+			return Long.parseLong(s.subSequence(start, end).toString()); // error or possible overflow - let Long handle it
+		}
+
+		long value = 0;
+
+		for (; i < end; ++i) {
+			char c = s.charAt(i);
+
+			if (c < '0' || c > '9') {
+				throw new NumberFormatException("bad number [" + s.subSequence(start, end) + "]");
+			}
+
+			value = value * 10 + (c - '0');
+		}
+
+		return negative ? -value : value;
+	}
+}
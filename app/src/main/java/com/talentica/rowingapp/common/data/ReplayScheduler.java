@@ -0,0 +1,254 @@
+package com.talentica.rowingapp.common.data;
+
+import com.talentica.rowingapp.common.data.session.SessionReader;
+
+import java.io.IOException;
+
+/**
+ * Paces the records of a {@link SessionReader} against a {@link ClockProvider}.
+ * Records are parsed ahead into a small buffer while waiting for the next record to become due, and the wait itself
+ * blocks in {@link ClockProvider#awaitTime(long)} until the exact due time, so there is no polling, no re-parsing and
+ * playback speed and pausing are simply those of the clock.
+ * Record due time is the record log timestamp minus a time base, made monotonic so that the buffer is time ordered
+ * even where log timestamps of concurrently logged records are slightly out of order.
+ * Lateness - play time minus due time - is measured per record, for comparing timing jitter.
+ * All methods except {@link #wakeUp()} must be called from a single replay thread.
+ */
+public class ReplayScheduler {
+
+	public static final int DEFAULT_LOOKAHEAD = 64;
+
+	private final SessionReader reader;
+
+	private final ClockProvider clock;
+
+	private final int mask;
+
+	private final DataRecord[] records;
+	private final long[] logTimestamps;
+	private final long[] dueTimes;
+
+	/**
+	 * buffer counters - slot index is counter & mask
+	 */
+	private long head;
+	private long tail;
+
+	private boolean eof;
+
+	private long timeBase;
+
+	private long lastDueTime = Long.MIN_VALUE;
+
+	/**
+	 * log timestamp of the next record to play, or of the last one when the buffer is empty
+	 */
+	private long nextLogTimestamp;
+
+	/**
+	 * the clock is expected to start at the due time of the first record, and is only reset after a seek
+	 */
+	private boolean resetClockRequired;
+
+	private volatile long playedCount;
+	private volatile long totalLateness;
+	private volatile long totalSquaredLateness;
+	private volatile long maxLateness;
+
+	/**
+	 * @param reader session reader, positioned at the first record to play
+	 * @param clock replay clock
+	 * @param lookahead max number of records parsed ahead, rounded up to a power of two
+	 */
+	public ReplayScheduler(SessionReader reader, ClockProvider clock, int lookahead) {
+		this.reader = reader;
+		this.clock = clock;
+
+		int size = Integer.highestOneBit(Math.max(lookahead, 2) - 1) << 1;
+
+		mask = size - 1;
+		records = new DataRecord[size];
+		logTimestamps = new long[size];
+		dueTimes = new long[size];
+		nextLogTimestamp = reader.getFirstTimestamp();
+	}
+
+	/**
+	 * set the log timestamp that maps to clock time 0
+	 * @param timeBase log timestamp (ms)
+	 */
+	public void setTimeBase(long timeBase) {
+		this.timeBase = timeBase;
+	}
+
+	/**
+	 * @return log timestamp (ms) of the next record to play
+	 */
+	public long getNextLogTimestamp() {
+		return nextLogTimestamp;
+	}
+
+	/**
+	 * move the reader and discard the lookahead. The clock is reset to the due time of the next record played
+	 * @param pos reader position, see {@link SessionReader#seek(long)}
+	 * @param logTimestamp skip records logged before this timestamp (ms)
+	 * @throws IOException
+	 */
+	public void seek(long pos, long logTimestamp) throws IOException {
+		reader.seek(pos);
+
+		for (; head < tail; ++head) {
+			records[(int) (head & mask)] = null;
+		}
+
+		eof = false;
+		lastDueTime = Long.MIN_VALUE;
+		resetClockRequired = true;
+		nextLogTimestamp = logTimestamp;
+
+		while (readAhead()) {
+			if (logTimestamps[(int) ((tail - 1) & mask)] >= logTimestamp) {
+				break;
+			}
+
+			records[(int) (head & mask)] = null;
+			head++;
+		}
+	}
+
+	/**
+	 * parse the next record into the lookahead buffer
+	 * @return false at end of file or when the buffer is full
+	 * @throws IOException
+	 */
+	private boolean readAhead() throws IOException {
+		if (eof || tail - head > mask) {
+			return false;
+		}
+
+		if (!reader.next()) {
+			eof = true;
+			return false;
+		}
+
+		int idx = (int) (tail & mask);
+		long logTimestamp = reader.getLogTimestamp();
+
+		lastDueTime = Math.max(lastDueTime, logTimestamp - timeBase);
+
+		records[idx] = reader.getRecord();
+		logTimestamps[idx] = logTimestamp;
+		dueTimes[idx] = lastDueTime;
+
+		if (tail++ == head) {
+			nextLogTimestamp = logTimestamp;
+		}
+
+		return true;
+	}
+
+	/**
+	 * wait until the next record is due and take it. Records are parsed ahead while waiting
+	 * @param paced false to take records as fast as they can be read, ignoring the clock
+	 * @return next record, or null at end of file, or when woken up early by {@link #wakeUp()} or a clock change
+	 * - the caller is expected to handle whatever woke it up and call again
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public DataRecord take(boolean paced) throws IOException, InterruptedException {
+		if (head == tail && !readAhead()) {
+			if (eof) {
+				clock.awaitTime(Long.MAX_VALUE / 1000000); // nothing to play until a seek, i.e. wakeUp()
+			}
+
+			return null;
+		}
+
+		int idx = (int) (head & mask);
+
+		if (paced) {
+			long dueTime = dueTimes[idx];
+
+			if (resetClockRequired) {
+				clock.reset(dueTime);
+				resetClockRequired = false;
+			}
+
+			while (clock.getTime() < dueTime) {
+				if (readAhead()) {
+					continue; // use the slack to parse ahead
+				}
+
+				if (clock.awaitTime(dueTime) < dueTime) {
+					return null; // woken up early
+				}
+			}
+
+			long lateness = (long) ((clock.getTimeNanos() - dueTime * 1000000) / clock.getSpeed());
+
+			playedCount++;
+			totalLateness += lateness;
+			totalSquaredLateness += lateness / 1000 * (lateness / 1000);
+
+			if (lateness > maxLateness) {
+				maxLateness = lateness;
+			}
+		}
+
+		DataRecord record = records[idx];
+
+		records[idx] = null;
+		head++;
+
+		if (head != tail) {
+			nextLogTimestamp = logTimestamps[(int) (head & mask)];
+		}
+
+		return record;
+	}
+
+	/**
+	 * make a pending {@link #take(boolean)} return early - may be called from any thread
+	 */
+	public void wakeUp() {
+		clock.wakeUp();
+	}
+
+	/**
+	 * @return number of records played paced
+	 */
+	public long getPlayedCount() {
+		return playedCount;
+	}
+
+	/**
+	 * @return mean time records were played after their due time, in real time ns
+	 */
+	public long getMeanLateness() {
+		long count = playedCount;
+		return count == 0 ? 0 : totalLateness / count;
+	}
+
+	/**
+	 * @return max time a record was played after its due time, in real time ns
+	 */
+	public long getMaxLateness() {
+		return maxLateness;
+	}
+
+	/**
+	 * @return standard deviation of lateness, i.e. timing jitter, in real time ns
+	 */
+	public long getLatenessStdDev() {
+		long count = playedCount;
+
+		if (count == 0) {
+			return 0;
+		}
+
+		double mean = totalLateness / 1000.0 / count; // us
+		double variance = totalSquaredLateness / (double) count - mean * mean;
+
+		return (long) (Math.sqrt(Math.max(0, variance)) * 1000);
+	}
+}
@@ -19,12 +19,19 @@
 
 package com.talentica.rowingapp.common.data;
 
+import com.talentica.rowingapp.common.metrics.Histogram;
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
+
 /**
  * sensor data filter/processing pipeline component base class.
  *
  */
 public abstract class SensorDataFilter extends SensorDataSource implements SensorDataSink {
 
+	private volatile PipelineMetrics metrics;
+
+	private volatile Histogram filterTime;
+
 	/**
 	 * constructor without initial sink.
 	 */
@@ -38,9 +45,46 @@ public abstract class SensorDataFilter extends SensorDataSource implements Senso
 		super(sink);
 	}
 
+	/**
+	 * measure the filter processing time - not including sinks - while metrics are enabled
+	 * @param metrics metrics, or null
+	 * @param name filter name, the time is recorded in histogram "filter.&lt;name&gt;.ns"
+	 */
+	public void setMetrics(PipelineMetrics metrics, String name) {
+		if (metrics != null) {
+			filterTime = metrics.getHistogram("filter." + name + ".ns");
+		}
+
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return start time to pass to {@link #stopTiming(long)}, 0 if metrics are disabled
+	 */
+	protected long startTiming() {
+		PipelineMetrics metrics = this.metrics;
+		return metrics != null && metrics.isEnabled() ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * record the filter processing time
+	 * @param start {@link #startTiming()} result
+	 */
+	protected void stopTiming(long start) {
+		if (start != 0) {
+			filterTime.record(System.nanoTime() - start);
+		}
+	}
+
 	@Override
 	public void onSensorData(long timestamp, Object value) {
-		if (null != (value = filterData(timestamp, value))) {
+		long start = startTiming();
+
+		value = filterData(timestamp, value);
+
+		stopTiming(start);
+
+		if (null != value) {
 			pushData(timestamp, value);
 		}		
 	}
@@ -19,31 +19,51 @@
 
 package com.talentica.rowingapp.common.data;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.Arrays;
 
 /**
  * a handy class to ease building of sensor data processing pipelines.
  * <code>SensorDataSource</code> makes itself useful by managing <code>SensorDataSink</code>
- * lists and providing an easy event-push mechanism with {@link #pushData(long, Object)}
- *
+ * lists and providing an easy event-push mechanism with {@link #pushData(long, Object)}.
+ * Sinks are kept in an immutable, weight ordered array that is replaced on add/remove,
+ * so pushing data takes no lock and does not contend with sink registration.
+ * Data of a source is expected to be pushed from one thread at a time.
+ * Float array samples can be pushed without allocation by {@link #pushSample(long, float[])}.
  */
 public class SensorDataSource {
-	
-	/**
-	 * Holder of an event sink when there is only one
-	 */
-	private SensorDataSink sink;
-	/**
-	 * holder of event sinks when there are more then one
-	 */
-	LinkedList<SensorDataSink> sinkList;
-	
+
 	/**
-	 * holder of event sinks when there are more then one
+	 * registered sinks - never modified, replaced as a whole on add/remove
 	 */
-	private final HashMap<SensorDataSink, Double> weightMap = new HashMap<SensorDataSink, Double>();
+	private static final class Sinks {
+		static final Sinks EMPTY = new Sinks(new SensorDataSink[0], new double[0]);
+
+		/**
+		 * all sinks in weight order
+		 */
+		final SensorDataSink[] sinks;
+
+		/**
+		 * sinks by sinks index, if they are sample sinks - else null
+		 */
+		final SensorSampleSink[] sampleSinks;
+
+		final double[] weights;
+
+		Sinks(SensorDataSink[] sinks, double[] weights) {
+			this.sinks = sinks;
+			this.weights = weights;
+			sampleSinks = new SensorSampleSink[sinks.length];
+
+			for (int i = 0; i < sinks.length; ++i) {
+				if (sinks[i] instanceof SensorSampleSink) {
+					sampleSinks[i] = (SensorSampleSink) sinks[i];
+				}
+			}
+		}
+	}
+
+	private volatile Sinks sinks = Sinks.EMPTY;
 	
 	/**
 	 * construct with no initial event sinks
@@ -71,40 +91,30 @@ public class SensorDataSource {
 	 * @param weight position the new sink in weight order - e.g. 0.0 to prepend sink to head of sink queue, 1.0 to append
 	 */
 	public synchronized void addSensorDataSink(SensorDataSink sink, double weight) {
-		if (this.sink == null) {
-			this.sink = sink;		
-		} else {
-			if (this.sink == sink) {
-				throw new IllegalArgumentException("sink is already registered");
-			}
-			
-			if (sinkList == null) {
-				sinkList = new LinkedList<SensorDataSink>();
-				sinkList.add(this.sink);				
-			} else if (sinkList.contains(sink)) {
-				throw new IllegalArgumentException("sink is already registered");
-			}
-			
-			ListIterator<SensorDataSink> it = sinkList.listIterator();
-			
-			int idx = 0;
-			while (it.hasNext()) {
-				
-				SensorDataSink s = it.next();
-				
-				double w = weightMap.get(s);
-				
-				if (weight < w) {
-					break;
-				}
-				
-				idx++;
-			}
+		SensorDataSink[] current = sinks.sinks;
+		double[] weights = sinks.weights;
 
-			sinkList.add(idx, sink);
+		if (indexOf(current, sink) != -1) {
+			throw new IllegalArgumentException("sink is already registered");
 		}
-		
-		weightMap.put(sink, weight);
+
+		int idx = 0;
+
+		while (idx < current.length && !(weight < weights[idx])) {
+			idx++;
+		}
+
+		SensorDataSink[] newSinks = new SensorDataSink[current.length + 1];
+		double[] newWeights = new double[current.length + 1];
+
+		System.arraycopy(current, 0, newSinks, 0, idx);
+		System.arraycopy(weights, 0, newWeights, 0, idx);
+		newSinks[idx] = sink;
+		newWeights[idx] = weight;
+		System.arraycopy(current, idx, newSinks, idx + 1, current.length - idx);
+		System.arraycopy(weights, idx, newWeights, idx + 1, current.length - idx);
+
+		sinks = new Sinks(newSinks, newWeights);
 	}
 	
 	/**
@@ -112,29 +122,39 @@ public class SensorDataSource {
 	 * @param sink event sink
 	 */
 	public synchronized void removeSensorDataSink(SensorDataSink sink) {
-		
-		boolean removed = false;
-		
-		if (sinkList != null) {
-			removed = sinkList.remove(sink);
-			this.sink = sinkList.getFirst();
-			
-			if (sinkList.size() == 1) {
-				sinkList = null;
-			}
-		} else {
-			if (sink == this.sink) {
-				this.sink = null;
-				removed = true;
-			}
-		}
-		
-		if (!removed) {
+		SensorDataSink[] current = sinks.sinks;
+		double[] weights = sinks.weights;
+
+		int idx = indexOf(current, sink);
+
+		if (idx == -1) {
 			throw new IllegalArgumentException("trying to remove non-existing sink");
 		}
-		
-		weightMap.remove(sink);
 
+		if (current.length == 1) {
+			sinks = Sinks.EMPTY;
+			return;
+		}
+
+		SensorDataSink[] newSinks = new SensorDataSink[current.length - 1];
+		double[] newWeights = new double[current.length - 1];
+
+		System.arraycopy(current, 0, newSinks, 0, idx);
+		System.arraycopy(weights, 0, newWeights, 0, idx);
+		System.arraycopy(current, idx + 1, newSinks, idx, current.length - idx - 1);
+		System.arraycopy(weights, idx + 1, newWeights, idx, current.length - idx - 1);
+
+		sinks = new Sinks(newSinks, newWeights);
+	}
+
+	private static int indexOf(SensorDataSink[] sinks, SensorDataSink sink) {
+		for (int i = 0; i < sinks.length; ++i) {
+			if (sinks[i] == sink) {
+				return i;
+			}
+		}
+
+		return -1;
 	}
 	
 	/**
@@ -142,18 +162,43 @@ public class SensorDataSource {
 	 * @param timestamp event timestamp
 	 * @param value sensor data
 	 */
-	public synchronized void pushData(long timestamp, Object value) {
-		if (sinkList != null) { // more then one sink inside sinkList
-			for (SensorDataSink sink: sinkList) {
-				sink.onSensorData(timestamp, value);				
+	public void pushData(long timestamp, Object value) {
+		SensorDataSink[] sinks = this.sinks.sinks;
+
+		for (int i = 0; i < sinks.length; ++i) {
+			sinks[i].onSensorData(timestamp, value);
+		}
+	}
+
+	/**
+	 * push a float array sample to all registered sinks - {@link SensorSampleSink}s borrow the values
+	 * array, other sinks receive a copy of it
+	 * @param timestamp event timestamp
+	 * @param values sample values, may be reused by the caller once this returns
+	 */
+	public void pushSample(long timestamp, float[] values) {
+		Sinks sinks = this.sinks;
+		SensorDataSink[] all = sinks.sinks;
+		SensorSampleSink[] sampleSinks = sinks.sampleSinks;
+
+		for (int i = 0; i < all.length; ++i) {
+			if (sampleSinks[i] != null) {
+				sampleSinks[i].onSample(timestamp, values);
+			} else {
+				all[i].onSensorData(timestamp, values.clone());
 			}
-		} else if (this.sink != null) { // only one sink in this.sink
-			this.sink.onSensorData(timestamp, value);		
 		}
 	}
+
+	/**
+	 * @return registered sinks in weight order - a snapshot
+	 */
+	public SensorDataSink[] getSensorDataSinks() {
+		SensorDataSink[] sinks = this.sinks.sinks;
+		return Arrays.copyOf(sinks, sinks.length);
+	}
 	
 	public synchronized void clearSensorDataSinks() {
-		sinkList = null;
-		this.sink = null;
+		sinks = Sinks.EMPTY;
 	}
 }
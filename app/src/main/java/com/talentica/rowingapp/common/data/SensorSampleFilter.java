@@ -0,0 +1,46 @@
+package com.talentica.rowingapp.common.data;
+
+/**
+ * Allocation free {@link SensorDataFilter} of float array samples.
+ * Input samples are borrowed (see {@link SensorSampleSink}) and so are the results of
+ * {@link #filterSample(long, float[])}, which are usually a buffer owned and reused by the filter.
+ * Sample sinks receive results as is, other sinks receive a copy.
+ */
+public abstract class SensorSampleFilter extends SensorDataFilter implements SensorSampleSink {
+
+	public SensorSampleFilter() {}
+
+	public SensorSampleFilter(SensorDataSink sink) {
+		super(sink);
+	}
+
+	@Override
+	public void onSample(long timestamp, float[] values) {
+		long start = startTiming();
+		float[] res = filterSample(timestamp, values);
+
+		stopTiming(start);
+
+		if (res != null) {
+			pushSample(timestamp, res);
+		}
+	}
+
+	@Override
+	public void onSensorData(long timestamp, Object value) {
+		onSample(timestamp, (float[]) value);
+	}
+
+	@Override
+	protected Object filterData(long timestamp, Object value) {
+		return filterSample(timestamp, (float[]) value);
+	}
+
+	/**
+	 * filter/process a sample - see {@link SensorDataFilter#filterData(long, Object)}
+	 * @param timestamp sample timestamp
+	 * @param values borrowed sample values
+	 * @return borrowed filtered values, or null when the sample is not to be passed on to sinks
+	 */
+	protected abstract float[] filterSample(long timestamp, float[] values);
+}
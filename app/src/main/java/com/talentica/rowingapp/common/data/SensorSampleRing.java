@@ -0,0 +1,412 @@
+package com.talentica.rowingapp.common.data;
+
+import android.util.Log;
+
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single producer/single consumer ring of sensor samples, drained into a {@link SensorDataSource} by a dedicated thread.
+ * Slots are preallocated primitive lanes - a timestamp and up to laneCount float values - so queueing a sample
+ * allocates nothing, and samples are pushed on from a reused buffer with {@link SensorDataSource#pushSample(long, float[])}.
+ * Exactly one thread may call {@link #offer(long, float[])} at a time.
+ * {@link #setEnabled(boolean)} may be called from any thread.
+ */
+public class SensorSampleRing implements Runnable {
+
+	/**
+	 * how the consumer thread waits for samples
+	 */
+	public enum WaitStrategy {
+		/**
+		 * wait on a monitor, woken by the producer - lowest CPU use, highest wake-up latency
+		 */
+		BLOCKING,
+		/**
+		 * busy spin - lowest latency, occupies a CPU
+		 */
+		SPINNING,
+		/**
+		 * spin briefly, then park for short periods - no producer signalling
+		 */
+		PARKING
+	}
+
+	/**
+	 * what {@link #offer(long, float[])} does when the ring is full
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * drop the oldest queued sample - consumers see the most recent data
+		 */
+		DROP_OLDEST,
+		/**
+		 * drop the offered sample
+		 */
+		DROP_NEWEST,
+		/**
+		 * wait for the consumer to make room - lossless, the producer is held up by the consumer
+		 */
+		BLOCK
+	}
+
+	private static final int SPIN_COUNT = 100;
+
+	private static final long PARK_NANOS = 100000;
+
+	/**
+	 * overflow is logged once per this many dropped samples - a power of two
+	 */
+	private static final int DROP_LOG_INTERVAL = 1024;
+
+	private final String name;
+
+	private final SensorDataSource sensorDataSource;
+
+	private final WaitStrategy waitStrategy;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final int laneCount;
+
+	private final int mask;
+
+	private final long[] timestamps;
+	private final long[] enqueueTimes;
+	private final float[] lanes;
+	private final int[] valueCounts;
+
+	/**
+	 * consumer side buffer samples are pushed from - reused while the value count does not change
+	 */
+	private float[] sample = new float[0];
+
+	/**
+	 * ring counters - slot index is counter & mask. Head is advanced by the consumer, and by the producer when dropping
+	 * the oldest sample, hence CAS. Tail is advanced by the producer only
+	 */
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	private final Object lock = new Object();
+
+	/**
+	 * true while the consumer waits on lock - BLOCKING strategy only
+	 */
+	private volatile boolean consumerWaiting;
+
+	private volatile boolean enabled = true;
+
+	private volatile boolean stop;
+
+	private volatile long droppedCount;
+	private volatile long consumedCount;
+	private volatile int maxDepth;
+	private volatile long totalLatency;
+	private volatile long maxLatency;
+
+	private Thread thread;
+
+	/**
+	 * @param name ring name, for thread name and logging
+	 * @param sensorDataSource data source samples are pushed to
+	 * @param capacity ring capacity, rounded up to a power of two
+	 * @param laneCount max number of values per sample
+	 * @param waitStrategy consumer wait strategy
+	 * @param overflowPolicy overflow policy
+	 */
+	public SensorSampleRing(String name, SensorDataSource sensorDataSource, int capacity, int laneCount,
+							WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+		this.name = name;
+		this.sensorDataSource = sensorDataSource;
+		this.laneCount = laneCount;
+		this.waitStrategy = waitStrategy;
+		this.overflowPolicy = overflowPolicy;
+
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+
+		mask = size - 1;
+		timestamps = new long[size];
+		enqueueTimes = new long[size];
+		valueCounts = new int[size];
+		lanes = new float[size * laneCount];
+	}
+
+	public synchronized void start() {
+		if (thread == null) {
+			thread = new Thread(this, name + " Sample Ring") {
+				{
+					setDaemon(true);
+				}
+			};
+
+			thread.start();
+		}
+	}
+
+	/**
+	 * stop the consumer thread - samples still queued are discarded
+	 */
+	public void stop() {
+		enabled = false;
+		stop = true;
+
+		synchronized (lock) {
+			lock.notifyAll();
+		}
+
+		clear();
+	}
+
+	/**
+	 * enable/disable sample input. Disabling discards queued samples
+	 * @param enabled false to ignore offered samples
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled && !stop;
+
+		if (!enabled) {
+			clear();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	private void clear() {
+		while (true) {
+			long h = head.get();
+			long t = tail.get();
+
+			if (h >= t || head.compareAndSet(h, t)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * queue a sample - producer thread only
+	 * @param timestamp sample timestamp
+	 * @param values sample values - copied, at most laneCount of them
+	 * @return false if the sample, or a queued one, was dropped
+	 */
+	public boolean offer(long timestamp, float[] values) {
+		if (!enabled) {
+			return true;
+		}
+
+		boolean dropped = false;
+		long t = tail.get();
+
+		while (t - head.get() > mask) {
+			if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+				droppedCount++;
+				return false;
+			}
+
+			if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+				long h = head.get();
+
+				if (t - h > mask && head.compareAndSet(h, h + 1)) {
+					droppedCount++;
+					dropped = true;
+				}
+			} else if (stop || !enabled) {
+				return true;
+			} else {
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+		}
+
+		int idx = (int) (t & mask);
+		int count = values == null ? -1 : Math.min(values.length, laneCount);
+
+		timestamps[idx] = timestamp;
+		valueCounts[idx] = count;
+
+		if (count > 0) {
+			System.arraycopy(values, 0, lanes, idx * laneCount, count);
+		}
+
+		enqueueTimes[idx] = System.nanoTime();
+
+		tail.set(t + 1);
+
+		int depth = (int) (t + 1 - head.get());
+
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+
+		if (consumerWaiting) {
+			synchronized (lock) {
+				lock.notifyAll();
+			}
+		}
+
+		if (dropped && (droppedCount & (DROP_LOG_INTERVAL - 1)) == 1) {
+			Log.w("offer()", name + " sample ring overflow, " + droppedCount + " samples dropped so far");
+		}
+
+		return !dropped;
+	}
+
+	@Override
+	public void run() {
+		int idle = 0;
+
+		while (!stop) {
+			long h = head.get();
+
+			if (h == tail.get()) {
+				idle = awaitSample(idle);
+				continue;
+			}
+
+			idle = 0;
+
+			int idx = (int) (h & mask);
+			long timestamp = timestamps[idx];
+			long enqueueTime = enqueueTimes[idx];
+			int count = valueCounts[idx];
+			float[] values = null;
+
+			if (count >= 0) {
+				if (sample.length != count) {
+					sample = new float[count];
+				}
+
+				values = sample;
+				System.arraycopy(lanes, idx * laneCount, values, 0, count);
+			}
+
+			// CAS fails if the producer dropped this sample (and may be overwriting its slot) meanwhile
+			if (!head.compareAndSet(h, h + 1)) {
+				continue;
+			}
+
+			if (values != null) {
+				sensorDataSource.pushSample(timestamp, values);
+			} else {
+				sensorDataSource.pushData(timestamp, null);
+			}
+
+			long latency = System.nanoTime() - enqueueTime;
+
+			consumedCount++;
+			totalLatency += latency;
+
+			if (latency > maxLatency) {
+				maxLatency = latency;
+			}
+		}
+	}
+
+	private int awaitSample(int idle) {
+		switch (waitStrategy) {
+		case SPINNING:
+			return idle;
+		case PARKING:
+			if (idle < SPIN_COUNT) {
+				return idle + 1;
+			}
+
+			LockSupport.parkNanos(PARK_NANOS);
+			return idle;
+		default:
+			synchronized (lock) {
+				consumerWaiting = true;
+
+				try {
+					if (!stop && head.get() == tail.get()) {
+						lock.wait();
+					}
+				} catch (InterruptedException e) {
+				} finally {
+					consumerWaiting = false;
+				}
+			}
+
+			return idle;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return number of samples waiting for the consumer
+	 */
+	public int getDepth() {
+		return (int) Math.max(0, tail.get() - head.get());
+	}
+
+	/**
+	 * @return max number of samples queued at once so far
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @return number of samples pushed to the data source so far
+	 */
+	public long getConsumedCount() {
+		return consumedCount;
+	}
+
+	/**
+	 * @return mean time from offer to the end of pushing to the data source, in ns
+	 */
+	public long getMeanLatency() {
+		long count = consumedCount;
+		return count == 0 ? 0 : totalLatency / count;
+	}
+
+	/**
+	 * @return max time from offer to the end of pushing to the data source, in ns
+	 */
+	public long getMaxLatency() {
+		return maxLatency;
+	}
+
+	/**
+	 * register depth, drop and latency gauges with metrics
+	 * @param metrics metrics
+	 * @param prefix gauge name prefix
+	 */
+	public void registerMetrics(PipelineMetrics metrics, String prefix) {
+		metrics.registerGauge(prefix + ".depth", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return getDepth();
+			}
+		});
+		metrics.registerGauge(prefix + ".maxDepth", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return maxDepth;
+			}
+		});
+		metrics.registerGauge(prefix + ".dropped", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return droppedCount;
+			}
+		});
+		metrics.registerGauge(prefix + ".meanLatency.ns", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return getMeanLatency();
+			}
+		});
+	}
+}
@@ -0,0 +1,18 @@
+package com.talentica.rowingapp.common.data;
+
+/**
+ * A {@link SensorDataSink} of float array samples, receiving them without per sample allocation
+ * via {@link SensorDataSource#pushSample(long, float[])}.
+ * Sample arrays are borrowed: they belong to the pushing source and are only valid during the call,
+ * as the source may reuse them for the next sample. A sink may modify the values in place - sinks
+ * registered after it on the same source see the modification (see the axis filters) - but must copy
+ * whatever it needs to keep after returning.
+ */
+public interface SensorSampleSink extends SensorDataSink {
+	/**
+	 * Process a sensor sample
+	 * @param timestamp timestamp of sample
+	 * @param values borrowed sample values
+	 */
+	void onSample(long timestamp, float[] values);
+}
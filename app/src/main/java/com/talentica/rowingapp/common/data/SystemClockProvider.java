@@ -1,44 +1,159 @@
 package com.talentica.rowingapp.common.data;
 
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Clock running at an adjustable multiple of real time, based on {@link System#nanoTime()}
+ */
 public class SystemClockProvider implements ClockProvider {
 
-    private long systemTimeOffset;
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /**
+     * final stretch of {@link #awaitTime(long)} is parked rather than waited for, as Object.wait() has ms granularity
+     */
+    private static final long PARK_THRESHOLD_NANOS = 2000000;
+
+    /**
+     * clock time (ns) at baseNanoTime
+     */
+    private long baseTime;
+    private long baseNanoTime;
+    private double speed = 1.0;
     private long stopTime;
     private boolean stopped = true;
-    
+
+    /**
+     * incremented on each reset/speed change - makes awaitTime() return
+     */
+    private int changeCount;
+    private boolean wakeUpPending;
+
     public SystemClockProvider() {
     }
 
     @Override
     public long getTime() {
-        return stopped ? stopTime : System.currentTimeMillis() - systemTimeOffset;
+        return getTimeNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public synchronized long getTimeNanos() {
+        return stopped ? stopTime : baseTime + (long) ((System.nanoTime() - baseNanoTime) * speed);
     }
 
     @Override
-    public void run() {
+    public synchronized void run() {
         if (!stopped) {
             throw new IllegalStateException("timer is already running");
         }
-        
-        reset(stopTime);
-        
+
+        rebase(stopTime);
+
         stopped = false;
+
+        notifyAll();
     }
 
     @Override
-    public void stop() {
+    public synchronized void stop() {
         if (stopped) {
             throw new IllegalStateException("timer is not running");
         }
-        
-        stopTime = getTime();
-        
+
+        stopTime = getTimeNanos();
+
         stopped = true;
+
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void reset(long initialTime) {
+        long time = initialTime * NANOS_PER_MILLI;
+
+        rebase(time);
+
+        if (stopped) {
+            stopTime = time; // run() continues from here
+        }
+
+        changeCount++;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void setSpeed(double speed) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("speed must be positive");
+        }
+
+        rebase(getTimeNanos());
+
+        this.speed = speed;
+
+        changeCount++;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized double getSpeed() {
+        return speed;
+    }
+
+    @Override
+    public long awaitTime(long time) throws InterruptedException {
+        long target = time * NANOS_PER_MILLI;
+        int changes;
+
+        synchronized (this) {
+            changes = changeCount;
+        }
+
+        while (true) {
+            long parkNanos;
+
+            synchronized (this) {
+                while (true) {
+                    long now = getTimeNanos();
+
+                    if (now >= target || changeCount != changes || wakeUpPending) {
+                        wakeUpPending = false;
+                        return now / NANOS_PER_MILLI;
+                    }
+
+                    if (stopped) {
+                        wait();
+                        continue;
+                    }
+
+                    long waitNanos = (long) ((target - now) / speed);
+
+                    if (waitNanos <= PARK_THRESHOLD_NANOS) {
+                        parkNanos = waitNanos;
+                        break;
+                    }
+
+                    wait(Math.max(1, (waitNanos - PARK_THRESHOLD_NANOS) / NANOS_PER_MILLI));
+                }
+            }
+
+            LockSupport.parkNanos(parkNanos);
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
     }
 
     @Override
-    public void reset(long initialTime) {
-        systemTimeOffset = System.currentTimeMillis() - initialTime;
+    public synchronized void wakeUp() {
+        wakeUpPending = true;
+        notifyAll();
     }
 
+    private void rebase(long time) {
+        baseTime = time;
+        baseNanoTime = System.nanoTime();
+    }
 }
@@ -0,0 +1,163 @@
+package com.talentica.rowingapp.common.data.analysis;
+
+import android.util.Log;
+
+import com.talentica.rowingapp.common.data.BatchReplay;
+import com.talentica.rowingapp.common.data.session.SessionIndex;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel analysis of a directory tree of session files.
+ * Each session is replayed by its own {@link BatchReplay}, i.e. its own AppStroke pipeline, event bus and
+ * parameters, so tasks share no state and throughput scales with the number of worker threads.
+ */
+public class SessionArchiveAnalyzer {
+
+	private final int threadCount;
+
+	/**
+	 * @param threadCount number of worker threads
+	 */
+	public SessionArchiveAnalyzer(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("threadCount must be positive");
+		}
+
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * find session files in a directory tree - all files except session index files
+	 * @param dir directory
+	 * @return files
+	 */
+	public static List<File> findSessionFiles(File dir) {
+		ArrayList<File> files = new ArrayList<File>();
+		collectSessionFiles(dir, files);
+		Collections.sort(files);
+
+		return files;
+	}
+
+	private static void collectSessionFiles(File dir, List<File> files) {
+		File[] entries = dir.listFiles();
+
+		if (entries == null) {
+			return;
+		}
+
+		for (File f: entries) {
+			if (f.isDirectory()) {
+				collectSessionFiles(f, files);
+			} else if (f.isFile() && !f.getName().startsWith(".") && !f.getName().endsWith(SessionIndex.INDEX_FILE_SUFFIX)) {
+				files.add(f);
+			}
+		}
+	}
+
+	/**
+	 * replay and summarize session files in parallel
+	 * @param files session files
+	 * @return summaries in files order - sessions that failed to replay are logged and left out
+	 * @throws InterruptedException
+	 */
+	public List<SessionSummary> analyze(List<File> files) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+		try {
+			// submit longest sessions first, so that a large file does not end up as the single task of the last running thread
+			final long[] sizes = new long[files.size()];
+			ArrayList<Integer> order = new ArrayList<Integer>(files.size());
+
+			for (int i = 0; i < files.size(); ++i) {
+				sizes[i] = files.get(i).length();
+				order.add(i);
+			}
+
+			Collections.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer lhs, Integer rhs) {
+					long l = sizes[lhs];
+					long r = sizes[rhs];
+					return l > r ? -1 : (l == r ? 0 : 1);
+				}
+			});
+
+			ArrayList<Future<SessionSummary>> futures = new ArrayList<Future<SessionSummary>>(Collections.<Future<SessionSummary>>nCopies(files.size(), null));
+
+			for (int i: order) {
+				final File file = files.get(i);
+
+				futures.set(i, executor.submit(new Callable<SessionSummary>() {
+					@Override
+					public SessionSummary call() throws Exception {
+						return SessionSummary.create(file, new BatchReplay(file).run());
+					}
+				}));
+			}
+
+			ArrayList<SessionSummary> summaries = new ArrayList<SessionSummary>(files.size());
+
+			for (int i = 0; i < futures.size(); ++i) {
+				try {
+					summaries.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					Log.e("analyze()", "failed to analyze session file " + files.get(i), e.getCause());
+				}
+			}
+
+			return summaries;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * analyze a directory of session files and print a CSV line per session, followed by totals
+	 * @param args directory [thread count, default: available processors]
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: SessionArchiveAnalyzer <dir> [threads]");
+			System.exit(1);
+		}
+
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		List<File> files = findSessionFiles(new File(args[0]));
+
+		long start = System.nanoTime();
+		List<SessionSummary> summaries = new SessionArchiveAnalyzer(threads).analyze(files);
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println(SessionSummary.getCsvHeader());
+
+		long records = 0;
+		long strokes = 0;
+		long replayNanos = 0;
+		double distance = 0;
+
+		for (SessionSummary summary: summaries) {
+			System.out.println(summary.toCsv());
+
+			records += summary.getRecordCount();
+			strokes += summary.getStrokeCount();
+			replayNanos += summary.getReplayNanos();
+			distance += summary.getDistance();
+		}
+
+		System.err.println(String.format("%d/%d sessions, %d strokes, %.0f m, %d records in %.2fs on %d threads: %.0f records/s, parallel efficiency %.0f%%",
+				summaries.size(), files.size(), strokes, distance, records, elapsed / 1e9, threads,
+				records * 1e9 / elapsed, 100.0 * replayNanos / elapsed / threads));
+	}
+}
@@ -0,0 +1,273 @@
+package com.talentica.rowingapp.common.data.analysis;
+
+import com.talentica.rowingapp.common.data.BatchReplay;
+import com.talentica.rowingapp.common.data.DataRecord;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Rowing statistics of a session, computed from the events of a {@link BatchReplay}
+ */
+public class SessionSummary {
+
+	/**
+	 * stroke power percentiles reported by {@link #getPowerPercentiles()}
+	 */
+	public static final int[] POWER_PERCENTILES = {10, 25, 50, 75, 90};
+
+	/**
+	 * a rowing split, from ROWING_START to ROWING_STOP
+	 */
+	public static class Split {
+		private final long duration;
+		private final float distance;
+		private final int strokeCount;
+
+		Split(long duration, float distance, int strokeCount) {
+			this.duration = duration;
+			this.distance = distance;
+			this.strokeCount = strokeCount;
+		}
+
+		/**
+		 * @return split time in ms
+		 */
+		public long getDuration() {
+			return duration;
+		}
+
+		/**
+		 * @return split distance in meters
+		 */
+		public float getDistance() {
+			return distance;
+		}
+
+		public int getStrokeCount() {
+			return strokeCount;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "%.1fs/%.0fm/%d", duration / 1000.0, distance, strokeCount);
+		}
+	}
+
+	private final File file;
+	private final long recordCount;
+	private final long duration;
+	private final long replayNanos;
+
+	private int strokeCount;
+	private double averageSpm;
+	private int peakSpm;
+	private double distance;
+	private final ArrayList<Split> splits = new ArrayList<Split>();
+
+	private double averagePower;
+	private float peakPower;
+	private final float[] powerPercentiles = new float[POWER_PERCENTILES.length];
+
+	private SessionSummary(File file, BatchReplay.Result result) {
+		this.file = file;
+		this.recordCount = result.getRecordCount();
+		this.duration = result.getSessionDuration();
+		this.replayNanos = result.getElapsedNanos();
+	}
+
+	/**
+	 * compute the summary of a session replay
+	 * @param file session file
+	 * @param result replay result, with at least the {@link BatchReplay#DEFAULT_EVENT_TYPES} events
+	 * @return summary
+	 */
+	public static SessionSummary create(File file, BatchReplay.Result result) {
+		SessionSummary summary = new SessionSummary(file, result);
+
+		long spmSum = 0;
+		int spmCount = 0;
+		float[] powers = new float[16];
+		int powerCount = 0;
+		double powerSum = 0;
+
+		for (DataRecord event: result.getEvents()) {
+			switch (event.getType()) {
+			case STROKE_RATE: {
+				int spm = (Integer) event.getData();
+
+				if (spm > 0) {
+					spmSum += spm;
+					spmCount++;
+					summary.peakSpm = Math.max(summary.peakSpm, spm);
+				}
+			}
+			break;
+			case STROKE_RISE_ABOVE_ZERO: // once per stroke - STROKE_RATE is not, with the SPECTRAL engine
+				summary.strokeCount++;
+				break;
+			case STROKE_POWER_END: {
+				float power = ((Number) event.getData()).floatValue();
+
+				if (power > 0) {
+					if (powerCount == powers.length) {
+						powers = Arrays.copyOf(powers, powerCount * 2);
+					}
+
+					powers[powerCount++] = power;
+					powerSum += power;
+				}
+			}
+			break;
+			case WAY:
+				summary.distance += ((double[]) event.getData())[0];
+				break;
+			case ROWING_STOP: {
+				/* stopTimestamp, distance, splitTime, travelTime, strokeCount */
+				Object[] values = (Object[]) event.getData();
+
+				summary.splits.add(new Split(((Number) values[2]).longValue() / 1000000,
+						((Number) values[1]).floatValue(), ((Number) values[4]).intValue()));
+			}
+			break;
+			default:
+				break;
+			}
+		}
+
+		summary.averageSpm = spmCount == 0 ? 0 : spmSum / (double) spmCount;
+
+		if (powerCount != 0) {
+			Arrays.sort(powers, 0, powerCount);
+
+			summary.averagePower = powerSum / powerCount;
+			summary.peakPower = powers[powerCount - 1];
+
+			for (int i = 0; i < POWER_PERCENTILES.length; ++i) {
+				summary.powerPercentiles[i] = powers[Math.min(powerCount - 1, powerCount * POWER_PERCENTILES[i] / 100)];
+			}
+		}
+
+		return summary;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return session duration in ms
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return replay wall time in ns
+	 */
+	public long getReplayNanos() {
+		return replayNanos;
+	}
+
+	public int getStrokeCount() {
+		return strokeCount;
+	}
+
+	public double getAverageSpm() {
+		return averageSpm;
+	}
+
+	public int getPeakSpm() {
+		return peakSpm;
+	}
+
+	/**
+	 * @return GPS distance in meters
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	public List<Split> getSplits() {
+		return Collections.unmodifiableList(splits);
+	}
+
+	public double getAveragePower() {
+		return averagePower;
+	}
+
+	public float getPeakPower() {
+		return peakPower;
+	}
+
+	/**
+	 * @return stroke power values at {@link #POWER_PERCENTILES}, of strokes with non zero power
+	 */
+	public float[] getPowerPercentiles() {
+		return powerPercentiles.clone();
+	}
+
+	/**
+	 * @return column names of {@link #toCsv()}
+	 */
+	public static String getCsvHeader() {
+		StringBuilder sb = new StringBuilder("file,duration_s,strokes,avg_spm,peak_spm,distance_m,avg_power,peak_power");
+
+		for (int p: POWER_PERCENTILES) {
+			sb.append(",power_p").append(p);
+		}
+
+		return sb.append(",splits").toString();
+	}
+
+	/**
+	 * @return CSV line of the summary - numbers are formatted in the US locale, and the file path is quoted if need be
+	 */
+	public String toCsv() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append(csvField(file.getPath())).append(',')
+			.append(duration / 1000).append(',')
+			.append(strokeCount).append(',')
+			.append(String.format(Locale.US, "%.1f", averageSpm)).append(',')
+			.append(peakSpm).append(',')
+			.append(String.format(Locale.US, "%.0f", distance)).append(',')
+			.append(String.format(Locale.US, "%.1f", averagePower)).append(',')
+			.append(String.format(Locale.US, "%.1f", peakPower));
+
+		for (float p: powerPercentiles) {
+			sb.append(',').append(String.format(Locale.US, "%.1f", p));
+		}
+
+		sb.append(',');
+
+		for (int i = 0; i < splits.size(); ++i) {
+			sb.append(i == 0 ? "" : " ").append(splits.get(i));
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * @return value as a CSV field - quoted, with quotes doubled, if it contains a separator, quote or line break
+	 */
+	private static String csvField(String value) {
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+
+			if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+				return '"' + value.replace("\"", "\"\"") + '"';
+			}
+		}
+
+		return value;
+	}
+}
@@ -1,9 +1,12 @@
 package com.talentica.rowingapp.common.data.axisfilter;
 
-import com.talentica.rowingapp.common.data.SensorDataFilter;
 import com.talentica.rowingapp.common.data.SensorDataSink;
+import com.talentica.rowingapp.common.data.SensorSampleFilter;
 
-public abstract class AxisDataFilter extends SensorDataFilter {
+/**
+ * in place transformation of raw sensor values, seen by all sinks registered after the filter on the same source
+ */
+public abstract class AxisDataFilter extends SensorSampleFilter {
 	
 	protected final int dataIndex1;
 	protected final int dataIndex2;
@@ -26,11 +29,11 @@ public abstract class AxisDataFilter extends SensorDataFilter {
 	}
 	
 	@Override
-	protected Object filterData(long timestamp, Object value) {		
+	protected float[] filterSample(long timestamp, float[] values) {
 		if (enabled) {
-			applyFilter((float[]) value);
+			applyFilter(values);
 		}
-		return value;
+		return values;
 	}
 
 	protected abstract void applyFilter(float[] value);
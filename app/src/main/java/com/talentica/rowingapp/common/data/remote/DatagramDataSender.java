@@ -1,5 +1,7 @@
 package com.talentica.rowingapp.common.data.remote;
 
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
+
 import java.io.IOException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -49,6 +51,27 @@ public class DatagramDataSender extends DatagramData implements DataSender {
 	}
 	
 
+	/**
+	 * @return number of records waiting to be sent
+	 */
+	public int getQueueSize() {
+		return recordQueue.size();
+	}
+
+	/**
+	 * register a send queue size gauge with metrics
+	 * @param metrics metrics
+	 * @param prefix gauge name prefix
+	 */
+	public void registerMetrics(PipelineMetrics metrics, String prefix) {
+		metrics.registerGauge(prefix + ".size", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return getQueueSize();
+			}
+		});
+	}
+
 	protected String getNextItem() {
 		try {
 			return recordQueue.poll(10, TimeUnit.MILLISECONDS);
@@ -69,6 +69,7 @@ public class AppReceiverServiceConnector extends RecordDataInput {
 		
 		if (started) {
 			recordQueue.setEnabled(false);
+			appStroke.getMetrics().unregisterGauges("remote.queue.");
 			owner.unregisterReceiver(receiver);
 			owner.stopService(service);
 			super.stop();
@@ -81,6 +82,7 @@ public class AppReceiverServiceConnector extends RecordDataInput {
 		
 		if (!started) {
 			super.start();
+			recordQueue.registerMetrics(appStroke.getMetrics(), "remote.queue");
 			recordQueue.setEnabled(true);
 			owner.registerReceiver(receiver, new IntentFilter(SERVICE_ID));
 			owner.startService(service);
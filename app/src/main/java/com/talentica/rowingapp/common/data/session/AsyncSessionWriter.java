@@ -0,0 +1,349 @@
+package com.talentica.rowingapp.common.data.session;
+
+import android.util.Log;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.DataRecordSerializer;
+import com.talentica.rowingapp.common.error.ErrorListener;
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+
+/**
+ * Group commit front end of a {@link SessionFileWriter}: producers enqueue records into a bounded,
+ * preallocated ring and return immediately, a dedicated writer thread drains the ring in batches.
+ * When the ring is full new records are dropped and counted, so that a disk stall never blocks
+ * the sensor or event bus threads.
+ * Float array payloads (sensor data, whose arrays may be reused by the sensor framework)
+ * are copied into the ring slots, other records are kept by reference.
+ */
+public class AsyncSessionWriter implements Runnable {
+
+	private static final int INITIAL_SLOT_FLOAT_COUNT = 3;
+
+	private final SessionFileWriter writer;
+
+	private final FileDescriptor fd;
+
+	private final long flushInterval;
+
+	private final long syncInterval;
+
+	private final ErrorListener errorListener;
+
+	private final Object lock = new Object();
+
+	private final int mask;
+
+	private final long[] logTimestamps;
+	private final DataRecord.Type[] types;
+	private final long[] timestamps;
+	private final DataRecord[] records;
+	private final float[][] floats;
+	private final int[] floatCounts;
+
+	/**
+	 * ring counters - slot index is counter & mask. Guarded by lock
+	 */
+	private long head;
+	private long tail;
+
+	private boolean closing;
+	private boolean flushRequested;
+	private boolean failed;
+
+	private volatile long droppedCount;
+	private volatile long writtenCount;
+	private volatile long durableCount;
+	private volatile long durableLogTimestamp;
+
+	private final Thread thread;
+
+	/**
+	 * @param writer session file writer, owned by this object from now on
+	 * @param fd descriptor of the session file for fsync, or null
+	 * @param capacity ring capacity, rounded up to a power of two
+	 * @param flushInterval ms between writing out the current block - 0 to only write full blocks
+	 * @param syncInterval ms between fsyncs of the session file - 0 to never fsync
+	 * @param errorListener listener for write errors, or null
+	 */
+	public AsyncSessionWriter(SessionFileWriter writer, FileDescriptor fd, int capacity, long flushInterval, long syncInterval, ErrorListener errorListener) {
+		this.writer = writer;
+		this.fd = fd;
+		this.flushInterval = flushInterval;
+		this.syncInterval = syncInterval;
+		this.errorListener = errorListener;
+
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+
+		mask = size - 1;
+		logTimestamps = new long[size];
+		types = new DataRecord.Type[size];
+		timestamps = new long[size];
+		records = new DataRecord[size];
+		floatCounts = new int[size];
+		floats = new float[size][];
+
+		for (int i = 0; i < size; ++i) {
+			floats[i] = new float[INITIAL_SLOT_FLOAT_COUNT];
+		}
+
+		thread = new Thread(this, "AsyncSessionWriter") {
+			{
+				setDaemon(true);
+			}
+		};
+
+		thread.start();
+	}
+
+	/**
+	 * enqueue a record for writing
+	 * @param logTimestamp log timestamp (ms)
+	 * @param record record
+	 * @return false if record was dropped because the ring is full or the writer failed/closed
+	 */
+	public boolean offer(long logTimestamp, DataRecord record) {
+		synchronized (lock) {
+			if (closing || failed || tail - head > mask) {
+				droppedCount++;
+				return false;
+			}
+
+			int idx = (int) (tail & mask);
+
+			logTimestamps[idx] = logTimestamp;
+			types[idx] = record.getType();
+			timestamps[idx] = record.getTimestamp();
+
+			if (record.getType().getBinaryLayout() == DataRecordSerializer.BinaryLayout.FLOAT_ARR) {
+				float[] data = (float[]) record.getData();
+
+				if (data == null) {
+					floatCounts[idx] = -1;
+				} else {
+					if (floats[idx].length < data.length) {
+						floats[idx] = new float[data.length];
+					}
+
+					System.arraycopy(data, 0, floats[idx], 0, data.length);
+					floatCounts[idx] = data.length;
+				}
+			} else {
+				records[idx] = record.retain(); // released once written
+			}
+
+			if (tail++ == head) {
+				lock.notify();
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * ask the writer thread to write out and fsync everything enqueued so far, without waiting for it
+	 */
+	public void requestFlush() {
+		synchronized (lock) {
+			flushRequested = true;
+			lock.notify();
+		}
+	}
+
+	/**
+	 * write out all enqueued records, fsync and close the session file
+	 */
+	public void close() {
+		synchronized (lock) {
+			closing = true;
+			lock.notify();
+		}
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return number of records dropped due to ring overflow or write failure
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @return number of records handed to the session file writer
+	 */
+	public long getWrittenCount() {
+		return writtenCount;
+	}
+
+	/**
+	 * @return number of records known to be on disk - i.e. fsynced, or flushed when fsync is disabled
+	 */
+	public long getDurableCount() {
+		return durableCount;
+	}
+
+	/**
+	 * @return log timestamp (ms) of the last record known to be on disk, 0 if none
+	 */
+	public long getDurableLogTimestamp() {
+		return durableLogTimestamp;
+	}
+
+	/**
+	 * register dropped, written and durable record gauges with metrics
+	 * @param metrics metrics
+	 * @param prefix gauge name prefix
+	 */
+	public void registerMetrics(PipelineMetrics metrics, String prefix) {
+		metrics.registerGauge(prefix + ".dropped", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return droppedCount;
+			}
+		});
+		metrics.registerGauge(prefix + ".written", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return writtenCount;
+			}
+		});
+		metrics.registerGauge(prefix + ".durable", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return durableCount;
+			}
+		});
+		metrics.registerGauge(prefix + ".durableLogTimestamp", new PipelineMetrics.Gauge() {
+			@Override
+			public long getValue() {
+				return durableLogTimestamp;
+			}
+		});
+	}
+
+	/**
+	 * stop accepting records and drop the ones not written yet, releasing their references
+	 */
+	private void fail() {
+		synchronized (lock) {
+			failed = true;
+			droppedCount += tail - head;
+
+			for (; head < tail; ++head) {
+				int idx = (int) (head & mask);
+
+				if (records[idx] != null) {
+					records[idx].release();
+					records[idx] = null;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+
+		long lastFlushTime = System.currentTimeMillis();
+		long lastSyncTime = lastFlushTime;
+		long lastLogTimestamp = 0;
+
+		try {
+			while (true) {
+				long batchEnd;
+				boolean flush;
+				boolean done;
+
+				synchronized (lock) {
+					while (head == tail && !closing && !flushRequested) {
+						long wait = flushInterval > 0 ? lastFlushTime + flushInterval - System.currentTimeMillis() : 0;
+
+						if (flushInterval > 0 && wait <= 0) {
+							break;
+						}
+
+						lock.wait(wait);
+					}
+
+					batchEnd = tail;
+					flush = flushRequested;
+					done = closing;
+					flushRequested = false;
+				}
+
+				long batchStart = head; // head is only ever changed by this thread
+
+				for (long i = batchStart; i < batchEnd; ++i) {
+					int idx = (int) (i & mask);
+					DataRecord.Type type = types[idx];
+
+					if (type.getBinaryLayout() == DataRecordSerializer.BinaryLayout.FLOAT_ARR) {
+						writer.write(logTimestamps[idx], type, timestamps[idx], floats[idx], floatCounts[idx]);
+					} else {
+						writer.write(logTimestamps[idx], records[idx]);
+						records[idx].release();
+						records[idx] = null;
+					}
+
+					lastLogTimestamp = logTimestamps[idx];
+				}
+
+				synchronized (lock) {
+					head = batchEnd;
+				}
+
+				writtenCount += batchEnd - batchStart;
+
+				long now = System.currentTimeMillis();
+
+				if (flush || done || (flushInterval > 0 && now - lastFlushTime >= flushInterval)) {
+					writer.flush();
+					lastFlushTime = now;
+
+					boolean durable = fd == null || syncInterval <= 0;
+
+					if (!durable && (flush || done || now - lastSyncTime >= syncInterval)) {
+						if (durableCount != writtenCount) {
+							fd.sync();
+						}
+
+						lastSyncTime = now;
+						durable = true;
+					}
+
+					if (durable) {
+						durableCount = writtenCount;
+						durableLogTimestamp = lastLogTimestamp;
+					}
+				}
+
+				if (done) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Log.w("run()", "session writer interrupted - closing session file");
+			fail();
+		} catch (IOException e) {
+			fail();
+
+			if (errorListener != null) {
+				errorListener.onError(e);
+			}
+		} finally {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				if (errorListener != null && !failed) {
+					errorListener.onError(e);
+				}
+			}
+		}
+	}
+}
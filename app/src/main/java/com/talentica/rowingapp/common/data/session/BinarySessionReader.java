@@ -0,0 +1,686 @@
+package com.talentica.rowingapp.common.data.session;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.DataRecordSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * SessionReader for block structured binary session files - see {@link SessionFileFormat}.
+ * Deflated blocks are inflated one at a time into a reusable buffer, so memory use is bounded by block size.
+ * Positions are file offsets, unless the file has deflated blocks, in which case they are virtual positions.
+ * Compact encoded blocks are decoded sequentially from block start, so seeking into one decodes the records preceding the target.
+ */
+public class BinarySessionReader implements SessionReader {
+
+	private final RandomAccessFile reader;
+	private final long fileLength;
+	private final String uuid;
+	private final long firstTimestamp;
+
+	/**
+	 * types and layouts, indexed by the type codes of this file
+	 */
+	private DataRecord.Type[] types;
+	private DataRecordSerializer.BinaryLayout[] layouts;
+
+	private String[] sessionParams;
+
+	/**
+	 * offset of first block
+	 */
+	private long dataOffset;
+
+	/**
+	 * offsets of the complete blocks in file - a truncated last block is ignored
+	 */
+	private long[] blockOffsets = new long[64];
+	private int[] blockLengths = new int[64];
+	private long[] blockTimestamps = new long[64];
+	private int[] blockRecordCounts = new int[64];
+	private boolean[] blockDeflated = new boolean[64];
+	private boolean[] blockCompact = new boolean[64];
+	private int blockCount;
+
+	/**
+	 * true if positions are virtual - see {@link SessionFileFormat}
+	 */
+	private boolean virtualPositions;
+
+	private Inflater inflater;
+	private byte[] compressedBlock;
+
+	/**
+	 * compact record decoder, created on first compact block
+	 */
+	private CompactCodec codec;
+
+	/**
+	 * payload offset of first record in current block
+	 */
+	private int blockDataStart;
+
+	/**
+	 * header values of the record being decoded
+	 */
+	private long recordLogTimestamp;
+	private long recordTimestamp;
+	private boolean recordQuantized;
+
+	private final byte[] blockHeader = new byte[SessionFileFormat.BLOCK_HEADER_SIZE];
+	private final ByteBuffer blockHeaderBuf = ByteBuffer.wrap(blockHeader);
+
+	private byte[] block = new byte[SessionFileFormat.BLOCK_SIZE * 2];
+	private ByteBuffer blockBuf = ByteBuffer.wrap(block);
+	private int currentBlock = -1;
+
+	/**
+	 * index of next header session parameter to emit, as records preceding block data
+	 */
+	private int nextSessionParam;
+
+	private long logTimestamp;
+	private DataRecord record;
+
+	public BinarySessionReader(File file) throws IOException {
+		reader = new RandomAccessFile(file, "r");
+		fileLength = file.length();
+
+		try {
+			if (reader.readInt() != SessionFileFormat.FILE_MAGIC) {
+				throw new SessionFileVersionError("not a binary session file");
+			}
+
+			int version = reader.readInt();
+
+			if (version != SessionRecorderConstants.LOGFILE_VERSION) {
+				throw new SessionFileVersionError(version);
+			}
+
+			firstTimestamp = reader.readLong();
+			uuid = reader.readUTF();
+
+			readHeaderTables();
+
+			dataOffset = reader.getFilePointer();
+
+			scanBlocks();
+		} catch (IOException e) {
+			reader.close();
+			throw e;
+		}
+	}
+
+	private void readHeaderTables() throws IOException {
+		DataRecordSerializer.BinaryLayout[] allLayouts = DataRecordSerializer.BinaryLayout.values();
+
+		int typeCount = reader.readShort();
+
+		types = new DataRecord.Type[typeCount];
+		layouts = new DataRecordSerializer.BinaryLayout[typeCount];
+
+		for (int i = 0; i < typeCount; ++i) {
+			String name = reader.readUTF();
+			int layout = reader.readByte();
+
+			if (layout < 0 || layout >= allLayouts.length) {
+				throw new SessionFileVersionError("unknown record layout " + layout + " for type " + name);
+			}
+
+			layouts[i] = allLayouts[layout];
+
+			try {
+				types[i] = DataRecord.Type.valueOf(name);
+			} catch (IllegalArgumentException e) {
+				types[i] = null; // records of unknown types are skipped
+			}
+		}
+
+		int paramCount = reader.readInt();
+
+		sessionParams = new String[paramCount];
+
+		for (int i = 0; i < paramCount; ++i) {
+			sessionParams[i] = reader.readUTF();
+		}
+	}
+
+	private void scanBlocks() throws IOException {
+		long offset = dataOffset;
+
+		while (offset + SessionFileFormat.BLOCK_HEADER_SIZE <= fileLength) {
+			reader.seek(offset);
+			reader.readFully(blockHeader);
+
+			blockHeaderBuf.clear();
+
+			int magic = blockHeaderBuf.getInt();
+
+			boolean deflated = magic == SessionFileFormat.DEFLATE_BLOCK_MAGIC || magic == SessionFileFormat.DEFLATE_COMPACT_BLOCK_MAGIC;
+			boolean compact = magic == SessionFileFormat.COMPACT_BLOCK_MAGIC || magic == SessionFileFormat.DEFLATE_COMPACT_BLOCK_MAGIC;
+
+			if (!deflated && !compact && magic != SessionFileFormat.BLOCK_MAGIC) {
+				break;
+			}
+
+			int length = blockHeaderBuf.getInt();
+			int recordCount = blockHeaderBuf.getInt();
+			long timestamp = blockHeaderBuf.getLong();
+
+			if (length < 0 || offset + SessionFileFormat.BLOCK_HEADER_SIZE + length > fileLength) {
+				break;
+			}
+
+			if (blockCount == blockOffsets.length) {
+				blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+				blockLengths = Arrays.copyOf(blockLengths, blockCount * 2);
+				blockTimestamps = Arrays.copyOf(blockTimestamps, blockCount * 2);
+				blockRecordCounts = Arrays.copyOf(blockRecordCounts, blockCount * 2);
+				blockDeflated = Arrays.copyOf(blockDeflated, blockCount * 2);
+				blockCompact = Arrays.copyOf(blockCompact, blockCount * 2);
+			}
+
+			blockOffsets[blockCount] = offset;
+			blockLengths[blockCount] = length;
+			blockTimestamps[blockCount] = timestamp;
+			blockRecordCounts[blockCount] = recordCount;
+			blockDeflated[blockCount] = deflated;
+			blockCompact[blockCount] = compact;
+			virtualPositions |= deflated;
+			blockCount++;
+
+			offset += SessionFileFormat.BLOCK_HEADER_SIZE + length;
+		}
+	}
+
+	private void loadBlock(int idx) throws IOException {
+		loadBlockPayload(idx);
+		startBlockData();
+	}
+
+	/**
+	 * prepare decoding the records of the current block from its start
+	 */
+	private void startBlockData() {
+		blockBuf.position(0);
+		blockDataStart = 0;
+
+		if (blockCompact[currentBlock] && blockBuf.hasRemaining()) {
+			if (codec == null) {
+				codec = new CompactCodec(types.length);
+			}
+
+			try {
+				codec.readScaleTable(blockBuf);
+			} catch (RuntimeException e) {
+				blockBuf.position(blockBuf.limit()); // corrupt block - drop it
+				throw new IllegalArgumentException("corrupt compact block at offset " + blockOffsets[currentBlock], e);
+			}
+
+			codec.reset(blockTimestamps[currentBlock]);
+			blockDataStart = blockBuf.position();
+		}
+	}
+
+	private void ensureBlockCapacity(int length) {
+		if (block.length < length) {
+			block = new byte[length];
+			blockBuf = ByteBuffer.wrap(block);
+		}
+	}
+
+	private void inflateBlock(int idx) throws IOException {
+		int length = blockLengths[idx];
+
+		if (inflater == null) {
+			inflater = new Inflater();
+		}
+
+		if (compressedBlock == null || compressedBlock.length < length) {
+			compressedBlock = new byte[Math.max(length, SessionFileFormat.BLOCK_SIZE)];
+		}
+
+		reader.seek(blockOffsets[idx] + SessionFileFormat.BLOCK_HEADER_SIZE);
+		reader.readFully(compressedBlock, 0, length);
+
+		// on failure current block is left empty, so that reading continues with the next block
+		currentBlock = idx;
+		blockBuf.clear();
+		blockBuf.limit(0);
+
+		int rawLength = length < 4 ? -1 : ((compressedBlock[0] & 0xff) << 24) | ((compressedBlock[1] & 0xff) << 16) |
+				((compressedBlock[2] & 0xff) << 8) | (compressedBlock[3] & 0xff);
+
+		if (rawLength < 0 || rawLength > 1 << SessionFileFormat.VIRTUAL_OFFSET_BITS) {
+			throw new IllegalArgumentException("corrupt compressed block at offset " + blockOffsets[idx] + ": bad length " + rawLength);
+		}
+
+		ensureBlockCapacity(rawLength);
+
+		inflater.reset();
+		inflater.setInput(compressedBlock, 4, length - 4);
+
+		int n = 0;
+
+		try {
+			while (n < rawLength) {
+				int count = inflater.inflate(block, n, rawLength - n);
+
+				if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+
+				n += count;
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalArgumentException("corrupt compressed block at offset " + blockOffsets[idx], e);
+		}
+
+		if (n != rawLength) {
+			throw new IllegalArgumentException("corrupt compressed block at offset " + blockOffsets[idx] + ": truncated data");
+		}
+
+		blockBuf.limit(rawLength);
+	}
+
+	/**
+	 * read the file header, up to the first block
+	 * @return header bytes
+	 * @throws IOException
+	 */
+	byte[] readHeader() throws IOException {
+		byte[] header = new byte[(int) dataOffset];
+
+		reader.seek(0);
+		reader.readFully(header);
+
+		return header;
+	}
+
+	/**
+	 * load the uncompressed payload of a block into {@link #getBlockPayload()}
+	 * @param idx block index
+	 * @return payload length
+	 * @throws IOException
+	 */
+	int loadBlockPayload(int idx) throws IOException {
+		int length = blockLengths[idx];
+
+		if (blockDeflated[idx]) {
+			inflateBlock(idx);
+		} else {
+			ensureBlockCapacity(length);
+
+			reader.seek(blockOffsets[idx] + SessionFileFormat.BLOCK_HEADER_SIZE);
+			reader.readFully(block, 0, length);
+
+			blockBuf.clear();
+			blockBuf.limit(length);
+
+			currentBlock = idx;
+		}
+
+		return blockBuf.limit();
+	}
+
+	/**
+	 * @return payload buffer of the last loaded block
+	 */
+	byte[] getBlockPayload() {
+		return block;
+	}
+
+	/**
+	 * get the number of records in a block
+	 * @param idx block index
+	 * @return record count
+	 */
+	int getBlockRecordCount(int idx) {
+		return blockRecordCounts[idx];
+	}
+
+	/**
+	 * check either a block is in compact encoding
+	 * @param idx block index
+	 * @return true if block payload is in compact encoding
+	 */
+	boolean isBlockCompact(int idx) {
+		return blockCompact[idx];
+	}
+
+	/**
+	 * @return true if file has deflated blocks
+	 */
+	public boolean isCompressed() {
+		return virtualPositions;
+	}
+
+	/**
+	 * get the number of complete blocks in file
+	 * @return block count
+	 */
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+	/**
+	 * get file offset of a block
+	 * @param idx block index
+	 * @return file offset
+	 */
+	public long getBlockOffset(int idx) {
+		return blockOffsets[idx];
+	}
+
+	/**
+	 * get log timestamp of the first record in a block
+	 * @param idx block index
+	 * @return log timestamp (ms)
+	 */
+	public long getBlockTimestamp(int idx) {
+		return blockTimestamps[idx];
+	}
+
+	@Override
+	public String getUuid() {
+		return uuid;
+	}
+
+	@Override
+	public long getFirstTimestamp() {
+		return firstTimestamp;
+	}
+
+	/**
+	 * get session parameters stored in file header.
+	 * These are replayed as SESSION_PARAMETER records at the beginning of the session.
+	 * @return "id|value" parameter strings
+	 */
+	public String[] getSessionParams() {
+		return sessionParams.clone();
+	}
+
+	@Override
+	public long length() {
+		return fileLength;
+	}
+
+	@Override
+	public long getPosition() {
+		if (nextSessionParam < sessionParams.length) {
+			return 0;
+		}
+
+		if (currentBlock == -1) {
+			return virtualPositions ? dataOffset << SessionFileFormat.VIRTUAL_OFFSET_BITS : dataOffset;
+		}
+
+		if (virtualPositions) {
+			return (blockOffsets[currentBlock] << SessionFileFormat.VIRTUAL_OFFSET_BITS) | blockBuf.position();
+		}
+
+		return blockOffsets[currentBlock] + SessionFileFormat.BLOCK_HEADER_SIZE + blockBuf.position();
+	}
+
+	@Override
+	public long getFileOffset() {
+		if (nextSessionParam < sessionParams.length) {
+			return 0;
+		}
+
+		if (currentBlock == -1) {
+			return dataOffset;
+		}
+
+		long offset = blockOffsets[currentBlock] + SessionFileFormat.BLOCK_HEADER_SIZE;
+
+		if (blockDeflated[currentBlock]) { // position in uncompressed payload, scaled to the compressed block
+			return blockBuf.limit() == 0 ? offset : offset + blockLengths[currentBlock] * (long) blockBuf.position() / blockBuf.limit();
+		}
+
+		return offset + blockBuf.position();
+	}
+
+	@Override
+	public void seek(long pos) throws IOException {
+
+		if (pos < (virtualPositions ? dataOffset << SessionFileFormat.VIRTUAL_OFFSET_BITS : dataOffset)) {
+			nextSessionParam = 0;
+			currentBlock = -1;
+			return;
+		}
+
+		nextSessionParam = sessionParams.length;
+
+		int idx = findBlock(virtualPositions ? pos >>> SessionFileFormat.VIRTUAL_OFFSET_BITS : pos);
+
+		if (idx == -1) {
+			currentBlock = -1;
+			return;
+		}
+
+		if (idx != currentBlock) {
+			loadBlock(idx);
+		} else {
+			startBlockData();
+		}
+
+		long target = virtualPositions ? pos & ((1 << SessionFileFormat.VIRTUAL_OFFSET_BITS) - 1) :
+				pos - (blockOffsets[idx] + SessionFileFormat.BLOCK_HEADER_SIZE);
+
+		while (blockBuf.hasRemaining() && blockBuf.position() < target) {
+			skipRecord();
+		}
+	}
+
+	/**
+	 * find the block containing a file offset
+	 * @param pos file offset, or block file offset of a virtual position
+	 * @return block index, or -1 when there are no blocks
+	 */
+	private int findBlock(long pos) {
+		int idx = Arrays.binarySearch(blockOffsets, 0, blockCount, pos);
+
+		return idx >= 0 ? idx : -idx - 2;
+	}
+
+	@Override
+	public boolean next() throws IOException {
+
+		if (nextSessionParam < sessionParams.length) {
+			logTimestamp = firstTimestamp;
+			record = DataRecord.create(DataRecord.Type.SESSION_PARAMETER, -1, sessionParams[nextSessionParam++]);
+			return true;
+		}
+
+		while (true) {
+
+			if (currentBlock == -1 || !blockBuf.hasRemaining()) {
+				int nextBlock = currentBlock + 1;
+
+				if (nextBlock >= blockCount) {
+					return false;
+				}
+
+				loadBlock(nextBlock);
+			}
+
+			if (readRecord()) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * decode record at current block position
+	 * @return true if record is replayable and was decoded into current record
+	 */
+	private boolean readRecord() {
+		int code = readRecordHeader();
+
+		if (code == -1) {
+			blockBuf.position(blockBuf.limit()); // corrupt block - drop the rest of it
+			throw new IllegalArgumentException("corrupt record in block at offset " + blockOffsets[currentBlock] + ": bad type code");
+		}
+
+		DataRecord.Type type = types[code];
+
+		if (type == null || !type.isReplayableEvent || !type.isParsableEvent) {
+			skipData(code);
+			return false;
+		}
+
+		long logTimestamp = recordLogTimestamp;
+		long timestamp = recordTimestamp;
+		Object data;
+
+		switch (layouts[code]) {
+		case FLOAT_ARR: {
+			int n = recordQuantized ? codec.readQuantizedCount(blockBuf) : blockBuf.getShort();
+			float[] arr = null;
+
+			if (n >= 0) {
+				arr = new float[n];
+
+				if (recordQuantized) {
+					codec.readQuantized(blockBuf, code, arr, n);
+				} else {
+					for (int i = 0; i < n; ++i) {
+						arr[i] = blockBuf.getFloat();
+					}
+				}
+			}
+
+			data = arr;
+		}
+		break;
+		case DOUBLE_ARR: {
+			int n = recordQuantized ? codec.readQuantizedCount(blockBuf) : blockBuf.getShort();
+			double[] arr = null;
+
+			if (n >= 0) {
+				arr = new double[n];
+
+				if (recordQuantized) {
+					codec.readQuantized(blockBuf, code, arr, n);
+				} else {
+					for (int i = 0; i < n; ++i) {
+						arr[i] = blockBuf.getDouble();
+					}
+				}
+			}
+
+			data = arr;
+		}
+		break;
+		default: {
+			int len = blockBuf.getInt();
+			String s = new String(block, blockBuf.position(), len, SessionFileFormat.UTF8);
+			blockBuf.position(blockBuf.position() + len);
+			data = type.getDataSerializer().parse(s);
+		}
+		break;
+		}
+
+		this.logTimestamp = logTimestamp;
+		this.record = DataRecord.create(type, timestamp, data);
+
+		return true;
+	}
+
+	/**
+	 * decode type code and timestamps of record at current block position into recordLogTimestamp/recordTimestamp
+	 * @return type code, or -1 if invalid
+	 */
+	private int readRecordHeader() {
+		int code = blockBuf.get() & 0xff;
+
+		if (!blockCompact[currentBlock]) {
+			if (code >= types.length) {
+				return -1;
+			}
+
+			recordLogTimestamp = blockBuf.getLong();
+			recordTimestamp = blockBuf.getLong();
+			recordQuantized = false;
+
+			return code;
+		}
+
+		boolean rawData = (code & CompactCodec.RAW_DATA_FLAG) != 0;
+		code &= ~CompactCodec.RAW_DATA_FLAG;
+
+		if (code >= types.length) {
+			return -1;
+		}
+
+		recordLogTimestamp = codec.readLogTimestamp(blockBuf);
+		recordTimestamp = codec.readTimestamp(blockBuf, code);
+		recordQuantized = !rawData && codec.getScale(code) != 0;
+
+		return code;
+	}
+
+	private void skipRecord() {
+		int code = readRecordHeader();
+
+		if (code == -1) {
+			blockBuf.position(blockBuf.limit());
+			return;
+		}
+
+		skipData(code);
+	}
+
+	/**
+	 * skip data of record whose header was just read - quantized data is decoded, to keep decoder state
+	 */
+	private void skipData(int code) {
+		if (recordQuantized) {
+			int n = codec.readQuantizedCount(blockBuf);
+			codec.readQuantized(blockBuf, code, (float[]) null, Math.max(n, 0));
+			return;
+		}
+
+		int skip;
+
+		switch (layouts[code]) {
+		case FLOAT_ARR:
+			skip = Math.max(0, blockBuf.getShort()) * 4;
+			break;
+		case DOUBLE_ARR:
+			skip = Math.max(0, blockBuf.getShort()) * 8;
+			break;
+		default:
+			skip = blockBuf.getInt();
+			break;
+		}
+
+		blockBuf.position(blockBuf.position() + skip);
+	}
+
+	@Override
+	public long getLogTimestamp() {
+		return logTimestamp;
+	}
+
+	@Override
+	public DataRecord getRecord() {
+		return record;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (inflater != null) {
+			inflater.end();
+		}
+
+		reader.close();
+	}
+}
@@ -0,0 +1,317 @@
+package com.talentica.rowingapp.common.data.session;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encoder/decoder state of compact blocks - see {@link SessionFileFormat}.
+ * Log timestamps are delta-of-delta encoded across the block, event timestamps delta-of-delta
+ * encoded per type and quantized array values delta encoded per type and axis, all as zig-zag varints.
+ * All state is reset at the start of each block, so that blocks can be decoded independently.
+ */
+final class CompactCodec {
+
+	/**
+	 * set in the record type code byte of records whose data is in its plain layout, even though its type is quantized
+	 */
+	static final int RAW_DATA_FLAG = 0x80;
+
+	static final int MAX_TYPE_COUNT = RAW_DATA_FLAG;
+
+	/**
+	 * max size of a varint encoded long
+	 */
+	static final int MAX_VARINT_SIZE = 10;
+
+	/**
+	 * largest quantized value magnitude for which deltas can not overflow
+	 */
+	private static final double MAX_QUANTIZED = (double) (1L << 53);
+
+	/**
+	 * quantization scales by type code - 0 for types that are not quantized
+	 */
+	private final double[] scales;
+
+	private long prevLogTimestamp;
+	private long prevLogDelta;
+
+	private final long[] prevTimestamps;
+	private final long[] prevTimestampDeltas;
+	private final long[][] prevValues;
+
+	CompactCodec(int typeCount) {
+		scales = new double[typeCount];
+		prevTimestamps = new long[typeCount];
+		prevTimestampDeltas = new long[typeCount];
+		prevValues = new long[typeCount][];
+	}
+
+	void setScale(int code, double scale) {
+		scales[code] = scale;
+	}
+
+	double getScale(int code) {
+		return scales[code];
+	}
+
+	/**
+	 * reset state for a new block
+	 * @param blockTimestamp log timestamp of first record in block
+	 */
+	void reset(long blockTimestamp) {
+		prevLogTimestamp = blockTimestamp;
+		prevLogDelta = 0;
+
+		Arrays.fill(prevTimestamps, 0);
+		Arrays.fill(prevTimestampDeltas, 0);
+
+		for (long[] values: prevValues) {
+			if (values != null) {
+				Arrays.fill(values, 0);
+			}
+		}
+	}
+
+	/**
+	 * write the quantization scales table that starts a compact block payload:
+	 * short count, followed by {byte type code, double scale} per quantized type
+	 */
+	void putScaleTable(ByteBuffer buf) {
+		int count = 0;
+
+		for (double scale: scales) {
+			if (scale != 0) {
+				count++;
+			}
+		}
+
+		buf.putShort((short) count);
+
+		for (int i = 0; i < scales.length; ++i) {
+			if (scales[i] != 0) {
+				buf.put((byte) i);
+				buf.putDouble(scales[i]);
+			}
+		}
+	}
+
+	int getScaleTableSize() {
+		int size = 2;
+
+		for (double scale: scales) {
+			if (scale != 0) {
+				size += 9;
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * read the quantization scales table of a compact block payload
+	 */
+	void readScaleTable(ByteBuffer buf) {
+		Arrays.fill(scales, 0);
+
+		int count = buf.getShort();
+
+		for (int i = 0; i < count; ++i) {
+			int code = buf.get() & 0xff;
+			double scale = buf.getDouble();
+
+			if (code >= scales.length || !(scale > 0)) {
+				throw new IllegalArgumentException("corrupt compact block scale table");
+			}
+
+			scales[code] = scale;
+		}
+	}
+
+	/**
+	 * check either values of a type can be quantized
+	 * @return false if type is not quantized or a value is not finite or too large
+	 */
+	boolean canQuantize(int code, float[] values, int count) {
+		double scale = scales[code];
+
+		if (scale == 0) {
+			return false;
+		}
+
+		for (int i = 0; i < count; ++i) {
+			if (!(Math.abs(values[i] * scale) < MAX_QUANTIZED)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	boolean canQuantize(int code, double[] values, int count) {
+		double scale = scales[code];
+
+		if (scale == 0) {
+			return false;
+		}
+
+		for (int i = 0; i < count; ++i) {
+			if (!(Math.abs(values[i] * scale) < MAX_QUANTIZED)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	void putRecordHeader(ByteBuffer buf, int code, boolean rawData, long logTimestamp, long timestamp) {
+		buf.put((byte) (rawData ? code | RAW_DATA_FLAG : code));
+
+		long logDelta = logTimestamp - prevLogTimestamp;
+		putSignedVarint(buf, logDelta - prevLogDelta);
+		prevLogTimestamp = logTimestamp;
+		prevLogDelta = logDelta;
+
+		long delta = timestamp - prevTimestamps[code];
+		putSignedVarint(buf, delta - prevTimestampDeltas[code]);
+		prevTimestamps[code] = timestamp;
+		prevTimestampDeltas[code] = delta;
+	}
+
+	long readLogTimestamp(ByteBuffer buf) {
+		prevLogDelta += getSignedVarint(buf);
+		prevLogTimestamp += prevLogDelta;
+
+		return prevLogTimestamp;
+	}
+
+	long readTimestamp(ByteBuffer buf, int code) {
+		prevTimestampDeltas[code] += getSignedVarint(buf);
+		prevTimestamps[code] += prevTimestampDeltas[code];
+
+		return prevTimestamps[code];
+	}
+
+	private long[] getPrevValues(int code, int count) {
+		long[] values = prevValues[code];
+
+		if (values == null || values.length < count) {
+			long[] newValues = new long[Math.max(count, 4)];
+
+			if (values != null) {
+				System.arraycopy(values, 0, newValues, 0, values.length);
+			}
+
+			prevValues[code] = values = newValues;
+		}
+
+		return values;
+	}
+
+	/**
+	 * write quantized values: varint count + 1 (0 for null), followed by a zig-zag varint delta per value
+	 */
+	void putQuantized(ByteBuffer buf, int code, float[] values, int count) {
+		putVarint(buf, count + 1);
+
+		double scale = scales[code];
+		long[] prev = getPrevValues(code, count);
+
+		for (int i = 0; i < count; ++i) {
+			long q = Math.round(values[i] * scale);
+			putSignedVarint(buf, q - prev[i]);
+			prev[i] = q;
+		}
+	}
+
+	void putQuantized(ByteBuffer buf, int code, double[] values, int count) {
+		putVarint(buf, count + 1);
+
+		double scale = scales[code];
+		long[] prev = getPrevValues(code, count);
+
+		for (int i = 0; i < count; ++i) {
+			long q = Math.round(values[i] * scale);
+			putSignedVarint(buf, q - prev[i]);
+			prev[i] = q;
+		}
+	}
+
+	/**
+	 * read the value count of quantized values
+	 * @return count, or -1 for null
+	 */
+	int readQuantizedCount(ByteBuffer buf) {
+		long count = getVarint(buf) - 1;
+
+		if (count > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("corrupt compact record: bad value count " + count);
+		}
+
+		return (int) count;
+	}
+
+	/**
+	 * read quantized values into an array
+	 * @param res result array, or null to only advance the decoder state
+	 */
+	void readQuantized(ByteBuffer buf, int code, float[] res, int count) {
+		double scale = scales[code];
+		long[] prev = getPrevValues(code, count);
+
+		for (int i = 0; i < count; ++i) {
+			prev[i] += getSignedVarint(buf);
+
+			if (res != null) {
+				res[i] = (float) (prev[i] / scale);
+			}
+		}
+	}
+
+	void readQuantized(ByteBuffer buf, int code, double[] res, int count) {
+		double scale = scales[code];
+		long[] prev = getPrevValues(code, count);
+
+		for (int i = 0; i < count; ++i) {
+			prev[i] += getSignedVarint(buf);
+
+			if (res != null) {
+				res[i] = prev[i] / scale;
+			}
+		}
+	}
+
+	static void putVarint(ByteBuffer buf, long value) {
+		while ((value & ~0x7fL) != 0) {
+			buf.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+
+		buf.put((byte) value);
+	}
+
+	static void putSignedVarint(ByteBuffer buf, long value) {
+		putVarint(buf, (value << 1) ^ (value >> 63));
+	}
+
+	static long getVarint(ByteBuffer buf) {
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buf.get();
+			value |= (long) (b & 0x7f) << shift;
+
+			if (b >= 0) {
+				return value;
+			}
+		}
+
+		throw new IllegalArgumentException("corrupt compact record: varint too long");
+	}
+
+	static long getSignedVarint(ByteBuffer buf) {
+		long value = getVarint(buf);
+
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,68 @@
+package com.talentica.rowingapp.common.data.session;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.DataRecordSerializer;
+
+/**
+ * Configuration of the compact record encoding of binary session files - see {@link SessionFileFormat}.
+ * Array data of types with a precision set is quantized to that precision and delta encoded,
+ * data of other types is stored losslessly.
+ */
+public class CompactEncoding {
+
+	private static final DataRecord.Type[] TYPES = DataRecord.Type.values();
+
+	public static final float DEFAULT_ACCEL_PRECISION = 1e-4f;
+
+	public static final float DEFAULT_ORIENT_PRECISION = 1e-3f;
+
+	/**
+	 * precisions by type ordinal - 0 for lossless
+	 */
+	private final double[] precisions = new double[TYPES.length];
+
+	/**
+	 * set quantization precision of a type
+	 * @param type record type of FLOAT_ARR or DOUBLE_ARR layout
+	 * @param precision quantization step, in data units - 0 to store data losslessly
+	 */
+	public void setPrecision(DataRecord.Type type, double precision) {
+		DataRecordSerializer.BinaryLayout layout = type.getBinaryLayout();
+
+		if (precision != 0 && layout != DataRecordSerializer.BinaryLayout.FLOAT_ARR && layout != DataRecordSerializer.BinaryLayout.DOUBLE_ARR) {
+			throw new IllegalArgumentException("type " + type + " data can not be quantized");
+		}
+
+		if (!(precision >= 0) || Double.isInfinite(precision)) {
+			throw new IllegalArgumentException("bad precision " + precision + " for type " + type);
+		}
+
+		precisions[type.ordinal()] = precision;
+	}
+
+	/**
+	 * @return quantization precision of a type, 0 if lossless
+	 */
+	public double getPrecision(DataRecord.Type type) {
+		return precisions[type.ordinal()];
+	}
+
+	/**
+	 * create codec for writing with this configuration
+	 */
+	CompactCodec createCodec() {
+		if (TYPES.length > CompactCodec.MAX_TYPE_COUNT) {
+			throw new IllegalStateException("too many record types for compact encoding: " + TYPES.length);
+		}
+
+		CompactCodec codec = new CompactCodec(TYPES.length);
+
+		for (int i = 0; i < TYPES.length; ++i) {
+			if (precisions[i] != 0) {
+				codec.setScale(i, 1 / precisions[i]);
+			}
+		}
+
+		return codec;
+	}
+}
@@ -0,0 +1,167 @@
+package com.talentica.rowingapp.common.data.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Block buffered replacement for {@link RandomAccessFile#readLine()}, which issues one read per byte.
+ * Keeps the same getFilePointer/seek semantics and decodes lines in the same way (one char per byte).
+ * Seeks that fall inside the current buffer do not touch the file.
+ */
+public class SeekableLineReader {
+
+	private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+	private final RandomAccessFile file;
+
+	private final byte[] buf;
+
+	/**
+	 * file offset of buf[0]
+	 */
+	private long bufStart;
+
+	/**
+	 * number of valid bytes in buf
+	 */
+	private int bufLen;
+
+	/**
+	 * read position inside buf
+	 */
+	private int bufPos;
+
+	private char[] lineBuf = new char[256];
+
+	public SeekableLineReader(File file) throws IOException {
+		this(new RandomAccessFile(file, "r"), DEFAULT_BUFFER_SIZE);
+	}
+
+	public SeekableLineReader(RandomAccessFile file, int bufferSize) throws IOException {
+		this.file = file;
+		this.buf = new byte[bufferSize];
+		this.bufStart = file.getFilePointer();
+	}
+
+	public long length() throws IOException {
+		return file.length();
+	}
+
+	public long getFilePointer() {
+		return bufStart + bufPos;
+	}
+
+	public void seek(long pos) throws IOException {
+		if (pos >= bufStart && pos <= bufStart + bufLen) {
+			bufPos = (int) (pos - bufStart);
+		} else {
+			bufStart = pos;
+			bufLen = bufPos = 0;
+		}
+	}
+
+	/**
+	 * refill buffer from current file pointer
+	 * @return false on end of file
+	 */
+	private boolean fill() throws IOException {
+		bufStart += bufPos;
+		bufPos = 0;
+		bufLen = 0;
+
+		file.seek(bufStart);
+
+		int n = file.read(buf, 0, buf.length);
+
+		if (n <= 0) {
+			return false;
+		}
+
+		bufLen = n;
+
+		return true;
+	}
+
+	/**
+	 * read a single byte
+	 * @return byte value or -1 on end of file
+	 * @throws IOException
+	 */
+	public int read() throws IOException {
+		if (bufPos == bufLen && !fill()) {
+			return -1;
+		}
+
+		return buf[bufPos++] & 0xff;
+	}
+
+	/**
+	 * read next line, terminated by '\n', '\r' or "\r\n"
+	 * @return line without terminator or null on end of file
+	 * @throws IOException
+	 */
+	public String readLine() throws IOException {
+
+		int len = 0;
+		boolean eol = false;
+		boolean gotData = false;
+
+		while (!eol) {
+
+			if (bufPos == bufLen && !fill()) {
+				break;
+			}
+
+			gotData = true;
+
+			int start = bufPos;
+			int end = start;
+
+			while (end < bufLen) {
+				byte b = buf[end];
+
+				if (b == '\n' || b == '\r') {
+					eol = true;
+					break;
+				}
+
+				end++;
+			}
+
+			int n = end - start;
+
+			if (len + n > lineBuf.length) {
+				char[] tmp = new char[Math.max(lineBuf.length * 2, len + n)];
+				System.arraycopy(lineBuf, 0, tmp, 0, len);
+				lineBuf = tmp;
+			}
+
+			for (int i = start; i < end; ++i) {
+				lineBuf[len++] = (char) (buf[i] & 0xff);
+			}
+
+			bufPos = end;
+
+			if (eol) {
+				if (buf[bufPos++] == '\r') {
+					if (bufPos < bufLen || fill()) {
+						if (buf[bufPos] == '\n') {
+							bufPos++;
+						}
+					}
+				}
+			}
+		}
+
+		if (!gotData) {
+			return null;
+		}
+
+		return new String(lineBuf, 0, len);
+	}
+
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -14,6 +14,11 @@ public class SessionBroadcaster extends SensorBinder {
 	private final DataSender dataSender;
 	
 	private boolean broadcast;
+
+	/**
+	 * reusable buffer for record text
+	 */
+	private final StringBuilder recordText = new StringBuilder();
 	
 	public SessionBroadcaster(AppStroke appStroke) throws DataRemote.DataRemoteError {
 		this(appStroke, null);
@@ -59,6 +64,10 @@ public class SessionBroadcaster extends SensorBinder {
 		
 		super.connect();					
 		
+		if (dataSender instanceof DatagramDataSender) {
+			((DatagramDataSender) dataSender).registerMetrics(appStroke.getMetrics(), "broadcast.queue");
+		}
+		
 		try {
 			dataSender.start();
 		} catch (Exception e) {
@@ -72,6 +81,7 @@ public class SessionBroadcaster extends SensorBinder {
 		
 		super.disconnect();
 		
+		appStroke.getMetrics().unregisterGauges("broadcast.queue.");
 		dataSender.stop();
 	}
 	
@@ -84,7 +94,7 @@ public class SessionBroadcaster extends SensorBinder {
 	@Override
 	public void onBusEvent(DataRecord record) {
 		
-		if (record.type.isExportableEvent) {
+		if (record.getType().isExportableEvent) {
 			write(record);
 		}
 	}
@@ -92,7 +102,15 @@ public class SessionBroadcaster extends SensorBinder {
 	public void write(DataRecord record) {
 				
 		if (dataSender != null) {
-			dataSender.write(record.toString());
+			String data;
+
+			synchronized (recordText) {
+				recordText.setLength(0);
+				record.appendTo(recordText);
+				data = recordText.toString();
+			}
+
+			dataSender.write(data);
 		}
 	}
 }
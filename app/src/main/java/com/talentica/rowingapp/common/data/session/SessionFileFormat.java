@@ -0,0 +1,162 @@
+package com.talentica.rowingapp.common.data.session;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Layout of block structured binary session files (LOGFILE_VERSION 4).
+ * <p>
+ * A file starts with a header:
+ * <pre>
+ * int    FILE_MAGIC
+ * int    version
+ * long   first log timestamp (ms)
+ * UTF    session UUID
+ * short  type count, followed by {UTF type name, byte BinaryLayout ordinal} per type code
+ * int    session parameter count, followed by UTF "id|value" per parameter
+ * </pre>
+ * followed by blocks, each holding a whole number of records:
+ * <pre>
+ * int    BLOCK_MAGIC
+ * int    payload length
+ * int    record count
+ * long   log timestamp of first record in block
+ * byte[] payload
+ * </pre>
+ * A record is a type code byte, log timestamp and event timestamp longs and the
+ * data in the fixed layout of its type (see {@link com.talentica.rowingapp.common.data.DataRecordSerializer.BinaryLayout}).
+ * All values are big-endian.
+ * <p>
+ * In compressed files blocks start with DEFLATE_BLOCK_MAGIC instead, and their payload is
+ * the int length of the uncompressed payload followed by the deflated payload.
+ * Since record offsets inside a deflated block are not file offsets, readers of compressed files
+ * use virtual positions: (block file offset &lt;&lt; VIRTUAL_OFFSET_BITS) | offset in uncompressed payload.
+ * <p>
+ * Blocks in compact encoding start with COMPACT_BLOCK_MAGIC, or DEFLATE_COMPACT_BLOCK_MAGIC when also deflated.
+ * Their (uncompressed) payload starts with a quantization table:
+ * <pre>
+ * short  quantized type count, followed by {byte type code, double scale} per quantized type
+ * </pre>
+ * followed by the records, each being:
+ * <pre>
+ * byte   type code, with bit 0x80 set if data of a quantized type is in plain layout
+ * varint zig-zag log timestamp delta-of-delta, relative to the previous record in block
+ * varint zig-zag event timestamp delta-of-delta, relative to the previous record of the same type in block
+ * data   quantized: varint value count + 1 (0 for null), followed by a zig-zag varint per value of
+ *        round(value * scale) delta, relative to the same value of the previous record of the same type in block.
+ *        otherwise: data in the plain layout of its type
+ * </pre>
+ * All deltas start from 0, except the first log timestamp delta which is relative to the block log timestamp,
+ * so each block decodes on its own.
+ */
+public final class SessionFileFormat {
+
+	public static final int FILE_MAGIC = 0x54414c53; // "TALS"
+
+	public static final int BLOCK_MAGIC = 0x54414c42; // "TALB"
+
+	public static final int DEFLATE_BLOCK_MAGIC = 0x54414c5a; // "TALZ"
+
+	public static final int COMPACT_BLOCK_MAGIC = 0x54414c43; // "TALC"
+
+	public static final int DEFLATE_COMPACT_BLOCK_MAGIC = 0x54414c44; // "TALD"
+
+	/**
+	 * number of low bits of a virtual position holding the offset inside an uncompressed block payload
+	 */
+	public static final int VIRTUAL_OFFSET_BITS = 24;
+
+	public static final int BLOCK_HEADER_SIZE = 20;
+
+	/**
+	 * block payload size after which writers start a new block
+	 */
+	public static final int BLOCK_SIZE = 16 * 1024;
+
+	/**
+	 * size of type code and log/event timestamps preceding record data
+	 */
+	public static final int RECORD_HEADER_SIZE = 17;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private SessionFileFormat() {}
+
+	/**
+	 * check either a file is a binary session file
+	 * @param file session file
+	 * @return true if file starts with FILE_MAGIC
+	 * @throws IOException
+	 */
+	public static boolean isBinarySessionFile(File file) throws IOException {
+		return readVersion(file) != -1;
+	}
+
+	/**
+	 * read binary session file version
+	 * @param file session file
+	 * @return file version or -1 if file is not a binary session file
+	 * @throws IOException
+	 */
+	public static int readVersion(File file) throws IOException {
+
+		if (file.length() < 8) {
+			return -1;
+		}
+
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+
+		try {
+			return in.readInt() == FILE_MAGIC ? in.readInt() : -1;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * copy a binary session file, compressing or decompressing its blocks.
+	 * Header and records are copied as is, block by block, so memory use is bounded by block size.
+	 * Compact encoded blocks remain compact encoded
+	 * @param input binary session file
+	 * @param output output file
+	 * @param compress true to write deflated blocks, false to write uncompressed blocks
+	 * @throws IOException
+	 */
+	public static void transcode(File input, File output, boolean compress) throws IOException {
+		BinarySessionReader reader = new BinarySessionReader(input);
+
+		try {
+			SessionFileWriter writer = new SessionFileWriter(new FileOutputStream(output), reader.readHeader(), compress, null);
+
+			try {
+				for (int i = 0; i < reader.getBlockCount(); ++i) {
+					int length = reader.loadBlockPayload(i);
+					writer.writeBlockPayload(reader.getBlockPayload(), length, reader.getBlockRecordCount(i),
+							reader.getBlockTimestamp(i), reader.isBlockCompact(i));
+				}
+			} finally {
+				writer.close();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * open a session file for reading, according to its format
+	 * @param file session file
+	 * @return session reader
+	 * @throws IOException
+	 */
+	public static SessionReader openReader(File file) throws IOException {
+		if (isBinarySessionFile(file)) {
+			return new BinarySessionReader(file);
+		} else {
+			return new TextSessionReader(file);
+		}
+	}
+}
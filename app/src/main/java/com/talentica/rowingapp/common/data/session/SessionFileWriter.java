@@ -0,0 +1,423 @@
+package com.talentica.rowingapp.common.data.session;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.DataRecordSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.Deflater;
+
+/**
+ * Writer of block structured binary session files - see {@link SessionFileFormat}.
+ * Records are accumulated into a block buffer which is written out
+ * once it reaches BLOCK_SIZE or when {@link #flush()} is called.
+ * Blocks are optionally deflated, each on its own, so that compressed files remain seekable by block.
+ * Records are optionally written in compact encoding - see {@link CompactEncoding}.
+ */
+public class SessionFileWriter {
+
+	private static final DataRecord.Type[] TYPES = DataRecord.Type.values();
+
+	private final OutputStream out;
+
+	/**
+	 * block compressor, null when writing uncompressed blocks
+	 */
+	private final Deflater deflater;
+	private byte[] compressed;
+
+	/**
+	 * compact record encoder, null when writing plain records
+	 */
+	private final CompactCodec codec;
+
+	/**
+	 * true if current block payload is in compact encoding
+	 */
+	private boolean blockCompact;
+
+	private byte[] block = new byte[SessionFileFormat.BLOCK_SIZE * 2];
+	private ByteBuffer blockBuf = ByteBuffer.wrap(block);
+
+	private int recordCount;
+	private long blockTimestamp;
+
+	/**
+	 * reusable buffer for text serialized record data
+	 */
+	private final StringBuilder text = new StringBuilder();
+
+	/**
+	 * create a writer and write the session file header
+	 * @param out output stream, owned by this writer from now on
+	 * @param firstTimestamp session start log timestamp (ms)
+	 * @param uuid session UUID
+	 * @param sessionParams "id|value" session parameter strings
+	 * @throws IOException
+	 */
+	public SessionFileWriter(OutputStream out, long firstTimestamp, String uuid, Collection<String> sessionParams) throws IOException {
+		this(out, firstTimestamp, uuid, sessionParams, false);
+	}
+
+	/**
+	 * create a writer and write the session file header
+	 * @param out output stream, owned by this writer from now on
+	 * @param firstTimestamp session start log timestamp (ms)
+	 * @param uuid session UUID
+	 * @param sessionParams "id|value" session parameter strings
+	 * @param compress true to write deflated blocks
+	 * @throws IOException
+	 */
+	public SessionFileWriter(OutputStream out, long firstTimestamp, String uuid, Collection<String> sessionParams, boolean compress) throws IOException {
+		this(out, firstTimestamp, uuid, sessionParams, compress, null);
+	}
+
+	/**
+	 * create a writer and write the session file header
+	 * @param out output stream, owned by this writer from now on
+	 * @param firstTimestamp session start log timestamp (ms)
+	 * @param uuid session UUID
+	 * @param sessionParams "id|value" session parameter strings
+	 * @param compress true to write deflated blocks
+	 * @param compactEncoding compact encoding configuration, or null to write plain records
+	 * @throws IOException
+	 */
+	public SessionFileWriter(OutputStream out, long firstTimestamp, String uuid, Collection<String> sessionParams, boolean compress, CompactEncoding compactEncoding) throws IOException {
+		this(out, createHeader(firstTimestamp, uuid, sessionParams), compress, compactEncoding);
+	}
+
+	/**
+	 * create a writer with a given header, as read from another session file
+	 */
+	SessionFileWriter(OutputStream out, byte[] header, boolean compress, CompactEncoding compactEncoding) throws IOException {
+		this.out = out;
+		this.codec = compactEncoding == null ? null : compactEncoding.createCodec();
+
+		if (compress) {
+			deflater = new Deflater();
+			compressed = new byte[SessionFileFormat.BLOCK_SIZE + SessionFileFormat.BLOCK_HEADER_SIZE + 64];
+		} else {
+			deflater = null;
+		}
+
+		out.write(header);
+
+		startBlock();
+	}
+
+	private static byte[] createHeader(long firstTimestamp, String uuid, Collection<String> sessionParams) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(bos);
+
+		header.writeInt(SessionFileFormat.FILE_MAGIC);
+		header.writeInt(SessionRecorderConstants.LOGFILE_VERSION);
+		header.writeLong(firstTimestamp);
+		header.writeUTF(uuid);
+
+		header.writeShort(TYPES.length);
+
+		for (DataRecord.Type type: TYPES) {
+			header.writeUTF(type.name());
+			header.writeByte(type.getBinaryLayout().ordinal());
+		}
+
+		header.writeInt(sessionParams.size());
+
+		for (String param: sessionParams) {
+			header.writeUTF(param);
+		}
+
+		header.flush();
+
+		return bos.toByteArray();
+	}
+
+	private void startBlock() {
+		blockBuf.clear();
+		blockBuf.position(SessionFileFormat.BLOCK_HEADER_SIZE);
+		recordCount = 0;
+		blockCompact = codec != null;
+
+		if (blockCompact) {
+			codec.putScaleTable(blockBuf);
+		}
+	}
+
+	private void ensureCapacity(int size) {
+		if (blockBuf.remaining() < size) {
+			byte[] newBlock = new byte[Math.max(block.length * 2, blockBuf.position() + size)];
+			System.arraycopy(block, 0, newBlock, 0, blockBuf.position());
+
+			ByteBuffer newBuf = ByteBuffer.wrap(newBlock);
+			newBuf.position(blockBuf.position());
+
+			block = newBlock;
+			blockBuf = newBuf;
+		}
+	}
+
+	/**
+	 * @return max size of a record header
+	 */
+	private int getRecordHeaderSize() {
+		return codec == null ? SessionFileFormat.RECORD_HEADER_SIZE : 1 + 2 * CompactCodec.MAX_VARINT_SIZE;
+	}
+
+	/**
+	 * @param quantized true if record data is written quantized, ignored when writing plain records
+	 */
+	private void putRecordHeader(long logTimestamp, DataRecord.Type type, long timestamp, boolean quantized) {
+		if (recordCount++ == 0) {
+			blockTimestamp = logTimestamp;
+
+			if (codec != null) {
+				codec.reset(logTimestamp);
+			}
+		}
+
+		if (codec != null) {
+			codec.putRecordHeader(blockBuf, type.ordinal(), !quantized && codec.getScale(type.ordinal()) != 0, logTimestamp, timestamp);
+		} else {
+			blockBuf.put((byte) type.ordinal());
+			blockBuf.putLong(logTimestamp);
+			blockBuf.putLong(timestamp);
+		}
+	}
+
+	/**
+	 * write a record
+	 * @param logTimestamp log timestamp (ms)
+	 * @param record record
+	 * @throws IOException
+	 */
+	public void write(long logTimestamp, DataRecord record) throws IOException {
+
+		DataRecord.Type type = record.getType();
+		Object data = record.getData();
+
+		switch (type.getBinaryLayout()) {
+		case FLOAT_ARR: {
+			float[] arr = (float[]) data;
+			write(logTimestamp, type, record.getTimestamp(), arr, arr == null ? -1 : arr.length);
+		}
+		return;
+		case DOUBLE_ARR: {
+			double[] arr = (double[]) data;
+			int n = arr == null ? 0 : arr.length;
+			boolean quantized = codec != null && codec.canQuantize(type.ordinal(), arr, n);
+			ensureCapacity(getRecordHeaderSize() + CompactCodec.MAX_VARINT_SIZE + n * CompactCodec.MAX_VARINT_SIZE);
+			putRecordHeader(logTimestamp, type, record.getTimestamp(), quantized);
+
+			if (quantized) {
+				codec.putQuantized(blockBuf, type.ordinal(), arr, arr == null ? -1 : n);
+			} else {
+				blockBuf.putShort((short) (arr == null ? -1 : n));
+
+				for (int i = 0; i < n; ++i) {
+					blockBuf.putDouble(arr[i]);
+				}
+			}
+		}
+		break;
+		default:
+			text.setLength(0);
+			record.appendData(text);
+			putText(logTimestamp, type, record.getTimestamp(), text);
+			break;
+		}
+
+		endRecord();
+	}
+
+	/**
+	 * write a record of a FLOAT_ARR layout type from a slice of a float array
+	 * @param logTimestamp log timestamp (ms)
+	 * @param type record type
+	 * @param timestamp event timestamp
+	 * @param data data array
+	 * @param count number of values to write from data, or -1 for null data
+	 * @throws IOException
+	 */
+	public void write(long logTimestamp, DataRecord.Type type, long timestamp, float[] data, int count) throws IOException {
+		int n = Math.max(count, 0);
+		boolean quantized = codec != null && codec.canQuantize(type.ordinal(), data, n);
+		ensureCapacity(getRecordHeaderSize() + CompactCodec.MAX_VARINT_SIZE + n * CompactCodec.MAX_VARINT_SIZE);
+		putRecordHeader(logTimestamp, type, timestamp, quantized);
+
+		if (quantized) {
+			codec.putQuantized(blockBuf, type.ordinal(), data, count);
+		} else {
+			blockBuf.putShort((short) count);
+
+			for (int i = 0; i < n; ++i) {
+				blockBuf.putFloat(data[i]);
+			}
+		}
+
+		endRecord();
+	}
+
+	/**
+	 * write a record from its text serialized data, as found in text session files
+	 * @param logTimestamp log timestamp (ms)
+	 * @param type record type
+	 * @param timestamp event timestamp
+	 * @param data text serialized data
+	 * @throws IOException
+	 */
+	public void write(long logTimestamp, DataRecord.Type type, long timestamp, String data) throws IOException {
+
+		if (type.getBinaryLayout() == DataRecordSerializer.BinaryLayout.TEXT) {
+			putText(logTimestamp, type, timestamp, data);
+			endRecord();
+		} else {
+			write(logTimestamp, DataRecord.create(type, timestamp, data));
+		}
+	}
+
+	private void putText(long logTimestamp, DataRecord.Type type, long timestamp, CharSequence data) {
+		int len = data.length();
+		ensureCapacity(getRecordHeaderSize() + 4 + len * 3);
+		putRecordHeader(logTimestamp, type, timestamp, false);
+
+		int lengthPos = blockBuf.position();
+		blockBuf.putInt(0);
+
+		putUTF8(data);
+
+		blockBuf.putInt(lengthPos, blockBuf.position() - lengthPos - 4);
+	}
+
+	/**
+	 * UTF-8 encode chars into block buffer, without allocating.
+	 * Unpaired surrogates are written as '?', as String.getBytes() does
+	 */
+	private void putUTF8(CharSequence data) {
+		int len = data.length();
+
+		for (int i = 0; i < len; ++i) {
+			char c = data.charAt(i);
+
+			if (c < 0x80) {
+				blockBuf.put((byte) c);
+			} else if (c < 0x800) {
+				blockBuf.put((byte) (0xc0 | (c >> 6)));
+				blockBuf.put((byte) (0x80 | (c & 0x3f)));
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(data.charAt(i + 1))) {
+					int cp = Character.toCodePoint(c, data.charAt(++i));
+					blockBuf.put((byte) (0xf0 | (cp >> 18)));
+					blockBuf.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+					blockBuf.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+					blockBuf.put((byte) (0x80 | (cp & 0x3f)));
+				} else {
+					blockBuf.put((byte) '?');
+				}
+			} else {
+				blockBuf.put((byte) (0xe0 | (c >> 12)));
+				blockBuf.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+				blockBuf.put((byte) (0x80 | (c & 0x3f)));
+			}
+		}
+	}
+
+	private void endRecord() throws IOException {
+		if (blockBuf.position() >= SessionFileFormat.BLOCK_SIZE + SessionFileFormat.BLOCK_HEADER_SIZE) {
+			writeBlock();
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		if (recordCount != 0) {
+			int length = blockBuf.position() - SessionFileFormat.BLOCK_HEADER_SIZE;
+
+			if (deflater != null) {
+				writeDeflatedBlock(length);
+			} else {
+				blockBuf.putInt(0, blockCompact ? SessionFileFormat.COMPACT_BLOCK_MAGIC : SessionFileFormat.BLOCK_MAGIC);
+				blockBuf.putInt(4, length);
+				blockBuf.putInt(8, recordCount);
+				blockBuf.putLong(12, blockTimestamp);
+
+				out.write(block, 0, blockBuf.position());
+			}
+
+			startBlock();
+		}
+	}
+
+	private void writeDeflatedBlock(int length) throws IOException {
+		deflater.reset();
+		deflater.setInput(block, SessionFileFormat.BLOCK_HEADER_SIZE, length);
+		deflater.finish();
+
+		int end = SessionFileFormat.BLOCK_HEADER_SIZE + 4;
+
+		while (!deflater.finished()) {
+			if (end == compressed.length) {
+				compressed = Arrays.copyOf(compressed, compressed.length * 2);
+			}
+
+			end += deflater.deflate(compressed, end, compressed.length - end);
+		}
+
+		ByteBuffer header = ByteBuffer.wrap(compressed);
+
+		header.putInt(blockCompact ? SessionFileFormat.DEFLATE_COMPACT_BLOCK_MAGIC : SessionFileFormat.DEFLATE_BLOCK_MAGIC);
+		header.putInt(end - SessionFileFormat.BLOCK_HEADER_SIZE);
+		header.putInt(recordCount);
+		header.putLong(blockTimestamp);
+		header.putInt(length);
+
+		out.write(compressed, 0, end);
+	}
+
+	/**
+	 * write a block of already encoded records, e.g. as read from another session file
+	 * @param payload uncompressed block payload
+	 * @param length payload length
+	 * @param recordCount number of records in payload
+	 * @param firstLogTimestamp log timestamp of first record in payload
+	 * @param compact true if payload is in compact encoding
+	 * @throws IOException
+	 */
+	void writeBlockPayload(byte[] payload, int length, int recordCount, long firstLogTimestamp, boolean compact) throws IOException {
+		writeBlock();
+
+		blockBuf.position(SessionFileFormat.BLOCK_HEADER_SIZE);
+		ensureCapacity(length);
+		blockBuf.put(payload, 0, length);
+
+		this.recordCount = recordCount;
+		this.blockTimestamp = firstLogTimestamp;
+		this.blockCompact = compact;
+
+		writeBlock();
+	}
+
+	/**
+	 * write out current block, even if not full, and flush output stream
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		writeBlock();
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			if (deflater != null) {
+				deflater.end();
+			}
+
+			out.close();
+		}
+	}
+}
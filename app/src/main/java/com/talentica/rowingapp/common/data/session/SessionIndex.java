@@ -0,0 +1,229 @@
+package com.talentica.rowingapp.common.data.session;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sparse (log timestamp -> reader position) index of a session file, with an entry every
+ * <code>interval</code> records. Enables exact, time addressed seeking in O(log n).
+ * The index is cached in a file next to the session file and rebuilt when the session file changes.
+ */
+public class SessionIndex {
+
+	private static final int INDEX_MAGIC = 0x54414c49; // "TALI"
+
+	private static final int INDEX_VERSION = 1;
+
+	public static final int DEFAULT_INTERVAL = 256;
+
+	public static final String INDEX_FILE_SUFFIX = ".idx";
+
+	private final long firstTimestamp;
+
+	private long lastTimestamp;
+
+	private long[] timestamps;
+
+	private long[] positions;
+
+	private int size;
+
+	private SessionIndex(long firstTimestamp, int capacity) {
+		this.firstTimestamp = lastTimestamp = firstTimestamp;
+		timestamps = new long[capacity];
+		positions = new long[capacity];
+	}
+
+	private void add(long timestamp, long position) {
+		if (size == timestamps.length) {
+			timestamps = Arrays.copyOf(timestamps, size * 2);
+			positions = Arrays.copyOf(positions, size * 2);
+		}
+
+		timestamps[size] = timestamp;
+		positions[size] = position;
+		size++;
+	}
+
+	/**
+	 * get index of a session file, from its cache file when up to date, otherwise by scanning the session file
+	 * @param sessionFile session file
+	 * @return index
+	 * @throws IOException
+	 */
+	public static SessionIndex load(File sessionFile) throws IOException {
+
+		File indexFile = getIndexFile(sessionFile);
+
+		if (indexFile.exists()) {
+			try {
+				SessionIndex index = read(indexFile, sessionFile);
+
+				if (index != null) {
+					return index;
+				}
+			} catch (IOException e) {
+				Log.w("SessionIndex", "ignoring unreadable index file " + indexFile, e);
+			}
+		}
+
+		SessionReader reader = SessionFileFormat.openReader(sessionFile);
+		SessionIndex index;
+
+		try {
+			index = build(reader, DEFAULT_INTERVAL);
+		} finally {
+			reader.close();
+		}
+
+		try {
+			index.save(indexFile, sessionFile);
+		} catch (IOException e) {
+			Log.w("SessionIndex", "failed to save index file " + indexFile, e);
+			indexFile.delete();
+		}
+
+		return index;
+	}
+
+	public static File getIndexFile(File sessionFile) {
+		return new File(sessionFile.getPath() + INDEX_FILE_SUFFIX);
+	}
+
+	/**
+	 * build index by scanning all records of a session reader
+	 * @param reader session reader - its position is changed
+	 * @param interval number of records between index entries
+	 * @return index
+	 * @throws IOException
+	 */
+	public static SessionIndex build(SessionReader reader, int interval) throws IOException {
+
+		SessionIndex index = new SessionIndex(reader.getFirstTimestamp(), 1024);
+
+		reader.seek(0);
+
+		index.add(index.firstTimestamp, 0);
+
+		int count = 0;
+
+		while (true) {
+			long pos = reader.getPosition();
+
+			try {
+				if (!reader.next()) {
+					break;
+				}
+			} catch (RuntimeException e) { // corrupt record - skipped
+				continue;
+			}
+
+			// keep timestamps monotonic, even if the recording device clock went backwards
+			index.lastTimestamp = Math.max(index.lastTimestamp, reader.getLogTimestamp());
+
+			if (++count % interval == 0) {
+				index.add(index.lastTimestamp, pos);
+			}
+		}
+
+		return index;
+	}
+
+	private static SessionIndex read(File indexFile, File sessionFile) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+
+		try {
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION ||
+					in.readLong() != sessionFile.length() || in.readLong() != sessionFile.lastModified()) {
+				return null;
+			}
+
+			long firstTimestamp = in.readLong();
+			long lastTimestamp = in.readLong();
+			int size = in.readInt();
+
+			SessionIndex index = new SessionIndex(firstTimestamp, Math.max(size, 1));
+			index.lastTimestamp = lastTimestamp;
+
+			for (int i = 0; i < size; ++i) {
+				index.add(in.readLong(), in.readLong());
+			}
+
+			return index;
+		} finally {
+			in.close();
+		}
+	}
+
+	private void save(File indexFile, File sessionFile) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+
+		try {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(INDEX_VERSION);
+			out.writeLong(sessionFile.length());
+			out.writeLong(sessionFile.lastModified());
+			out.writeLong(firstTimestamp);
+			out.writeLong(lastTimestamp);
+			out.writeInt(size);
+
+			for (int i = 0; i < size; ++i) {
+				out.writeLong(timestamps[i]);
+				out.writeLong(positions[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return log timestamp (ms) of session start
+	 */
+	public long getFirstTimestamp() {
+		return firstTimestamp;
+	}
+
+	/**
+	 * @return log timestamp (ms) of last record
+	 */
+	public long getLastTimestamp() {
+		return lastTimestamp;
+	}
+
+	/**
+	 * @return session duration in ms
+	 */
+	public long getDuration() {
+		return lastTimestamp - firstTimestamp;
+	}
+
+	/**
+	 * find reader position from which to scan forward for the first record logged at or after a timestamp
+	 * @param logTimestamp log timestamp (ms)
+	 * @return position to pass to {@link SessionReader#seek(long)}
+	 */
+	public long findPosition(long logTimestamp) {
+		int idx = Arrays.binarySearch(timestamps, 0, size, logTimestamp);
+
+		if (idx < 0) {
+			idx = -idx - 2; // last entry before logTimestamp
+		} else {
+			while (idx > 0 && timestamps[idx - 1] == logTimestamp) {
+				idx--;
+			}
+
+			idx--; // the entry record itself was logged at logTimestamp, an earlier one may have been too
+		}
+
+		return positions[Math.max(idx, 0)];
+	}
+}
@@ -0,0 +1,68 @@
+package com.talentica.rowingapp.common.data.session;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+
+import java.io.IOException;
+
+/**
+ * Sequential, seekable access to the replayable records of a recorded session file
+ */
+public interface SessionReader {
+
+	/**
+	 * @return session UUID
+	 */
+	public String getUuid();
+
+	/**
+	 * @return log timestamp (ms) of the start of the session
+	 */
+	public long getFirstTimestamp();
+
+	/**
+	 * @return session file length in bytes
+	 */
+	public long length();
+
+	/**
+	 * get position of the next record to be read.
+	 * Positions are byte offsets, except in compressed files where they are opaque, but still ordered, values
+	 * @return position which can later be passed to {@link #seek(long)}
+	 * @throws IOException
+	 */
+	public long getPosition() throws IOException;
+
+	/**
+	 * @return approximate byte offset in file of the next record to be read, for progress reporting
+	 * @throws IOException
+	 */
+	public long getFileOffset() throws IOException;
+
+	/**
+	 * move to the first record at or after position pos
+	 * @param pos 0, byte offset in uncompressed files, or a value returned by {@link #getPosition()}
+	 * @throws IOException
+	 */
+	public void seek(long pos) throws IOException;
+
+	/**
+	 * advance to the next replayable record.
+	 * A corrupt record causes a runtime exception, after which reading
+	 * can continue with the record that follows it.
+	 * @return false if end of file was reached
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException;
+
+	/**
+	 * @return log timestamp (ms) of current record
+	 */
+	public long getLogTimestamp();
+
+	/**
+	 * @return current record
+	 */
+	public DataRecord getRecord();
+
+	public void close() throws IOException;
+}
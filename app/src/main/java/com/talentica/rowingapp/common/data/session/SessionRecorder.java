@@ -4,55 +4,121 @@ import com.talentica.rowingapp.SensorBinder;
 import com.talentica.rowingapp.common.data.DataRecord;
 import com.talentica.rowingapp.common.data.stroke.AppStroke;
 import com.talentica.rowingapp.common.error.ErrorListener;
+import com.talentica.rowingapp.common.param.ParamKeys;
 import com.talentica.rowingapp.common.param.Parameter;
-import com.talentica.rowingapp.common.param.ParameterBusEventData;
+import com.talentica.rowingapp.common.param.ParameterService;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.UUID;
 
 public class SessionRecorder extends SensorBinder implements SessionRecorderConstants {
 	
+	/**
+	 * record ring capacity in asynchronous mode - a few seconds of sensor data
+	 */
+	private static final int ASYNC_RING_CAPACITY = 1024;
+
+	/**
+	 * name prefix of the asynchronous writer's metrics gauges
+	 */
+	private static final String METRICS_PREFIX = "session.writer";
+
 	private ErrorListener errorListener;
-	private BufferedWriter logger;
-	private boolean initialized;
+	private FileOutputStream loggerStream;
+	private SessionFileWriter logger;
+
+	/**
+	 * writer in asynchronous mode, published for logging without this object's lock
+	 */
+	private volatile AsyncSessionWriter asyncLogger;
 	
 	public SessionRecorder(AppStroke appStroke) {
 		super(appStroke);
 	}
 	
-	public synchronized void setDataLogger(File file) throws IOException {
-			if (logger != null) {
+	/**
+	 * start recording to a file, closing the current one
+	 * @param file session file, null to only close the current one
+	 * @throws IOException
+	 */
+	public void setDataLogger(File file) throws IOException {
+		AsyncSessionWriter closedAsyncLogger = null;
+
+		synchronized (this) {
+			if (loggerStream != null) {
 				disconnect();
-				logger.close();
+				if (asyncLogger != null) {
+					closedAsyncLogger = asyncLogger;
+					appStroke.getMetrics().unregisterGauges(METRICS_PREFIX + ".");
+				} else if (logger != null) {
+					logger.close();
+				} else {
+					loggerStream.close();
+				}
 				logger = null;
+				asyncLogger = null;
+				loggerStream = null;
 			}
 
-			initialized = false;
-			
 			if (file != null) {
-				logger = new BufferedWriter(new FileWriter(file));
+				loggerStream = new FileOutputStream(file);
 				connect();
 			}
+		}
+
+		if (closedAsyncLogger != null) {
+			closedAsyncLogger.close(); // joins the writer thread - not holding the lock the sensor and bus threads log under
+		}
 	}
 
-	private void initDataLogger() {
-		
-		initialized = true;
+	private synchronized void initDataLogger() {
+
+		if (logger != null || loggerStream == null) {
+			return;
+		}
 
-		logEvent(new DataRecord(DataRecord.Type.LOGFILE_VERSION, -1, LOGFILE_VERSION));
+		ArrayList<String> sessionParams = new ArrayList<String>();
 
 		for (Parameter param: appStroke.getParameters().getParamMap().values()) {
+			sessionParams.add(param.getId() + "|" + param.convertToString());
+		}
+
+		ParameterService params = appStroke.getParameters();
+
+		try {
+			boolean compress = (Boolean) params.getValue(ParamKeys.PARAM_SESSION_RECORDING_COMPRESS.getId());
+
+			CompactEncoding compactEncoding = null;
+
+			if ((Boolean) params.getValue(ParamKeys.PARAM_SESSION_RECORDING_COMPACT.getId())) {
+				compactEncoding = new CompactEncoding();
+				compactEncoding.setPrecision(DataRecord.Type.ACCEL, (Float) params.getValue(ParamKeys.PARAM_SESSION_RECORDING_ACCEL_PRECISION.getId()));
+				compactEncoding.setPrecision(DataRecord.Type.ORIENT, (Float) params.getValue(ParamKeys.PARAM_SESSION_RECORDING_ORIENT_PRECISION.getId()));
+			}
+
+			logger = new SessionFileWriter(loggerStream, System.currentTimeMillis(), UUID.randomUUID().toString(), sessionParams, compress, compactEncoding);
 
-			logEvent(DataRecord.create(DataRecord.Type.SESSION_PARAMETER, -1, 
-					new ParameterBusEventData(param.getId() + "|" + param.convertToString())));
-		}		
+			if ((Boolean) params.getValue(ParamKeys.PARAM_SESSION_RECORDING_ASYNC.getId())) {
+				int flushInterval = params.getValue(ParamKeys.PARAM_SESSION_RECORDING_FLUSH_INTERVAL.getId());
+				int syncInterval = params.getValue(ParamKeys.PARAM_SESSION_RECORDING_SYNC_INTERVAL.getId());
+
+				AsyncSessionWriter asyncLogger = new AsyncSessionWriter(logger, loggerStream.getFD(), ASYNC_RING_CAPACITY, flushInterval, syncInterval, errorListener);
+				asyncLogger.registerMetrics(appStroke.getMetrics(), METRICS_PREFIX);
+				this.asyncLogger = asyncLogger;
+			}
+		} catch (IOException e) {
+			if (errorListener != null) {
+				errorListener.onError(e);
+			}
+		}
 	}
 
 	
 	@Override
-	protected synchronized void onSensorData(DataRecord record) {
+	protected void onSensorData(DataRecord record) {
 		logEvent(record);
 	}
 
@@ -61,27 +127,45 @@ public class SessionRecorder extends SensorBinder implements SessionRecorderCons
 	}
 
 	@Override
-	public synchronized void onBusEvent(DataRecord event) {
+	public void onBusEvent(DataRecord event) {
 		
-		if (event.type == DataRecord.Type.RECORDING_START) {
+		if (event.getType() == DataRecord.Type.RECORDING_START) {
 			initDataLogger();
 		}
 		
 		logEvent(event);
 	}
 
-	private synchronized void logEvent(DataRecord event) {
-		
-		if (initialized) {
-			StringBuffer sb = new StringBuffer();
-			sb.append(System.currentTimeMillis()).append(" ")
-			.append(event);
+	/**
+	 * log an event - in asynchronous mode just enqueued, without taking this object's lock
+	 */
+	private void logEvent(DataRecord event) {
+		AsyncSessionWriter asyncLogger = this.asyncLogger;
+
+		if (asyncLogger == null) {
+			synchronized (this) {
+				asyncLogger = this.asyncLogger;
+
+				if (asyncLogger == null) {
+					writeEvent(event);
+					return;
+				}
+			}
+		}
+
+		asyncLogger.offer(System.currentTimeMillis(), event);
+
+		if (event.getType() == DataRecord.Type.CRASH_STACK) {
+			asyncLogger.requestFlush();
+		}
+	}
 
+	private void writeEvent(DataRecord event) {
+		if (logger != null) {
 			try {
-				logger.write(sb.toString());
-				logger.write(END_OF_RECORD + "\n");
+				logger.write(System.currentTimeMillis(), event);
 
-				if (event.type == DataRecord.Type.CRASH_STACK) {
+				if (event.getType() == DataRecord.Type.CRASH_STACK) {
 					logger.flush();
 				}
 			} catch (IOException e) {
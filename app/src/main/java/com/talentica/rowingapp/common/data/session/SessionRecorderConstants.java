@@ -1,7 +1,8 @@
 package com.talentica.rowingapp.common.data.session;
 
 public interface SessionRecorderConstants {
-	public static final int LOGFILE_VERSION = 3;
+	public static final int LOGFILE_VERSION = 4;
+	public static final int TEXT_LOGFILE_VERSION = 3;
 	public static final int BROADCAST_PORT = 8256;
 	public static final String BROADCAST_HOST = "192.168.43.1";
 	public static final String END_OF_RECORD = "@@";	
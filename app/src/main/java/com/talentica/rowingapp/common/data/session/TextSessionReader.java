@@ -0,0 +1,195 @@
+package com.talentica.rowingapp.common.data.session;
+
+import com.talentica.rowingapp.common.Pair;
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.RecordTokenizer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * SessionReader for line oriented text session files (TEXT_LOGFILE_VERSION)
+ */
+public class TextSessionReader implements SessionReader {
+
+	private static final int MAX_VALIDATION_LINE_COUNT = 100;
+
+	private final SeekableLineReader reader;
+	private final long fileLength;
+	private final String uuid;
+	private final long firstTimestamp;
+	private final RecordTokenizer tokenizer = new RecordTokenizer();
+
+	private long logTimestamp;
+	private DataRecord record;
+
+	public TextSessionReader(File file) throws IOException {
+		reader = new SeekableLineReader(file);
+		fileLength = file.length();
+
+		try {
+			Pair<String, Long> p = checkVersion();
+			uuid = p.first;
+			firstTimestamp = p.second;
+		} catch (IOException e) {
+			reader.close();
+			throw e;
+		}
+	}
+
+	private Pair<String /* UUID */, Long /* firstTimestamp */> checkVersion() throws IOException, SessionFileVersionError {
+		int version = -1;
+		long firstTimestamp = 0;
+		String uuid = null;
+		boolean validVersion = false;
+		int lineNum = 0;
+
+		do {
+			String line = reader.readLine();
+
+			lineNum++;
+
+			if (line == null) {
+				break;
+			}
+
+			final boolean complete;
+
+			try {
+				complete = tokenizer.tokenizeSessionLine(line);
+			} catch (NumberFormatException e) {
+				continue; // SessionFileVersionError() is thrown later
+			}
+
+			if (complete && tokenizer.getType() != null) {
+				switch (tokenizer.getType()) {
+				case LOGFILE_VERSION:
+
+					if (lineNum != 1) {
+						throw new IllegalArgumentException("LOGFILE_VERSION must appear in the first line of the data file");
+					}
+
+					version = Integer.parseInt(line.substring(tokenizer.getDataStart(), tokenizer.getDataEnd()));
+					firstTimestamp = tokenizer.getLogTimestamp();
+					if (version == SessionRecorderConstants.TEXT_LOGFILE_VERSION) {
+						validVersion = true;
+					}
+
+					break;
+				case UUID:
+					uuid = String.valueOf(tokenizer.getLogTimestamp());
+					break;
+				default:
+					break;
+				}
+			}
+		} while (uuid == null && lineNum < MAX_VALIDATION_LINE_COUNT);
+
+		if (!validVersion) {
+			throw new SessionFileVersionError(version);
+		}
+
+		if (uuid == null) {
+			throw new SessionFileVersionError("UUID was not found within the first " + MAX_VALIDATION_LINE_COUNT + " lines of data log file");
+		}
+
+		return Pair.create(uuid, firstTimestamp);
+	}
+
+	@Override
+	public String getUuid() {
+		return uuid;
+	}
+
+	@Override
+	public long getFirstTimestamp() {
+		return firstTimestamp;
+	}
+
+	@Override
+	public long length() {
+		return fileLength;
+	}
+
+	@Override
+	public long getPosition() throws IOException {
+		return reader.getFilePointer();
+	}
+
+	@Override
+	public long getFileOffset() throws IOException {
+		return getPosition();
+	}
+
+	@Override
+	public void seek(long pos) throws IOException {
+		if (pos == 0) {
+			reader.seek(pos);
+		} else {
+			reader.seek(pos - 1);
+
+			if (reader.read() != '\n') {
+				reader.readLine(); // skip to the start of the next line
+			}
+		}
+	}
+
+	@Override
+	public boolean next() throws IOException {
+
+		String l;
+
+		while ((l = reader.readLine()) != null) {
+
+			try {
+				if (tokenizer.tokenizeSessionLine(l) && isParsable(tokenizer.getType(), false)) {
+					logTimestamp = tokenizer.getLogTimestamp();
+					record = tokenizer.createRecord(l);
+					return true;
+				}
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("corrupt record [" + l + "]", e);
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public long getLogTimestamp() {
+		return logTimestamp;
+	}
+
+	@Override
+	public DataRecord getRecord() {
+		return record;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	public static Pair<Long /* record timestamp */, DataRecord> parseRecord(String line) {
+		return parseRecord(line, false);
+	}
+
+	public static Pair<Long /* record timestamp */, DataRecord> parseRecord(String line, boolean force) {
+
+		RecordTokenizer tokenizer = new RecordTokenizer();
+
+		if (tokenizer.tokenizeSessionLine(line) && isParsable(tokenizer.getType(), force)) {
+			return Pair.create(tokenizer.getLogTimestamp(), tokenizer.createRecord(line));
+		}
+
+		return null;
+	}
+
+	/**
+	 * @param type record type, null if unknown - records of unknown types are skipped
+	 * @param force true to accept non replayable records
+	 */
+	private static boolean isParsable(DataRecord.Type type, boolean force) {
+		return type != null && (type.isReplayableEvent || force) && type.isParsableEvent;
+	}
+}
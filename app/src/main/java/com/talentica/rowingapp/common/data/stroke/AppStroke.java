@@ -4,9 +4,11 @@ import android.util.Log;
 
 import com.talentica.rowingapp.common.AppEventBus;
 import com.talentica.rowingapp.common.BusEventListener;
+import com.talentica.rowingapp.common.PipelineChannel;
 import com.talentica.rowingapp.common.SimpleLock;
 import com.talentica.rowingapp.common.data.DataIdx;
 import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.DataRecordPool;
 import com.talentica.rowingapp.common.data.FileDataInput;
 import com.talentica.rowingapp.common.data.SensorDataFilter;
 import com.talentica.rowingapp.common.data.SensorDataInput;
@@ -22,6 +24,7 @@ import com.talentica.rowingapp.common.data.way.DistanceResolverDefault;
 import com.talentica.rowingapp.common.data.way.GPSDataFilter;
 import com.talentica.rowingapp.common.error.ErrorListener;
 import com.talentica.rowingapp.common.filter.acceleration.AccelerationFilter;
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
 import com.talentica.rowingapp.common.param.ParamKeys;
 import com.talentica.rowingapp.common.param.Parameter;
 import com.talentica.rowingapp.common.param.ParameterBusEventData;
@@ -30,6 +33,7 @@ import com.talentica.rowingapp.common.param.ParameterService;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.EnumSet;
 
 /**
  * An App Stroke engine initializer.
@@ -88,14 +92,29 @@ public class AppStroke {
 	/**
 	 * Singleton event bus instance
 	 */
-	private final AppEventBus bus = new AppEventBus();
+	private final AppEventBus bus;
+
+	/**
+	 * synchronous event channel between pipeline stages, passing events on to the bus
+	 */
+	private final PipelineChannel pipeline;
 	
-	private final ParameterService parameters = new ParameterService(bus);
+	private final ParameterService parameters;
+
+	/**
+	 * bus and pipeline metrics, measured while PARAM_METRICS_ENABLED is on
+	 */
+	private final PipelineMetrics metrics = new PipelineMetrics();
+
+	/**
+	 * pool of the records pipeline stages fire - one per pipeline, so concurrent replays do not share it
+	 */
+	private final DataRecordPool recordPool = new DataRecordPool();
 
 	/**
 	 * data/event logger when recording is on
 	 */
-	private final SessionRecorder recorder = new SessionRecorder(this);
+	private final SessionRecorder recorder;
 
 	private SessionBroadcaster sessionBroadcaster;
 
@@ -128,7 +147,24 @@ public class AppStroke {
 	 * @param distanceResolver a client provided implementation that can extract distance from location events 
 	 */
 	public AppStroke(DistanceResolver distanceResolver, DataSender dataSenderImpl) {
+		this(distanceResolver, dataSenderImpl, new AppEventBus());
+	}
+
+	/**
+	 * constructor with the <code>DistanceResolver</code> implementation and a given event bus.
+	 * @param distanceResolver a client provided implementation that can extract distance from location events
+	 * @param bus event bus of this instance - e.g. a synchronous one for deterministic batch processing
+	 */
+	public AppStroke(DistanceResolver distanceResolver, DataSender dataSenderImpl, AppEventBus bus) {
+		this.bus = bus;
+		this.pipeline = new PipelineChannel(bus);
+		this.parameters = new ParameterService(bus);
+		this.recorder = new SessionRecorder(this);
+
 		ParamRegistration.installParams(parameters);
+
+		bus.setMetrics(metrics);
+		bus.registerMetrics(metrics);
 		
 		try {
 			sessionBroadcaster = new SessionBroadcaster(this, dataSenderImpl);
@@ -183,13 +219,29 @@ public class AppStroke {
 			}
 		});
 		
+		parameters.addListener(ParamKeys.PARAM_METRICS_ENABLED.getId(), new ParameterChangeListener() {
+			@Override
+			public void onParameterChanged(Parameter param) {
+				metrics.setEnabled((Boolean)param.getValue());
+			}
+		});
+		
+		parameters.addListener(ParamKeys.PARAM_METRICS_REPORT_INTERVAL.getId(), new ParameterChangeListener() {
+			@Override
+			public void onParameterChanged(Parameter param) {
+				metrics.setReportInterval(AppStroke.this.bus, (Integer)param.getValue());
+			}
+		});
+		
 		setCoaxMode((Boolean)parameters.getValue(ParamKeys.PARAM_SENSOR_ORIENTATION_REVERSED.getId()));
+		metrics.setEnabled((Boolean)parameters.getValue(ParamKeys.PARAM_METRICS_ENABLED.getId()));
+		metrics.setReportInterval(bus, (Integer)parameters.getValue(ParamKeys.PARAM_METRICS_REPORT_INTERVAL.getId()));
 		sessionParamChangeListener = new BusEventListener() {
 			@Override
 			public void onBusEvent(DataRecord event) {
-				switch (event.type) {
+				switch (event.getType()) {
 				case SESSION_PARAMETER:
-					ParameterBusEventData pd = (ParameterBusEventData) event.data;
+					ParameterBusEventData pd = (ParameterBusEventData) event.getData();
 					if (pd.id.equals(ParamKeys.PARAM_SENSOR_ORIENTATION_REVERSED.getId())) {
 						parameters.setParam(pd.id, pd.value);
 					}
@@ -216,6 +268,30 @@ public class AppStroke {
 		return bus;
 	}
 
+	/**
+	 * get the bus and pipeline metrics
+	 * @return metrics
+	 */
+	public PipelineMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * get the pool pipeline stages obtain fired records from
+	 * @return record pool
+	 */
+	public DataRecordPool getRecordPool() {
+		return recordPool;
+	}
+
+	/**
+	 * get the event channel pipeline stages signal each other through
+	 * @return pipeline channel
+	 */
+	public PipelineChannel getPipeline() {
+		return pipeline;
+	}
+
 	/**
 	 * sets the error listener of the event pipeline
 	 * @param errorListener
@@ -242,7 +318,15 @@ public class AppStroke {
 		accelerationFilter.addSensorDataSink(strokePowerScanner);
 		accelerationFilter.addSensorDataSink(rowingDetector);
 		gpsFilter = new GPSDataFilter(this, distanceResolver);
-		rollScanner = new RollScanner(bus);
+		rollScanner = new RollScanner(pipeline);
+
+		landscapeAccelFilter.setMetrics(metrics, "landscapeAccel");
+		landscapeOrientationFilter.setMetrics(metrics, "landscapeOrientation");
+		coaxModeOrientationFilter.setMetrics(metrics, "coaxOrientation");
+		accelerationFilter.setMetrics(metrics, "acceleration");
+		strokeRateScanner.setMetrics(metrics, "strokeRate");
+		strokePowerScanner.setMetrics(metrics, "strokePower");
+		rollScanner.setMetrics(metrics, "roll");
 	}
 
 	/**
@@ -272,7 +356,7 @@ public class AppStroke {
 					for (ParamKeys k: sessionParamList) {
 						parameters.getParam(k.getId()).saveValue();
 					}
-					bus.addBusListener(sessionParamChangeListener);
+					bus.addBusListener(sessionParamChangeListener, EnumSet.of(DataRecord.Type.SESSION_PARAMETER));
 				}
 
 				this.dataInput = dataInput;
@@ -399,6 +483,7 @@ public class AppStroke {
 	}
 
 	public void destroy() {
+		metrics.setReportInterval(bus, 0);
 		bus.shutdown();
 		try {
 			setDataLogger(null);
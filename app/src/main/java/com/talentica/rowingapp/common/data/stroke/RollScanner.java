@@ -1,20 +1,22 @@
 
 package com.talentica.rowingapp.common.data.stroke;
 
-import com.talentica.rowingapp.common.AppEventBus;
 import com.talentica.rowingapp.common.BusEventListener;
+import com.talentica.rowingapp.common.PipelineChannel;
 import com.talentica.rowingapp.common.data.DataIdx;
 import com.talentica.rowingapp.common.data.DataRecord;
-import com.talentica.rowingapp.common.data.SensorDataFilter;
+import com.talentica.rowingapp.common.data.SensorSampleFilter;
 import com.talentica.rowingapp.common.filter.LowpassFilter;
 
+import java.util.EnumSet;
+
 /**
  * Sensor data pipeline component for detecting boat tilt.
  * StrokeTiltScanner instance is to be added as a stroke listener to {@link StrokePowerScanner} 
  * and as data sink to {@link SensorDataInput#getOrientationDataSource()}
  *
  */
-public class RollScanner extends SensorDataFilter implements BusEventListener {
+public class RollScanner extends SensorSampleFilter implements BusEventListener {
 	
 	private static final float DEFAULT_TILT_DAMP_FACTOR = .01f;
 	
@@ -23,6 +25,11 @@ public class RollScanner extends SensorDataFilter implements BusEventListener {
 	private float[] tiltDamperValues = {0,0,0};
 
 	private boolean tiltFrozen;
+
+	/**
+	 * filterSample result buffer
+	 */
+	private float[] filtered = new float[0];
 	
 	private boolean insideStrokePower;
 	
@@ -54,22 +61,23 @@ public class RollScanner extends SensorDataFilter implements BusEventListener {
 	private final Roll strokeRoll = new Roll();
 	private final Roll recoveryRoll = new Roll();
 	
-	private final AppEventBus bus;
+	private final PipelineChannel pipeline;
 
 	private boolean hadPower;	
 
-	public RollScanner(AppEventBus bus) {
-		this.bus = bus;
+	public RollScanner(PipelineChannel pipeline) {
+		this.pipeline = pipeline;
 		
-		bus.addBusListener(this);
+		pipeline.addBusListener(this, EnumSet.of(DataRecord.Type.STROKE_POWER_START, DataRecord.Type.STROKE_POWER_END));
+		pipeline.getBus().addBusListener(this, EnumSet.of(DataRecord.Type.FREEZE_TILT));
 	}
 	
 	@Override
-	protected Object filterData(long timestamp, Object value) {
+	protected float[] filterSample(long timestamp, float[] values) {
 		
-		float[] values = (float[]) value;
-		
-		float[] filtered = new float[values.length];
+		if (filtered.length != values.length) {
+			filtered = new float[values.length];
+		}
 		
 		float unfilteredRoll = values[DataIdx.ORIENT_ROLL];
 		
@@ -94,36 +102,37 @@ public class RollScanner extends SensorDataFilter implements BusEventListener {
 	
 	@Override
 	public void onBusEvent(DataRecord event) {
-		switch (event.type) {
+		switch (event.getType()) {
 		case STROKE_POWER_START:
 			insideStrokePower = true;
 			
 			if (hadPower) {
-				bus.fireEvent(DataRecord.Type.RECOVERY_ROLL, event.timestamp, recoveryRoll.get());
+				pipeline.fireEvent(DataRecord.Type.RECOVERY_ROLL, event.getTimestamp(), recoveryRoll.get());
 			}
 			
 			hadPower = false;
 			recoveryRoll.reset();
 			break;
 		case STROKE_POWER_END:
-			hadPower = (Float)event.data > 0;
+			hadPower = (Float)event.getData() > 0;
 			insideStrokePower = false;
 			
 			if (hadPower) {
-				bus.fireEvent(DataRecord.Type.STROKE_ROLL, event.timestamp, strokeRoll.get());
+				pipeline.fireEvent(DataRecord.Type.STROKE_ROLL, event.getTimestamp(), strokeRoll.get());
 			}
 			
 			strokeRoll.reset();
 			break;
 		case FREEZE_TILT:
-			tiltFrozen = (Boolean)event.data;
+			tiltFrozen = (Boolean)event.getData();
 			break;	
 		}
 	}
 	
 	@Override
 	protected void finalize() throws Throwable {
-		bus.removeBusListener(this);
+		pipeline.removeBusListener(this);
+		pipeline.getBus().removeBusListener(this);
 		super.finalize();
 	}
 }
\ No newline at end of file
@@ -2,11 +2,12 @@ package com.talentica.rowingapp.common.data.stroke;
 
 import android.util.Log;
 
-import com.talentica.rowingapp.common.AppEventBus;
 import com.talentica.rowingapp.common.BusEventListener;
 import com.talentica.rowingapp.common.Pair;
+import com.talentica.rowingapp.common.PipelineChannel;
 import com.talentica.rowingapp.common.data.DataRecord;
-import com.talentica.rowingapp.common.data.SensorDataSink;
+import com.talentica.rowingapp.common.data.DataRecordPool;
+import com.talentica.rowingapp.common.data.SensorSampleSink;
 import com.talentica.rowingapp.common.param.ParamKeys;
 import com.talentica.rowingapp.common.param.Parameter;
 import com.talentica.rowingapp.common.param.ParameterChangeListener;
@@ -14,12 +15,13 @@ import com.talentica.rowingapp.common.param.ParameterListenerOwner;
 import com.talentica.rowingapp.common.param.ParameterListenerRegistration;
 import com.talentica.rowingapp.common.param.ParameterService;
 
+import java.util.EnumSet;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Rowing detectror. Generates rowing activity start/stop events based on value of parameter PARAM_ROWING_MODE
  */
-public class RowingDetector implements SensorDataSink, ParameterListenerOwner {
+public class RowingDetector implements SensorSampleSink, ParameterListenerOwner {
 
 //	private static final Logger logger = LoggerFactory.getLogger(RowingDetector.class);
 
@@ -69,7 +71,9 @@ public class RowingDetector implements SensorDataSink, ParameterListenerOwner {
 
     private long paramRestartWaitTime;
 
-    private final AppEventBus bus;
+    private final PipelineChannel pipeline;
+
+    private final DataRecordPool recordPool;
 
     private boolean rowing;
 
@@ -128,16 +132,17 @@ public class RowingDetector implements SensorDataSink, ParameterListenerOwner {
 
         rateChangeAcceptFactor = (Float) params.getValue(ParamKeys.PARAM_STROKE_RATE_RATE_CHANGE_ACCEPT_FACTOR.getId());
 
-        bus = appStroke.getBus();
+        pipeline = appStroke.getPipeline();
+        recordPool = appStroke.getRecordPool();
 
-        bus.addBusListener(new BusEventListener() {
+        BusEventListener eventListener = new BusEventListener() {
             @Override
             public void onBusEvent(DataRecord event) {
-                switch (event.type) {
+                switch (event.getType()) {
                     case STROKE_DROP_BELOW_ZERO:
                         if (rowing) {
                             if (hasAmplitude) {
-                                long timestamp = event.timestamp;
+                                long timestamp = event.getTimestamp();
                                 long msDiff = (timestamp - splitData.lastStrokeEndTimestamp) / 1000000;
                                 if (msDiff > 0) { // was: msDiff > 1000 - disallow stroke rate above 60
                                     if (spm > 0 && msDiff < (rateChangeAcceptFactor * (60000 / spm))) {   // check for 'double' stroke
@@ -145,7 +150,7 @@ public class RowingDetector implements SensorDataSink, ParameterListenerOwner {
 //                                        logger.warn("### ignoring drop-below-zero event because it happend {}ms after a previous one", msDiff);
                                     } else {
                                         splitData.strokeCount++;
-                                        bus.fireEvent(DataRecord.Type.ROWING_COUNT, timestamp, splitData.strokeCount);
+                                        pipeline.fireEvent(DataRecord.Type.ROWING_COUNT, timestamp, splitData.strokeCount);
                                         splitData.lastStrokeEndTimestamp = timestamp;
                                     }
                                 }
@@ -157,30 +162,37 @@ public class RowingDetector implements SensorDataSink, ParameterListenerOwner {
                         manuallyTriggered = true;
                         break;
                     case BOOKMARKED_DISTANCE:
-                        Object[] values = (Object[]) event.data;
+                        Object[] values = (Object[]) event.getData();
                         splitData.lastDistance = Pair.create((Long) values[0], (Float) values[1]);
 
                         if (rowing && splitData.startDistance == null) {
                             splitData.startDistance = splitData.lastDistance;
-                            bus.fireEvent(DataRecord.Type.ROWING_START_DISTANCE, event.timestamp, splitData.startDistance.first, splitData.startDistance.second);
+                            pipeline.fireEvent(DataRecord.Type.ROWING_START_DISTANCE, event.getTimestamp(), splitData.startDistance.first, splitData.startDistance.second);
                         }
                         break;
                     case STROKE_RATE:
-                        spm = (Integer) event.data;
+                        spm = (Integer) event.getData();
                         break;
                 }
             }
-        });
+        };
+
+        pipeline.addBusListener(eventListener, EnumSet.of(DataRecord.Type.STROKE_DROP_BELOW_ZERO, DataRecord.Type.BOOKMARKED_DISTANCE, DataRecord.Type.STROKE_RATE));
+        pipeline.getBus().addBusListener(eventListener, EnumSet.of(DataRecord.Type.ROWING_START_TRIGGERED)); // from the UI
 
         params.addListeners(this);
     }
 
     @Override
     public void onSensorData(long timestamp, Object value) {
+        onSample(timestamp, (float[]) value);
+    }
+
+    @Override
+    public void onSample(long timestamp, float[] values) {
 
         backtimeProtection(timestamp);
 
-        float[] values = (float[]) value;
         float amplitude = values[0];
         final boolean validAmplitude = amplitude > paramStartMinAmplitude;
 
@@ -243,7 +255,13 @@ public class RowingDetector implements SensorDataSink, ParameterListenerOwner {
         long stopTimestamp = (rowingMode == RowingSplitMode.MANUAL) ? timestamp : splitData.lastStrokeEndTimestamp;             
                 
         /* stopTimestamp, distance, splitTime, travelTime, strokeCount */
-        bus.fireEvent(DataRecord.Type.ROWING_STOP, timestamp, stopTimestamp, distance, (stopTimestamp - splitData.rowingStartTimestamp), travelTime, splitData.strokeCount);
+        DataRecord event = recordPool.obtain(DataRecord.Type.ROWING_STOP, timestamp);
+        event.l0 = stopTimestamp;
+        event.f0 = distance;
+        event.l1 = stopTimestamp - splitData.rowingStartTimestamp;
+        event.l2 = travelTime;
+        event.i0 = splitData.strokeCount;
+        pipeline.fireEvent(event);
 
         splitData.rowingStoppedTimestamp = timestamp;
 
@@ -255,7 +273,7 @@ public class RowingDetector implements SensorDataSink, ParameterListenerOwner {
 
         splitData.reset(timestamp);
 
-        bus.fireEvent(DataRecord.Type.ROWING_START, timestamp, timestamp);
+        pipeline.fireEvent(DataRecord.Type.ROWING_START, timestamp, timestamp);
 
         manuallyTriggered = false;
     }
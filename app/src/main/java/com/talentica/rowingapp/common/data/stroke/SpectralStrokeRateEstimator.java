@@ -0,0 +1,264 @@
+package com.talentica.rowingapp.common.data.stroke;
+
+/**
+ * Estimates the stroke rate from the dominant frequency of the filtered acceleration amplitude in a sliding window.
+ * Every few samples a bank of Goertzel filters, one per SPM_STEP in the MIN_SPM to MAX_SPM band, runs over the
+ * Hann windowed samples. The peak is refined by parabolic interpolation between bins, and halved when the half rate
+ * is about as strong - stroke acceleration has strong harmonics. Bin frequencies follow the actual sample rate,
+ * measured from the window timestamps. Does not allocate after construction.
+ */
+public class SpectralStrokeRateEstimator {
+
+	public static final float MIN_SPM = 10;
+	public static final float MAX_SPM = 60;
+	public static final float SPM_STEP = 1;
+
+	/**
+	 * window size - about 10 seconds at 50Hz, a power of two
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 512;
+
+	/**
+	 * samples between estimates - about half a second at 50Hz
+	 */
+	public static final int DEFAULT_INTERVAL = 25;
+
+	/**
+	 * relative power at half the peak rate for which the half rate is taken as the stroke rate
+	 */
+	private static final double SUBHARMONIC_RATIO = 0.5;
+
+	/**
+	 * min ratio of the peak power to the mean band power - below that, there is no stroke rate
+	 */
+	private static final double MIN_PEAK_RATIO = 3;
+
+	/**
+	 * relative sample rate change that makes bin coefficients recalculated
+	 */
+	private static final double RATE_TOLERANCE = 0.01;
+
+	private static final int BIN_COUNT = (int) ((MAX_SPM - MIN_SPM) / SPM_STEP) + 1;
+
+	private final int windowSize;
+
+	private final int interval;
+
+	/**
+	 * sample ring
+	 */
+	private final float[] values;
+	private final long[] timestamps;
+	private int pos;
+	private int count;
+
+	private int sinceEstimate;
+
+	private final float[] hann;
+
+	/**
+	 * mean removed, Hann windowed samples - oldest first
+	 */
+	private final float[] work;
+
+	/**
+	 * 2cos(w) per bin, for coefficientRate
+	 */
+	private final double[] coefficients = new double[BIN_COUNT];
+	private double coefficientRate;
+
+	private final double[] power = new double[BIN_COUNT];
+
+	private float spm;
+
+	public SpectralStrokeRateEstimator() {
+		this(DEFAULT_WINDOW_SIZE, DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * @param windowSize number of samples in the window
+	 * @param interval number of samples between estimates
+	 */
+	public SpectralStrokeRateEstimator(int windowSize, int interval) {
+		if (windowSize < 2 || interval < 1) {
+			throw new IllegalArgumentException("window size must be at least 2 and interval at least 1");
+		}
+
+		this.windowSize = windowSize;
+		this.interval = interval;
+
+		values = new float[windowSize];
+		timestamps = new long[windowSize];
+		work = new float[windowSize];
+		hann = new float[windowSize];
+
+		for (int i = 0; i < windowSize; ++i) {
+			hann[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (windowSize - 1)));
+		}
+	}
+
+	/**
+	 * forget the window and the estimate
+	 */
+	public void reset() {
+		pos = 0;
+		count = 0;
+		sinceEstimate = 0;
+		spm = 0;
+	}
+
+	/**
+	 * @return latest estimate in strokes per minute, 0 if none or no dominant stroke rate
+	 */
+	public float getSpm() {
+		return spm;
+	}
+
+	/**
+	 * add a filtered acceleration amplitude sample, estimating once the window is full and every interval samples
+	 * @param timestamp sample timestamp (ns)
+	 * @param value filtered acceleration amplitude
+	 * @return true if a new estimate was made
+	 */
+	public boolean add(long timestamp, float value) {
+		if (Float.isNaN(value)) {
+			return false;
+		}
+
+		values[pos] = value;
+		timestamps[pos] = timestamp;
+		pos = (pos + 1) % windowSize;
+
+		if (count < windowSize) {
+			++count;
+		}
+
+		if (++sinceEstimate >= interval && count == windowSize) {
+			sinceEstimate = 0;
+			estimate();
+			return true;
+		}
+
+		return false;
+	}
+
+	private void estimate() {
+		long span = timestamps[(pos + windowSize - 1) % windowSize] - timestamps[pos];
+
+		if (span <= 0) {
+			return;
+		}
+
+		double sampleRate = (windowSize - 1) * 1e9 / span;
+
+		if (Math.abs(sampleRate - coefficientRate) > coefficientRate * RATE_TOLERANCE) {
+			coefficientRate = sampleRate;
+
+			for (int k = 0; k < BIN_COUNT; ++k) {
+				coefficients[k] = 2 * Math.cos(2 * Math.PI * binSpm(k) / 60 / sampleRate);
+			}
+		}
+
+		double sum = 0;
+
+		for (int i = 0; i < windowSize; ++i) {
+			sum += values[i];
+		}
+
+		float mean = (float) (sum / windowSize);
+
+		for (int i = 0, j = pos; i < windowSize; ++i, j = (j + 1) % windowSize) {
+			work[i] = (values[j] - mean) * hann[i];
+		}
+
+		int peak = 0;
+		double powerSum = 0;
+
+		int k = 0;
+
+		for (; k + 4 <= BIN_COUNT; k += 4) { // 4 bins at a time - independent recurrences run in parallel
+			final double c0 = coefficients[k], c1 = coefficients[k + 1], c2 = coefficients[k + 2], c3 = coefficients[k + 3];
+			double s01 = 0, s02 = 0, s11 = 0, s12 = 0, s21 = 0, s22 = 0, s31 = 0, s32 = 0;
+
+			for (int i = 0; i < windowSize; ++i) {
+				final double x = work[i];
+				double s;
+
+				s = x + c0 * s01 - s02; s02 = s01; s01 = s;
+				s = x + c1 * s11 - s12; s12 = s11; s11 = s;
+				s = x + c2 * s21 - s22; s22 = s21; s21 = s;
+				s = x + c3 * s31 - s32; s32 = s31; s31 = s;
+			}
+
+			power[k] = s01 * s01 + s02 * s02 - c0 * s01 * s02;
+			power[k + 1] = s11 * s11 + s12 * s12 - c1 * s11 * s12;
+			power[k + 2] = s21 * s21 + s22 * s22 - c2 * s21 * s22;
+			power[k + 3] = s31 * s31 + s32 * s32 - c3 * s31 * s32;
+		}
+
+		for (; k < BIN_COUNT; ++k) {
+			final double c = coefficients[k];
+			double s1 = 0;
+			double s2 = 0;
+
+			for (int i = 0; i < windowSize; ++i) {
+				double s = work[i] + c * s1 - s2;
+				s2 = s1;
+				s1 = s;
+			}
+
+			power[k] = s1 * s1 + s2 * s2 - c * s1 * s2;
+		}
+
+		for (k = 0; k < BIN_COUNT; ++k) {
+			powerSum += power[k];
+
+			if (power[k] > power[peak]) {
+				peak = k;
+			}
+		}
+
+		if (power[peak] < MIN_PEAK_RATIO * powerSum / BIN_COUNT) {
+			spm = 0;
+			return;
+		}
+
+		float peakSpm = interpolatedSpm(peak);
+		float halfSpm = peakSpm / 2;
+
+		if (halfSpm >= MIN_SPM) {
+			int half = Math.round((halfSpm - MIN_SPM) / SPM_STEP);
+			int halfPeak = half;
+
+			for (k = Math.max(0, half - 1); k <= Math.min(BIN_COUNT - 1, half + 1); ++k) {
+				if (power[k] > power[halfPeak]) {
+					halfPeak = k;
+				}
+			}
+
+			if (power[halfPeak] >= SUBHARMONIC_RATIO * power[peak]) {
+				peakSpm = interpolatedSpm(halfPeak);
+			}
+		}
+
+		spm = peakSpm;
+	}
+
+	private static float binSpm(int k) {
+		return MIN_SPM + k * SPM_STEP;
+	}
+
+	/**
+	 * @return SPM of a bin, refined by a parabola through its neighbour bins
+	 */
+	private float interpolatedSpm(int k) {
+		if (k == 0 || k == BIN_COUNT - 1) {
+			return binSpm(k);
+		}
+
+		double denominator = power[k - 1] - 2 * power[k] + power[k + 1];
+		double delta = denominator < 0 ? 0.5 * (power[k - 1] - power[k + 1]) / denominator : 0;
+
+		return (float) (binSpm(k) + Math.max(-0.5, Math.min(0.5, delta)) * SPM_STEP);
+	}
+}
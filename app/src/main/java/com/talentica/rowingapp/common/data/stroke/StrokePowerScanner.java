@@ -1,7 +1,7 @@
 package com.talentica.rowingapp.common.data.stroke;
 
-import com.talentica.rowingapp.common.AppEventBus;
 import com.talentica.rowingapp.common.BusEventListener;
+import com.talentica.rowingapp.common.PipelineChannel;
 import com.talentica.rowingapp.common.data.DataRecord;
 import com.talentica.rowingapp.common.param.ParamKeys;
 import com.talentica.rowingapp.common.param.Parameter;
@@ -10,6 +10,8 @@ import com.talentica.rowingapp.common.param.ParameterListenerOwner;
 import com.talentica.rowingapp.common.param.ParameterListenerRegistration;
 import com.talentica.rowingapp.common.param.ParameterService;
 
+import java.util.EnumSet;
+
 /**
  * Sensor data pipeline component for detecting stroke rate.
  * Stroke rate detection is done by listening to uni-directional
@@ -64,7 +66,7 @@ public class StrokePowerScanner extends StrokeScannerBase implements BusEventLis
 	private int graceCounter;
 	private int strokeRate;
 	
-	private final AppEventBus bus;
+	private final PipelineChannel pipeline;
 
 	private final ParameterService params;
 
@@ -72,24 +74,22 @@ public class StrokePowerScanner extends StrokeScannerBase implements BusEventLis
 		super(owner.getBus(), (Float) owner.getParameters().getValue(ParamKeys.PARAM_STROKE_POWER_AMPLITUDE_FILTER_FACTOR.getId()));
 		
 		this.params = owner.getParameters();
-		this.bus = owner.getBus();
+		this.pipeline = owner.getPipeline();
 		
 		strokePowerTreshold = (Float)params.getValue(ParamKeys.PARAM_STROKE_POWER_MIN_POWER.getId());
 		
-		bus.addBusListener(this);
+		pipeline.addBusListener(this, EnumSet.of(DataRecord.Type.STROKE_ACCELERATION_TRESHOLD, DataRecord.Type.STROKE_DECELERATION_TRESHOLD, DataRecord.Type.STROKE_RATE));
 
 		params.addListeners(this);
 	}
 
 	/*	  
-	 * @see SensorDataFilter#filterData(long, float[])
+	 * @see SensorSampleFilter#filterSample(long, float[])
 	 */
 	@Override
-	protected Object filterData(long timestamp, Object value) {
+	protected float[] filterSample(long timestamp, float[] values) {
 				
-		Object filtered = super.filterData(timestamp, value);
-		
-		float[] values = (float[]) value;
+		float[] filtered = super.filterSample(timestamp, values);
 		
 		if (strokeDone) {
 			return null;
@@ -119,7 +119,7 @@ public class StrokePowerScanner extends StrokeScannerBase implements BusEventLis
 	private void newStroke(long timestamp) {
 		strokeDone = false;
 		if (strokeRate > 0) {
-			bus.fireEvent(DataRecord.Type.STROKE_POWER_START, timestamp, (Object[]) null);
+			pipeline.fireEvent(DataRecord.Type.STROKE_POWER_START, timestamp, (Object[]) null);
 		}
 	}
 
@@ -153,7 +153,7 @@ public class StrokePowerScanner extends StrokeScannerBase implements BusEventLis
 		lastStrokeTimestamp = timestamp;
 		
 		if (strokeRate > 0) {
-			bus.fireEvent(DataRecord.Type.STROKE_POWER_END, timestamp, strokePower > strokePowerTreshold ? strokePower : 0);			
+			pipeline.fireEvent(DataRecord.Type.STROKE_POWER_END, timestamp, strokePower > strokePowerTreshold ? strokePower : 0);			
 		}
 		
 		strokePower = 0;
@@ -179,7 +179,7 @@ public class StrokePowerScanner extends StrokeScannerBase implements BusEventLis
 	
 	@Override
 	public void onBusEvent(DataRecord event) {
-		switch (event.type) {
+		switch (event.getType()) {
 		case STROKE_ACCELERATION_TRESHOLD:
 			hasPeak = true;
 			hasDrop = false;
@@ -189,7 +189,7 @@ public class StrokePowerScanner extends StrokeScannerBase implements BusEventLis
 			hasPeak = false;
 			break;
 		case STROKE_RATE:
-			strokeRate = (Integer)event.data;
+			strokeRate = (Integer)event.getData();
 			break;
 		}
 	}
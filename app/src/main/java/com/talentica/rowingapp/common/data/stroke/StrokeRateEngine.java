@@ -0,0 +1,16 @@
+package com.talentica.rowingapp.common.data.stroke;
+
+/**
+ * How {@link StrokeRateScanner} calculates the stroke rate of STROKE_RATE events
+ */
+public enum StrokeRateEngine {
+	/**
+	 * from the interval between the last two strokes, once per stroke
+	 */
+	CROSSING,
+	/**
+	 * from the dominant frequency of the last few strokes, on each estimate of {@link SpectralStrokeRateEstimator} -
+	 * every few samples rather than once per stroke, 0 while there is no dominant stroke rate
+	 */
+	SPECTRAL
+}
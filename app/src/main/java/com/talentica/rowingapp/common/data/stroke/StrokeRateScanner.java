@@ -19,8 +19,10 @@
 
 package com.talentica.rowingapp.common.data.stroke;
 
-import com.talentica.rowingapp.common.AppEventBus;
+import com.talentica.rowingapp.common.PipelineChannel;
 import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.DataRecordPool;
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
 import com.talentica.rowingapp.common.param.ParamKeys;
 import com.talentica.rowingapp.common.param.Parameter;
 import com.talentica.rowingapp.common.param.ParameterChangeListener;
@@ -40,7 +42,7 @@ public class StrokeRateScanner extends StrokeScannerBase implements ParameterLis
 
 	private long lastStrokeTimestamp;
 
-	private final AppEventBus bus;
+	private final PipelineChannel pipeline;
 	
 	private final ParameterListenerRegistration[] listenerRegistrations = {
 			new ParameterListenerRegistration(ParamKeys.PARAM_STROKE_RATE_AMPLITUDE_FILTER_FACTOR.getId(), new ParameterChangeListener() {
@@ -70,20 +72,57 @@ public class StrokeRateScanner extends StrokeScannerBase implements ParameterLis
 				public void onParameterChanged(Parameter param) {
 					setAmplitudeChangeAcceptFactor((Float)param.getValue());					
 				}
+			}),
+			new ParameterListenerRegistration(ParamKeys.PARAM_STROKE_RATE_ENGINE.getId(), new ParameterChangeListener() {
+
+				@Override
+				public void onParameterChanged(Parameter param) {
+					setEngine(StrokeRateEngine.valueOf((String) param.getValue()));
+				}
 			})
 	};
 
 	private final ParameterService params;
+
+	private final PipelineMetrics metrics;
+
+	private final DataRecordPool recordPool;
+
+	/**
+	 * stroke rate estimator of the SPECTRAL engine - null with the CROSSING engine
+	 */
+	private volatile SpectralStrokeRateEstimator spectralEstimator;
 	
 	public StrokeRateScanner(AppStroke owner) {
 		super(owner.getBus(), (Float) owner.getParameters().getValue(ParamKeys.PARAM_STROKE_RATE_AMPLITUDE_FILTER_FACTOR.getId()));
 		
 		this.params = owner.getParameters();
-		this.bus = owner.getBus();
+		this.pipeline = owner.getPipeline();
+		this.metrics = owner.getMetrics();
+		this.recordPool = owner.getRecordPool();
+
+		setEngine(StrokeRateEngine.valueOf((String) params.getValue(ParamKeys.PARAM_STROKE_RATE_ENGINE.getId())));
 		
 		params.addListeners(this);
 	}
 
+	private void setEngine(StrokeRateEngine engine) {
+		spectralEstimator = (engine == StrokeRateEngine.SPECTRAL ? new SpectralStrokeRateEstimator() : null);
+	}
+
+	@Override
+	protected float[] filterSample(long timestamp, float[] values) {
+		float[] res = super.filterSample(timestamp, values);
+
+		SpectralStrokeRateEstimator estimator = spectralEstimator;
+
+		if (estimator != null && estimator.add(timestamp, res[0])) {
+			fireStrokeRate(timestamp, Math.round(estimator.getSpm()));
+		}
+
+		return res;
+	}
+
 	@Override
 	public ParameterListenerRegistration[] getListenerRegistrations() {
 		return listenerRegistrations;
@@ -91,21 +130,31 @@ public class StrokeRateScanner extends StrokeScannerBase implements ParameterLis
 
 	@Override
 	protected void onDecelerationTreshold(long timestamp, float amplitude) {
-		bus.fireEvent(DataRecord.Type.STROKE_DECELERATION_TRESHOLD, timestamp, amplitude);
+		fireTresholdEvent(DataRecord.Type.STROKE_DECELERATION_TRESHOLD, timestamp, amplitude);
 	}
 
 	@Override
 	protected void onAccelerationTreshold(long timestamp, float amplitude)  {
-		bus.fireEvent(DataRecord.Type.STROKE_ACCELERATION_TRESHOLD, timestamp, amplitude);		
+		fireTresholdEvent(DataRecord.Type.STROKE_ACCELERATION_TRESHOLD, timestamp, amplitude);
 	}
 	
 	@Override
 	protected void onDropBelow(long timestamp, float maxVal)  {
-		bus.fireEvent(DataRecord.Type.STROKE_DROP_BELOW_ZERO, timestamp, maxVal);		
+		fireTresholdEvent(DataRecord.Type.STROKE_DROP_BELOW_ZERO, timestamp, maxVal);
+	}
+
+	/**
+	 * fire a per stroke treshold event as a pooled record
+	 */
+	private void fireTresholdEvent(DataRecord.Type type, long timestamp, float value) {
+		DataRecord event = recordPool.obtain(type, timestamp);
+		event.f0 = value;
+		pipeline.fireEvent(event);
 	}
 	
 	/**
-	 * setup and notify a stroke event
+	 * setup and notify a stroke event - the STROKE_RATE of the stroke interval with the CROSSING engine,
+	 * the SPECTRAL engine fires its estimates from {@link #filterSample(long, float[])} instead
 	 * @param timestamp stroke timestamp
 	 */
 	private void registerStroke(long timestamp) {
@@ -127,15 +176,22 @@ public class StrokeRateScanner extends StrokeScannerBase implements ParameterLis
 			
 		}
 		
-		bus.fireEvent(DataRecord.Type.STROKE_RATE, timestamp, (int)spm);
+		if (spectralEstimator == null) {
+			fireStrokeRate(timestamp, spm);
+		}
                 
 		lastStrokeTimestamp = timestamp;
 
 	}
+
+	private void fireStrokeRate(long timestamp, int spm) {
+		metrics.recordSampleLatency("latency.strokeRate.ns", timestamp);
+		pipeline.fireEvent(DataRecord.Type.STROKE_RATE, timestamp, spm);
+	}
 	
 	@Override
 	protected void onRiseAbove(long timestamp, float minVal) {
-		bus.fireEvent(DataRecord.Type.STROKE_RISE_ABOVE_ZERO, timestamp, minVal);
+		pipeline.fireEvent(DataRecord.Type.STROKE_RISE_ABOVE_ZERO, timestamp, minVal);
 		registerStroke(timestamp);
 	}
 	
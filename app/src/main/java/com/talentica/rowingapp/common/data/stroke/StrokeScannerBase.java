@@ -20,15 +20,28 @@ package com.talentica.rowingapp.common.data.stroke;
 
 
 import com.talentica.rowingapp.common.AppEventBus;
-import com.talentica.rowingapp.common.data.SensorDataFilter;
+import com.talentica.rowingapp.common.data.SensorSampleFilter;
 import com.talentica.rowingapp.common.filter.LowpassFilter;
 
-public abstract class StrokeScannerBase  extends SensorDataFilter {
+public abstract class StrokeScannerBase  extends SensorSampleFilter {
 
 	private final LowpassFilter amplitudeFilter;
 	private final HalfSinoidDetector decelerationAmplitudeDetector = new HalfSinoidDetector(HalfSinoidDetector.Dir.DOWN);
 
 	private final HalfSinoidDetector accelerationAmplitudeDetector = new HalfSinoidDetector(HalfSinoidDetector.Dir.UP);
+
+	/**
+	 * filterSample result buffer - a copy, so that sinks can not modify the amplitude filter state
+	 */
+	private float[] filtered = new float[1];
+
+	/**
+	 * amplitudes filtered ahead by prepareBlock(), the number of them and the index of the next one to scan
+	 */
+	private float[] blockFiltered = new float[0];
+	private int blockCount;
+	private int blockIdx;
+	private final float[] blockResult = new float[1];
 	
 	protected final AppEventBus bus;
 	
@@ -39,12 +52,36 @@ public abstract class StrokeScannerBase  extends SensorDataFilter {
 	}
 
 
+	/**
+	 * filter the amplitudes of a block of samples ahead, e.g. in batch replay - the next count samples passed to
+	 * {@link #onSample(long, float[])} are expected to be these amplitudes, and are scanned with the amplitudes filtered
+	 * here. Events and results are identical to filtering the samples one by one, but the amplitude filter runs once per block
+	 * @param amplitudes sample amplitudes
+	 * @param off index of the first sample
+	 * @param count number of samples
+	 */
+	public void prepareBlock(float[] amplitudes, int off, int count) {
+		if (blockFiltered.length < count) {
+			blockFiltered = new float[count];
+		}
+
+		amplitudeFilter.filter(amplitudes, off, count, blockFiltered);
+
+		blockCount = count;
+		blockIdx = 0;
+	}
+
 	@Override
-	protected Object filterData(long timestamp, Object value) {
+	protected float[] filterSample(long timestamp, float[] values) {
 		
-		float[] values = (float[]) value;
-		
-		float[] res = amplitudeFilter.filter(values);		
+		float[] res;
+
+		if (blockIdx < blockCount) {
+			blockResult[0] = blockFiltered[blockIdx++];
+			res = blockResult;
+		} else {
+			res = amplitudeFilter.filter(values);
+		}
 		
 		float filteredAmplitude = res[0];
 	
@@ -68,7 +105,13 @@ public abstract class StrokeScannerBase  extends SensorDataFilter {
 		}
 
 		
-		return res;		
+		if (filtered.length != res.length) {
+			filtered = new float[res.length];
+		}
+
+		System.arraycopy(res, 0, filtered, 0, res.length);
+
+		return filtered;
 	}
 
 
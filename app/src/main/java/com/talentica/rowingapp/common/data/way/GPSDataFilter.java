@@ -2,10 +2,11 @@ package com.talentica.rowingapp.common.data.way;
 
 import android.util.Log;
 
-import com.talentica.rowingapp.common.AppEventBus;
 import com.talentica.rowingapp.common.BusEventListener;
+import com.talentica.rowingapp.common.PipelineChannel;
 import com.talentica.rowingapp.common.data.DataIdx;
 import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.DataRecordPool;
 import com.talentica.rowingapp.common.data.SensorDataSink;
 import com.talentica.rowingapp.common.data.stroke.AppStroke;
 import com.talentica.rowingapp.common.filter.LowpassFilter;
@@ -16,6 +17,9 @@ import com.talentica.rowingapp.common.param.ParameterListenerOwner;
 import com.talentica.rowingapp.common.param.ParameterListenerRegistration;
 import com.talentica.rowingapp.common.param.ParameterService;
 
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
 public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 
 	private double accumulatedDistance = 0;
@@ -32,6 +36,8 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 	
 	private final LowpassFilter speedChangeDamperFilter;
 
+	private final float[] speedChangeDamperInput = new float[1];
+
 	private float minDistance;
 	private float maxSpeed;
 	
@@ -39,7 +45,9 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 	private LocationData prevLocation;
 	private final DistanceResolver distanceResolver;
 	
-	private final AppEventBus bus;
+	private final PipelineChannel pipeline;
+
+	private final DataRecordPool recordPool;
 
 	/**
 	 * force calculation of distance/speed on next Location, even if distance diff smaller than preferences
@@ -60,7 +68,8 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 	public GPSDataFilter(AppStroke owner, final DistanceResolver distanceResolver) {
 		this.owner = owner;
 		this.params = owner.getParameters();
-		this.bus = owner.getBus();
+		this.pipeline = owner.getPipeline();
+		this.recordPool = owner.getRecordPool();
 		
 		this.distanceResolver = distanceResolver;
 		speedChangeDamperFilter = new LowpassFilter((Float)params.getValue(ParamKeys.PARAM_GPS_SPEED_CHANGE_DAMPER.getId()));
@@ -69,10 +78,10 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 		maxSpeed = (Float)params.getValue(ParamKeys.PARAM_GPS_DATA_FILTER_MAX_SPEED.getId());
 		params.addListeners(this);
 
-		bus.addBusListener(new BusEventListener() {
+		pipeline.addBusListener(new BusEventListener() {
 			@Override
 			public void onBusEvent(DataRecord event) {
-				switch (event.type) {
+				switch (event.getType()) {
 				case ROWING_COUNT: // means DROP_BELOW_ZERO with a valid stroke amplitude - see RowingDetector
 					if (splitRowingOn && bookMarkedLocation != null) {
 						if (straightLineModeOn) {
@@ -82,7 +91,10 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 							lastStrokeLocation = lastSensorDataLocation;
 						}
 						long travelTime = lastSensorDataLocation.timestamp - bookMarkedLocation.timestamp;
-						bus.fireEvent(DataRecord.Type.BOOKMARKED_DISTANCE, event.timestamp, travelTime, travelDistance);
+						DataRecord distanceEvent = recordPool.obtain(DataRecord.Type.BOOKMARKED_DISTANCE, event.getTimestamp());
+						distanceEvent.l0 = travelTime;
+						distanceEvent.f0 = travelDistance;
+						pipeline.fireEvent(distanceEvent);
 					}
 					break;
 				case ROWING_START:
@@ -97,7 +109,7 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 					break;
 				}
 			}
-		});
+		}, EnumSet.of(DataRecord.Type.ROWING_COUNT, DataRecord.Type.ROWING_START, DataRecord.Type.ROWING_STOP));
 	}
 	
 	public static int calcMilisecondsPer500m(float speed) {
@@ -115,8 +127,8 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 		if (speed > maxSpeed) {
 			return -1;
 		}
-		float[] values = {speed};
-		speed = speedChangeDamperFilter.filter(values)[0];
+		speedChangeDamperInput[0] = speed;
+		speed = speedChangeDamperFilter.filter(speedChangeDamperInput)[0];
 		return calcMilisecondsPer500m(speed);
 	}
 	
@@ -130,7 +142,8 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 		double[] values = (double[]) value;
 		LocationData newLocation = new LocationData(timestamp, values);
 
-		bus.fireEvent(DataRecord.Type.GPS, newLocation.timestamp, value);
+		DataRecord gpsEvent = recordPool.obtain(DataRecord.Type.GPS, newLocation.timestamp, value);
+		pipeline.fireEvent(gpsEvent);
 //		Log.i("GPSonSensorData","timestamp="+timestamp+" value="+value);
 		if (lastSensorDataLocation == null) {
 			lastSensorDataLocation = newLocation;
@@ -164,7 +177,7 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 				if (finalSpeed != -1) {
 					accumulatedDistance += distance;
 					double accuracy = values[DataIdx.GPS_ACCURACY];
-					bus.fireEvent(DataRecord.Type.WAY, timestamp, new double[]{distance, finalSpeed, accuracy});
+					pipeline.fireEvent(DataRecord.Type.WAY, timestamp, new double[]{distance, finalSpeed, accuracy});
 					lastLocation = new LocationData(timestamp, values);
 					immediateDistanceRequested = false;
 				}
@@ -172,7 +185,9 @@ public class GPSDataFilter implements SensorDataSink, ParameterListenerOwner {
 		}
 		
 		if (!owner.isSeekableDataInput()) { // ACCUM_DISTANCE is replayed when read from recorded file
-			bus.fireEvent(DataRecord.Type.ACCUM_DISTANCE, accumulatedDistance);
+			DataRecord distanceEvent = recordPool.obtain(DataRecord.Type.ACCUM_DISTANCE, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()));
+			distanceEvent.d0 = accumulatedDistance;
+			pipeline.fireEvent(distanceEvent);
 		}
 	}
 	
@@ -0,0 +1,299 @@
+package com.talentica.rowingapp.common.filter;
+
+/**
+ * Butterworth low/high/band pass filter - a cascade of second order sections (biquads), in transposed direct form II.
+ * Coefficients are designed from the cutoff frequencies and the sample rate, and can be redesigned when the actual
+ * sample rate turns out different. Filtering does not allocate, apart from the state on first use.
+ * Each channel starts from the steady state of its first sample, so a constant offset (e.g. gravity) does not ring
+ * through the filter. NaN input values are ignored - the previous output is repeated, as in {@link LowpassFilter}.
+ * The filtering factor is not used.
+ */
+public class BiquadFilter extends PassFilterBase {
+
+	public enum Type {
+		LOWPASS,
+		HIGHPASS,
+		BANDPASS
+	}
+
+	/**
+	 * coefficients per section
+	 */
+	private static final int B0 = 0, B1 = 1, B2 = 2, A1 = 3, A2 = 4, COEFFICIENT_COUNT = 5;
+
+	private final Type type;
+
+	private final double lowCutoff;
+
+	private final double highCutoff;
+
+	private final int order;
+
+	private double sampleRate;
+
+	/**
+	 * COEFFICIENT_COUNT coefficients per section, normalized so that a0 == 1
+	 */
+	private final double[] coefficients;
+
+	private final int sectionCount;
+
+	/**
+	 * 2 state values per section per channel, and whether a channel got its first sample
+	 */
+	private double[] state;
+	private boolean[] primed;
+
+	/**
+	 * block filtering work buffer - section outputs are kept in double precision, as when filtering one by one
+	 */
+	private double[] work = new double[0];
+
+	/**
+	 * @param type filter type
+	 * @param lowCutoff lower cutoff frequency (Hz) - high pass and band pass
+	 * @param highCutoff higher cutoff frequency (Hz) - low pass and band pass
+	 * @param sampleRate sample rate (Hz)
+	 * @param order filter order per cutoff - an even number
+	 */
+	private BiquadFilter(Type type, double lowCutoff, double highCutoff, double sampleRate, int order) {
+		if (order < 2 || order % 2 != 0) {
+			throw new IllegalArgumentException("filter order must be an even number");
+		}
+
+		this.type = type;
+		this.lowCutoff = lowCutoff;
+		this.highCutoff = highCutoff;
+		this.order = order;
+		this.sectionCount = (type == Type.BANDPASS ? order : order / 2);
+		this.coefficients = new double[sectionCount * COEFFICIENT_COUNT];
+
+		setSampleRate(sampleRate);
+	}
+
+	/**
+	 * @param cutoff cutoff frequency (Hz)
+	 * @param sampleRate sample rate (Hz)
+	 * @param order filter order - an even number
+	 * @return low pass filter
+	 */
+	public static BiquadFilter lowpass(double cutoff, double sampleRate, int order) {
+		return new BiquadFilter(Type.LOWPASS, 0, cutoff, sampleRate, order);
+	}
+
+	/**
+	 * @param cutoff cutoff frequency (Hz)
+	 * @param sampleRate sample rate (Hz)
+	 * @param order filter order - an even number
+	 * @return high pass filter
+	 */
+	public static BiquadFilter highpass(double cutoff, double sampleRate, int order) {
+		return new BiquadFilter(Type.HIGHPASS, cutoff, 0, sampleRate, order);
+	}
+
+	/**
+	 * @param lowCutoff lower cutoff frequency (Hz)
+	 * @param highCutoff higher cutoff frequency (Hz)
+	 * @param sampleRate sample rate (Hz)
+	 * @param order filter order of each band edge - an even number
+	 * @return band pass filter - a high pass cascaded with a low pass
+	 */
+	public static BiquadFilter bandpass(double lowCutoff, double highCutoff, double sampleRate, int order) {
+		if (lowCutoff >= highCutoff) {
+			throw new IllegalArgumentException("band pass lower cutoff must be below the higher cutoff");
+		}
+
+		return new BiquadFilter(Type.BANDPASS, lowCutoff, highCutoff, sampleRate, order);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * redesign the coefficients for a sample rate - the filter state is kept
+	 * @param sampleRate sample rate (Hz), above twice the cutoff frequencies
+	 */
+	public void setSampleRate(double sampleRate) {
+		if (!(sampleRate > 2 * Math.max(lowCutoff, highCutoff))) {
+			throw new IllegalArgumentException("sample rate must be above twice the cutoff frequency");
+		}
+
+		this.sampleRate = sampleRate;
+
+		int section = 0;
+
+		if (type != Type.LOWPASS) {
+			section = design(section, lowCutoff, true);
+		}
+
+		if (type != Type.HIGHPASS) {
+			design(section, highCutoff, false);
+		}
+	}
+
+	/**
+	 * design the Butterworth sections of one cutoff, by bilinear transform
+	 * @return next section index
+	 */
+	private int design(int section, double cutoff, boolean highpass) {
+		double w0 = 2 * Math.PI * cutoff / sampleRate;
+		double cos = Math.cos(w0);
+		double sin = Math.sin(w0);
+
+		for (int k = 0; k < order / 2; ++k, ++section) {
+			double q = 1 / (2 * Math.sin((2 * k + 1) * Math.PI / (2 * order)));
+			double alpha = sin / (2 * q);
+			double a0 = 1 + alpha;
+			double b = (highpass ? 1 + cos : 1 - cos) / 2;
+			int idx = section * COEFFICIENT_COUNT;
+
+			coefficients[idx + B0] = b / a0;
+			coefficients[idx + B1] = (highpass ? -2 * b : 2 * b) / a0;
+			coefficients[idx + B2] = b / a0;
+			coefficients[idx + A1] = -2 * cos / a0;
+			coefficients[idx + A2] = (1 - alpha) / a0;
+		}
+
+		return section;
+	}
+
+	/**
+	 * forget the filter state - the next sample of each channel starts it over
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+		state = null;
+	}
+
+	private void initState(int channels) {
+		if (state == null) {
+			state = new double[channels * sectionCount * 2];
+			primed = new boolean[channels];
+		}
+	}
+
+	/**
+	 * set the state of a channel to the steady state of a constant input
+	 */
+	private void prime(int channel, double x) {
+		int s = channel * sectionCount * 2;
+
+		for (int i = 0; i < coefficients.length; i += COEFFICIENT_COUNT, s += 2) {
+			double y = x * (coefficients[i + B0] + coefficients[i + B1] + coefficients[i + B2])
+					/ (1 + coefficients[i + A1] + coefficients[i + A2]);
+
+			state[s + 1] = coefficients[i + B2] * x - coefficients[i + A2] * y;
+			state[s] = coefficients[i + B1] * x - coefficients[i + A1] * y + state[s + 1];
+			x = y;
+		}
+
+		primed[channel] = true;
+	}
+
+	@Override
+	protected float[] doFilter(float[] values) {
+		initState(values.length);
+
+		for (int c = 0; c < values.length; ++c) {
+			double x = values[c];
+
+			if (Double.isNaN(x)) {
+				continue;
+			}
+
+			if (!primed[c]) {
+				prime(c, x);
+			}
+
+			int s = c * sectionCount * 2;
+
+			for (int i = 0; i < coefficients.length; i += COEFFICIENT_COUNT, s += 2) {
+				double y = coefficients[i + B0] * x + state[s];
+
+				state[s] = coefficients[i + B1] * x - coefficients[i + A1] * y + state[s + 1];
+				state[s + 1] = coefficients[i + B2] * x - coefficients[i + A2] * y;
+				x = y;
+			}
+
+			filteredValues[c] = (float) x;
+		}
+
+		return filteredValues;
+	}
+
+	/**
+	 * single channel blocks are filtered a section at a time, keeping coefficients and state in locals
+	 */
+	@Override
+	protected void doFilter(float[] in, int off, int len, float[] out) {
+		if (filteredValues.length != 1) {
+			super.doFilter(in, off, len, out);
+			return;
+		}
+
+		initState(1);
+
+		if (!primed[0]) { // starts on the first non NaN sample
+			for (; len > 0 && Float.isNaN(in[off]); ++off, --len) {
+				out[off] = filteredValues[0];
+			}
+
+			if (len > 0) {
+				prime(0, in[off]);
+			}
+		}
+
+		if (work.length < len) {
+			work = new double[len];
+		}
+
+		for (int i = 0; i < len; ++i) {
+			work[i] = in[off + i];
+		}
+
+		for (int i = 0, s = 0; i < coefficients.length; i += COEFFICIENT_COUNT, s += 2) {
+			final double b0 = coefficients[i + B0];
+			final double b1 = coefficients[i + B1];
+			final double b2 = coefficients[i + B2];
+			final double a1 = coefficients[i + A1];
+			final double a2 = coefficients[i + A2];
+			double s1 = state[s];
+			double s2 = state[s + 1];
+
+			for (int j = 0; j < len; ++j) {
+				double x = work[j];
+
+				if (x == x) { // NaN passes through all sections, leaving their state as is
+					double y = b0 * x + s1;
+
+					s1 = b1 * x - a1 * y + s2;
+					s2 = b2 * x - a2 * y;
+					work[j] = y;
+				}
+			}
+
+			state[s] = s1;
+			state[s + 1] = s2;
+		}
+
+		float y = filteredValues[0];
+
+		for (int i = 0; i < len; ++i) {
+			double v = work[i];
+
+			if (v == v) {
+				y = (float) v;
+			}
+
+			out[off + i] = y;
+		}
+
+		filteredValues[0] = y;
+	}
+}
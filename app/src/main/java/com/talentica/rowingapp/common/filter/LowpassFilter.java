@@ -56,6 +56,43 @@ public class LowpassFilter extends PassFilterBase {
 		
 		return filteredValues;
 	}
+
+	@Override
+	protected void doFilter(float[] in, int off, int len, float[] out) {
+		final float k = filteringFactor;
+		final float k1 = 1.0f - filteringFactor;
+		final int end = off + len;
+
+		if (filteredValues.length == 1) { // the common case - keep the state in a local
+			float y = filteredValues[0];
+
+			for (int i = off; i < end; ++i) {
+				float f = (in[i] * k) + (y * k1);
+
+				if (!Float.isNaN(f)) {
+					y = f;
+				}
+
+				out[i] = y;
+			}
+
+			filteredValues[0] = y;
+		} else {
+			final int channels = filteredValues.length;
+
+			for (int i = off; i < end; i += channels) {
+				for (int c = 0; c < channels; ++c) {
+					float f = (in[i + c] * k) + (filteredValues[c] * k1);
+
+					if (!Float.isNaN(f)) {
+						filteredValues[c] = f;
+					}
+
+					out[i + c] = filteredValues[c];
+				}
+			}
+		}
+	}
 	
 	public static void main(String[] args) throws Exception {
 		final File file = new File(args[0]);
@@ -80,6 +80,31 @@ public abstract class PassFilterBase {
 		return doFilter(values);
 	}
 
+	/**
+	 * filter a block of samples, with results identical to filtering them one by one with {@link #filter(float[])}.
+	 * Samples are as many consecutive values as the filter has channels - the length of the values filtered so far,
+	 * or 1 for a filter that has not filtered anything yet
+	 * @param in input samples
+	 * @param off index of the first input value
+	 * @param len number of values, a multiple of the channel count
+	 * @param out filtered values, at the input value indexes - may be in
+	 */
+	public void filter(float[] in, int off, int len, float[] out) {
+		if (this.filteredValues == null) {
+			this.filteredValues = new float[1];
+		}
+
+		if (len % filteredValues.length != 0) {
+			throw new IllegalArgumentException("block length passed to SensorFilter.filter() is not a multiple of the channel count");
+		}
+
+		if (off < 0 || len < 0 || off + len > in.length || off + len > out.length) {
+			throw new IndexOutOfBoundsException("block of " + len + " values at " + off + " out of array bounds");
+		}
+
+		doFilter(in, off, len, out);
+	}
+
 
 	public float[] getFilteredValues() {
 		return filteredValues;
@@ -99,4 +124,22 @@ public abstract class PassFilterBase {
 	 * @return filtered data
 	 */
 	protected abstract float[] doFilter(float[] values);
+
+	/**
+	 * do actual filtering of a block - see {@link #filter(float[], int, int, float[])}.
+	 * Filters sample by sample with {@link #doFilter(float[])}, implementations may override with a faster loop
+	 * @param in input samples
+	 * @param off index of the first input value
+	 * @param len number of values
+	 * @param out filtered values
+	 */
+	protected void doFilter(float[] in, int off, int len, float[] out) {
+		int channels = filteredValues.length;
+		float[] sample = new float[channels];
+
+		for (int i = off; i < off + len; i += channels) {
+			System.arraycopy(in, i, sample, 0, channels);
+			System.arraycopy(doFilter(sample), 0, out, i, channels);
+		}
+	}
 }
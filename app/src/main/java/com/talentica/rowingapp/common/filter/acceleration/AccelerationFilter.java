@@ -3,8 +3,11 @@ package com.talentica.rowingapp.common.filter.acceleration;
 import android.util.Log;
 
 import com.talentica.rowingapp.common.data.DataIdx;
-import com.talentica.rowingapp.common.data.SensorDataFilter;
+import com.talentica.rowingapp.common.data.SensorDataSink;
+import com.talentica.rowingapp.common.data.SensorSampleFilter;
 import com.talentica.rowingapp.common.data.stroke.AppStroke;
+import com.talentica.rowingapp.common.data.stroke.StrokeScannerBase;
+import com.talentica.rowingapp.common.filter.BiquadFilter;
 import com.talentica.rowingapp.common.filter.LowpassFilter;
 import com.talentica.rowingapp.common.param.ParamKeys;
 import com.talentica.rowingapp.common.param.Parameter;
@@ -17,7 +20,7 @@ import com.talentica.rowingapp.common.param.ParameterService;
  * Joins gravity-filtered 3 axis sensor data into acceleration amplitude value
  *
  */
-public class AccelerationFilter extends SensorDataFilter implements ParameterListenerOwner {
+public class AccelerationFilter extends SensorSampleFilter implements ParameterListenerOwner {
 	
 	private final static int ROWER_MODE = 1;
 	private final static int COAX_MODE = -1;
@@ -27,6 +30,56 @@ public class AccelerationFilter extends SensorDataFilter implements ParameterLis
 	private final LowpassFilter zeroY = new LowpassFilter(0.005f);
 	private final LowpassFilter zeroZ = new LowpassFilter(0.005f);
 
+	private final float[] zeroFilterInput = new float[1];
+
+	/**
+	 * nominal sample rate (Hz) the front end filters are first designed for
+	 */
+	private static final double DEFAULT_SAMPLE_RATE = 50;
+
+	/**
+	 * high pass cutoff (Hz) - well below stroke rates of 15 to 50 strokes per minute
+	 */
+	private static final double HIGHPASS_CUTOFF = 0.1;
+
+	/**
+	 * band pass higher cutoff (Hz) - keeps the stroke shape harmonics
+	 */
+	private static final double BANDPASS_HIGH_CUTOFF = 5;
+
+	private static final int FRONT_END_ORDER = 2;
+
+	/**
+	 * number of sample intervals the actual sample rate is measured over, and the relative difference from the
+	 * front end design sample rate that makes them redesigned
+	 */
+	private static final int RATE_WINDOW = 256;
+	private static final double RATE_TOLERANCE = 0.1;
+
+	/**
+	 * y and z axis front end filters - null with the LOWPASS front end. Replaced as a whole on parameter change
+	 */
+	private volatile BiquadFilter[] frontEnd;
+
+	private long rateWindowStart;
+	private int rateWindowSamples;
+
+	/**
+	 * filterSample result buffer
+	 */
+	private final float[] acceleration = new float[1];
+
+	/**
+	 * filterBlock() work buffers - y/z values, filtered in place to their zero levels
+	 */
+	private float[] blockY = new float[0];
+	private float[] blockZ = new float[0];
+
+	/**
+	 * onSampleBlock() acceleration amplitudes
+	 */
+	private float[] blockAmplitudes = new float[0];
+
 	/**
 	 * calculate horizontal acceleration amplitude according to device pitch
 	 * @param values accelerometer sensor data
@@ -36,10 +89,27 @@ public class AccelerationFilter extends SensorDataFilter implements ParameterLis
 		
 		float y = values[DataIdx.ACCEL_Y];
 		float z = values[DataIdx.ACCEL_Z];
+
+		final BiquadFilter[] frontEnd = this.frontEnd;
+
+		if (frontEnd != null) {
+			zeroFilterInput[0] = y;
+			final double ay = frontEnd[0].filter(zeroFilterInput)[0];
+			zeroFilterInput[0] = z;
+			final double az = frontEnd[1].filter(zeroFilterInput)[0];
+
+			return calcAcceleration(ay, az);
+		}
 		
-		final double ay = y - zeroY.filter(new float[]{y})[0];
-		final double az = z - zeroZ.filter(new float[]{z})[0];
+		zeroFilterInput[0] = y;
+		final double ay = y - zeroY.filter(zeroFilterInput)[0];
+		zeroFilterInput[0] = z;
+		final double az = z - zeroZ.filter(zeroFilterInput)[0];
 		
+		return calcAcceleration(ay, az);
+	}
+
+	private float calcAcceleration(final double ay, final double az) {
 		final double accelOrDecelDeterminer = Math.abs(ay) > Math.abs(az) ? -ay : az; // if device is exactly flat or vertical, one axis has to be ignored
 		
 		final int accelDir = accelMode * accelOrDecelDeterminer < 0 ? -1 : 1;
@@ -48,21 +118,193 @@ public class AccelerationFilter extends SensorDataFilter implements ParameterLis
 				
 		return a;
 	}
+
+	/**
+	 * calculate the acceleration amplitudes of a block of accelerometer samples, e.g. in batch replay,
+	 * with results identical to filtering the samples one by one. Zero levels, or the front end, are filtered a
+	 * block at a time - split where the sample rate measured over the timestamps makes the front end redesigned
+	 * @param timestamps sample timestamps
+	 * @param values accelerometer samples, DataIdx.ACCEL_ITEM_COUNT values each
+	 * @param off index of the first sample
+	 * @param count number of samples
+	 * @param out acceleration amplitude per sample, from index 0
+	 */
+	public void filterBlock(long[] timestamps, float[] values, int off, int count, float[] out) {
+		if (blockY.length < count) {
+			blockY = new float[count];
+			blockZ = new float[count];
+		}
+
+		for (int i = 0; i < count; ++i) {
+			blockY[i] = values[(off + i) * DataIdx.ACCEL_ITEM_COUNT + DataIdx.ACCEL_Y];
+			blockZ[i] = values[(off + i) * DataIdx.ACCEL_ITEM_COUNT + DataIdx.ACCEL_Z];
+		}
+
+		final BiquadFilter[] frontEnd = this.frontEnd;
+
+		if (frontEnd != null) {
+			int from = 0;
+
+			for (int i = 0; i < count; ++i) {
+				double rate = checkSampleRate(frontEnd, timestamps[off + i]);
+
+				if (rate != 0) {
+					frontEnd[0].filter(blockY, from, i - from, blockY);
+					frontEnd[1].filter(blockZ, from, i - from, blockZ);
+					redesignFrontEnd(frontEnd, rate);
+					from = i;
+				}
+			}
+
+			frontEnd[0].filter(blockY, from, count - from, blockY);
+			frontEnd[1].filter(blockZ, from, count - from, blockZ);
+
+			for (int i = 0; i < count; ++i) {
+				out[i] = calcAcceleration(blockY[i], blockZ[i]);
+			}
+
+			return;
+		}
+
+		zeroY.filter(blockY, 0, count, blockY);
+		zeroZ.filter(blockZ, 0, count, blockZ);
+
+		for (int i = 0; i < count; ++i) {
+			float y = values[(off + i) * DataIdx.ACCEL_ITEM_COUNT + DataIdx.ACCEL_Y];
+			float z = values[(off + i) * DataIdx.ACCEL_ITEM_COUNT + DataIdx.ACCEL_Z];
+
+			out[i] = calcAcceleration(y - blockY[i], z - blockZ[i]);
+		}
+	}
+
+	/**
+	 * process a block of accelerometer samples, e.g. in batch replay - sinks receive the same samples, in the same
+	 * order, as when passing the samples to {@link #onSample(long, float[])} one by one. The acceleration amplitudes
+	 * are filtered a block at a time, and so are their stroke scanner amplitudes (see {@link StrokeScannerBase#prepareBlock(float[], int, int)}).
+	 * The filter time metric is recorded once per block
+	 * @param timestamps sample timestamps
+	 * @param values accelerometer samples, DataIdx.ACCEL_ITEM_COUNT values each
+	 * @param off index of the first sample
+	 * @param count number of samples
+	 */
+	public void onSampleBlock(long[] timestamps, float[] values, int off, int count) {
+		if (blockAmplitudes.length < count) {
+			blockAmplitudes = new float[count];
+		}
+
+		long start = startTiming();
+
+		filterBlock(timestamps, values, off, count, blockAmplitudes);
+
+		stopTiming(start);
+
+		for (SensorDataSink sink: getSensorDataSinks()) {
+			if (sink instanceof StrokeScannerBase) {
+				((StrokeScannerBase) sink).prepareBlock(blockAmplitudes, 0, count);
+			}
+		}
+
+		for (int i = 0; i < count; ++i) {
+			acceleration[0] = blockAmplitudes[i];
+			pushSample(timestamps[off + i], acceleration);
+		}
+	}
+
 	public AccelerationFilter(AppStroke owner) {
 		this.params = owner.getParameters();
 		
 		accelMode = (Boolean)params.getValue(ParamKeys.PARAM_SENSOR_ORIENTATION_REVERSED.getId()) ? COAX_MODE : ROWER_MODE;
 
+		setFrontEnd(AccelerationFrontEnd.valueOf((String) params.getValue(ParamKeys.PARAM_SENSOR_ACCEL_FRONT_END.getId())), DEFAULT_SAMPLE_RATE);
+
 		params.addListeners(this);
 
 	}
 	
+	/**
+	 * replace the front end filters
+	 * @param type front end type
+	 * @param sampleRate sample rate (Hz) to design the filters for
+	 */
+	private void setFrontEnd(AccelerationFrontEnd type, double sampleRate) {
+		switch (type) {
+		case HIGHPASS:
+			frontEnd = new BiquadFilter[] {
+					BiquadFilter.highpass(HIGHPASS_CUTOFF, sampleRate, FRONT_END_ORDER),
+					BiquadFilter.highpass(HIGHPASS_CUTOFF, sampleRate, FRONT_END_ORDER)
+			};
+			break;
+		case BANDPASS:
+			frontEnd = new BiquadFilter[] {
+					BiquadFilter.bandpass(HIGHPASS_CUTOFF, BANDPASS_HIGH_CUTOFF, sampleRate, FRONT_END_ORDER),
+					BiquadFilter.bandpass(HIGHPASS_CUTOFF, BANDPASS_HIGH_CUTOFF, sampleRate, FRONT_END_ORDER)
+			};
+			break;
+		default:
+			frontEnd = null;
+			break;
+		}
+	}
+
+	/**
+	 * measure the actual sample rate, and redesign the front end filters if it is off their design sample rate
+	 * @param timestamp sample timestamp (ns)
+	 */
+	private void updateSampleRate(long timestamp) {
+		final BiquadFilter[] frontEnd = this.frontEnd;
+
+		if (frontEnd == null) {
+			return;
+		}
+
+		double rate = checkSampleRate(frontEnd, timestamp);
+
+		if (rate != 0) {
+			redesignFrontEnd(frontEnd, rate);
+		}
+	}
+
+	/**
+	 * measure the actual sample rate, counting in a sample
+	 * @param frontEnd current front end filters
+	 * @param timestamp sample timestamp (ns)
+	 * @return sample rate (Hz) to redesign the front end filters for, before filtering this sample - 0 if they fit
+	 */
+	private double checkSampleRate(BiquadFilter[] frontEnd, long timestamp) {
+		double res = 0;
+
+		if (rateWindowSamples++ == 0) {
+			rateWindowStart = timestamp;
+		} else if (rateWindowSamples > RATE_WINDOW) {
+			long span = timestamp - rateWindowStart;
+
+			if (span > 0) {
+				double rate = RATE_WINDOW * 1e9 / span;
+				double designRate = frontEnd[0].getSampleRate();
+
+				if (Math.abs(rate - designRate) > designRate * RATE_TOLERANCE && rate > 2 * BANDPASS_HIGH_CUTOFF) {
+					res = rate;
+				}
+			}
+
+			rateWindowSamples = 1;
+			rateWindowStart = timestamp;
+		}
+
+		return res;
+	}
+
+	private void redesignFrontEnd(BiquadFilter[] frontEnd, double rate) {
+		Log.i("redesignFrontEnd()", "redesigning acceleration front end for " + Math.round(rate) + "Hz");
+		frontEnd[0].setSampleRate(rate);
+		frontEnd[1].setSampleRate(rate);
+	}
+
 	@Override
-	protected final Object filterData(long timestamp, Object value) {
-		float[] values = (float[]) value;
-		return new float[] {
-				calcAcceleration(values)
-		};
+	protected final float[] filterSample(long timestamp, float[] values) {
+		updateSampleRate(timestamp);
+		acceleration[0] = calcAcceleration(values);
+		return acceleration;
 	}
 	
 
@@ -75,6 +317,15 @@ public class AccelerationFilter extends SensorDataFilter implements ParameterLis
 					Log.i("setting coax mode to {}", coaxMode+"");
 					accelMode = coaxMode ?  COAX_MODE : ROWER_MODE;
 				}
+			}),
+			new ParameterListenerRegistration(ParamKeys.PARAM_SENSOR_ACCEL_FRONT_END.getId(), new ParameterChangeListener() {
+
+				@Override
+				public void onParameterChanged(Parameter param) {
+					BiquadFilter[] current = frontEnd;
+					setFrontEnd(AccelerationFrontEnd.valueOf((String) param.getValue()),
+							current == null ? DEFAULT_SAMPLE_RATE : current[0].getSampleRate());
+				}
 			})
 	};
 	
@@ -0,0 +1,19 @@
+package com.talentica.rowingapp.common.filter.acceleration;
+
+/**
+ * How {@link AccelerationFilter} removes gravity from the accelerometer axes
+ */
+public enum AccelerationFrontEnd {
+	/**
+	 * subtract a first order lowpass filtered zero level
+	 */
+	LOWPASS,
+	/**
+	 * Butterworth high pass, below stroke rates
+	 */
+	HIGHPASS,
+	/**
+	 * Butterworth band pass - high pass as above, and a low pass removing vibration above the stroke band
+	 */
+	BANDPASS
+}
@@ -0,0 +1,148 @@
+package com.talentica.rowingapp.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size, log-linear histogram of non negative long values, e.g. durations in ns.
+ * As in HDR histograms, values are counted in buckets 1/16 of a power of two wide, so percentiles are reported
+ * within ~6% of the recorded values over the whole long range, values below 32 exactly.
+ * Recording is lock free and allocation free.
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * values below this are counted in a bucket of their own
+	 */
+	private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final String name;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	private final StripedCounter count = new StripedCounter();
+
+	private final StripedCounter sum = new StripedCounter();
+
+	private final AtomicLong max = new AtomicLong();
+
+	public Histogram(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	static int bucketIndex(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) Math.max(value, 0);
+		}
+
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+
+		return ((exp - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + (int) ((value >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+	}
+
+	static long bucketLowerBound(int idx) {
+		if (idx < LINEAR_LIMIT) {
+			return idx;
+		}
+
+		int exp = (idx >> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+
+		return (long) (SUB_BUCKETS + (idx & (SUB_BUCKETS - 1))) << (exp - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * @param value value to record - negative values are recorded as 0
+	 */
+	public void record(long value) {
+		counts.incrementAndGet(bucketIndex(value));
+		count.increment();
+		sum.add(value);
+
+		long m = max.get();
+
+		while (value > m && !max.compareAndSet(m, value)) {
+			m = max.get();
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : sum.sum() / (double) n;
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param percentile percentile, 0 to 100
+	 * @return highest value counted in the same bucket as the value at the percentile, capped at the max value
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKET_COUNT];
+
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			total += snapshot[i] = counts.get(i);
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			seen += snapshot[i];
+
+			if (seen >= rank) {
+				long upper = i + 1 < BUCKET_COUNT ? bucketLowerBound(i + 1) - 1 : Long.MAX_VALUE;
+				return Math.min(upper, getMax());
+			}
+		}
+
+		return 0;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			counts.set(i, 0);
+		}
+
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * append a "name n=... mean=... p50=... p90=... p99=... max=..." summary
+	 * @param out string builder
+	 */
+	public void appendTo(StringBuilder out) {
+		out.append(name)
+			.append(" n=").append(getCount())
+			.append(" mean=").append(Math.round(getMean()))
+			.append(" p50=").append(getValueAtPercentile(50))
+			.append(" p90=").append(getValueAtPercentile(90))
+			.append(" p99=").append(getValueAtPercentile(99))
+			.append(" max=").append(getMax());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		appendTo(out);
+		return out.toString();
+	}
+}
@@ -0,0 +1,235 @@
+package com.talentica.rowingapp.common.metrics;
+
+import android.util.Log;
+
+import com.talentica.rowingapp.common.AppEventBus;
+import com.talentica.rowingapp.common.data.DataRecord;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runtime metrics of a sensor pipeline: named {@link Histogram}s - durations in ns, queue depths - and gauges
+ * polled when reporting, e.g. queue sizes and drop counts. Instrumented code only measures while metrics are enabled,
+ * so disabled metrics cost a volatile read per measuring point.
+ * Reports can be dumped to a file, or fired periodically as METRICS bus events, which are recorded in sessions.
+ */
+public class PipelineMetrics {
+
+	/**
+	 * value polled when reporting
+	 */
+	public interface Gauge {
+		long getValue();
+	}
+
+	/**
+	 * number of sample arrival times kept for latency measurement - a power of two
+	 */
+	private static final int MARK_COUNT = 64;
+
+	private volatile boolean enabled;
+
+	private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+	/**
+	 * arrival times (ns) of recent samples, by sample timestamp - written by a single sensor thread
+	 */
+	private final long[] markTimestamps = new long[MARK_COUNT];
+	private final long[] markTimes = new long[MARK_COUNT];
+	private volatile long markSeq;
+
+	private Thread reporter;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * get a histogram, creating it on first use
+	 * @param name histogram name, by convention ending with the unit, e.g. ".ns"
+	 * @return histogram
+	 */
+	public Histogram getHistogram(String name) {
+		Histogram h = histograms.get(name);
+
+		if (h == null) {
+			Histogram created = new Histogram(name);
+			h = histograms.putIfAbsent(name, created);
+
+			if (h == null) {
+				h = created;
+			}
+		}
+
+		return h;
+	}
+
+	/**
+	 * register a gauge, replacing a gauge of the same name
+	 * @param name gauge name
+	 * @param gauge gauge
+	 */
+	public void registerGauge(String name, Gauge gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * remove gauges
+	 * @param prefix name prefix of gauges to remove
+	 */
+	public void unregisterGauges(String prefix) {
+		for (String name: gauges.keySet()) {
+			if (name.startsWith(prefix)) {
+				gauges.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * note the arrival time of a sensor sample, for {@link #recordSampleLatency(String, long)} - single sensor thread only
+	 * @param timestamp sample timestamp
+	 */
+	public void markSample(long timestamp) {
+		if (enabled) {
+			long seq = markSeq;
+			int idx = (int) (seq & (MARK_COUNT - 1));
+
+			markTimestamps[idx] = timestamp;
+			markTimes[idx] = System.nanoTime();
+			markSeq = seq + 1;
+		}
+	}
+
+	/**
+	 * record the time since the arrival of a recently marked sample
+	 * @param name histogram name
+	 * @param timestamp sample timestamp
+	 */
+	public void recordSampleLatency(String name, long timestamp) {
+		if (enabled) {
+			long seq = markSeq;
+
+			for (long i = seq - 1; i >= 0 && i >= seq - MARK_COUNT; --i) {
+				int idx = (int) (i & (MARK_COUNT - 1));
+
+				if (markTimestamps[idx] == timestamp) {
+					getHistogram(name).record(System.nanoTime() - markTimes[idx]);
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * clear all histograms
+	 */
+	public void reset() {
+		for (Histogram h: histograms.values()) {
+			h.reset();
+		}
+	}
+
+	/**
+	 * append a report of all gauges and histograms, sorted by name
+	 * @param out string builder
+	 * @param separator separator between entries
+	 */
+	public void appendTo(StringBuilder out, String separator) {
+		TreeMap<String, Object> entries = new TreeMap<String, Object>(gauges);
+		entries.putAll(histograms);
+
+		boolean first = true;
+
+		for (Map.Entry<String, Object> e: entries.entrySet()) {
+			if (!first) {
+				out.append(separator);
+			}
+
+			first = false;
+
+			if (e.getValue() instanceof Histogram) {
+				((Histogram) e.getValue()).appendTo(out);
+			} else {
+				out.append(e.getKey()).append('=').append(((Gauge) e.getValue()).getValue());
+			}
+		}
+	}
+
+	/**
+	 * @return one line report
+	 */
+	public String getSummary() {
+		StringBuilder out = new StringBuilder();
+		appendTo(out, "; ");
+		return out.toString();
+	}
+
+	/**
+	 * write a report, one entry per line
+	 * @param file file, overwritten
+	 * @throws IOException
+	 */
+	public void dump(File file) throws IOException {
+		StringBuilder out = new StringBuilder();
+		appendTo(out, "\n");
+		out.append('\n');
+
+		Writer writer = new FileWriter(file);
+
+		try {
+			writer.write(out.toString());
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * fire a METRICS bus event with a one line report periodically, while metrics are enabled
+	 * @param bus event bus
+	 * @param interval interval in ms, 0 to stop reporting
+	 */
+	public synchronized void setReportInterval(final AppEventBus bus, final long interval) {
+		if (reporter != null) {
+			reporter.interrupt();
+			reporter = null;
+		}
+
+		if (interval > 0) {
+			reporter = new Thread("PipelineMetrics reporter") {
+				{
+					setDaemon(true);
+				}
+
+				@Override
+				public void run() {
+					try {
+						while (!isInterrupted()) {
+							Thread.sleep(interval);
+
+							if (enabled) {
+								bus.fireEvent(DataRecord.Type.METRICS, getSummary());
+							}
+						}
+					} catch (InterruptedException e) {
+					} catch (RuntimeException e) {
+						Log.e("run()", "metrics reporting failed", e);
+					}
+				}
+			};
+
+			reporter.start();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.talentica.rowingapp.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter updated by several threads with little contention - threads add to one of several cells,
+ * each on its own cache line, and reads sum up the cells
+ */
+public class StripedCounter {
+
+	/**
+	 * number of cells - a power of two
+	 */
+	private static final int STRIPES = 8;
+
+	/**
+	 * cell spacing in longs - 64 bytes
+	 */
+	private static final int PADDING = 8;
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+	public void add(long x) {
+		cells.addAndGet(cellIndex(), x);
+	}
+
+	public void increment() {
+		add(1);
+	}
+
+	public long sum() {
+		long sum = 0;
+
+		for (int i = 0; i < STRIPES; ++i) {
+			sum += cells.get(i * PADDING);
+		}
+
+		return sum;
+	}
+
+	public void reset() {
+		for (int i = 0; i < STRIPES; ++i) {
+			cells.set(i * PADDING, 0);
+		}
+	}
+
+	private static int cellIndex() {
+		long id = Thread.currentThread().getId();
+		return (int) ((id ^ (id >>> 3)) & (STRIPES - 1)) * PADDING;
+	}
+}
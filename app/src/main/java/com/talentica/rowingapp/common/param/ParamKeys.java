@@ -20,6 +20,7 @@
 
 package com.talentica.rowingapp.common.param;
 
+import com.talentica.rowingapp.common.data.session.CompactEncoding;
 import com.talentica.rowingapp.common.data.session.SessionRecorderConstants;
 
 public enum ParamKeys implements ParameterInfo {
@@ -61,6 +62,10 @@ public enum ParamKeys implements ParameterInfo {
             "coax mode",
             "indicates the device user is forward facing - such as a coax or trainer. Normally the rower sits with her back to the front of the boat",
             "Sensors", ParameterLevel.BASIC, false),
+    PARAM_SENSOR_ACCEL_FRONT_END("com.talentica.rowing.sensor.accelFrontEnd",
+            "acceleration front end",
+            "How gravity is removed from acceleration - LOWPASS subtracts a smoothed zero level, HIGHPASS and BANDPASS use sharper Butterworth filters designed for the actual sensor rate, BANDPASS also removing vibration above the stroke band",
+            "Sensors", ParameterLevel.ADVANCED, "LOWPASS"),
 
 
     PARAM_STROKE_RATE_AMPLITUDE_FILTER_FACTOR("com.talentica.rowing.stroke.rate.amplitudeFilterFactor",
@@ -94,6 +99,11 @@ public enum ParamKeys implements ParameterInfo {
             "Stroke",
             ParameterLevel.ADVANCED, .5f),
 
+    PARAM_STROKE_RATE_ENGINE("com.talentica.rowing.stroke.rate.engine",
+            "stroke rate engine",
+            "How stroke rate is calculated - CROSSING from the time between the last two strokes, SPECTRAL from the dominant rowing frequency over the last 10 seconds, updated every half second, which is steadier and not thrown off by a single missed or extra stroke",
+            "Stroke",
+            ParameterLevel.ADVANCED, "CROSSING"),
     PARAM_STROKE_POWER_AMPLITUDE_FILTER_FACTOR("com.talentica.rowing.stroke.power.amplitudeFilterFactor",
             "power filter",
             "*FIXME*", // FIXME
@@ -140,6 +150,51 @@ public enum ParamKeys implements ParameterInfo {
     PARAM_SESSION_RECORDING_ON("com.talentica.rowing.android.sessionRecordingOn",
             "session recording on", "", "{internal}", ParameterLevel.PRIVATE, false),
 
+    PARAM_SESSION_RECORDING_ASYNC("com.talentica.rowing.android.record.async",
+            "asynchronous session recording",
+            "Write session recording from a dedicated thread, so that storage delays do not hold up sensor data processing. Records are dropped if storage can not keep up",
+            "Session", ParameterLevel.ADVANCED, true),
+
+    PARAM_SESSION_RECORDING_COMPRESS("com.talentica.rowing.android.record.compress",
+            "compressed session recording",
+            "Compress session recording data - recordings take several times less storage, at a small CPU cost",
+            "Session", ParameterLevel.ADVANCED, true),
+
+    PARAM_SESSION_RECORDING_COMPACT("com.talentica.rowing.android.record.compact",
+            "compact session recording",
+            "Record sensor data as quantized deltas - recordings take several times less storage, but unless the recording precisions below are 0 sensor values are stored with reduced precision",
+            "Session", ParameterLevel.ADVANCED, false),
+
+    PARAM_SESSION_RECORDING_ACCEL_PRECISION("com.talentica.rowing.android.record.accelPrecision",
+            "recording acceleration precision",
+            "Precision of acceleration values in compact session recording (m/s^2) - 0 means lossless",
+            "Session", ParameterLevel.ADVANCED, CompactEncoding.DEFAULT_ACCEL_PRECISION),
+
+    PARAM_SESSION_RECORDING_ORIENT_PRECISION("com.talentica.rowing.android.record.orientPrecision",
+            "recording orientation precision",
+            "Precision of orientation values in compact session recording (degrees) - 0 means lossless",
+            "Session", ParameterLevel.ADVANCED, CompactEncoding.DEFAULT_ORIENT_PRECISION),
+
+    PARAM_SESSION_RECORDING_FLUSH_INTERVAL("com.talentica.rowing.android.record.flushInterval",
+            "recording flush interval",
+            "Milliseconds between writing out buffered session recording data in asynchronous recording mode - 0 means only when a buffer block is full",
+            "Session", ParameterLevel.ADVANCED, 2000),
+
+    PARAM_SESSION_RECORDING_SYNC_INTERVAL("com.talentica.rowing.android.record.syncInterval",
+            "recording sync interval",
+            "Milliseconds between forcing written session recording data to storage (fsync) in asynchronous recording mode - 0 means never",
+            "Session", ParameterLevel.ADVANCED, 10000),
+
+    PARAM_METRICS_ENABLED("com.talentica.rowing.android.metrics.enabled",
+            "pipeline metrics",
+            "Measure event bus and sensor pipeline timing and queue depths - for diagnosing performance, at a small CPU cost",
+            "Metrics", ParameterLevel.ADVANCED, false),
+
+    PARAM_METRICS_REPORT_INTERVAL("com.talentica.rowing.android.metrics.reportInterval",
+            "metrics report interval",
+            "Milliseconds between pipeline metrics reports, recorded in the session as METRICS events - 0 means never",
+            "Metrics", ParameterLevel.ADVANCED, 0),
+
     PARAM_SESSION_RECORDING_LEADER_ENABLE("com.talentica.rowing.android.record.leader.enable",
             "session recording sync mark",
             "Display a 'film leader' countdown dialog to assist synchronizing session recording with external audio/video media",
@@ -25,6 +25,7 @@ import com.talentica.rowingapp.common.AppEventBus;
 import com.talentica.rowingapp.common.data.DataRecord;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -61,9 +62,9 @@ public class ParameterService {
 
             @Override
             public void onBusEvent(DataRecord event) {
-                switch (event.type) {
+                switch (event.getType()) {
                     case PARAMETER_CHANGE:
-                        ParameterBusEventData data = (ParameterBusEventData) event.data;
+                        ParameterBusEventData data = (ParameterBusEventData) event.getData();
 
                         if (!data.internal) {
                             setParam(data.id, data.value);
@@ -71,7 +72,7 @@ public class ParameterService {
                 }
 
             }
-        });
+        }, EnumSet.of(DataRecord.Type.PARAMETER_CHANGE));
     }
 
 
@@ -43,9 +43,9 @@ public class HeartRateView extends FrameLayout implements DataUpdatable {
 	private final BusEventListener busListener = new BusEventListener() {
 		@Override
 		public void onBusEvent(final DataRecord event) {
-			switch (event.type) {
+			switch (event.getType()) {
 			case HEART_BPM:
-				final int bpm = (Integer)event.data;
+				final int bpm = (Integer)event.getData();
 				
 				updateDisplay(bpm);
 			}
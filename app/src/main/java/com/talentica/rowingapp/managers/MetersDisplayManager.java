@@ -153,17 +153,17 @@ public class MetersDisplayManager implements SensorDataSink {
         owner.roboStroke.getBus().addBusListener(new BusEventListener() {
             @Override
             public void onBusEvent(DataRecord event) {
-                switch (event.type) {
+                switch (event.getType()) {
                     case ROWING_START_TRIGGERED:
 //                        Toast.makeText(owner, "ROWING_START_TRIGGERED", Toast.LENGTH_SHORT).show();
-                        triggered = (Boolean) event.data;
+                        triggered = (Boolean) event.getData();
                         break;
                     case ROWING_START:
 //                        Toast.makeText(owner, "ROWING_START", Toast.LENGTH_SHORT).show();
-                        Log.i("ROWING_START {}", String.valueOf(event.timestamp));
+                        Log.i("ROWING_START {}", String.valueOf(event.getTimestamp()));
                         triggered = false;
                         splitTimerOn = true;
-                        startTimestamp = (Long) event.data;
+                        startTimestamp = (Long) event.getData();
                         splitDistanceTime = 0;
                         splitDistance = 0;
 
@@ -181,8 +181,8 @@ public class MetersDisplayManager implements SensorDataSink {
                         break;
                     case ROWING_STOP:
 //                        Toast.makeText(owner, "ROWING_STOP", Toast.LENGTH_SHORT).show();
-                        Log.i("ROWING_STOP {}", String.valueOf(event.timestamp));
-                        Object[] vals = (Object[]) event.data;
+                        Log.i("ROWING_STOP {}", String.valueOf(event.getTimestamp()));
+                        Object[] vals = (Object[]) event.getData();
                         triggered = false;
                         splitTimerOn = false;
                         long stopTime = (Long) vals[0];
@@ -199,13 +199,13 @@ public class MetersDisplayManager implements SensorDataSink {
                         break;
                     case STROKE_POWER_END:
 //                        Toast.makeText(owner, "STROKE_POWER_END", Toast.LENGTH_SHORT).show();
-                        hasPower = (Float) event.data > 0;
+                        hasPower = (Float) event.getData() > 0;
                         Log.i("STROKE_POWER_END", " (has power: {})" + hasPower);
 
                         break;
                     case STROKE_RATE:
                         if (hasPower) {
-                            int spm = (Integer) event.data;
+                            int spm = (Integer) event.getData();
 //                            Toast.makeText(owner, "STROKE_RATE:"+spm, Toast.LENGTH_SHORT).show();
                             spmAccum += spm;
                             spmCount++;
@@ -214,7 +214,7 @@ public class MetersDisplayManager implements SensorDataSink {
                         }
                         break;
                     case BOOKMARKED_DISTANCE: {
-                        Object[] values = (Object[]) event.data;
+                        Object[] values = (Object[]) event.getData();
                         long travelTime = (Long) values[0];
                         splitDistance = (Float) values[1];
                         Log.i("BOOKMARKED_DISTANCE", "elapsedDistance = {}" + splitDistance);
@@ -225,7 +225,7 @@ public class MetersDisplayManager implements SensorDataSink {
                     break;
 
                     case WAY: {
-                        double[] values = (double[]) event.data;
+                        double[] values = (double[]) event.getData();
                         double distance = values[0];
 //                        Toast.makeText(owner, "WAY:"+distance, Toast.LENGTH_SHORT).show();
                         long speed = (long) values[1];
@@ -235,7 +235,7 @@ public class MetersDisplayManager implements SensorDataSink {
                     break;
 
                     case ACCUM_DISTANCE:
-                        updateDistance((Double) event.data);
+                        updateDistance((Double) event.getData());
                     break;
                 }
             }
@@ -33,6 +33,7 @@ import com.talentica.rowingapp.common.data.SensorDataInput;
 import com.talentica.rowingapp.common.data.notification.NotificationHelper;
 import com.talentica.rowingapp.common.data.remote.remote.AppBroadcastServiceConnector;
 import com.talentica.rowingapp.common.data.remote.remote.AppReceiverServiceConnector;
+import com.talentica.rowingapp.common.data.session.SessionRecorderConstants;
 import com.talentica.rowingapp.common.data.stroke.AppStroke;
 import com.talentica.rowingapp.common.error.ErrorHandler;
 import com.talentica.rowingapp.common.error.ErrorListener;
@@ -343,7 +344,8 @@ public class DashBoardActivity extends Activity implements AppConstants, Paramet
         enableScheduler(true);
         try {
             if (replayFile.inputType == DataInputInfo.InputType.FILE) {
-                DataVersionConverter converter = DataVersionConverter.getConvertersFor(replayFile.file);
+                // text (version 3) and binary files replay as is - only older files are converted, and only as far as version 3
+                DataVersionConverter converter = DataVersionConverter.getConvertersFor(replayFile.file, SessionRecorderConstants.TEXT_LOGFILE_VERSION);
                 if (converter != null) {
                     convertStart(converter, replayFile);
                     return;
@@ -23,18 +23,38 @@ import java.io.Serializable;
 /**
  * An XY series encapsulates values for XY charts like line, time, area,
  * scatter... charts.
+ * Values are kept in power of two sized ring buffers, which grow up to a max capacity. Once full at max capacity,
+ * each added value evicts the oldest one, in any x mode. Y values are optionally stored as floats.
  */
 public class CyclicArrayXYSeries implements XYSeries, Serializable {
 
 	private static final long serialVersionUID = 1469528419619828841L;
 
-	private int bufferSize = 200;
+	/**
+	 * default max number of values - over 20 minutes of 50Hz sensor data
+	 */
+	public static final int DEFAULT_MAX_CAPACITY = 1 << 16;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final int maxCapacity;
+
+	private int bufferSize;
+
+	private int mask;
 
 	private int pos = 0;
 	private int itemCount = 0;
 
-	private double[] xArr = new double[bufferSize];
-	private double[] yArr = new double[bufferSize];
+	private double[] xArr;
+
+	/**
+	 * y values - in yArrF instead if the series stores float y values
+	 */
+	private double[] yArr;
+	private float[] yArrF;
+
+	private long evictedCount;
 
 	/** The minimum value for the X axis. */
 	private double mMinX = Double.MAX_VALUE;
@@ -55,6 +75,94 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 
 	private double yAxisSize = 0;
 
+	/**
+	 * sequence number of the item at index 0 - items keep their sequence number while they are in the series
+	 */
+	private long firstSeq;
+
+	/**
+	 * Y range trackers - see {@link MinQueue}. The max is tracked as the min of negated values
+	 */
+	private final MinQueue minYQueue = new MinQueue();
+	private final MinQueue negMaxYQueue = new MinQueue();
+
+	/**
+	 * Sliding window minimum of the values of the items, in the order added.
+	 * Keeps only the items that can still become the minimum once older items are removed,
+	 * so the minimum is always the first item, and appending or removing the first item takes amortized O(1).
+	 */
+	private static final class MinQueue implements Serializable {
+
+		private static final long serialVersionUID = -3818476612301427541L;
+
+		private long[] seqs = new long[16];
+		private double[] values = new double[16];
+
+		private int head;
+		private int size;
+
+		void add(long seq, double y) {
+			int mask = seqs.length - 1;
+
+			while (size > 0 && !(values[(head + size - 1) & mask] < y)) {
+				--size; // never the minimum again, y outlives it
+			}
+
+			if (size == seqs.length) {
+				grow();
+				mask = seqs.length - 1;
+			}
+
+			int idx = (head + size) & mask;
+
+			seqs[idx] = seq;
+			values[idx] = y;
+			++size;
+		}
+
+		private void grow() {
+			long[] newSeqs = new long[seqs.length * 2];
+			double[] newValues = new double[values.length * 2];
+
+			for (int i = 0; i < size; ++i) {
+				int idx = (head + i) & (seqs.length - 1);
+				newSeqs[i] = seqs[idx];
+				newValues[i] = values[idx];
+			}
+
+			seqs = newSeqs;
+			values = newValues;
+			head = 0;
+		}
+
+		/**
+		 * notify removal of the oldest item
+		 * @param seq sequence number of the removed item
+		 * @return true if the minimum changed
+		 */
+		boolean removeFirst(long seq) {
+			if (size > 0 && seqs[head] == seq) {
+				head = (head + 1) & (seqs.length - 1);
+				--size;
+				return true;
+			}
+
+			return false;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		double first() {
+			return values[head];
+		}
+
+		void clear() {
+			head = size = 0;
+		}
+	}
+
 
 	/**
 	 * Builds a new XY series.
@@ -63,33 +171,52 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 	 *            the series title.
 	 */
 	public CyclicArrayXYSeries(XMode xMode, Renderer renderer) {
+		this(xMode, renderer, false, DEFAULT_MAX_CAPACITY);
+	}
+
+	/**
+	 * @param xMode x mode
+	 * @param renderer renderer
+	 * @param floatY true to store y values as floats, e.g. of float sensor data - halves the y buffer size
+	 * @param maxCapacity max number of values, rounded up to a power of two
+	 */
+	public CyclicArrayXYSeries(XMode xMode, Renderer renderer, boolean floatY, int maxCapacity) {
 		this.renderer = renderer;
 		this.xMode = xMode;
+		this.maxCapacity = Integer.highestOneBit(Math.max(maxCapacity, 2) - 1) << 1;
+
+		bufferSize = Math.min(INITIAL_CAPACITY, this.maxCapacity);
+		mask = bufferSize - 1;
+		xArr = new double[bufferSize];
+
+		if (floatY) {
+			yArrF = new float[bufferSize];
+		} else {
+			yArr = new double[bufferSize];
+		}
 	}
 
 	/**
-	 * Initializes the range for both axes.
+	 * Rebuilds the Y range trackers from the current items.
 	 */
 	private void initYRange() {
-		mMinY = Double.MAX_VALUE;
-		mMaxY = -Double.MAX_VALUE;
+		minYQueue.clear();
+		negMaxYQueue.clear();
 
 		for (int i = 0; i < itemCount; ++i) {
-			updateYRange(getY(i));
+			minYQueue.add(firstSeq + i, getY(i));
+			negMaxYQueue.add(firstSeq + i, -getY(i));
 		}
+
+		updateYRange();
 	}
 
 	/**
-	 * Updates the range on both axes.
-	 * 
-	 * @param x
-	 *            the new x value
-	 * @param y
-	 *            the new y value
+	 * Updates the Y range from the range trackers.
 	 */
-	private void updateYRange(double y) {
-		mMinY = Math.min(mMinY, y);
-		mMaxY = Math.max(mMaxY, y);
+	private void updateYRange() {
+		mMinY = minYQueue.isEmpty() ? Double.MAX_VALUE : minYQueue.first();
+		mMaxY = negMaxYQueue.isEmpty() ? -Double.MAX_VALUE : -negMaxYQueue.first();
 	}
 
 	/**
@@ -102,6 +229,27 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 	 */
 	@Override
 	public synchronized void add(double x, double y) {
+		addItem(x, y);
+	}
+
+	/**
+	 * Adds values to the series, taking the series lock once.
+	 * 
+	 * @param xs
+	 *            the values for the X axis
+	 * @param ys
+	 *            the values for the Y axis
+	 * @param n
+	 *            number of values to add
+	 */
+	@Override
+	public synchronized void addAll(long[] xs, float[] ys, int n) {
+		for (int i = 0; i < n; ++i) {
+			addItem(xs[i], ys[i]);
+		}
+	}
+
+	private void addItem(double x, double y) {
 
 		double xrangeTreshold = mMinX + Math.abs(xRange);
 		
@@ -110,13 +258,27 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 		}
 
 		if (itemCount == bufferSize) {
-			reallocBuffers((int) (bufferSize * 1.5));
+			if (bufferSize < maxCapacity) {
+				reallocBuffers(bufferSize * 2);
+			} else {
+				removeItem(0);
+				++evictedCount;
+			}
 		}
 
-		int idx = (pos + itemCount) % bufferSize;
+		int idx = (pos + itemCount) & mask;
 
 		xArr[idx] = x;
-		yArr[idx] = y;
+
+		if (yArrF != null) {
+			yArrF[idx] = (float) y;
+			y = yArrF[idx];
+		} else {
+			yArr[idx] = y;
+		}
+
+		minYQueue.add(firstSeq + itemCount, y);
+		negMaxYQueue.add(firstSeq + itemCount, -y);
 
 		mMaxY = Math.max(mMaxY, y);
 		mMinY = Math.min(mMinY, y);
@@ -130,25 +292,45 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 		}
 	}
 
+	/**
+	 * moves the values to new buffers, starting at index 0
+	 */
 	private void reallocBuffers(int newSize) {
-		for (double[] arr : new double[][] { xArr, yArr }) {
-			double[] tmpArr = new double[newSize];
-			int idx = pos % bufferSize;
-			System.arraycopy(arr, idx, tmpArr, 0, itemCount - idx);
-			System.arraycopy(arr, 0, tmpArr, itemCount - idx, idx);
-
-			if (arr == xArr) {
-				xArr = tmpArr;
-			} else {
-				yArr = tmpArr;
-			}
+		xArr = copyItems(xArr, new double[newSize]);
+
+		if (yArrF != null) {
+			yArrF = copyItems(yArrF, new float[newSize]);
+		} else {
+			yArr = copyItems(yArr, new double[newSize]);
 		}
 
 		bufferSize = newSize;
+		mask = newSize - 1;
 
 		pos = 0;
 	}
 
+	private double[] copyItems(double[] src, double[] dst) {
+		int first = Math.min(itemCount, bufferSize - pos);
+		System.arraycopy(src, pos, dst, 0, first);
+		System.arraycopy(src, 0, dst, first, itemCount - first);
+		return dst;
+	}
+
+	private float[] copyItems(float[] src, float[] dst) {
+		int first = Math.min(itemCount, bufferSize - pos);
+		System.arraycopy(src, pos, dst, 0, first);
+		System.arraycopy(src, 0, dst, first, itemCount - first);
+		return dst;
+	}
+
+	/**
+	 * @return number of values evicted because the series was full at max capacity
+	 */
+	public synchronized long getEvictedCount() {
+		return evictedCount;
+	}
+
 	/**
 	 * Removes an existing value from the series.
 	 * 
@@ -157,40 +339,42 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 	 */
 	@Override
 	public synchronized void remove(int index) {
-		remove(index, false);
+		removeItem(index);
 	}
 
 	/**
-	 * Removes an existing value from the series.
+	 * Removes an existing value from the series. Removing the first value takes O(1),
+	 * other values O(n) as the following values are moved and the Y range is rebuilt
 	 * 
 	 * @param index
 	 *            the index in the series of the value to remove
-	 * @param skipUpdateYRange if set to 'true', updating of Y scale is skipped 
 	 */
-	private synchronized void remove(int index, boolean skipUpdateYRange) {
-		double removedY = getY(index);
-		double removedX = getX(index);
-
+	private void removeItem(int index) {
 		if (index == 0) {
-			++pos;
-			--itemCount;
-		} else if (index == (itemCount - 1)) {
+			boolean rangeChanged = minYQueue.removeFirst(firstSeq);
+			rangeChanged |= negMaxYQueue.removeFirst(firstSeq);
+			++firstSeq;
+			pos = (pos + 1) & mask;
 			--itemCount;
+
+			if (rangeChanged) {
+				updateYRange();
+			}
 		} else {
 			for (int i = index; i < itemCount; ++i) {
 
-				int curIdx = (pos + i) % bufferSize;
-				int nextIdx = (pos + i + 1) % bufferSize;
+				int curIdx = (pos + i) & mask;
+				int nextIdx = (pos + i + 1) & mask;
 				xArr[curIdx] = xArr[nextIdx];
-				yArr[curIdx] = yArr[nextIdx];
-			}
-			--itemCount;
-		}
 
-		if (!skipUpdateYRange) {
-			if (removedY == mMinY || removedY == mMaxY) {
-				initYRange();
+				if (yArrF != null) {
+					yArrF[curIdx] = yArrF[nextIdx];
+				} else {
+					yArr[curIdx] = yArr[nextIdx];
+				}
 			}
+			--itemCount;
+			initYRange();
 		}
 
 		if (itemCount > 0) {
@@ -209,22 +393,8 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 		
 		double minXTreshold = mMaxX - xRange;
 
-		boolean needsYRehash = false;
-
-		final boolean skipUpdateYRange = false;
-
 		while (itemCount > 0 && getX(0) < minXTreshold) {
-			double y = getY(0);
-
-			if (y == mMinY || y == mMaxY) {
-				needsYRehash = true;
-			}
-
-			remove(0, skipUpdateYRange);
-		}
-
-		if (needsYRehash) {
-			initYRange();
+			removeItem(0);
 		}
 	}
 
@@ -234,6 +404,7 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 	@Override
 	public synchronized void clear() {
 		pos = itemCount = 0;
+		firstSeq = 0;
 		initYRange();
 		mMinX = Double.MAX_VALUE;
 		mMaxX = -Double.MAX_VALUE;
@@ -248,7 +419,7 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 	 */
 	@Override
 	public double getX(int index) {
-		return xArr[(pos + index) % bufferSize];
+		return xArr[(pos + index) & mask];
 	}
 
 	/**
@@ -260,7 +431,8 @@ public class CyclicArrayXYSeries implements XYSeries, Serializable {
 	 */
 	@Override
 	public double getY(int index) {
-		return yArr[(pos + index) % bufferSize];
+		int idx = (pos + index) & mask;
+		return yArrF != null ? yArrF[idx] : yArr[idx];
 	}
 
 	/**
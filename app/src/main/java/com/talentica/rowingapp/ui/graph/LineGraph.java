@@ -44,6 +44,11 @@ public class LineGraph implements UpdatableGraphBase {
 				uiLiaison.repaint();
 			}
 
+			@Override
+			protected void onAddAll(long[] xs, float[] ys, int n, XYSeries series) {
+				uiLiaison.repaint();
+			}
+
 			@Override
 			protected void onRemove(int index, XYSeries series) {
 				uiLiaison.repaint();
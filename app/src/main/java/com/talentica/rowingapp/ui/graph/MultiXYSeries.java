@@ -119,6 +119,14 @@ public class MultiXYSeries {
 					}
 				}
 
+				@Override
+				public void addAll(long[] xs, float[] ys, int n) {
+					synchronized (ms) {
+						super.addAll(xs, ys, n);
+						ms.onAddAll(xs, ys, n, impl);
+					}
+				}
+
 				@Override
 				public void remove(int index) {
 					synchronized (ms) {
@@ -138,6 +146,13 @@ public class MultiXYSeries {
 	protected void onAdd(double x, double y, XYSeries series) {}
 
 
+	protected void onAddAll(long[] xs, float[] ys, int n, XYSeries series) {
+		for (int i = 0; i < n; ++i) {
+			onAdd(xs[i], ys[i], series);
+		}
+	}
+
+
 	protected void onRemove(int index, XYSeries series) {}
 	
 	public synchronized void clear() {
@@ -6,6 +6,7 @@ import com.talentica.rowingapp.common.data.SensorDataSink;
 import com.talentica.rowingapp.common.data.stroke.AppStroke;
 import com.talentica.rowingapp.ui.utils.UILiaison;
 
+import java.util.ArrayList;
 import java.util.concurrent.ArrayBlockingQueue;
 
 /**
@@ -23,6 +24,13 @@ public abstract class SensorGraphBase extends LineGraph {
 	private class SensorDataSinkQueue extends Thread implements SensorDataSink {
 		
 		private final ArrayBlockingQueue<Pair<Long,Float>> queue;
+
+		/**
+		 * samples taken from the queue at once, added to the series as a batch
+		 */
+		private final ArrayList<Pair<Long,Float>> batch;
+		private final long[] batchX;
+		private final float[] batchY;
 				
 		public SensorDataSinkQueue(int queueSize) {
 			
@@ -31,6 +39,9 @@ public abstract class SensorGraphBase extends LineGraph {
 			setDaemon(true);
 			
 			queue = new ArrayBlockingQueue<Pair<Long,Float>>(queueSize);
+			batch = new ArrayList<Pair<Long,Float>>(queueSize + 1);
+			batchX = new long[queueSize + 1];
+			batchY = new float[queueSize + 1];
 			
 			start();
 			
@@ -58,8 +69,18 @@ public abstract class SensorGraphBase extends LineGraph {
 							    
 				try {
 
-					Pair<Long, Float> p = queue.take();
-					accelSeries.add(p.first, p.second);
+					batch.add(queue.take());
+					queue.drainTo(batch, batchX.length - 1);
+
+					int n = batch.size();
+
+					for (int i = 0; i < n; ++i) {
+						batchX[i] = batch.get(i).first;
+						batchY[i] = batch.get(i).second;
+					}
+
+					batch.clear();
+					accelSeries.addAll(batchX, batchY, n);
 					
 				} catch (InterruptedException e) {
 					// TODO Auto-generated catch block
@@ -75,7 +96,7 @@ public abstract class SensorGraphBase extends LineGraph {
 		super(factory, xRange, xMode, yRange, INCR);
 		
 		this.roboStroke = roboStroke;
-		accelSeries = multySeries.addSeries(new CyclicArrayXYSeries(xMode,  new XYSeries.Renderer(uiLiaison.createPaint())));
+		accelSeries = multySeries.addSeries(new CyclicArrayXYSeries(xMode,  new XYSeries.Renderer(uiLiaison.createPaint()), true, CyclicArrayXYSeries.DEFAULT_MAX_CAPACITY));
 	}
 
 
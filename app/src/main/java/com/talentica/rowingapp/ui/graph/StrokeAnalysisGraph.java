@@ -71,12 +71,12 @@ public class StrokeAnalysisGraph implements UpdatableGraphBase {
 		
 		@Override
 		public void onBusEvent(DataRecord event) {
-			switch (event.type) {
+			switch (event.getType()) {
 			case STROKE_RATE:
-				aboveStrokeRateTreshold =  (Integer)event.data > MIN_STROKE_RATE;
+				aboveStrokeRateTreshold =  (Integer)event.getData() > MIN_STROKE_RATE;
 				break;
 			case STROKE_POWER_END:
-				boolean hasPower = (Float)event.data > 0;
+				boolean hasPower = (Float)event.getData() > 0;
 				
 				if (!hasPower) {
 					resetNext();					
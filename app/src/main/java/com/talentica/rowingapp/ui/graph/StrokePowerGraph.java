@@ -75,11 +75,11 @@ public class StrokePowerGraph extends LineGraph implements DataUpdatable {
 
 		@Override
 		public void onBusEvent(DataRecord event) {
-			switch (event.type) {
+			switch (event.getType()) {
 			case STROKE_POWER_START:
 				validStrokePowerScope = hasStrokePower && strokeRate > 10;
 				if (validStrokePowerScope) {
-					powerStartTime = event.timestamp;
+					powerStartTime = event.getTimestamp();
 					multySeries.clear();
 
 					multySeries.setxRange(xRange);
@@ -89,17 +89,17 @@ public class StrokePowerGraph extends LineGraph implements DataUpdatable {
 			case STROKE_POWER_END:
 				
 				if (validStrokePowerScope) {
-					long powerEndTime = event.timestamp;
+					long powerEndTime = event.getTimestamp();
 					long strokeTime = powerEndTime - powerStartTime;
 					recalcXRange(strokeTime);
 					recalcYRange();
 				}
 				
-				hasStrokePower  = (Float)event.data > 0;
+				hasStrokePower  = (Float)event.getData() > 0;
 				break;
 			case STROKE_RATE:
 				
-				strokeRate = (Integer)event.data;
+				strokeRate = (Integer)event.getData();
 				
 				break;
 			}
@@ -74,6 +74,10 @@ abstract class XSeriesProxy implements XYSeries {
 		impl.add(x, y);
 	}
 
+	public void addAll(long[] xs, float[] ys, int n) {
+		impl.addAll(xs, ys, n);
+	}
+
 	public void clear() {
 		impl.clear();
 	}
@@ -63,6 +63,18 @@ public interface XYSeries {
 	 */
 	public abstract void add(double x, double y);
 
+	/**
+	 * Adds values to the series at once.
+	 * 
+	 * @param xs
+	 *            the values for the X axis
+	 * @param ys
+	 *            the values for the Y axis
+	 * @param n
+	 *            number of values to add
+	 */
+	public abstract void addAll(long[] xs, float[] ys, int n);
+
 	public void setRenderer(Renderer renderer);
 
 	public Renderer getRenderer();
@@ -42,9 +42,9 @@ public class StrokePowerBarGraphView extends View implements DataUpdatable, AppC
 		@Override
 		public void onBusEvent(DataRecord event) {
 
-			switch (event.type) {
+			switch (event.getType()) {
 			case STROKE_POWER_END:
-				float power = (Float) event.data;
+				float power = (Float) event.getData();
 				if (power > 0) {
 					addValue(power);
 				}
@@ -46,19 +46,19 @@ public class RollViewGroup extends LinearLayout implements DataUpdatable {
 			float[] roll;
 			RollView view;
 			
-			switch (event.type) {
+			switch (event.getType()) {
 			case RECOVERY_ROLL:
 			case STROKE_ROLL:
 				switch (mode) {
 				case STROKE_RECOVERY:
 					break;
 				case RECOVERY:
-					if (event.type != DataRecord.Type.RECOVERY_ROLL) {
+					if (event.getType() != DataRecord.Type.RECOVERY_ROLL) {
 						return;
 					}
 					break;
 				case STROKE:
-					if (event.type != DataRecord.Type.STROKE_ROLL) {
+					if (event.getType() != DataRecord.Type.STROKE_ROLL) {
 						return;
 					}
 					break;
@@ -66,9 +66,9 @@ public class RollViewGroup extends LinearLayout implements DataUpdatable {
 					return;
 				}
 
-				roll = (float[])event.data;
+				roll = (float[])event.getData();
 				ViewType type = 
-					(event.type == DataRecord.Type.RECOVERY_ROLL) ? ViewType.RECOVERY : 
+					(event.getType() == DataRecord.Type.RECOVERY_ROLL) ? ViewType.RECOVERY : 
 						ViewType.STROKE;
 				view = rollViews[type.ordinal()];
 				break;
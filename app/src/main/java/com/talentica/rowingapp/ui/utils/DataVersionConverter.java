@@ -1,6 +1,7 @@
 package com.talentica.rowingapp.ui.utils;
 
 
+import com.talentica.rowingapp.common.data.session.SessionFileFormat;
 import com.talentica.rowingapp.common.data.session.SessionRecorderConstants;
 
 import java.io.BufferedReader;
@@ -47,6 +48,12 @@ public abstract class DataVersionConverter {
 		BufferedReader reader = null;
 		
 		try {
+			int binaryVersion = SessionFileFormat.readVersion(input);
+
+			if (binaryVersion != -1) {
+				return binaryVersion;
+			}
+
 			reader = new BufferedReader(new FileReader(input));
 			 
 			String line = reader.readLine();
@@ -66,25 +73,36 @@ public abstract class DataVersionConverter {
 	}
 	
 	public static DataVersionConverter getConvertersFor(File input) throws ConverterError {
+		return getConvertersFor(input, SessionRecorderConstants.LOGFILE_VERSION);
+	}
+
+	/**
+	 * get the converters bringing a file up to a version - e.g. only up to TEXT_LOGFILE_VERSION for replay,
+	 * which reads text and binary session files directly
+	 * @param input data file
+	 * @param version version to convert to
+	 * @return converter chain, or null if the file is at that version or later
+	 * @throws ConverterError
+	 */
+	public static DataVersionConverter getConvertersFor(File input, int version) throws ConverterError {
 		
 		int ver = getFileVersion(input);
 		
-		if (ver == SessionRecorderConstants.LOGFILE_VERSION) {
-			return null;
-		}
-		
 		if (ver > SessionRecorderConstants.LOGFILE_VERSION) {
 			throw new ConverterError(String.format("input file version %d is in the future - current version is %d", ver, SessionRecorderConstants.LOGFILE_VERSION));
-		} else {
-			
-			DataVersionConverter[] converters = new DataVersionConverter[SessionRecorderConstants.LOGFILE_VERSION - ver];
-			
-			for (int i = ver; i < SessionRecorderConstants.LOGFILE_VERSION; ++i) {
-				converters[i - ver] = createConverter(i);
-			}
+		}
+		
+		if (ver >= version) {
+			return null;
+		}
 			
-			return new DataVersionConverterChain(converters);
+		DataVersionConverter[] converters = new DataVersionConverter[version - ver];
+		
+		for (int i = ver; i < version; ++i) {
+			converters[i - ver] = createConverter(i);
 		}
+		
+		return new DataVersionConverterChain(converters);
 	}
 
 	private static DataVersionConverter createConverter(int ver) throws ConverterError {
@@ -151,35 +169,58 @@ public abstract class DataVersionConverter {
 	}
 	
 	public static void usage() {
-		System.err.println("usage: DataVersionConverter <infile> <outfile|stdout>");
+		System.err.println("usage: DataVersionConverter [-compress|-decompress] <infile> <outfile|stdout>");
 		System.exit(1);		
 	}
 	
 	public static void main(String[] args) throws Exception {
 		
-		if (args.length != 2) {
+		Boolean compress = null;
+		int argIdx = 0;
+		
+		if (args.length == 3) {
+			if (args[0].equals("-compress")) {
+				compress = true;
+			} else if (args[0].equals("-decompress")) {
+				compress = false;
+			} else {
+				usage();
+			}
+			
+			argIdx++;
+		} else if (args.length != 2) {
 			usage();
 		}
 		
-		File input = new File(args[0]);
-		OutputStream out = args[1].equals("stdout") ? System.out : new FileOutputStream(args[1]);
+		File input = new File(args[argIdx]);
+		OutputStream out = args[argIdx + 1].equals("stdout") ? System.out : new FileOutputStream(args[argIdx + 1]);
 		
 		File res = input;
-		
-		DataVersionConverter converter = getConvertersFor(input);
-		
-		if (converter != null) {
-			res = converter.convert(input);
-		}
-		
-		InputStream in = new FileInputStream(res);
+		File converted = null;
+		File transcoded = null;
+		InputStream in = null;
 		
 		try {
+			DataVersionConverter converter = getConvertersFor(input);
+			
+			if (converter != null) {
+				res = converted = converter.convert(input);
+			}
+			
+			if (compress != null) {
+				res = transcoded = File.createTempFile("session-", ".dat");
+				SessionFileFormat.transcode(converted != null ? converted : input, transcoded, compress);
+			}
+			
+			in = new FileInputStream(res);
+			
 			copy(in, out);
 		} finally {
 			
 			try {
-				in.close();
+				if (in != null) {
+					in.close();
+				}
 			} catch (Exception e) {				
 			}
 			
@@ -188,8 +229,12 @@ public abstract class DataVersionConverter {
 			} catch (Exception e) {				
 			}
 			
-			if (res != input) {
-				res.delete();
+			if (converted != null) {
+				converted.delete();
+			}
+			
+			if (transcoded != null) {
+				transcoded.delete();
 			}
 		}
 	}
@@ -0,0 +1,181 @@
+package com.talentica.rowingapp.ui.utils.impl;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.session.SessionFileWriter;
+import com.talentica.rowingapp.common.data.session.SessionRecorderConstants;
+import com.talentica.rowingapp.ui.utils.DataVersionConverter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * Converts version 3 text session files to version 4 binary block structured files.
+ * Leading SESSION_PARAMETER records are moved into the file header.
+ */
+public class DataVersionConverter_3 extends DataVersionConverter {
+
+	private static final int MAX_HEADER_LINE_COUNT = 100;
+
+	private static final int PROGRESS_LINE_INTERVAL = 1000;
+
+	/**
+	 * text record line tokens: log timestamp, type, event timestamp and data -
+	 * unlike in replay, data is the whole remainder of the line, so that it may contain spaces
+	 */
+	private static String[] splitRecordLine(String line) {
+		int eorIdx = line.lastIndexOf(SessionRecorderConstants.END_OF_RECORD);
+
+		if (eorIdx == -1) {
+			return null;
+		}
+
+		String[] vals = new String[4];
+		int start = 0;
+
+		for (int i = 0; i < 3; ++i) {
+			while (start < eorIdx && line.charAt(start) == ' ') {
+				start++;
+			}
+
+			int end = line.indexOf(' ', start);
+
+			if (end == -1 || end > eorIdx) {
+				return null;
+			}
+
+			vals[i] = line.substring(start, end);
+			start = end;
+		}
+
+		while (start < eorIdx && line.charAt(start) == ' ') {
+			start++;
+		}
+
+		vals[3] = line.substring(start, eorIdx);
+
+		return vals;
+	}
+
+	private static DataRecord.Type getType(String name) {
+		try {
+			return DataRecord.Type.valueOf(name);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public File convert(File input) throws Exception {
+
+		long firstTimestamp = 0;
+		String uuid = null;
+		ArrayList<String> sessionParams = new ArrayList<String>();
+		int headerLineCount = 0;
+
+		BufferedReader reader = new BufferedReader(new FileReader(input));
+
+		try {
+			boolean inHeader = true;
+			String l;
+			int lineNum = 0;
+
+			while ((l = reader.readLine()) != null && lineNum++ < MAX_HEADER_LINE_COUNT) {
+				String[] vals = splitRecordLine(l);
+				DataRecord.Type type = vals == null ? null : getType(vals[1]);
+
+				if (type == DataRecord.Type.LOGFILE_VERSION) {
+					firstTimestamp = Long.parseLong(vals[0]);
+				} else if (type == DataRecord.Type.UUID) {
+					uuid = vals[0];
+				} else if (inHeader && type == DataRecord.Type.SESSION_PARAMETER) {
+					sessionParams.add(vals[3]);
+				} else {
+					inHeader = false;
+				}
+
+				if (inHeader) {
+					headerLineCount = lineNum;
+				}
+
+				if (uuid != null && !inHeader) {
+					break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		if (uuid == null) {
+			uuid = UUID.randomUUID().toString();
+		}
+
+		File output = File.createTempFile("session-v" + SessionRecorderConstants.LOGFILE_VERSION + "-", ".dat");
+
+		boolean completed = false;
+
+		reader = new BufferedReader(new FileReader(input));
+
+		SessionFileWriter writer = new SessionFileWriter(new BufferedOutputStream(new FileOutputStream(output)), firstTimestamp, uuid, sessionParams);
+
+		try {
+			final double length = input.length();
+			long bytesRead = 0;
+			int lineNum = 0;
+			String l;
+
+			while ((l = reader.readLine()) != null) {
+
+				bytesRead += l.length() + 1;
+
+				if (++lineNum <= headerLineCount) {
+					continue;
+				}
+
+				if (lineNum % PROGRESS_LINE_INTERVAL == 0) {
+					if (cancelled || (progressListener != null && !progressListener.onProgress(bytesRead / length))) {
+						return null;
+					}
+				}
+
+				String[] vals = splitRecordLine(l);
+				DataRecord.Type type = vals == null ? null : getType(vals[1]);
+
+				if (type == null || type == DataRecord.Type.LOGFILE_VERSION) {
+					continue;
+				}
+
+				try {
+					writer.write(Long.parseLong(vals[0]), type, Long.parseLong(vals[2]), vals[3]);
+				} catch (RuntimeException e) { // corrupt record - dropped, as it would be on replay
+					continue;
+				}
+			}
+
+			completed = true;
+		} finally {
+			reader.close();
+
+			try {
+				writer.close();
+			} catch (IOException e) {
+				completed = false;
+			}
+
+			if (!completed) {
+				output.delete();
+			}
+		}
+
+		if (progressListener != null) {
+			progressListener.onProgress(1.0);
+		}
+
+		return output;
+	}
+}
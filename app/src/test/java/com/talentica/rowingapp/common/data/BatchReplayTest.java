@@ -0,0 +1,119 @@
+package com.talentica.rowingapp.common.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchReplayTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = TestSessions.writeRowingSession(File.createTempFile("replay", ".trsd"), 6, 28, 1);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private static List<String> events(BatchReplay.Result result) {
+		ArrayList<String> events = new ArrayList<String>();
+
+		for (DataRecord event: result.getEvents()) {
+			events.add(event.toString());
+		}
+
+		return events;
+	}
+
+	private static int count(BatchReplay.Result result, DataRecord.Type type) {
+		int count = 0;
+
+		for (DataRecord event: result.getEvents()) {
+			if (event.getType() == type) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Test
+	public void testReplaysAreIdentical() throws Exception {
+		BatchReplay replay = new BatchReplay(file);
+		BatchReplay.Result first = replay.run();
+
+		assertTrue(count(first, DataRecord.Type.STROKE_RATE) > 0);
+		assertTrue(count(first, DataRecord.Type.ROWING_START) > 0);
+		assertEquals(events(first), events(replay.run()));
+		assertEquals(events(first), events(new BatchReplay(file).run()));
+	}
+
+	@Test
+	public void testBusThreadEmitsSameEvents() throws Exception {
+		BatchReplay replay = new BatchReplay(file);
+		List<String> expected = events(replay.run());
+
+		replay.setBusThread(true);
+
+		assertEquals(expected, events(replay.run()));
+	}
+
+	@Test
+	public void testSampleBlocksEmitSameEvents() throws Exception {
+		BatchReplay replay = new BatchReplay(file);
+		List<String> expected = events(replay.run());
+
+		replay.setSampleBlocks(false);
+
+		assertEquals(expected, events(replay.run()));
+	}
+
+	@Test
+	public void testParallelReplaysAreIdentical() throws Exception {
+		final List<String> expected = events(new BatchReplay(file).run());
+		final List<List<String>> results = new ArrayList<List<String>>();
+		final List<Exception> errors = new ArrayList<Exception>();
+		Thread[] threads = new Thread[4];
+
+		for (int i = 0; i < threads.length; ++i) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						List<String> events = events(new BatchReplay(file).run());
+
+						synchronized (results) {
+							results.add(events);
+						}
+					} catch (Exception e) {
+						synchronized (results) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		for (Thread thread: threads) {
+			thread.join();
+		}
+
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertEquals(threads.length, results.size());
+
+		for (List<String> events: results) {
+			assertEquals(expected, events);
+		}
+	}
+}
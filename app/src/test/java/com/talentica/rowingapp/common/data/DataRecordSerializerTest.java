@@ -0,0 +1,191 @@
+package com.talentica.rowingapp.common.data;
+
+import com.sun.management.ThreadMXBean;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DataRecordSerializerTest {
+
+	private final DataRecordSerializer.FLOAT_ARR floats = new DataRecordSerializer.FLOAT_ARR();
+
+	private final DataRecordSerializer.DOUBLE_ARR doubles = new DataRecordSerializer.DOUBLE_ARR();
+
+	private void assertFloat(String s) {
+		float[] res = new float[1];
+
+		assertEquals(1, floats.parse(s, 0, s.length(), res));
+		assertEquals(s, Float.floatToIntBits(Float.parseFloat(s)), Float.floatToIntBits(res[0]));
+	}
+
+	private void assertDouble(String s) {
+		double[] res = new double[1];
+
+		assertEquals(1, doubles.parse(s, 0, s.length(), res));
+		assertEquals(s, Double.doubleToLongBits(Double.parseDouble(s)), Double.doubleToLongBits(res[0]));
+	}
+
+	/**
+	 * random decimal number - up to 12 significant digits, with a decimal point and/or exponent
+	 */
+	private static String randomDecimal(Random random) {
+		return randomDecimal(random, 12, 15);
+	}
+
+	/**
+	 * random decimal number with a decimal point and/or exponent
+	 * @param maxDigits maximal number of digits
+	 * @param maxExp maximal absolute exponent
+	 */
+	private static String randomDecimal(Random random, int maxDigits, int maxExp) {
+		StringBuilder sb = new StringBuilder();
+
+		if (random.nextBoolean()) {
+			sb.append('-');
+		}
+
+		int digits = 1 + random.nextInt(maxDigits);
+		int point = random.nextInt(digits + 1);
+
+		for (int i = 0; i < digits; ++i) {
+			if (i == point && i != 0) {
+				sb.append('.');
+			}
+
+			sb.append((char) ('0' + random.nextInt(10)));
+		}
+
+		if (random.nextInt(4) == 0) {
+			sb.append('e').append(random.nextInt(2 * maxExp + 1) - maxExp);
+		}
+
+		return sb.toString();
+	}
+
+	@Test
+	public void testFloatsAreRoundedOnce() {
+		assertFloat("0.6044001877307892");
+		assertFloat("0.6044002");
+		assertFloat("9.80665");
+		assertFloat("-0.0");
+		assertFloat("16777217");
+		assertFloat("1.6777217e7");
+		assertFloat("1e-10");
+		assertFloat("3.4028235e38");
+		assertFloat("1.4e-45");
+		assertFloat("NaN");
+		assertFloat("-Infinity");
+	}
+
+	@Test
+	public void testFloatsMatchParseFloat() {
+		Random random = new Random(1);
+
+		for (int i = 0; i < 200000; ++i) {
+			assertFloat(randomDecimal(random));
+			assertFloat(Float.toString(Float.intBitsToFloat(random.nextInt())));
+			assertFloat(Double.toString(random.nextDouble() * 20 - 10));
+			assertFloat(Float.toString((float) (random.nextGaussian() * 10)));
+		}
+	}
+
+	@Test
+	public void testDoublesMatchParseDouble() {
+		Random random = new Random(2);
+
+		for (int i = 0; i < 200000; ++i) {
+			assertDouble(randomDecimal(random));
+			assertDouble(Double.toString(Double.longBitsToDouble(random.nextLong())));
+			assertDouble(Double.toString(random.nextDouble() * 20 - 10));
+		}
+	}
+
+	@Test
+	public void testLongDecimalsMatchParse() {
+		Random random = new Random(3);
+
+		for (int i = 0; i < 200000; ++i) {
+			String s = randomDecimal(random, 30, 360);
+			assertFloat(s);
+			assertDouble(s);
+		}
+
+		assertDouble("1.7976931348623157e308");
+		assertDouble("1.7976931348623159e308");
+		assertDouble("2.2250738585072014e-308");
+		assertDouble("9007199254740993");
+		assertDouble("9007199254740992.5000000000000000001");
+		assertDouble("12345678901234567890123");
+		assertFloat("3.4028236e38");
+		assertFloat("1.17549435e-38");
+		assertFloat("1e-400");
+		assertFloat("1e400");
+	}
+
+	/**
+	 * Float.toString() of accelerometer and orientation like values, and Double.toString() of
+	 * coordinate like values, are parsed without falling back to the allocating String path
+	 */
+	@Test
+	public void testSensorValuesDoNotAllocate() {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+			return;
+		}
+
+		Random random = new Random(4);
+		StringBuilder floatValues = new StringBuilder();
+		StringBuilder doubleValues = new StringBuilder();
+
+		for (int i = 0; i < 1000; ++i) {
+			floatValues.append(i == 0 ? "" : ",").append(Float.toString((float) (random.nextGaussian() * 10)))
+					.append(',').append(Float.toString((float) (random.nextGaussian() * 1e-5)))
+					.append(',').append(Float.toString((float) (random.nextDouble() * 360 - 180)))
+					.append(',').append(Float.toString(Float.NaN));
+			doubleValues.append(i == 0 ? "" : ",").append(Double.toString(random.nextDouble() * 180 - 90))
+					.append(',').append(Double.toString(random.nextDouble() * 1e7));
+		}
+
+		float[] floatRes = new float[4000];
+		double[] doubleRes = new double[2000];
+
+		floats.parse(floatValues, 0, floatValues.length(), floatRes);
+		doubles.parse(doubleValues, 0, doubleValues.length(), doubleRes);
+
+		long threadId = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(threadId);
+
+		for (int i = 0; i < 10; ++i) {
+			floats.parse(floatValues, 0, floatValues.length(), floatRes);
+			doubles.parse(doubleValues, 0, doubleValues.length(), doubleRes);
+		}
+
+		allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+		assertTrue("allocated " + allocated + " bytes", allocated < 10000);
+
+		String[] values = floatValues.toString().split(",");
+
+		for (int i = 0; i < values.length; ++i) {
+			assertEquals(values[i], Float.floatToIntBits(Float.parseFloat(values[i])), Float.floatToIntBits(floatRes[i]));
+		}
+	}
+
+	@Test
+	public void testArrays() {
+		float[] res = new float[3];
+		String s = "0.1,-2.5e-3,9.80665";
+
+		assertEquals(3, floats.parse(s, 0, s.length(), res));
+		assertEquals(0.1f, res[0], 0);
+		assertEquals(-2.5e-3f, res[1], 0);
+		assertEquals(9.80665f, res[2], 0);
+		assertEquals(-1, floats.parse("null", 0, 4, res));
+	}
+}
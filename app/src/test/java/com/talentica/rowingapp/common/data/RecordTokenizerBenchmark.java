@@ -0,0 +1,76 @@
+package com.talentica.rowingapp.common.data;
+
+import com.talentica.rowingapp.common.data.session.SeekableLineReader;
+import com.talentica.rowingapp.common.data.session.SessionRecorderConstants;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Record line parsing throughput of {@link RecordTokenizer} against the previous split/valueOf based parsing
+ */
+public class RecordTokenizerBenchmark {
+
+	/**
+	 * @param args text session file
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		SeekableLineReader reader = new SeekableLineReader(new File(args[0]));
+		ArrayList<String> lines = new ArrayList<String>();
+		String l;
+
+		while ((l = reader.readLine()) != null) {
+			lines.add(l);
+		}
+
+		reader.close();
+
+		RecordTokenizer tokenizer = new RecordTokenizer();
+
+		for (int round = 0; round < 5; ++round) {
+			int count = 0;
+			long start = System.nanoTime();
+
+			for (String line: lines) {
+				int eorIdx = line.lastIndexOf(SessionRecorderConstants.END_OF_RECORD);
+
+				if (eorIdx != -1) {
+					String[] vals = line.substring(0, eorIdx).split(" +");
+
+					try {
+						DataRecord.Type type = DataRecord.Type.valueOf(vals[1]);
+						Long.parseLong(vals[0]);
+
+						if (type.isParsableEvent) {
+							DataRecord.create(type, Long.parseLong(vals[2]), vals[3]);
+							count++;
+						}
+					} catch (IllegalArgumentException e) {
+					}
+				}
+			}
+
+			long splitTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			count = 0;
+
+			for (String line: lines) {
+				if (tokenizer.tokenizeSessionLine(line)) {
+					DataRecord.Type type = tokenizer.getType();
+
+					if (type != null && type.isParsableEvent) {
+						tokenizer.createRecord(line);
+						count++;
+					}
+				}
+			}
+
+			long tokenizerTime = System.nanoTime() - start;
+
+			System.out.println(String.format("%d records: split %.0f records/s, tokenizer %.0f records/s",
+					count, count * 1e9 / splitTime, count * 1e9 / tokenizerTime));
+		}
+	}
+}
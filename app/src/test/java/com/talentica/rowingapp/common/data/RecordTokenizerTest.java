@@ -0,0 +1,77 @@
+package com.talentica.rowingapp.common.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RecordTokenizerTest {
+
+	@Test
+	public void testLookupType() {
+		for (DataRecord.Type type: DataRecord.Type.values()) {
+			String line = "x " + type.name() + " y";
+			assertSame(type, RecordTokenizer.lookupType(line, 2, 2 + type.name().length()));
+		}
+
+		assertNull(RecordTokenizer.lookupType("NO_SUCH_TYPE", 0, 12));
+		assertNull(RecordTokenizer.lookupType("ACCELX", 0, 6));
+		assertNull(RecordTokenizer.lookupType("ACCEL", 0, 4));
+		assertNull(RecordTokenizer.lookupType("", 0, 0));
+	}
+
+	@Test
+	public void testTokenizeSessionLine() {
+		RecordTokenizer tokenizer = new RecordTokenizer();
+		String line = "1500000000123  ACCEL 20000000 0.1,-9.8,3.25@@";
+
+		assertTrue(tokenizer.tokenizeSessionLine(line));
+		assertEquals(1500000000123L, tokenizer.getLogTimestamp());
+		assertSame(DataRecord.Type.ACCEL, tokenizer.getType());
+		assertEquals(20000000L, tokenizer.getTimestamp());
+		assertEquals("0.1,-9.8,3.25", line.substring(tokenizer.getDataStart(), tokenizer.getDataEnd()));
+
+		DataRecord record = tokenizer.createRecord(line);
+
+		assertSame(DataRecord.Type.ACCEL, record.getType());
+		assertEquals(20000000L, record.getTimestamp());
+		assertArrayEquals(new float[] {0.1f, -9.8f, 3.25f}, (float[]) record.getData(), 0);
+	}
+
+	@Test
+	public void testTokenizeWithoutLogTimestamp() {
+		RecordTokenizer tokenizer = new RecordTokenizer();
+		String line = "HEART_BPM -5 72";
+
+		assertTrue(tokenizer.tokenize(line, 0, line.length()));
+		assertSame(DataRecord.Type.HEART_BPM, tokenizer.getType());
+		assertEquals(-5L, tokenizer.getTimestamp());
+		assertEquals(72, tokenizer.createRecord(line).getData());
+	}
+
+	@Test
+	public void testIncompleteLines() {
+		RecordTokenizer tokenizer = new RecordTokenizer();
+
+		assertFalse(tokenizer.tokenizeSessionLine("1500000000123 ACCEL 20000000 0.1,-9.8,3.25"));
+		assertFalse(tokenizer.tokenizeSessionLine("1500000000123 ACCEL@@"));
+		assertFalse(tokenizer.tokenizeSessionLine("@@"));
+		assertTrue(tokenizer.tokenizeSessionLine("1 UNKNOWN_TYPE 2 3@@"));
+		assertNull(tokenizer.getType());
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testMalformedTimestamp() {
+		new RecordTokenizer().tokenizeSessionLine("1500000000123 ACCEL 2000x000 0.1,-9.8,3.25@@");
+	}
+
+	@Test
+	public void testFindEndOfRecord() {
+		assertEquals(6, RecordTokenizer.findEndOfRecord("1 A@@2@@"));
+		assertEquals(-1, RecordTokenizer.findEndOfRecord("1 A 2 @"));
+	}
+}
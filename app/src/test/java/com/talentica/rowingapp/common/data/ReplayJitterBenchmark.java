@@ -0,0 +1,170 @@
+package com.talentica.rowingapp.common.data;
+
+import com.talentica.rowingapp.common.data.session.SessionFileFormat;
+import com.talentica.rowingapp.common.data.session.SessionIndex;
+import com.talentica.rowingapp.common.data.session.SessionReader;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Measures replay timing jitter - the time a record is played relative to its due time - of the
+ * {@link ReplayScheduler}, and of the former polling replay loop (sleep 30ms whenever a record is more than 20ms early)
+ * for comparison. Records are only timed, not pushed through a pipeline.
+ */
+public class ReplayJitterBenchmark {
+
+	/**
+	 * play time minus due time statistics, in real time ns
+	 */
+	private static class Stats {
+		private long count;
+		private long min = Long.MAX_VALUE;
+		private long max = Long.MIN_VALUE;
+		private double sum;
+		private double absSum;
+		private double squaredSum;
+
+		void add(long lateness) {
+			count++;
+			min = Math.min(min, lateness);
+			max = Math.max(max, lateness);
+			sum += lateness;
+			absSum += Math.abs(lateness);
+			squaredSum += (double) lateness * lateness;
+		}
+
+		@Override
+		public String toString() {
+			double mean = sum / count;
+			return String.format("%d records, lateness mean %.3f ms, mean abs %.3f ms, std dev %.3f ms, min %.3f ms, max %.3f ms",
+					count, mean / 1e6, absSum / count / 1e6, Math.sqrt(Math.max(0, squaredSum / count - mean * mean)) / 1e6, min / 1e6, max / 1e6);
+		}
+	}
+
+	private final File file;
+
+	private final long firstTimestamp;
+
+	private final long endTimestamp;
+
+	/**
+	 * @param file session file
+	 * @param duration replayed session time (ms), capped to the session duration
+	 * @throws IOException
+	 */
+	public ReplayJitterBenchmark(File file, long duration) throws IOException {
+		SessionIndex index = SessionIndex.load(file);
+
+		this.file = file;
+		this.firstTimestamp = index.getFirstTimestamp();
+		this.endTimestamp = Math.min(index.getLastTimestamp(), firstTimestamp + duration);
+	}
+
+	private static long lateness(ClockProvider clock, long dueTime) {
+		return (long) ((clock.getTimeNanos() - dueTime * 1000000) / clock.getSpeed());
+	}
+
+	private static ClockProvider startClock(double speed) {
+		ClockProvider clock = new SystemClockProvider();
+
+		clock.setSpeed(speed);
+		clock.reset(0);
+		clock.run();
+
+		return clock;
+	}
+
+	/**
+	 * replay with a {@link ReplayScheduler}
+	 * @param speed replay speed
+	 * @return lateness statistics
+	 * @throws Exception
+	 */
+	private Stats runScheduler(double speed) throws Exception {
+		SessionReader reader = SessionFileFormat.openReader(file);
+		Stats stats = new Stats();
+
+		try {
+			ClockProvider clock = startClock(speed);
+			ReplayScheduler scheduler = new ReplayScheduler(reader, clock, ReplayScheduler.DEFAULT_LOOKAHEAD);
+
+			scheduler.setTimeBase(firstTimestamp);
+
+			while (scheduler.getNextLogTimestamp() < endTimestamp) {
+				long dueTime = scheduler.getNextLogTimestamp() - firstTimestamp;
+
+				if (scheduler.take(true) != null) {
+					stats.add(lateness(clock, dueTime));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		return stats;
+	}
+
+	/**
+	 * replay with the former polling loop
+	 * @param speed replay speed
+	 * @return lateness statistics
+	 * @throws Exception
+	 */
+	private Stats runPolling(double speed) throws Exception {
+		SessionReader reader = SessionFileFormat.openReader(file);
+		Stats stats = new Stats();
+
+		try {
+			ClockProvider clock = startClock(speed);
+			boolean pending = false;
+
+			while (true) {
+				if (!pending) {
+					if (!reader.next() || reader.getLogTimestamp() >= endTimestamp) {
+						break;
+					}
+
+					pending = true;
+				}
+
+				long dueTime = reader.getLogTimestamp() - firstTimestamp;
+
+				if (dueTime - clock.getTime() > 20) {
+					Thread.sleep(30);
+					continue;
+				}
+
+				Thread.yield();
+
+				stats.add(lateness(clock, dueTime));
+				pending = false;
+			}
+		} finally {
+			reader.close();
+		}
+
+		return stats;
+	}
+
+	/**
+	 * compare replay timing jitter of the scheduler and of the polling loop
+	 * @param args session file [replayed session time in seconds, default: 20] [speed, default: 1.0]
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: ReplayJitterBenchmark <session file> [seconds] [speed]");
+			System.exit(1);
+		}
+
+		double speed = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+		long duration = (long) ((args.length > 1 ? Double.parseDouble(args[1]) : 20) * 1000);
+
+		ReplayJitterBenchmark benchmark = new ReplayJitterBenchmark(new File(args[0]), duration);
+
+		System.out.println(String.format("speed %.2fx", speed));
+		System.out.println("scheduler: " + benchmark.runScheduler(speed));
+		System.out.println("polling:   " + benchmark.runPolling(speed));
+	}
+}
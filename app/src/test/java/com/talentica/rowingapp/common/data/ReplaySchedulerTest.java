@@ -0,0 +1,141 @@
+package com.talentica.rowingapp.common.data;
+
+import com.talentica.rowingapp.common.data.session.SessionFileFormat;
+import com.talentica.rowingapp.common.data.session.SessionFileWriter;
+import com.talentica.rowingapp.common.data.session.SessionReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplaySchedulerTest {
+
+	private static final long FIRST_TIMESTAMP = 1500000000000L;
+
+	private static final int RECORD_COUNT = 100;
+
+	/**
+	 * ms between records
+	 */
+	private static final int INTERVAL = 10;
+
+	private File file;
+
+	private SessionReader reader;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("replay", ".trsd");
+
+		SessionFileWriter writer = new SessionFileWriter(new FileOutputStream(file), FIRST_TIMESTAMP, "test", new ArrayList<String>());
+
+		try {
+			for (int i = 0; i < RECORD_COUNT; ++i) {
+				long logTimestamp = FIRST_TIMESTAMP + i * INTERVAL + (i % 10 == 5 ? -15 : 0); // some logged out of order
+				writer.write(logTimestamp, new DataRecord(DataRecord.Type.HEART_BPM, i, i));
+			}
+		} finally {
+			writer.close();
+		}
+
+		reader = SessionFileFormat.openReader(file);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		reader.close();
+		file.delete();
+	}
+
+	private static ClockProvider startClock(double speed) {
+		ClockProvider clock = new SystemClockProvider();
+
+		clock.setSpeed(speed);
+		clock.reset(0);
+		clock.run();
+
+		return clock;
+	}
+
+	@Test
+	public void testUnpacedTakesRecordsInFileOrder() throws Exception {
+		ReplayScheduler scheduler = new ReplayScheduler(reader, startClock(1), 8);
+
+		for (int i = 0; i < RECORD_COUNT; ++i) {
+			assertEquals(i, scheduler.take(false).getData());
+		}
+
+		assertEquals(0, scheduler.getPlayedCount());
+	}
+
+	@Test
+	public void testPacedRecordsAreNotEarly() throws Exception {
+		ClockProvider clock = startClock(4);
+		ReplayScheduler scheduler = new ReplayScheduler(reader, clock, ReplayScheduler.DEFAULT_LOOKAHEAD);
+		long lastDueTime = Long.MIN_VALUE;
+
+		scheduler.setTimeBase(FIRST_TIMESTAMP);
+
+		for (int i = 0; i < RECORD_COUNT; ++i) {
+			long dueTime = Math.max(lastDueTime, scheduler.getNextLogTimestamp() - FIRST_TIMESTAMP);
+			DataRecord record = scheduler.take(true);
+
+			assertEquals(i, record.getData());
+			assertTrue("record " + i + " played at " + clock.getTime() + " before " + dueTime, clock.getTime() >= dueTime);
+
+			lastDueTime = dueTime;
+		}
+
+		assertEquals(RECORD_COUNT, scheduler.getPlayedCount());
+		assertTrue(scheduler.getMeanLateness() >= 0);
+		assertTrue("max lateness " + scheduler.getMaxLateness() + "ns", scheduler.getMaxLateness() < 100000000L);
+	}
+
+	@Test
+	public void testWakeUpReturnsEarly() throws Exception {
+		ClockProvider clock = startClock(1);
+		final ReplayScheduler scheduler = new ReplayScheduler(reader, clock, ReplayScheduler.DEFAULT_LOOKAHEAD);
+
+		scheduler.setTimeBase(FIRST_TIMESTAMP - 60000); // first record due in a minute
+		clock.stop();
+
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+				}
+
+				scheduler.wakeUp();
+			}
+		}.start();
+
+		long start = System.nanoTime();
+
+		assertEquals(null, scheduler.take(true));
+		assertTrue(System.nanoTime() - start < 10000000000L);
+		assertEquals(0, scheduler.getPlayedCount());
+	}
+
+	@Test
+	public void testSeekSkipsEarlierRecords() throws Exception {
+		ReplayScheduler scheduler = new ReplayScheduler(reader, startClock(1), 8);
+
+		for (int i = 0; i < 20; ++i) {
+			scheduler.take(false);
+		}
+
+		scheduler.seek(0, FIRST_TIMESTAMP + 50 * INTERVAL);
+
+		assertEquals(FIRST_TIMESTAMP + 50 * INTERVAL, scheduler.getNextLogTimestamp());
+		assertEquals(50, scheduler.take(false).getData());
+	}
+}
@@ -0,0 +1,152 @@
+package com.talentica.rowingapp.common.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SensorDataSourceTest {
+
+	private static class RecordingSink implements SensorDataSink {
+		final String name;
+		final List<String> log;
+		Object lastValue;
+		int count;
+
+		RecordingSink(String name, List<String> log) {
+			this.name = name;
+			this.log = log;
+		}
+
+		@Override
+		public void onSensorData(long timestamp, Object value) {
+			if (log != null) {
+				log.add(name);
+			}
+
+			lastValue = value;
+			count++;
+		}
+	}
+
+	private static class RecordingSampleSink extends RecordingSink implements SensorSampleSink {
+
+		RecordingSampleSink(String name, List<String> log) {
+			super(name, log);
+		}
+
+		@Override
+		public void onSample(long timestamp, float[] values) {
+			onSensorData(timestamp, values);
+		}
+	}
+
+	@Test
+	public void testWeightOrder() {
+		List<String> log = new ArrayList<String>();
+		SensorDataSource source = new SensorDataSource();
+
+		source.addSensorDataSink(new RecordingSink("b", log));
+		source.addSensorDataSink(new RecordingSink("a", log), 0.0);
+		source.addSensorDataSink(new RecordingSink("c", log)); // equal weight - after b
+		source.addSensorDataSink(new RecordingSink("d", log), 2.0);
+
+		source.pushData(1, "x");
+
+		assertEquals(Arrays.asList("a", "b", "c", "d"), log);
+		assertEquals(4, source.getSensorDataSinks().length);
+	}
+
+	@Test
+	public void testRemove() {
+		List<String> log = new ArrayList<String>();
+		SensorDataSource source = new SensorDataSource();
+		RecordingSink a = new RecordingSink("a", log);
+		RecordingSink b = new RecordingSink("b", log);
+
+		source.addSensorDataSink(a);
+		source.addSensorDataSink(b);
+		source.removeSensorDataSink(a);
+		source.pushData(1, "x");
+
+		assertEquals(Arrays.asList("b"), log);
+
+		source.removeSensorDataSink(b);
+		source.pushData(2, "x");
+
+		assertEquals(1, log.size());
+		assertEquals(0, source.getSensorDataSinks().length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateSink() {
+		SensorDataSource source = new SensorDataSource();
+		RecordingSink sink = new RecordingSink("a", null);
+
+		source.addSensorDataSink(sink);
+		source.addSensorDataSink(sink, 0.5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRemoveUnknownSink() {
+		new SensorDataSource().removeSensorDataSink(new RecordingSink("a", null));
+	}
+
+	@Test
+	public void testPushSample() {
+		SensorDataSource source = new SensorDataSource();
+		RecordingSampleSink sampleSink = new RecordingSampleSink("sample", null);
+		RecordingSink dataSink = new RecordingSink("data", null);
+		float[] values = {1, 2, 3};
+
+		source.addSensorDataSink(sampleSink);
+		source.addSensorDataSink(dataSink);
+		source.pushSample(1, values);
+
+		assertSame(values, sampleSink.lastValue); // borrowed
+		assertNotSame(values, dataSink.lastValue); // copied
+		assertArrayEquals(values, (float[]) dataSink.lastValue, 0);
+	}
+
+	@Test
+	public void testConcurrentRegistration() throws Exception {
+		final SensorDataSource source = new SensorDataSource();
+		final RecordingSink fixed = new RecordingSink("fixed", null);
+		final int pushes = 200000;
+		final AtomicBoolean done = new AtomicBoolean();
+
+		source.addSensorDataSink(fixed);
+
+		Thread registrar = new Thread() {
+			@Override
+			public void run() {
+				while (!done.get()) {
+					RecordingSink sink = new RecordingSink("transient", null);
+					source.addSensorDataSink(sink, Math.random() * 2);
+					source.removeSensorDataSink(sink);
+				}
+			}
+		};
+
+		registrar.start();
+
+		try {
+			for (int i = 0; i < pushes; ++i) {
+				source.pushData(i, null);
+			}
+		} finally {
+			done.set(true);
+			registrar.join();
+		}
+
+		assertEquals(pushes, fixed.count);
+		assertEquals(1, source.getSensorDataSinks().length);
+	}
+}
@@ -0,0 +1,132 @@
+package com.talentica.rowingapp.common.data;
+
+import com.talentica.rowingapp.common.AppEventBus;
+import com.talentica.rowingapp.common.data.stroke.AppStroke;
+import com.talentica.rowingapp.common.data.way.DistanceResolverDefault;
+
+import java.util.Random;
+
+/**
+ * Micro benchmark of sensor sample throughput through the standard {@link AppStroke} pipeline.
+ * Synthetic 50Hz rowing-like accelerometer samples, plus an orientation sample every third accelerometer sample,
+ * are pushed straight into the input data sources in the calling thread, with a synchronous event bus.
+ * Samples are pushed from reused buffers, as the sensor sample rings do.
+ */
+public class SensorPipelineBenchmark {
+
+	private static final long SAMPLE_INTERVAL = 20000000; // 50Hz, in ns
+
+	private static final int ORIENT_INTERVAL = 3;
+
+	private static class BenchmarkDataInput extends RecordDataInput {
+
+		BenchmarkDataInput(AppStroke appStroke) {
+			super(appStroke, true);
+		}
+
+		@Override
+		protected void onSetPosFinish(double pos) {
+		}
+
+		@Override
+		public void skipReplayTime(float velocityX) {
+		}
+
+		@Override
+		public void setPaused(boolean pause) {
+		}
+	}
+
+	private final float[][] accelSamples;
+
+	private final float[][] orientSamples;
+
+	/**
+	 * @param sampleCount number of accelerometer samples per run
+	 * @param seed noise seed
+	 */
+	public SensorPipelineBenchmark(int sampleCount, long seed) {
+		Random rnd = new Random(seed);
+		double spm = 26;
+
+		accelSamples = new float[sampleCount][];
+		orientSamples = new float[sampleCount / ORIENT_INTERVAL + 1][];
+
+		for (int i = 0; i < sampleCount; ++i) {
+			double t = i * SAMPLE_INTERVAL / 1e9;
+			boolean rowing = (i / 6000) % 3 != 2; // 2 minutes rowing, 1 minute pause
+			double amp = rowing ? 2.5 : 0.05;
+			double phase = 2 * Math.PI * spm / 60 * t;
+
+			accelSamples[i] = new float[] {(float) (rnd.nextGaussian() * 0.1), (float) (rnd.nextGaussian() * 0.1),
+					(float) (9.8 + amp * Math.sin(phase) + rnd.nextGaussian() * 0.1)};
+
+			if (i % ORIENT_INTERVAL == 0) {
+				orientSamples[i / ORIENT_INTERVAL] = new float[] {90f, (float) rnd.nextGaussian(), (float) (3 * Math.sin(phase))};
+			}
+		}
+	}
+
+	/**
+	 * push all samples through a new pipeline
+	 * @return elapsed time in ns
+	 */
+	public long run() {
+		AppStroke appStroke = new AppStroke(new DistanceResolverDefault(), null, new AppEventBus(true));
+
+		try {
+			BenchmarkDataInput input = new BenchmarkDataInput(appStroke);
+
+			appStroke.setInput(input);
+
+			SensorDataSource accel = input.getAccelerometerDataSource();
+			SensorDataSource orient = input.getOrientationDataSource();
+			float[] accelBuffer = new float[3];
+			float[] orientBuffer = new float[3];
+
+			long start = System.nanoTime();
+
+			for (int i = 0; i < accelSamples.length; ++i) {
+				long timestamp = i * SAMPLE_INTERVAL;
+
+				if (i % ORIENT_INTERVAL == 0) {
+					System.arraycopy(orientSamples[i / ORIENT_INTERVAL], 0, orientBuffer, 0, orientBuffer.length);
+					orient.pushSample(timestamp, orientBuffer);
+				}
+
+				System.arraycopy(accelSamples[i], 0, accelBuffer, 0, accelBuffer.length);
+				accel.pushSample(timestamp, accelBuffer);
+			}
+
+			long elapsed = System.nanoTime() - start;
+
+			appStroke.stop();
+
+			return elapsed;
+		} finally {
+			appStroke.destroy();
+		}
+	}
+
+	public int getSampleCount() {
+		return accelSamples.length + (accelSamples.length + ORIENT_INTERVAL - 1) / ORIENT_INTERVAL;
+	}
+
+	/**
+	 * run the benchmark and print samples/sec per round
+	 * @param args [accelerometer sample count, default: 1 hour of samples] [rounds, default: 5]
+	 */
+	public static void main(String[] args) {
+		int sampleCount = args.length > 0 ? Integer.parseInt(args[0]) : 180000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		SensorPipelineBenchmark benchmark = new SensorPipelineBenchmark(sampleCount, 1);
+
+		for (int round = 0; round < rounds; ++round) {
+			long elapsed = benchmark.run();
+
+			System.out.println(String.format("round %d: %d samples in %.1f ms, %.0f samples/s",
+					round, benchmark.getSampleCount(), elapsed / 1e6, benchmark.getSampleCount() * 1e9 / elapsed));
+		}
+	}
+}
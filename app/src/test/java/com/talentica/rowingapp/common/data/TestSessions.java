@@ -0,0 +1,63 @@
+package com.talentica.rowingapp.common.data;
+
+import com.talentica.rowingapp.common.data.session.SessionFileWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * synthetic session files for tests
+ */
+public class TestSessions {
+
+	public static final long FIRST_TIMESTAMP = 1500000000000L;
+
+	/**
+	 * write a binary rowing session - accelerometer every 20ms, orientation every 60ms and GPS every second,
+	 * rowing at a constant stroke rate for 4 minutes, then resting for 2
+	 * @param file session file
+	 * @param minutes session duration
+	 * @param spm stroke rate
+	 * @param seed sensor noise seed
+	 * @return file
+	 * @throws IOException
+	 */
+	public static File writeRowingSession(File file, int minutes, double spm, long seed) throws IOException {
+		Random random = new Random(seed);
+		SessionFileWriter writer = new SessionFileWriter(new FileOutputStream(file), FIRST_TIMESTAMP, "test-" + seed,
+				new ArrayList<String>(), true);
+		double lat = 32.0;
+
+		try {
+			for (long ms = 0; ms < minutes * 60000L; ms += 20) {
+				double phase = 2 * Math.PI * spm / 60 * ms / 1000.0;
+				boolean rowing = (ms / 120000) % 3 != 2;
+				double amplitude = rowing ? 2.5 : 0.05;
+				long timestamp = ms * 1000000L;
+
+				writer.write(FIRST_TIMESTAMP + ms, DataRecord.Type.ACCEL, timestamp, new float[] {
+						(float) (random.nextGaussian() * 0.1),
+						(float) (random.nextGaussian() * 0.1),
+						(float) (9.8 + amplitude * Math.sin(phase) + random.nextGaussian() * 0.1)}, 3);
+
+				if (ms % 60 == 0) {
+					writer.write(FIRST_TIMESTAMP + ms, DataRecord.Type.ORIENT, timestamp, new float[] {
+							90, (float) random.nextGaussian(), (float) (3 * Math.sin(phase))}, 3);
+				}
+
+				if (ms % 1000 == 0) {
+					double speed = rowing ? 4.0 : 0.5;
+					lat += speed / 111000.0;
+					writer.write(FIRST_TIMESTAMP + ms, new DataRecord(DataRecord.Type.GPS, timestamp, new double[] {lat, 34.8, 10, speed, 0, 5}));
+				}
+			}
+		} finally {
+			writer.close();
+		}
+
+		return file;
+	}
+}
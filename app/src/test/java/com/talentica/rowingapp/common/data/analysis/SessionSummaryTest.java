@@ -0,0 +1,94 @@
+package com.talentica.rowingapp.common.data.analysis;
+
+import com.talentica.rowingapp.common.data.BatchReplay;
+import com.talentica.rowingapp.common.data.TestSessions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionSummaryTest {
+
+	private File dir;
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = File.createTempFile("summary", "");
+		dir.delete();
+		dir.mkdir();
+		file = TestSessions.writeRowingSession(new File(dir, "morning, \"easy\".trsd"), 6, 24, 1);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+		dir.delete();
+	}
+
+	/**
+	 * split a CSV line, unquoting quoted fields
+	 */
+	private static String[] parseCsv(String line) {
+		ArrayList<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+
+		for (int i = 0; i < line.length(); ++i) {
+			char c = line.charAt(i);
+
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+
+		fields.add(field.toString());
+
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	@Test
+	public void testCsvIsLocaleIndependentAndQuotesPath() throws Exception {
+		Locale locale = Locale.getDefault();
+		SessionSummary summary = SessionSummary.create(file, new BatchReplay(file).run());
+		String csv;
+
+		Locale.setDefault(Locale.GERMANY);
+
+		try {
+			csv = summary.toCsv();
+		} finally {
+			Locale.setDefault(locale);
+		}
+
+		String[] fields = parseCsv(csv);
+
+		assertEquals(parseCsv(SessionSummary.getCsvHeader()).length, fields.length);
+		assertEquals(file.getPath(), fields[0]);
+		assertEquals(summary.getAverageSpm(), Double.parseDouble(fields[3]), 0.05);
+		assertTrue(summary.getStrokeCount() > 0);
+		assertEquals(summary.getStrokeCount(), Integer.parseInt(fields[2]));
+	}
+}
@@ -0,0 +1,73 @@
+package com.talentica.rowingapp.common.data.session;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.metrics.PipelineMetrics;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncSessionWriterTest {
+
+	private static Thread findWriterThread() {
+		for (Thread thread: Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("AsyncSessionWriter") && thread.isAlive()) {
+				return thread;
+			}
+		}
+
+		return null;
+	}
+
+	@Test
+	public void testInterruptedWriterDropsRecords() throws Exception {
+		SessionFileWriter sessionWriter = new SessionFileWriter(new ByteArrayOutputStream(), 1000, "test", new ArrayList<String>(), true);
+		AsyncSessionWriter writer = new AsyncSessionWriter(sessionWriter, null, 16, 0, 0, null);
+
+		assertTrue(writer.offer(1000, new DataRecord(DataRecord.Type.HEART_BPM, 1, 60)));
+		writer.requestFlush();
+
+		while (writer.getWrittenCount() != 1) {
+			Thread.sleep(1);
+		}
+
+		Thread thread = findWriterThread();
+
+		assertNotNull(thread);
+
+		thread.interrupt();
+		thread.join(10000);
+
+		assertFalse(thread.isAlive());
+		assertFalse(writer.offer(1001, new DataRecord(DataRecord.Type.HEART_BPM, 2, 61)));
+		assertEquals(1, writer.getDroppedCount());
+
+		writer.close();
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		SessionFileWriter sessionWriter = new SessionFileWriter(new ByteArrayOutputStream(), 1000, "test", new ArrayList<String>(), true);
+		AsyncSessionWriter writer = new AsyncSessionWriter(sessionWriter, null, 16, 0, 0, null);
+		PipelineMetrics metrics = new PipelineMetrics();
+
+		writer.registerMetrics(metrics, "session.writer");
+
+		assertTrue(writer.offer(1000, new DataRecord(DataRecord.Type.HEART_BPM, 1, 60)));
+		writer.close();
+
+		assertFalse(writer.offer(1001, new DataRecord(DataRecord.Type.HEART_BPM, 2, 61)));
+		assertEquals("session.writer.dropped=1; session.writer.durable=1; session.writer.durableLogTimestamp=1000; session.writer.written=1",
+				metrics.getSummary());
+
+		metrics.unregisterGauges("session.writer.");
+
+		assertEquals("", metrics.getSummary());
+	}
+}
@@ -0,0 +1,70 @@
+package com.talentica.rowingapp.common.data.session;
+
+import com.talentica.rowingapp.common.data.TestSessions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinarySessionReaderTest {
+
+	private File compressed;
+
+	private File uncompressed;
+
+	@Before
+	public void setUp() throws Exception {
+		compressed = TestSessions.writeRowingSession(File.createTempFile("session", ".trsd"), 2, 24, 1);
+		uncompressed = File.createTempFile("session", ".trsd");
+		SessionFileFormat.transcode(compressed, uncompressed, false);
+	}
+
+	@After
+	public void tearDown() {
+		compressed.delete();
+		uncompressed.delete();
+	}
+
+	/**
+	 * file offsets grow steadily from the start to the end of file, also in compressed files with virtual positions
+	 */
+	private static void assertFileOffsets(File file) throws Exception {
+		SessionReader reader = SessionFileFormat.openReader(file);
+
+		try {
+			long first = reader.getFileOffset();
+			long last = first;
+			long maxStep = 0;
+
+			while (reader.next()) {
+				long offset = reader.getFileOffset();
+
+				assertTrue(offset >= last);
+				assertTrue(offset <= reader.length());
+
+				maxStep = Math.max(maxStep, offset - last);
+				last = offset;
+			}
+
+			assertTrue(reader.length() - last <= SessionFileFormat.BLOCK_SIZE);
+			assertTrue(maxStep < SessionFileFormat.BLOCK_SIZE / 4);
+
+			reader.seek(0);
+
+			assertEquals(first, reader.getFileOffset());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testFileOffset() throws Exception {
+		assertFileOffsets(compressed);
+		assertFileOffsets(uncompressed);
+	}
+}
@@ -0,0 +1,179 @@
+package com.talentica.rowingapp.common.data.session;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactEncodingTest {
+
+	private static final long FIRST_TIMESTAMP = 1000000000L;
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("compact", ".trsd");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private static CompactEncoding defaultEncoding() {
+		CompactEncoding encoding = new CompactEncoding();
+		encoding.setPrecision(DataRecord.Type.ACCEL, CompactEncoding.DEFAULT_ACCEL_PRECISION);
+		encoding.setPrecision(DataRecord.Type.ORIENT, CompactEncoding.DEFAULT_ORIENT_PRECISION);
+		return encoding;
+	}
+
+	/**
+	 * sensor-like records - accelerometer every 20ms, orientation every 60ms, GPS and heart rate every second
+	 */
+	private static List<DataRecord> records(int count) {
+		Random random = new Random(1);
+		ArrayList<DataRecord> records = new ArrayList<DataRecord>();
+
+		for (int i = 0; i < count; ++i) {
+			long timestamp = FIRST_TIMESTAMP + i * 20000000L;
+			double t = i / 50.0;
+
+			records.add(new DataRecord(DataRecord.Type.ACCEL, timestamp, new float[] {
+					(float) (0.2 * random.nextGaussian()),
+					(float) (6.5 + 2.5 * Math.sin(2 * Math.PI * t / 2.1) + 0.3 * random.nextGaussian()),
+					(float) (7.3 - 2.1 * Math.sin(2 * Math.PI * t / 2.1) + 0.3 * random.nextGaussian())}));
+
+			if (i % 3 == 0) {
+				records.add(new DataRecord(DataRecord.Type.ORIENT, timestamp, new float[] {
+						(float) (180 + 20 * random.nextDouble()), (float) (-40 + random.nextGaussian()), (float) (3 * Math.sin(t))}));
+			}
+
+			if (i % 50 == 0) {
+				records.add(new DataRecord(DataRecord.Type.GPS, timestamp, new double[] {
+						52.1 + i * 1e-7, 21.0 + i * 2e-7, 110.5, 3.5, 4.25, 0.0}));
+				records.add(new DataRecord(DataRecord.Type.HEART_BPM, timestamp, 120 + i % 13));
+			}
+		}
+
+		return records;
+	}
+
+	private void write(List<DataRecord> records, CompactEncoding encoding) throws Exception {
+		SessionFileWriter writer = new SessionFileWriter(new FileOutputStream(file), FIRST_TIMESTAMP, "test",
+				Collections.<String>emptyList(), false, encoding);
+
+		try {
+			for (DataRecord record: records) {
+				writer.write(record.getTimestamp(), record);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private List<DataRecord> read() throws Exception {
+		BinarySessionReader reader = new BinarySessionReader(file);
+		ArrayList<DataRecord> records = new ArrayList<DataRecord>();
+
+		try {
+			while (reader.next()) {
+				assertEquals(reader.getRecord().getTimestamp(), reader.getLogTimestamp());
+				records.add(reader.getRecord());
+			}
+		} finally {
+			reader.close();
+		}
+
+		return records;
+	}
+
+	private static void assertWithin(float[] expected, float[] actual, double precision) {
+		assertEquals(expected.length, actual.length);
+
+		for (int i = 0; i < expected.length; ++i) {
+			assertTrue(expected[i] + " decoded as " + actual[i],
+					Math.abs(expected[i] - actual[i]) <= precision / 2 + Math.ulp(expected[i]));
+		}
+	}
+
+	@Test
+	public void testRoundTripWithinPrecision() throws Exception {
+		List<DataRecord> records = records(5000);
+		write(records, defaultEncoding());
+		List<DataRecord> decoded = read();
+
+		assertEquals(records.size(), decoded.size());
+
+		for (int i = 0; i < records.size(); ++i) {
+			DataRecord expected = records.get(i);
+			DataRecord actual = decoded.get(i);
+
+			assertEquals(expected.getType(), actual.getType());
+			assertEquals(expected.getTimestamp(), actual.getTimestamp());
+
+			switch (expected.getType()) {
+			case ACCEL:
+				assertWithin((float[]) expected.getData(), (float[]) actual.getData(), CompactEncoding.DEFAULT_ACCEL_PRECISION);
+				break;
+			case ORIENT:
+				assertWithin((float[]) expected.getData(), (float[]) actual.getData(), CompactEncoding.DEFAULT_ORIENT_PRECISION);
+				break;
+			case GPS:
+				assertArrayEquals((double[]) expected.getData(), (double[]) actual.getData(), 0);
+				break;
+			default:
+				assertEquals(expected.getData(), actual.getData());
+				break;
+			}
+		}
+	}
+
+	@Test
+	public void testLosslessWithoutPrecision() throws Exception {
+		List<DataRecord> records = records(500);
+		write(records, new CompactEncoding());
+		List<DataRecord> decoded = read();
+
+		assertEquals(records.size(), decoded.size());
+
+		for (int i = 0; i < records.size(); ++i) {
+			if (records.get(i).getData() instanceof float[]) {
+				assertArrayEquals((float[]) records.get(i).getData(), (float[]) decoded.get(i).getData(), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testSmallerThanPlainEncoding() throws Exception {
+		List<DataRecord> records = records(5000);
+		write(records, null);
+		long plain = file.length();
+
+		write(records, defaultEncoding());
+
+		assertTrue(file.length() + " >= " + plain, file.length() < plain);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsPrecisionOfScalarType() {
+		new CompactEncoding().setPrecision(DataRecord.Type.STROKE_RATE, 1);
+	}
+
+	@Test
+	public void testDefaultIsLossless() {
+		assertEquals(0, new CompactEncoding().getPrecision(DataRecord.Type.ACCEL), 0);
+	}
+}
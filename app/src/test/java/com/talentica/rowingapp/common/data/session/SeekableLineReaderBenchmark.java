@@ -0,0 +1,45 @@
+package com.talentica.rowingapp.common.data.session;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+/**
+ * Line reading throughput of {@link SeekableLineReader} against RandomAccessFile.readLine()
+ */
+public class SeekableLineReaderBenchmark {
+
+	/**
+	 * @param args session file
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		final File file = new File(args[0]);
+
+		for (int round = 0; round < 3; ++round) {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			long start = System.nanoTime();
+			int count = 0;
+
+			while (raf.readLine() != null) {
+				count++;
+			}
+
+			long rafTime = System.nanoTime() - start;
+			raf.close();
+
+			SeekableLineReader reader = new SeekableLineReader(file);
+			start = System.nanoTime();
+			count = 0;
+
+			while (reader.readLine() != null) {
+				count++;
+			}
+
+			long readerTime = System.nanoTime() - start;
+			reader.close();
+
+			System.out.println(String.format("%d lines: RandomAccessFile %.0f lines/s, SeekableLineReader %.0f lines/s",
+					count, count * 1e9 / rafTime, count * 1e9 / readerTime));
+		}
+	}
+}
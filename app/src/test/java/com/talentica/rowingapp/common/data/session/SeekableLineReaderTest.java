@@ -0,0 +1,132 @@
+package com.talentica.rowingapp.common.data.session;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SeekableLineReaderTest {
+
+	private File file;
+
+	private RandomAccessFile raf;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("lines", ".txt");
+		Random random = new Random(1);
+		StringBuilder text = new StringBuilder();
+		String[] endings = {"\n", "\r\n", "\r"};
+
+		for (int i = 0; i < 2000; ++i) {
+			text.append(i).append(" ACCEL ").append(random.nextLong());
+
+			for (int j = random.nextInt(300); j > 0; --j) { // some lines longer than the initial line buffer
+				text.append('x');
+			}
+
+			text.append(endings[random.nextInt(endings.length)]);
+
+			if (i % 100 == 0) {
+				text.append('\n'); // empty line
+			}
+		}
+
+		text.append("last line without ending");
+
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(text.toString().getBytes("ISO-8859-1"));
+		out.close();
+
+		raf = new RandomAccessFile(file, "r");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		raf.close();
+		file.delete();
+	}
+
+	private static List<Long> readAll(SeekableLineReader reader, RandomAccessFile raf) throws Exception {
+		ArrayList<Long> positions = new ArrayList<Long>();
+		String line;
+
+		do {
+			positions.add(raf.getFilePointer());
+			assertEquals(raf.getFilePointer(), reader.getFilePointer());
+			line = raf.readLine();
+			assertEquals(line, reader.readLine());
+		} while (line != null);
+
+		return positions;
+	}
+
+	@Test
+	public void testReadsLikeRandomAccessFile() throws Exception {
+		SeekableLineReader reader = new SeekableLineReader(new RandomAccessFile(file, "r"), 64);
+
+		try {
+			readAll(reader, raf);
+			assertNull(reader.readLine());
+			assertEquals(raf.length(), reader.length());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testSeeksLikeRandomAccessFile() throws Exception {
+		SeekableLineReader reader = new SeekableLineReader(new RandomAccessFile(file, "r"), 1024);
+
+		try {
+			List<Long> positions = readAll(reader, raf);
+			Random random = new Random(2);
+
+			for (int i = 0; i < 1000; ++i) {
+				long pos = random.nextBoolean() ? positions.get(random.nextInt(positions.size())) : (long) random.nextInt((int) raf.length() + 1);
+
+				if (random.nextInt(4) == 0) { // near the current position - inside the buffer
+					pos = Math.min(raf.length(), Math.max(0, reader.getFilePointer() + random.nextInt(200) - 100));
+				}
+
+				raf.seek(pos);
+				reader.seek(pos);
+
+				for (int j = 0; j < 3; ++j) {
+					assertEquals(raf.readLine(), reader.readLine());
+					assertEquals(raf.getFilePointer(), reader.getFilePointer());
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testReadsBytes() throws Exception {
+		SeekableLineReader reader = new SeekableLineReader(new RandomAccessFile(file, "r"), 16);
+
+		try {
+			reader.seek(5);
+			raf.seek(5);
+
+			for (int i = 0; i < 100; ++i) {
+				assertEquals(raf.read(), reader.read());
+			}
+
+			reader.seek(raf.length());
+			assertEquals(-1, reader.read());
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.talentica.rowingapp.common.data.session;
+
+import com.talentica.rowingapp.common.data.DataRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TextSessionReaderTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("session", ".txt");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private void write(String... lines) throws Exception {
+		FileWriter writer = new FileWriter(file);
+
+		for (String line: lines) {
+			writer.write(line);
+			writer.write('\n');
+		}
+
+		writer.close();
+	}
+
+	@Test
+	public void testReadsHeaderAndRecords() throws Exception {
+		write("1500000000000 LOGFILE_VERSION 0 " + SessionRecorderConstants.TEXT_LOGFILE_VERSION + "@@",
+				"1500000000001 UUID 0 unused@@",
+				"1500000000002 NO_SUCH_TYPE 0 1@@",
+				"1500000000020 ACCEL 20000000 0.5,-1.0,9.75@@",
+				"1500000000030 ACCEL 30000000 truncated",
+				"1500000000040  HEART_BPM  40000000 72@@");
+
+		TextSessionReader reader = new TextSessionReader(file);
+
+		try {
+			assertEquals(1500000000000L, reader.getFirstTimestamp());
+			assertEquals("1500000000001", reader.getUuid());
+
+			assertTrue(reader.next());
+			assertEquals(1500000000020L, reader.getLogTimestamp());
+			assertSame(DataRecord.Type.ACCEL, reader.getRecord().getType());
+			assertArrayEquals(new float[] {0.5f, -1.0f, 9.75f}, (float[]) reader.getRecord().getData(), 0);
+
+			assertTrue(reader.next());
+			assertSame(DataRecord.Type.HEART_BPM, reader.getRecord().getType());
+			assertEquals(40000000L, reader.getRecord().getTimestamp());
+			assertEquals(72, reader.getRecord().getData());
+
+			assertFalse(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = SessionFileVersionError.class)
+	public void testRejectsOtherVersion() throws Exception {
+		write("1500000000000 LOGFILE_VERSION 0 " + (SessionRecorderConstants.TEXT_LOGFILE_VERSION - 1) + "@@",
+				"1500000000001 UUID 0 unused@@");
+
+		new TextSessionReader(file);
+	}
+
+	@Test(expected = SessionFileVersionError.class)
+	public void testRejectsMissingUuid() throws Exception {
+		write("1500000000000 LOGFILE_VERSION 0 " + SessionRecorderConstants.TEXT_LOGFILE_VERSION + "@@",
+				"1500000000x01 UUID 0 unused@@");
+
+		new TextSessionReader(file);
+	}
+}
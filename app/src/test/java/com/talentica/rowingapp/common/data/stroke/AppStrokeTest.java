@@ -0,0 +1,39 @@
+package com.talentica.rowingapp.common.data.stroke;
+
+import com.talentica.rowingapp.common.AppEventBus;
+import com.talentica.rowingapp.common.data.way.DistanceResolverDefault;
+import com.talentica.rowingapp.common.param.ParamKeys;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+public class AppStrokeTest {
+
+	private static Thread findReporterThread() {
+		for (Thread thread: Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("PipelineMetrics reporter") && thread.isAlive()) {
+				return thread;
+			}
+		}
+
+		return null;
+	}
+
+	@Test
+	public void testDestroyStopsMetricsReporter() throws Exception {
+		AppStroke appStroke = new AppStroke(new DistanceResolverDefault(), null, new AppEventBus(true));
+
+		appStroke.getParameters().setParam(ParamKeys.PARAM_METRICS_REPORT_INTERVAL.getId(), 1000);
+
+		Thread reporter = findReporterThread();
+
+		assertNotNull(reporter);
+
+		appStroke.destroy();
+		reporter.join(10000);
+
+		assertFalse(reporter.isAlive());
+	}
+}
@@ -0,0 +1,145 @@
+package com.talentica.rowingapp.common.data.stroke;
+
+import com.talentica.rowingapp.common.data.BatchReplay;
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.param.ParamKeys;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Replays session files with each {@link StrokeRateEngine} and compares their STROKE_RATE values. CROSSING emits one
+ * per stroke, SPECTRAL one per estimate, so each stroke is compared with the latest SPECTRAL estimate at its time.
+ * Jumpiness is the mean change from one rate to the next, outliers are rates more than OUTLIER_SPM off the median
+ * of the surrounding rates.
+ */
+public class StrokeRateEngineComparison {
+
+	private static final int OUTLIER_SPM = 5;
+
+	/**
+	 * rates on each side of a rate for its median
+	 */
+	private static final int MEDIAN_RADIUS = 3;
+
+	/**
+	 * STROKE_RATE values of a replay, and their timestamps
+	 */
+	private static class Rates {
+		final long[] timestamps;
+		final int[] rates;
+
+		Rates(List<DataRecord> events) {
+			timestamps = new long[events.size()];
+			rates = new int[events.size()];
+
+			for (int i = 0; i < rates.length; ++i) {
+				timestamps[i] = events.get(i).getTimestamp();
+				rates[i] = (Integer) events.get(i).getData();
+			}
+		}
+
+		/**
+		 * @return latest rate at or before a timestamp, 0 if none
+		 */
+		int rateAt(long timestamp) {
+			int idx = Arrays.binarySearch(timestamps, timestamp);
+
+			if (idx < 0) {
+				idx = -idx - 2;
+			} else {
+				while (idx + 1 < timestamps.length && timestamps[idx + 1] == timestamp) {
+					idx++;
+				}
+			}
+
+			return idx < 0 ? 0 : rates[idx];
+		}
+	}
+
+	private static Rates replay(File file, StrokeRateEngine engine) throws Exception {
+		BatchReplay replay = new BatchReplay(file);
+
+		replay.setEventTypes(EnumSet.of(DataRecord.Type.STROKE_RATE));
+		replay.setParameter(ParamKeys.PARAM_STROKE_RATE_ENGINE.getId(), engine.name());
+
+		return new Rates(replay.run().getEvents());
+	}
+
+	private static String describe(int[] rates) {
+		long sum = 0;
+		int count = 0;
+		long jumpSum = 0;
+		int jumpCount = 0;
+		int outliers = 0;
+		int[] neighbours = new int[2 * MEDIAN_RADIUS + 1];
+
+		for (int i = 0; i < rates.length; ++i) {
+			if (rates[i] <= 0) {
+				continue;
+			}
+
+			sum += rates[i];
+			++count;
+
+			if (i > 0 && rates[i - 1] > 0) {
+				jumpSum += Math.abs(rates[i] - rates[i - 1]);
+				++jumpCount;
+			}
+
+			int n = 0;
+
+			for (int j = Math.max(0, i - MEDIAN_RADIUS); j <= Math.min(rates.length - 1, i + MEDIAN_RADIUS); ++j) {
+				if (rates[j] > 0) {
+					neighbours[n++] = rates[j];
+				}
+			}
+
+			Arrays.sort(neighbours, 0, n);
+
+			if (Math.abs(rates[i] - neighbours[n / 2]) > OUTLIER_SPM) {
+				++outliers;
+			}
+		}
+
+		return String.format("%d rates, mean %.1f spm, jumpiness %.2f spm/rate, %d outliers",
+				rates.length, count == 0 ? 0 : sum / (double) count, jumpCount == 0 ? 0 : jumpSum / (double) jumpCount, outliers);
+	}
+
+	/**
+	 * @param args session files
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: StrokeRateEngineComparison <session file> ...");
+			System.exit(1);
+		}
+
+		for (String arg: args) {
+			File file = new File(arg);
+			Rates crossing = replay(file, StrokeRateEngine.CROSSING);
+			Rates spectral = replay(file, StrokeRateEngine.SPECTRAL);
+
+			System.out.println(arg);
+			System.out.println("  crossing: " + describe(crossing.rates));
+			System.out.println("  spectral: " + describe(spectral.rates));
+
+			long sum = 0;
+			int count = 0;
+
+			for (int i = 0; i < crossing.rates.length; ++i) {
+				int rate = spectral.rateAt(crossing.timestamps[i]);
+
+				if (crossing.rates[i] > 0 && rate > 0) {
+					sum += Math.abs(crossing.rates[i] - rate);
+					count++;
+				}
+			}
+
+			System.out.println(String.format("  mean difference: %.2f spm over %d strokes", count == 0 ? 0 : sum / (double) count, count));
+		}
+	}
+}
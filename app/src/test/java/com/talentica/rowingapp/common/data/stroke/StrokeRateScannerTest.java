@@ -0,0 +1,108 @@
+package com.talentica.rowingapp.common.data.stroke;
+
+import com.talentica.rowingapp.common.data.BatchReplay;
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.TestSessions;
+import com.talentica.rowingapp.common.data.analysis.SessionSummary;
+import com.talentica.rowingapp.common.param.ParamKeys;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StrokeRateScannerTest {
+
+	private static final double SPM = 28;
+
+	/**
+	 * ns between SPECTRAL estimates - the session has an accelerometer sample every 20ms
+	 */
+	private static final long ESTIMATE_INTERVAL = SpectralStrokeRateEstimator.DEFAULT_INTERVAL * 20000000L;
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = TestSessions.writeRowingSession(File.createTempFile("strokerate", ".trsd"), 6, SPM, 1);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private BatchReplay.Result replay(StrokeRateEngine engine) throws Exception {
+		BatchReplay replay = new BatchReplay(file);
+
+		replay.setParameter(ParamKeys.PARAM_STROKE_RATE_ENGINE.getId(), engine.name());
+
+		return replay.run();
+	}
+
+	private static int count(List<DataRecord> events, DataRecord.Type type) {
+		int count = 0;
+
+		for (DataRecord event: events) {
+			if (event.getType() == type) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Test
+	public void testCrossingFiresOncePerStroke() throws Exception {
+		List<DataRecord> events = replay(StrokeRateEngine.CROSSING).getEvents();
+
+		assertTrue(count(events, DataRecord.Type.STROKE_RISE_ABOVE_ZERO) > 100);
+		assertEquals(count(events, DataRecord.Type.STROKE_RISE_ABOVE_ZERO), count(events, DataRecord.Type.STROKE_RATE));
+	}
+
+	@Test
+	public void testSpectralFiresOnEachEstimate() throws Exception {
+		long last = 0;
+		int rates = 0;
+		int rowingRates = 0;
+
+		for (DataRecord event: replay(StrokeRateEngine.SPECTRAL).getEvents()) {
+			if (event.getType() != DataRecord.Type.STROKE_RATE) {
+				continue;
+			}
+
+			if (last != 0) {
+				assertEquals(ESTIMATE_INTERVAL, event.getTimestamp() - last);
+			}
+
+			last = event.getTimestamp();
+			rates++;
+
+			long ms = event.getTimestamp() / 1000000;
+			boolean rowing = (ms / 120000) % 3 != 2;
+
+			if (rowing && ms % 120000 > 15000) { // the estimator window is about 10 seconds
+				assertEquals("rate at " + ms + "ms", SPM, (Integer) event.getData(), 1.5);
+				rowingRates++;
+			}
+		}
+
+		assertTrue(rowingRates > 300);
+		assertTrue(rates > rowingRates);
+	}
+
+	@Test
+	public void testSummaryStrokeCountDoesNotDependOnEngine() throws Exception {
+		SessionSummary crossing = SessionSummary.create(file, replay(StrokeRateEngine.CROSSING));
+		SessionSummary spectral = SessionSummary.create(file, replay(StrokeRateEngine.SPECTRAL));
+
+		assertTrue(crossing.getStrokeCount() > 100);
+		assertEquals(crossing.getStrokeCount(), spectral.getStrokeCount());
+		assertEquals(SPM, spectral.getAverageSpm(), 3);
+	}
+}
@@ -0,0 +1,107 @@
+package com.talentica.rowingapp.common.filter;
+
+import java.util.Random;
+
+/**
+ * Times {@link BiquadFilter}, one by one and a block at a time, against the first order {@link LowpassFilter}
+ * zero level subtraction formerly used to remove gravity. See BiquadFilterTest for its response and block results.
+ */
+public class BiquadFilterBenchmark {
+
+	private static final double SAMPLE_RATE = 50;
+
+	private static final int BLOCK_SIZE = 64;
+
+	/**
+	 * rowing-like accelerometer axis values, on top of a gravity component, with a few NaN values
+	 */
+	private static float[] signal(int count) {
+		Random random = new Random(1);
+		float[] values = new float[count];
+
+		for (int i = 0; i < count; ++i) {
+			double t = i / SAMPLE_RATE;
+			values[i] = (float) (6.5 + 2.5 * Math.sin(2 * Math.PI * t / 2.4) + 0.4 * random.nextGaussian());
+
+			if (i % 997 == 500) {
+				values[i] = Float.NaN;
+			}
+		}
+
+		values[0] = Float.NaN;
+
+		return values;
+	}
+
+	private static void filterSamples(PassFilterBase filter, float[] in, float[] out) {
+		float[] sample = new float[1];
+
+		for (int i = 0; i < in.length; ++i) {
+			sample[0] = in[i];
+			out[i] = filter.filter(sample)[0];
+		}
+	}
+
+	/**
+	 * zero level subtraction, as the LOWPASS acceleration front end
+	 */
+	private static void subtractZeroLevel(LowpassFilter filter, float[] in, float[] out) {
+		float[] sample = new float[1];
+
+		for (int i = 0; i < in.length; ++i) {
+			sample[0] = in[i];
+			out[i] = in[i] - filter.filter(sample)[0];
+		}
+	}
+
+	private static void filterBlocks(PassFilterBase filter, float[] in, float[] out) {
+		for (int i = 0; i < in.length; i += BLOCK_SIZE) {
+			filter.filter(in, i, Math.min(BLOCK_SIZE, in.length - i), out);
+		}
+	}
+
+	/**
+	 * @param args [samples per run, default: 200000] [rounds, default: 5]
+	 */
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		float[] in = signal(count);
+		float[] actual = new float[count];
+
+		long zeroLevel = Long.MAX_VALUE;
+		long highpass = Long.MAX_VALUE;
+		long highpassBlocks = Long.MAX_VALUE;
+		long bandpass = Long.MAX_VALUE;
+		long bandpassBlocks = Long.MAX_VALUE;
+
+		for (int r = 0; r < rounds; ++r) {
+			long start = System.nanoTime();
+			subtractZeroLevel(new LowpassFilter(0.005f), in, actual);
+			zeroLevel = Math.min(zeroLevel, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			filterSamples(BiquadFilter.highpass(0.1, SAMPLE_RATE, 2), in, actual);
+			highpass = Math.min(highpass, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			filterBlocks(BiquadFilter.highpass(0.1, SAMPLE_RATE, 2), in, actual);
+			highpassBlocks = Math.min(highpassBlocks, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			filterSamples(BiquadFilter.bandpass(0.1, 5, SAMPLE_RATE, 2), in, actual);
+			bandpass = Math.min(bandpass, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			filterBlocks(BiquadFilter.bandpass(0.1, 5, SAMPLE_RATE, 2), in, actual);
+			bandpassBlocks = Math.min(bandpassBlocks, System.nanoTime() - start);
+		}
+
+		System.out.println(String.format("lowpass zero level: %.1f ns/sample", zeroLevel / (double) count));
+		System.out.println(String.format("highpass:           %.1f ns/sample, blocks of %d: %.1f ns/sample",
+				highpass / (double) count, BLOCK_SIZE, highpassBlocks / (double) count));
+		System.out.println(String.format("bandpass:           %.1f ns/sample, blocks of %d: %.1f ns/sample",
+				bandpass / (double) count, BLOCK_SIZE, bandpassBlocks / (double) count));
+	}
+}
@@ -0,0 +1,150 @@
+package com.talentica.rowingapp.common.filter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BiquadFilterTest {
+
+	private static final double SAMPLE_RATE = 50;
+
+	private static final int BLOCK_SIZE = 64;
+
+	/**
+	 * @return steady state gain of a sine wave through a filter, from its RMS value
+	 */
+	private static double measureGain(BiquadFilter filter, double frequency) {
+		int settle = (int) (SAMPLE_RATE * 200);
+		int measure = (int) (SAMPLE_RATE * 100);
+		float[] sample = new float[1];
+		double squaredSum = 0;
+
+		for (int i = 0; i < settle + measure; ++i) {
+			sample[0] = (float) Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE);
+			float y = filter.filter(sample)[0];
+
+			if (i >= settle) {
+				squaredSum += y * y;
+			}
+		}
+
+		return Math.sqrt(2 * squaredSum / measure);
+	}
+
+	private static double butterworthGain(double frequency, double cutoff, int order, boolean highpass) {
+		double r = highpass ? cutoff / frequency : frequency / cutoff;
+		return 1 / Math.sqrt(1 + Math.pow(r, 2 * order));
+	}
+
+	/**
+	 * rowing-like accelerometer axis values, on top of a gravity component, starting with and including a few NaN values
+	 */
+	private static float[] signal(int count) {
+		Random random = new Random(1);
+		float[] values = new float[count];
+
+		for (int i = 0; i < count; ++i) {
+			values[i] = (float) (6.5 + 2.5 * Math.sin(2 * Math.PI * i / SAMPLE_RATE / 2.4) + 0.4 * random.nextGaussian());
+
+			if (i % 997 == 500) {
+				values[i] = Float.NaN;
+			}
+		}
+
+		values[0] = Float.NaN;
+
+		return values;
+	}
+
+	private static void assertBitEqual(float[] expected, float[] actual) {
+		for (int i = 0; i < expected.length; ++i) {
+			assertEquals("value " + i, Float.floatToIntBits(expected[i]), Float.floatToIntBits(actual[i]));
+		}
+	}
+
+	/**
+	 * filter one by one and a block at a time, redesigning both filters for a new sample rate at sample redesignAt
+	 */
+	private static void assertBlocks(BiquadFilter samples, BiquadFilter blocks, int redesignAt) {
+		float[] in = signal(10000);
+		float[] expected = new float[in.length];
+		float[] actual = new float[in.length];
+		float[] sample = new float[1];
+
+		for (int i = 0; i < in.length; ++i) {
+			if (i == redesignAt) {
+				samples.setSampleRate(2 * SAMPLE_RATE);
+			}
+
+			sample[0] = in[i];
+			expected[i] = samples.filter(sample)[0];
+		}
+
+		for (int i = 0; i < in.length; i += BLOCK_SIZE) {
+			int end = Math.min(i + BLOCK_SIZE, in.length);
+
+			if (redesignAt >= i && redesignAt < end) {
+				blocks.filter(in, i, redesignAt - i, actual);
+				blocks.setSampleRate(2 * SAMPLE_RATE);
+				blocks.filter(in, redesignAt, end - redesignAt, actual);
+			} else {
+				blocks.filter(in, i, end - i, actual);
+			}
+		}
+
+		assertBitEqual(expected, actual);
+	}
+
+	/**
+	 * the bilinear transform matches the Butterworth response up to the higher cutoff, and attenuates more above it
+	 */
+	@Test
+	public void testButterworthResponse() {
+		double[] frequencies = {0.02, 0.05, 0.1, 0.2, 0.4, 0.8, 2, 5, 10, 20};
+
+		for (double f: frequencies) {
+			assertEquals("highpass at " + f + "Hz", butterworthGain(f, 0.1, 2, true),
+					measureGain(BiquadFilter.highpass(0.1, SAMPLE_RATE, 2), f), 0.02);
+
+			double lowpass = butterworthGain(f, 5, 2, false);
+			double bandpass = butterworthGain(f, 0.1, 2, true) * lowpass;
+
+			if (f <= 5) {
+				assertEquals("lowpass at " + f + "Hz", lowpass, measureGain(BiquadFilter.lowpass(5, SAMPLE_RATE, 2), f), 0.02);
+				assertEquals("bandpass at " + f + "Hz", bandpass, measureGain(BiquadFilter.bandpass(0.1, 5, SAMPLE_RATE, 2), f), 0.02);
+			} else {
+				assertTrue("lowpass at " + f + "Hz", measureGain(BiquadFilter.lowpass(5, SAMPLE_RATE, 2), f) < lowpass);
+				assertTrue("bandpass at " + f + "Hz", measureGain(BiquadFilter.bandpass(0.1, 5, SAMPLE_RATE, 2), f) < bandpass);
+			}
+		}
+	}
+
+	@Test
+	public void testBlocks() {
+		assertBlocks(BiquadFilter.highpass(0.1, SAMPLE_RATE, 2), BiquadFilter.highpass(0.1, SAMPLE_RATE, 2), -1);
+		assertBlocks(BiquadFilter.bandpass(0.1, 5, SAMPLE_RATE, 2), BiquadFilter.bandpass(0.1, 5, SAMPLE_RATE, 2), -1);
+		assertBlocks(BiquadFilter.lowpass(5, SAMPLE_RATE, 4), BiquadFilter.lowpass(5, SAMPLE_RATE, 4), -1);
+	}
+
+	@Test
+	public void testBlocksAcrossRedesign() {
+		assertBlocks(BiquadFilter.highpass(0.1, SAMPLE_RATE, 2), BiquadFilter.highpass(0.1, SAMPLE_RATE, 2), 4321);
+		assertBlocks(BiquadFilter.bandpass(0.1, 5, SAMPLE_RATE, 2), BiquadFilter.bandpass(0.1, 5, SAMPLE_RATE, 2), 4321);
+	}
+
+	@Test
+	public void testReset() {
+		BiquadFilter filter = BiquadFilter.highpass(0.1, SAMPLE_RATE, 2);
+		float[] first = filter.filter(new float[] {9.8f, 1, 2}).clone();
+
+		filter.filter(new float[] {3, 4, 5});
+		filter.reset();
+
+		assertNull(filter.getFilteredValues());
+		assertEquals(Float.floatToIntBits(first[0]), Float.floatToIntBits(filter.filter(new float[] {9.8f})[0]));
+	}
+}
@@ -0,0 +1,213 @@
+package com.talentica.rowingapp.common.filter;
+
+import com.talentica.rowingapp.common.AppEventBus;
+import com.talentica.rowingapp.common.data.DataIdx;
+import com.talentica.rowingapp.common.data.SensorDataSink;
+import com.talentica.rowingapp.common.data.stroke.AppStroke;
+import com.talentica.rowingapp.common.data.stroke.StrokeRateScanner;
+import com.talentica.rowingapp.common.data.way.DistanceResolverDefault;
+import com.talentica.rowingapp.common.filter.acceleration.AccelerationFilter;
+
+import java.util.Random;
+
+/**
+ * Times filtering samples one by one against filtering blocks of samples - {@link LowpassFilter} on its own,
+ * {@link AccelerationFilter#filterBlock(long[], float[], int, int, float[])} and the stroke rate scanner with amplitudes
+ * prepared by {@link StrokeRateScanner#prepareBlock(float[], int, int)}. See BlockFilterTest for the results being identical
+ */
+public class BlockFilterBenchmark {
+
+	/**
+	 * 50Hz, in ns
+	 */
+	private static final long SAMPLE_INTERVAL = 20000000;
+
+	/**
+	 * samples per block - about a second of accelerometer samples
+	 */
+	private static final int BLOCK_SIZE = 64;
+
+	private static final float FILTERING_FACTOR = 0.25f;
+
+	/**
+	 * rowing-like accelerometer samples, DataIdx.ACCEL_ITEM_COUNT values each, with a few NaN values
+	 */
+	private static float[] accelSignal(int count) {
+		Random random = new Random(1);
+		float[] values = new float[count * DataIdx.ACCEL_ITEM_COUNT];
+
+		for (int i = 0; i < count; ++i) {
+			double t = i * SAMPLE_INTERVAL / 1e9;
+			double a = 2.5 * Math.sin(2 * Math.PI * t / 2.4) + 0.4 * random.nextGaussian();
+			int idx = i * DataIdx.ACCEL_ITEM_COUNT;
+
+			values[idx + DataIdx.ACCEL_X] = (float) (0.2 * random.nextGaussian());
+			values[idx + DataIdx.ACCEL_Y] = (float) (0.3 + 0.6 * a);
+			values[idx + DataIdx.ACCEL_Z] = (float) (-0.2 + 0.8 * a);
+
+			if (i % 997 == 500) {
+				values[idx + DataIdx.ACCEL_Y] = Float.NaN;
+			}
+		}
+
+		return values;
+	}
+
+	private static long[] timestamps(int count) {
+		long[] timestamps = new long[count];
+
+		for (int i = 0; i < count; ++i) {
+			timestamps[i] = (i + 1) * SAMPLE_INTERVAL;
+		}
+
+		return timestamps;
+	}
+
+	private static void lowpassSamples(float[] in, int channels, float[] out) {
+		LowpassFilter filter = new LowpassFilter(FILTERING_FACTOR);
+		float[] sample = new float[channels];
+
+		for (int i = 0; i < in.length; i += channels) {
+			System.arraycopy(in, i, sample, 0, channels);
+			System.arraycopy(filter.filter(sample), 0, out, i, channels);
+		}
+	}
+
+	private static void lowpassBlocks(float[] in, int channels, float[] out) {
+		LowpassFilter filter = new LowpassFilter(FILTERING_FACTOR);
+		filter.filter(new float[channels]); // set the channel count - filtering zeros keeps the initial state
+
+		int blockLen = BLOCK_SIZE * channels;
+
+		for (int i = 0; i < in.length; i += blockLen) {
+			filter.filter(in, i, Math.min(blockLen, in.length - i), out);
+		}
+	}
+
+	private static AppStroke newAppStroke() {
+		return new AppStroke(new DistanceResolverDefault(), null, new AppEventBus(true));
+	}
+
+	/**
+	 * acceleration amplitudes, one sample at a time
+	 */
+	private static float[] accelerationSamples(AccelerationFilter filter, long[] timestamps, float[] accel) {
+		final float[] amplitudes = new float[timestamps.length];
+		final int[] idx = {0};
+		float[] sample = new float[DataIdx.ACCEL_ITEM_COUNT];
+
+		filter.addSensorDataSink(new SensorDataSink() {
+			@Override
+			public void onSensorData(long timestamp, Object value) {
+				amplitudes[idx[0]++] = ((float[]) value)[0];
+			}
+		});
+
+		for (int i = 0; i < timestamps.length; ++i) {
+			System.arraycopy(accel, i * DataIdx.ACCEL_ITEM_COUNT, sample, 0, DataIdx.ACCEL_ITEM_COUNT);
+			filter.onSample(timestamps[i], sample);
+		}
+
+		return amplitudes;
+	}
+
+	/**
+	 * acceleration amplitudes, a block at a time
+	 */
+	private static float[] accelerationBlocks(AccelerationFilter filter, long[] timestamps, float[] accel) {
+		int count = timestamps.length;
+		float[] amplitudes = new float[count];
+		float[] block = new float[BLOCK_SIZE];
+
+		for (int i = 0; i < count; i += BLOCK_SIZE) {
+			int n = Math.min(BLOCK_SIZE, count - i);
+
+			filter.filterBlock(timestamps, accel, i, n, block);
+			System.arraycopy(block, 0, amplitudes, i, n);
+		}
+
+		return amplitudes;
+	}
+
+	private static long timeScanner(long[] timestamps, float[] amplitudes, boolean blocked) {
+		StrokeRateScanner scanner = newAppStroke().getStrokeRateScanner();
+		float[] sample = new float[1];
+		long start = System.nanoTime();
+
+		if (blocked) {
+			for (int i = 0; i < timestamps.length; i += BLOCK_SIZE) {
+				int n = Math.min(BLOCK_SIZE, timestamps.length - i);
+
+				scanner.prepareBlock(amplitudes, i, n);
+
+				for (int j = i; j < i + n; ++j) {
+					sample[0] = amplitudes[j];
+					scanner.onSample(timestamps[j], sample);
+				}
+			}
+		} else {
+			for (int i = 0; i < timestamps.length; ++i) {
+				sample[0] = amplitudes[i];
+				scanner.onSample(timestamps[i], sample);
+			}
+		}
+
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * @param args [samples per run, default: 200000] [rounds, default: 5]
+	 */
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		float[] accel = accelSignal(count);
+		long[] timestamps = timestamps(count);
+		AppStroke appStroke = newAppStroke();
+
+		float[] amplitudes = accelerationSamples(new AccelerationFilter(appStroke), timestamps, accel);
+
+		float[] single = new float[count];
+		float[] out = new float[count];
+
+		for (int i = 0; i < count; ++i) {
+			single[i] = accel[i * DataIdx.ACCEL_ITEM_COUNT + DataIdx.ACCEL_Z];
+		}
+
+		long lowpassSamples = Long.MAX_VALUE;
+		long lowpassBlocks = Long.MAX_VALUE;
+		long accelSamples = Long.MAX_VALUE;
+		long accelBlocks = Long.MAX_VALUE;
+		long scanSamples = Long.MAX_VALUE;
+		long scanBlocks = Long.MAX_VALUE;
+
+		for (int r = 0; r < rounds; ++r) {
+			long start = System.nanoTime();
+			lowpassSamples(single, 1, out);
+			lowpassSamples = Math.min(lowpassSamples, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			lowpassBlocks(single, 1, out);
+			lowpassBlocks = Math.min(lowpassBlocks, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			accelerationSamples(new AccelerationFilter(appStroke), timestamps, accel);
+			accelSamples = Math.min(accelSamples, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			accelerationBlocks(new AccelerationFilter(appStroke), timestamps, accel);
+			accelBlocks = Math.min(accelBlocks, System.nanoTime() - start);
+
+			scanSamples = Math.min(scanSamples, timeScanner(timestamps, amplitudes, false));
+			scanBlocks = Math.min(scanBlocks, timeScanner(timestamps, amplitudes, true));
+		}
+
+		System.out.println(String.format("lowpass:      %.1f ns/sample, blocks of %d: %.1f ns/sample",
+				lowpassSamples / (double) count, BLOCK_SIZE, lowpassBlocks / (double) count));
+		System.out.println(String.format("acceleration: %.1f ns/sample, blocks of %d: %.1f ns/sample",
+				accelSamples / (double) count, BLOCK_SIZE, accelBlocks / (double) count));
+		System.out.println(String.format("stroke rate:  %.1f ns/sample, blocks of %d: %.1f ns/sample",
+				scanSamples / (double) count, BLOCK_SIZE, scanBlocks / (double) count));
+	}
+}
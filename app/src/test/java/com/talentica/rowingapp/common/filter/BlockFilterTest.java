@@ -0,0 +1,216 @@
+package com.talentica.rowingapp.common.filter;
+
+import com.talentica.rowingapp.common.AppEventBus;
+import com.talentica.rowingapp.common.BusEventListener;
+import com.talentica.rowingapp.common.data.DataIdx;
+import com.talentica.rowingapp.common.data.DataRecord;
+import com.talentica.rowingapp.common.data.SensorDataSink;
+import com.talentica.rowingapp.common.data.stroke.AppStroke;
+import com.talentica.rowingapp.common.data.way.DistanceResolverDefault;
+import com.talentica.rowingapp.common.filter.acceleration.AccelerationFilter;
+import com.talentica.rowingapp.common.filter.acceleration.AccelerationFrontEnd;
+import com.talentica.rowingapp.common.param.ParamKeys;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlockFilterTest {
+
+	/**
+	 * 50Hz, in ns
+	 */
+	private static final long SAMPLE_INTERVAL = 20000000;
+
+	private static final int BLOCK_SIZE = 64;
+
+	/**
+	 * rowing-like accelerometer samples, DataIdx.ACCEL_ITEM_COUNT values each, with a few NaN values
+	 */
+	private static float[] accelSignal(int count) {
+		Random random = new Random(1);
+		float[] values = new float[count * DataIdx.ACCEL_ITEM_COUNT];
+
+		for (int i = 0; i < count; ++i) {
+			double a = 2.5 * Math.sin(2 * Math.PI * i * SAMPLE_INTERVAL / 1e9 / 2.4) + 0.4 * random.nextGaussian();
+			int idx = i * DataIdx.ACCEL_ITEM_COUNT;
+
+			values[idx + DataIdx.ACCEL_X] = (float) (0.2 * random.nextGaussian());
+			values[idx + DataIdx.ACCEL_Y] = (float) (0.3 + 0.6 * a);
+			values[idx + DataIdx.ACCEL_Z] = (float) (-0.2 + 0.8 * a);
+
+			if (i % 997 == 500) {
+				values[idx + DataIdx.ACCEL_Y] = Float.NaN;
+			}
+		}
+
+		return values;
+	}
+
+	private static long[] timestamps(int count) {
+		long[] timestamps = new long[count];
+
+		for (int i = 0; i < count; ++i) {
+			timestamps[i] = (i + 1) * SAMPLE_INTERVAL;
+		}
+
+		return timestamps;
+	}
+
+	private static void assertBitEqual(float[] expected, float[] actual) {
+		assertEquals(expected.length, actual.length);
+
+		for (int i = 0; i < expected.length; ++i) {
+			assertEquals("value " + i, Float.floatToIntBits(expected[i]), Float.floatToIntBits(actual[i]));
+		}
+	}
+
+	private static AppStroke newAppStroke(String frontEnd) {
+		AppStroke appStroke = new AppStroke(new DistanceResolverDefault(), null, new AppEventBus(true));
+		appStroke.getParameters().setParam(ParamKeys.PARAM_SENSOR_ACCEL_FRONT_END.getId(), frontEnd);
+		return appStroke;
+	}
+
+	private static List<String> collectEvents(AppStroke appStroke) {
+		final List<String> events = new ArrayList<String>();
+
+		appStroke.getBus().addBusListener(new BusEventListener() {
+			@Override
+			public void onBusEvent(DataRecord event) {
+				events.add(event.toString());
+			}
+		});
+
+		return events;
+	}
+
+	private static void assertLowpassBlocks(float[] in, int channels) {
+		float[] expected = new float[in.length];
+		float[] actual = new float[in.length];
+		float[] sample = new float[channels];
+
+		LowpassFilter filter = new LowpassFilter(0.25f);
+
+		for (int i = 0; i < in.length; i += channels) {
+			System.arraycopy(in, i, sample, 0, channels);
+			System.arraycopy(filter.filter(sample), 0, expected, i, channels);
+		}
+
+		filter = new LowpassFilter(0.25f);
+		filter.filter(new float[channels]); // set the channel count - filtering zeros keeps the initial state
+
+		for (int i = 0; i < in.length; i += BLOCK_SIZE * channels) {
+			filter.filter(in, i, Math.min(BLOCK_SIZE * channels, in.length - i), actual);
+		}
+
+		assertBitEqual(expected, actual);
+	}
+
+	@Test
+	public void testLowpassBlocks() {
+		float[] accel = accelSignal(5000);
+		float[] single = new float[5000];
+
+		for (int i = 0; i < single.length; ++i) {
+			single[i] = accel[i * DataIdx.ACCEL_ITEM_COUNT + DataIdx.ACCEL_Y];
+		}
+
+		assertLowpassBlocks(single, 1);
+		assertLowpassBlocks(accel, DataIdx.ACCEL_ITEM_COUNT);
+	}
+
+	/**
+	 * timestamps at 50Hz, turning to 100Hz halfway - the front end filters get redesigned in the middle of a block
+	 */
+	private static long[] changingRateTimestamps(int count) {
+		long[] timestamps = timestamps(count);
+
+		for (int i = count / 2; i < count; ++i) {
+			timestamps[i] = timestamps[count / 2] + (i - count / 2) * SAMPLE_INTERVAL / 2;
+		}
+
+		return timestamps;
+	}
+
+	private static void assertAccelerationBlocks(String frontEnd, long[] timestamps) {
+		int count = timestamps.length;
+		float[] accel = accelSignal(count);
+		AppStroke appStroke = newAppStroke(frontEnd);
+
+		final float[] expected = new float[count];
+		final int[] idx = {0};
+		AccelerationFilter filter = new AccelerationFilter(appStroke);
+		float[] sample = new float[DataIdx.ACCEL_ITEM_COUNT];
+
+		filter.addSensorDataSink(new SensorDataSink() {
+			@Override
+			public void onSensorData(long timestamp, Object value) {
+				expected[idx[0]++] = ((float[]) value)[0];
+			}
+		});
+
+		for (int i = 0; i < count; ++i) {
+			System.arraycopy(accel, i * DataIdx.ACCEL_ITEM_COUNT, sample, 0, DataIdx.ACCEL_ITEM_COUNT);
+			filter.onSample(timestamps[i], sample);
+		}
+
+		float[] actual = new float[count];
+		float[] block = new float[BLOCK_SIZE];
+
+		filter = new AccelerationFilter(appStroke);
+
+		for (int i = 0; i < count; i += BLOCK_SIZE) {
+			int n = Math.min(BLOCK_SIZE, count - i);
+
+			filter.filterBlock(timestamps, accel, i, n, block);
+			System.arraycopy(block, 0, actual, i, n);
+		}
+
+		assertBitEqual(expected, actual);
+	}
+
+	@Test
+	public void testAccelerationBlocks() {
+		for (AccelerationFrontEnd frontEnd: AccelerationFrontEnd.values()) {
+			assertAccelerationBlocks(frontEnd.name(), timestamps(5000));
+			assertAccelerationBlocks(frontEnd.name(), changingRateTimestamps(5000));
+		}
+	}
+
+	private static void assertSampleBlockEvents(String frontEnd, long[] timestamps) {
+		int count = timestamps.length;
+		float[] accel = accelSignal(count);
+
+		AppStroke samples = newAppStroke(frontEnd);
+		AppStroke blocks = newAppStroke(frontEnd);
+		List<String> expected = collectEvents(samples);
+		List<String> actual = collectEvents(blocks);
+		AccelerationFilter filter = (AccelerationFilter) samples.getAccelerationSource();
+		float[] sample = new float[DataIdx.ACCEL_ITEM_COUNT];
+
+		for (int i = 0; i < count; ++i) {
+			System.arraycopy(accel, i * DataIdx.ACCEL_ITEM_COUNT, sample, 0, DataIdx.ACCEL_ITEM_COUNT);
+			filter.onSample(timestamps[i], sample);
+		}
+
+		filter = (AccelerationFilter) blocks.getAccelerationSource();
+
+		for (int i = 0; i < count; i += BLOCK_SIZE - 7) {
+			filter.onSampleBlock(timestamps, accel, i, Math.min(BLOCK_SIZE - 7, count - i));
+		}
+
+		assertTrue(expected.size() > 100);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testSampleBlockEvents() {
+		assertSampleBlockEvents(AccelerationFrontEnd.LOWPASS.name(), timestamps(20000));
+		assertSampleBlockEvents(AccelerationFrontEnd.BANDPASS.name(), changingRateTimestamps(20000));
+	}
+}
@@ -0,0 +1,203 @@
+package com.talentica.rowingapp.ui.graph;
+
+import java.util.Random;
+
+/**
+ * Micro benchmark of adding to a ROLLING {@link CyclicArrayXYSeries} with long x ranges and dense data, as the
+ * accelerometer graph does. For comparison, counts the values the former Y range tracking would have scanned per add -
+ * it rescanned the whole window whenever an evicted value was the window min or max.
+ * Also compares adding one value at a time with adding batches of float values, through a {@link MultiXYSeries}
+ * proxy as the graphs do.
+ */
+public class CyclicArrayXYSeriesBenchmark {
+
+	/**
+	 * 50Hz, in ms
+	 */
+	private static final double SAMPLE_INTERVAL = 20;
+
+	/**
+	 * values per batch - about what the accelerometer graph drains from its queue at once
+	 */
+	private static final int BATCH_SIZE = 10;
+
+	/**
+	 * the former Y range tracking of a rolling series, counting scanned values
+	 */
+	private static class RescanningSeries {
+		private final double xRange;
+		private final double[] xArr;
+		private final double[] yArr;
+		private int pos;
+		private int itemCount;
+		private double minY = Double.MAX_VALUE;
+		private double maxY = -Double.MAX_VALUE;
+		private long scanCount;
+
+		RescanningSeries(double xRange, int capacity) {
+			this.xRange = xRange;
+			xArr = new double[capacity];
+			yArr = new double[capacity];
+		}
+
+		void add(double x, double y) {
+			int idx = (pos + itemCount) % xArr.length;
+
+			xArr[idx] = x;
+			yArr[idx] = y;
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+			++itemCount;
+
+			boolean rescan = false;
+
+			while (itemCount > 0 && xArr[pos] < x - xRange) {
+				double removed = yArr[pos];
+
+				rescan |= removed == minY || removed == maxY;
+				pos = (pos + 1) % xArr.length;
+				--itemCount;
+			}
+
+			if (rescan) {
+				minY = Double.MAX_VALUE;
+				maxY = -Double.MAX_VALUE;
+
+				scanCount += itemCount;
+
+				for (int i = 0; i < itemCount; ++i) {
+					double v = yArr[(pos + i) % xArr.length];
+					minY = Math.min(minY, v);
+					maxY = Math.max(maxY, v);
+				}
+			}
+		}
+	}
+
+	/**
+	 * rowing-like acceleration, 0.01 quantized like sensor values - so evicted values often equal the min or max
+	 */
+	private static double[] rowingSignal(int count) {
+		Random random = new Random(1);
+		double[] values = new double[count];
+
+		for (int i = 0; i < count; ++i) {
+			double t = i * SAMPLE_INTERVAL / 1000;
+			double v = 2.5 * Math.sin(2 * Math.PI * t / 2.4) + 0.4 * random.nextGaussian();
+			values[i] = Math.round(v * 100) / 100.0;
+		}
+
+		return values;
+	}
+
+	/**
+	 * steadily falling values - every eviction removes the window max
+	 */
+	private static double[] fallingSignal(int count) {
+		double[] values = new double[count];
+
+		for (int i = 0; i < count; ++i) {
+			values[i] = -i * 0.001;
+		}
+
+		return values;
+	}
+
+	private static CyclicArrayXYSeries newSeries(double xRange) {
+		CyclicArrayXYSeries series = new CyclicArrayXYSeries(XYSeries.XMode.ROLLING, new XYSeries.Renderer(null, null));
+		series.setxRange(xRange);
+		return series;
+	}
+
+	private static long runSeries(double[] values, double xRange) {
+		CyclicArrayXYSeries series = newSeries(xRange);
+		long start = System.nanoTime();
+
+		for (int i = 0; i < values.length; ++i) {
+			series.add(i * SAMPLE_INTERVAL, values[i]);
+		}
+
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * add one value at a time to a proxied double y series, or batches to a proxied float y series
+	 */
+	private static long runProxied(double[] values, double xRange, boolean batched) {
+		MultiXYSeries multiSeries = new MultiXYSeries(xRange, XYSeries.XMode.ROLLING);
+		XYSeries series = multiSeries.addSeries(new CyclicArrayXYSeries(XYSeries.XMode.ROLLING,
+				new XYSeries.Renderer(null, null), batched, CyclicArrayXYSeries.DEFAULT_MAX_CAPACITY));
+		long[] xs = new long[BATCH_SIZE];
+		float[] ys = new float[BATCH_SIZE];
+		long start = System.nanoTime();
+
+		if (batched) {
+			for (int i = 0; i + BATCH_SIZE <= values.length; i += BATCH_SIZE) {
+				for (int j = 0; j < BATCH_SIZE; ++j) {
+					xs[j] = (long) ((i + j) * SAMPLE_INTERVAL);
+					ys[j] = (float) values[i + j];
+				}
+
+				series.addAll(xs, ys, BATCH_SIZE);
+			}
+		} else {
+			for (int i = 0; i < values.length; ++i) {
+				series.add(i * SAMPLE_INTERVAL, values[i]);
+			}
+		}
+
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * @return number of values scanned by the former Y range tracking
+	 */
+	private static long countRescanned(double[] values, double xRange) {
+		RescanningSeries series = new RescanningSeries(xRange, (int) (xRange / SAMPLE_INTERVAL) + 2);
+
+		for (int i = 0; i < values.length; ++i) {
+			series.add(i * SAMPLE_INTERVAL, values[i]);
+		}
+
+		return series.scanCount;
+	}
+
+	private static void run(String name, double[] values, double xRange, int rounds) {
+		long best = Long.MAX_VALUE;
+
+		for (int i = 0; i < rounds; ++i) {
+			best = Math.min(best, runSeries(values, xRange));
+		}
+
+		System.out.println(String.format("%s, %.0fs x range (%d points): %.1f ns/add, former tracking scanned %.1f values/add",
+				name, xRange / 1000, (int) (xRange / SAMPLE_INTERVAL), best / (double) values.length,
+				countRescanned(values, xRange) / (double) values.length));
+
+		long bestSingle = Long.MAX_VALUE;
+		long bestBatched = Long.MAX_VALUE;
+
+		for (int i = 0; i < rounds; ++i) {
+			bestSingle = Math.min(bestSingle, runProxied(values, xRange, false));
+			bestBatched = Math.min(bestBatched, runProxied(values, xRange, true));
+		}
+
+		System.out.println(String.format("    proxied: %.1f ns/add, float batches of %d: %.1f ns/value",
+				bestSingle / (double) values.length, BATCH_SIZE, bestBatched / (double) values.length));
+	}
+
+	/**
+	 * @param args [adds per run, default: 200000] [rounds, default: 5]
+	 */
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		double[] rowing = rowingSignal(count);
+		double[] falling = fallingSignal(count);
+
+		for (double xRange: new double[] {10000, 60000, 600000}) {
+			run("rowing", rowing, xRange, rounds);
+			run("falling", falling, xRange, rounds);
+		}
+	}
+}
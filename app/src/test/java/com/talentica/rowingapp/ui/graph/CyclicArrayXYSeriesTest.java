@@ -0,0 +1,116 @@
+package com.talentica.rowingapp.ui.graph;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class CyclicArrayXYSeriesTest {
+
+	private static CyclicArrayXYSeries newSeries(XYSeries.XMode mode, double xRange) {
+		CyclicArrayXYSeries series = new CyclicArrayXYSeries(mode, new XYSeries.Renderer(null, null));
+		series.setxRange(xRange);
+		return series;
+	}
+
+	private static void assertYRange(CyclicArrayXYSeries series) {
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+
+		for (int j = 0; j < series.getItemCount(); ++j) {
+			min = Math.min(min, series.getY(j));
+			max = Math.max(max, series.getY(j));
+		}
+
+		assertEquals(min, series.getMinY(), 0);
+		assertEquals(max, series.getMaxY(), 0);
+	}
+
+	@Test
+	public void testRollingYRangeOfQuantizedSignal() {
+		CyclicArrayXYSeries series = newSeries(XYSeries.XMode.ROLLING, 2000);
+		Random random = new Random(1);
+
+		for (int i = 0; i < 5000; ++i) { // 0.01 quantized - evicted values often equal the min or max
+			double v = 2.5 * Math.sin(2 * Math.PI * i / 120.0) + 0.4 * random.nextGaussian();
+			series.add(i * 20, Math.round(v * 100) / 100.0);
+			assertYRange(series);
+		}
+	}
+
+	@Test
+	public void testRollingYRangeOfFallingSignal() {
+		CyclicArrayXYSeries series = newSeries(XYSeries.XMode.ROLLING, 1000);
+
+		for (int i = 0; i < 3000; ++i) { // every eviction removes the max
+			series.add(i * 20, -i * 0.001);
+			assertYRange(series);
+		}
+
+		assertEquals(-2.999, series.getMinY(), 1e-9);
+	}
+
+	@Test
+	public void testYRangeAfterRemove() {
+		CyclicArrayXYSeries series = newSeries(XYSeries.XMode.GROWING, 1e9);
+		Random random = new Random(2);
+
+		for (int i = 0; i < 500; ++i) {
+			series.add(i, random.nextInt(50));
+		}
+
+		while (series.getItemCount() > 1) {
+			series.remove(random.nextInt(series.getItemCount()));
+			assertYRange(series);
+		}
+	}
+
+	@Test
+	public void testBatchesMatchSingleAdds() {
+		CyclicArrayXYSeries single = new CyclicArrayXYSeries(XYSeries.XMode.ROLLING, new XYSeries.Renderer(null, null), true, 4096);
+		CyclicArrayXYSeries batched = new CyclicArrayXYSeries(XYSeries.XMode.ROLLING, new XYSeries.Renderer(null, null), true, 4096);
+		long[] xs = new long[10];
+		float[] ys = new float[10];
+		Random random = new Random(3);
+
+		single.setxRange(3000);
+		batched.setxRange(3000);
+
+		for (int i = 0; i < 1000; i += xs.length) {
+			for (int j = 0; j < xs.length; ++j) {
+				xs[j] = (i + j) * 20;
+				ys[j] = (float) random.nextGaussian();
+				single.add(xs[j], ys[j]);
+			}
+
+			batched.addAll(xs, ys, xs.length);
+
+			assertEquals(single.getItemCount(), batched.getItemCount());
+			assertEquals(single.getMinY(), batched.getMinY(), 0);
+			assertEquals(single.getMaxY(), batched.getMaxY(), 0);
+		}
+
+		for (int i = 0; i < single.getItemCount(); ++i) {
+			assertEquals(single.getX(i), batched.getX(i), 0);
+			assertEquals(single.getY(i), batched.getY(i), 0);
+		}
+	}
+
+	@Test
+	public void testEvictionAtMaxCapacity() {
+		CyclicArrayXYSeries series = new CyclicArrayXYSeries(XYSeries.XMode.GROWING, new XYSeries.Renderer(null, null), true, 1000);
+		int count = 5000;
+
+		for (int i = 0; i < count; ++i) {
+			series.add(i, i % 7);
+		}
+
+		assertEquals(1024, series.getItemCount()); // capacity rounded up to a power of two
+		assertEquals(count - 1024, series.getEvictedCount());
+		assertEquals(count - 1024, series.getX(0), 0);
+		assertEquals(count - 1, series.getX(1023), 0);
+		assertEquals((count - 1) % 7, series.getY(1023), 0);
+		assertYRange(series);
+	}
+}